@@ -104,6 +104,11 @@ public final class DiskBuilder extends Builder implements Closeable {
       ta.close();
     }
     meta.dbfile(DATATMP).delete();
+    if(meta.tablecomp) TableDiskAccess.compress(meta);
+    if(meta.textcomp) {
+      DataAccess.compress(meta.dbfile(DATATXT), meta.dbfile(DATATXTC));
+      DataAccess.compress(meta.dbfile(DATAATV), meta.dbfile(DATAATVC));
+    }
 
     // return database instance
     return new DiskData(meta, elemNames, attrNames, path, ns);
@@ -204,7 +209,8 @@ public final class DiskBuilder extends Builder implements Closeable {
     // store text
     final DataOutput store = text ? xout : vout;
     final long off = store.size();
-    final byte[] val = COMP.get().pack(value);
+    // compressed text files: store original value
+    final byte[] val = meta.textcomp ? value : COMP.get().pack(value);
     store.writeToken(val);
     return val == value ? off : off | IO.OFFCOMP;
   }
@@ -4,6 +4,7 @@ import org.basex.core.locks.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.*;
 import org.basex.query.util.pkg.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -40,6 +41,8 @@ public final class Context {
   public final Databases databases;
   /** Log. */
   public final Log log;
+  /** Cached queries. */
+  public final QueryCache queries;
 
   /** Client listener. Set to {@code null} in standalone/server mode. */
   public ClientListener listener;
@@ -93,6 +96,7 @@ public final class Context {
     users = ctx.users;
     repo = ctx.repo;
     log = ctx.log;
+    queries = ctx.queries;
   }
 
   /**
@@ -122,6 +126,7 @@ public final class Context {
     users = new Users(soptions);
     repo = new Repo(soptions);
     log = new Log(soptions);
+    queries = new QueryCache();
     user = users.get(UserText.ADMIN);
   }
 
@@ -69,6 +69,15 @@ public final class MainOptions extends Options {
   /** Cache new documents before adding them to a database. */
   public static final BooleanOption ADDCACHE = new BooleanOption("ADDCACHE", false);
 
+  // Storage
+
+  /** Flag for compressing the table of new databases. */
+  public static final BooleanOption TABLECOMPRESS = new BooleanOption("TABLECOMPRESS", false);
+  /** Flag for compressing the texts and attribute values of new databases. */
+  public static final BooleanOption TEXTCOMPRESS = new BooleanOption("TEXTCOMPRESS", false);
+  /** Maximum number of kilobytes to be read and written for compaction after an update. */
+  public static final NumberOption COMPACTION = new NumberOption("COMPACTION", 0);
+
   // Indexing
 
   /** Flag for creating a text index. */
@@ -82,6 +91,8 @@ public final class MainOptions extends Options {
   public static final NumberOption INDEXSPLITSIZE = new NumberOption("INDEXSPLITSIZE", 0);
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final NumberOption FTINDEXSPLITSIZE = new NumberOption("FTINDEXSPLITSIZE", 0);
+  /** Number of threads for creating indexes (0: number of available processors). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 0);
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
@@ -89,8 +100,12 @@ public final class MainOptions extends Options {
   public static final NumberOption MAXCATS = new NumberOption("MAXCATS", 100);
   /** Flag for activating incremental index structures. */
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
+  /** Flag for indexing texts and attribute values together with their names. */
+  public static final BooleanOption COMPOSITE = new BooleanOption("COMPOSITE", false);
   /** Flag for automatic index updates. */
   public static final BooleanOption AUTOOPTIMIZE = new BooleanOption("AUTOOPTIMIZE", false);
+  /** Number of entries per compressed block of index lists (0: no compression). */
+  public static final NumberOption INDEXBLOCKSIZE = new NumberOption("INDEXBLOCKSIZE", 0);
 
   // Full-Text
 
@@ -119,6 +134,8 @@ public final class MainOptions extends Options {
   public static final NumberOption INLINELIMIT = new NumberOption("INLINELIMIT", 100);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Number of threads for parallel evaluation (for clauses, xquery:fork-join). */
+  public static final NumberOption FORKJOIN = new NumberOption("FORKJOIN", 1);
   /** Favor global database when opening resources. */
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Caches the query results. */
@@ -129,6 +146,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption CHECKSTRINGS = new BooleanOption("CHECKSTRINGS", true);
   /** Levenshtein default error. */
   public static final NumberOption LSERROR = new NumberOption("LSERROR", 0);
+  /** Flag for scoring full-text index results with the BM25 model. */
+  public static final BooleanOption BM25 = new BooleanOption("BM25", false);
   /** Runs the query results, or only parses it. */
   public static final BooleanOption RUNQUERY = new BooleanOption("RUNQUERY", true);
   /** Number of query executions. */
@@ -156,6 +175,10 @@ public final class MainOptions extends Options {
 
   /** Flushes the database after each update. */
   public static final BooleanOption AUTOFLUSH = new BooleanOption("AUTOFLUSH", true);
+  /** Maximum delay (in milliseconds) for flushing the updates of several queries at once. */
+  public static final NumberOption GROUPCOMMIT = new NumberOption("GROUPCOMMIT", 0);
+  /** Records updates in a redo log, which will be replayed after a crash. */
+  public static final BooleanOption REDOLOG = new BooleanOption("REDOLOG", false);
   /** Writes original files back after updates. */
   public static final BooleanOption WRITEBACK = new BooleanOption("WRITEBACK", false);
   /** Maximum number of index occurrences to print. */
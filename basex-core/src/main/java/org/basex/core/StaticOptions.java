@@ -36,6 +36,14 @@ public final class StaticOptions extends Options {
   public static final BooleanOption LANGKEYS = new BooleanOption("LANGKEYS", false);
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final BooleanOption GLOBALLOCK = new BooleanOption("GLOBALLOCK", false);
+  /** Maximum number of table pages (4 KB each) that are buffered per opened database. */
+  public static final NumberOption TABLEBUFFERS = new NumberOption("TABLEBUFFERS", 256);
+  /** Maximum number of table pages that are read ahead if pages are accessed sequentially. */
+  public static final NumberOption TABLEPREFETCH = new NumberOption("TABLEPREFETCH", 16);
+  /** Read database table and texts from memory-mapped files. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Read database table and texts with thread-local cursors (ignored if MMAP is enabled). */
+  public static final BooleanOption LOCKFREE = new BooleanOption("LOCKFREE", false);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -69,6 +77,8 @@ public final class StaticOptions extends Options {
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
   /** Defines the number of parallel readers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
+  /** Maximum number of parsed queries that are cached for reuse; deactivated if set to 0. */
+  public static final NumberOption QUERYCACHE = new NumberOption("QUERYCACHE", 0);
   /** Logging flag. */
   public static final BooleanOption LOG = new BooleanOption("LOG", true);
   /** Log message cut-off. */
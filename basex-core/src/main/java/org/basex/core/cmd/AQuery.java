@@ -190,7 +190,7 @@ public abstract class AQuery extends Command {
    */
   private QueryProcessor qp(final String query, final Context ctx) {
     if(qp == null) {
-      qp = proc(new QueryProcessor(query, ctx));
+      qp = proc(new QueryProcessor(query, ctx).cache());
       if(info == null) info = qp.qc.info;
     }
     return qp;
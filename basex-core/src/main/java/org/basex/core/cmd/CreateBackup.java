@@ -44,6 +44,12 @@ public final class CreateBackup extends ABackup {
     // loop through all databases
     boolean ok = true;
     for(final String db : dbs) {
+      // write pending group commits of opened databases
+      final Data data = context.datas.pin(db);
+      if(data != null) {
+        data.flush(true);
+        context.datas.unpin(data);
+      }
       // don't open databases marked as updating
       if(MetaData.file(soptions.dbpath(db), DATAUPD).exists()) {
         // reject backups of databases that are currently being updated (or corrupt)
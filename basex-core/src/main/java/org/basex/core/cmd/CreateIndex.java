@@ -37,6 +37,9 @@ public final class CreateIndex extends ACreate {
     final CmdIndex ci = getOption(CmdIndex.class);
     if(ci == null) return error(UNKNOWN_CMD_X, this);
     final IndexType type;
+    // composite keys are shared by both value indexes
+    final boolean cp = options.get(MainOptions.COMPOSITE) && !data.inMemory();
+    final boolean changed = cp != data.meta.composite;
     if(ci == CmdIndex.TEXT) {
       data.meta.createtext = true;
       type = IndexType.TEXT;
@@ -59,6 +62,14 @@ public final class CreateIndex extends ACreate {
     if(!startUpdate()) return false;
     boolean ok = true;
     try {
+      if(type != IndexType.FULLTEXT) {
+        data.meta.composite = cp;
+        // rebuild other value index if the key type has changed
+        final IndexType other = type == IndexType.TEXT ? IndexType.ATTRIBUTE : IndexType.TEXT;
+        if(changed && (other == IndexType.TEXT ? data.meta.textindex : data.meta.attrindex)) {
+          create(other, data, options, this);
+        }
+      }
       create(type, data, options, this);
       ok = info(INDEX_CREATED_X_X, type, perf);
     } catch(final IOException ex) {
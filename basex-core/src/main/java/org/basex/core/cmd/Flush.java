@@ -24,7 +24,10 @@ public final class Flush extends Command {
   @Override
   protected boolean run() {
     final Data data = context.data();
-    if(!options.get(MainOptions.AUTOFLUSH)) data.flush(true);
+    // flush buffers, or pending group commit
+    if(!options.get(MainOptions.AUTOFLUSH) || options.get(MainOptions.GROUPCOMMIT) > 0) {
+      data.flush(true);
+    }
     return info(DB_FLUSHED_X, data.meta.name, perf);
   }
 
@@ -89,6 +89,10 @@ public final class InfoDB extends AInfo {
         info(tb, MainOptions.STOPWORDS.name(), meta.stopwords);
         info(tb, MainOptions.UPDINDEX.name(), meta.updindex);
         info(tb, MainOptions.AUTOOPTIMIZE.name(), meta.autoopt);
+        info(tb, MainOptions.TABLECOMPRESS.name(), meta.tablecomp);
+        info(tb, MainOptions.TEXTCOMPRESS.name(), meta.textcomp);
+        info(tb, MainOptions.INDEXBLOCKSIZE.name(), meta.blocksize);
+        info(tb, MainOptions.COMPOSITE.name(), meta.composite);
         info(tb, MainOptions.MAXCATS.name(), meta.maxcats);
         info(tb, MainOptions.MAXLEN.name(), meta.maxlen);
       }
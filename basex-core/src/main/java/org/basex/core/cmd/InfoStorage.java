@@ -59,6 +59,15 @@ public final class InfoStorage extends AQuery {
         }
       }
       out.print(table(data, ps, pe));
+      // overview: add storage statistics
+      if(start == null) {
+        final TokenBuilder tb = new TokenBuilder();
+        data.storage(tb);
+        if(!tb.isEmpty()) {
+          out.print(NL);
+          out.print(tb.finish());
+        }
+      }
     }
     return true;
   }
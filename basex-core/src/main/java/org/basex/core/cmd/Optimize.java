@@ -92,6 +92,8 @@ public final class Optimize extends ACreate {
 
     // initialize structural indexes
     final MetaData md = data.meta;
+    // composite keys of updatable indexes are not maintained: rebuild value indexes
+    final boolean rebuild = enforce || md.composite && md.updindex && !md.uptodate;
     if(!md.uptodate) {
       data.paths.init();
       data.elemNames.init();
@@ -145,8 +147,8 @@ public final class Optimize extends ACreate {
     }
 
     // rebuild value indexes
-    optimize(IndexType.ATTRIBUTE, data, options, md.createattr, md.attrindex, enforce, cmd);
-    optimize(IndexType.TEXT,      data, options, md.createtext, md.textindex, enforce, cmd);
+    optimize(IndexType.ATTRIBUTE, data, options, md.createattr, md.attrindex, rebuild, cmd);
+    optimize(IndexType.TEXT,      data, options, md.createtext, md.textindex, rebuild, cmd);
     optimize(IndexType.FULLTEXT,  data, options, md.createftxt, md.ftxtindex, enforceFT, cmd);
   }
 
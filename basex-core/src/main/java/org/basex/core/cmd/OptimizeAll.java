@@ -106,12 +106,18 @@ public final class OptimizeAll extends ACreate {
 
     // check if database is also pinned by other users
     if(context.datas.pins(ometa.name) > 1) throw new BaseXException(DB_PINNED_X, name);
+    // write pending group commit
+    odata.flush(true);
 
     // adopt original meta information
     options.set(MainOptions.CHOP, ometa.chop);
     // adopt original index options
     options.set(MainOptions.UPDINDEX, ometa.updindex);
     options.set(MainOptions.AUTOOPTIMIZE, ometa.autoopt);
+    options.set(MainOptions.TABLECOMPRESS, ometa.tablecomp);
+    options.set(MainOptions.TEXTCOMPRESS, ometa.textcomp);
+    options.set(MainOptions.INDEXBLOCKSIZE, ometa.blocksize);
+    options.set(MainOptions.COMPOSITE, ometa.composite);
     options.set(MainOptions.MAXCATS,  ometa.maxcats);
     options.set(MainOptions.MAXLEN,   ometa.maxlen);
     // adopt original full-text index options
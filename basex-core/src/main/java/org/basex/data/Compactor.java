@@ -0,0 +1,315 @@
+package org.basex.data;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * This class compacts the storage of a disk-based database in small steps, which are
+ * performed between updates and bounded by an I/O budget.
+ *
+ * The table is compacted by {@link TableDiskAccess#compact}. Free space in the text and
+ * attribute value files is reclaimed in cycles: first, the file is scanned, and gaps (which have
+ * been filled with {@code 0xFF} bytes by {@link DataAccess#free}) are recorded. Next, the values
+ * that are located at the end of the file are moved to gaps at lower offsets. The scan of the
+ * next cycle will then discard the gap at the end of the file.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Compactor {
+  /** Data reference. */
+  private final Data data;
+  /** Texts. */
+  private final Heap texts;
+  /** Attribute values. */
+  private final Heap values;
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @param texts texts
+   * @param values attribute values
+   */
+  Compactor(final Data data, final DataAccess texts, final DataAccess values) {
+    this.data = data;
+    this.texts = new Heap(texts, true);
+    this.values = new Heap(values, false);
+  }
+
+  /**
+   * Performs a compaction step.
+   * @param budget maximum number of bytes to be read and written
+   * @throws IOException I/O exception
+   */
+  void step(final long budget) throws IOException {
+    long spent = ((TableDiskAccess) data.table).compact(budget);
+    if(spent < budget) spent += texts.step(budget - spent);
+    if(spent < budget) values.step(budget - spent);
+  }
+
+  /**
+   * Adds compaction statistics to the specified token builder.
+   * @param tb token builder
+   */
+  void info(final TokenBuilder tb) {
+    texts.info(tb, TEXTCOMPACTION);
+    values.info(tb, ATTRCOMPACTION);
+  }
+
+  /**
+   * Registers a slot that has been passed on to {@link DataAccess#free} by an update.
+   * @param text texts or attribute values
+   * @param offset offset of the slot
+   */
+  void freed(final boolean text, final long offset) {
+    (text ? texts : values).freed(offset);
+  }
+
+  /** Compaction of a text or attribute value file. */
+  private final class Heap {
+    /** Phase: scan file for gaps. */
+    private static final int SCAN = 0;
+    /** Phase: move values to gaps. */
+    private static final int MOVE = 1;
+    /** Phase: scan end of file for a gap. */
+    private static final int TRIM = 2;
+    /** Phase: no gaps found. */
+    private static final int IDLE = 3;
+
+    /** File access. */
+    private final DataAccess da;
+    /** Texts or attribute values. */
+    private final boolean text;
+    /** Sizes of the recorded gaps, indexed by their offsets. */
+    private final TreeMap<Long, Integer> gaps = new TreeMap<>();
+    /** Offsets of the recorded gaps, indexed by their sizes. */
+    private final TreeMap<Integer, TreeSet<Long>> sizes = new TreeMap<>();
+    /** Offsets of slots that have been freed since the last step. */
+    private final TreeSet<Long> freed = new TreeSet<>();
+    /** Indicates if compaction steps have been performed. */
+    private boolean active;
+    /** Compaction phase. */
+    private int phase = SCAN;
+    /** Offset of the next value (scan) or next pre value (move). */
+    private long pos;
+    /** Total size of the recorded gaps. */
+    private long free;
+    /** Values at this offset or later will be moved to gaps. */
+    private long tail;
+    /** Number of values that have been moved in the current cycle. */
+    private int moved;
+    /** Number of bytes that have been reclaimed. */
+    private long reclaimed;
+
+    /**
+     * Constructor.
+     * @param da file access
+     * @param text texts or attribute values
+     */
+    Heap(final DataAccess da, final boolean text) {
+      this.da = da;
+      this.text = text;
+    }
+
+    /**
+     * Registers a slot that has been freed by an update.
+     * @param offset offset of the slot
+     */
+    void freed(final long offset) {
+      if(active) freed.add(offset);
+    }
+
+    /**
+     * Performs a compaction step.
+     * @param budget maximum number of bytes to be read and written
+     * @return number of bytes that have been read or written
+     */
+    long step(final long budget) {
+      active = true;
+      invalidate();
+
+      long spent = 0;
+      while(spent < budget && phase != IDLE) {
+        if(phase != MOVE) {
+          if(pos < da.length()) {
+            spent += scan();
+          } else if(phase == SCAN && !gaps.isEmpty()) {
+            phase = MOVE;
+            tail = da.length() - free;
+            moved = 0;
+            pos = 0;
+          } else {
+            phase = IDLE;
+            clear();
+          }
+        } else {
+          if(pos < data.meta.size) {
+            spent += move((int) pos++);
+          } else {
+            // scan the end of the file again, starting from the last gap before the moved values
+            final Long start = gaps.floorKey(tail);
+            phase = moved == 0 ? IDLE : TRIM;
+            pos = start != null ? start : 0;
+            clear();
+          }
+        }
+      }
+      return spent;
+    }
+
+    /**
+     * Adds compaction statistics to the specified token builder.
+     * @param tb token builder
+     * @param name name of the statistics
+     */
+    void info(final TokenBuilder tb, final byte[] name) {
+      tb.add(' ').add(name).add(COLS);
+      if(!active || phase == IDLE) {
+        tb.add("idle");
+      } else if(phase != MOVE) {
+        final long l = da.length();
+        tb.add(phase == SCAN ? "scanning, " : "trimming, ");
+        tb.addLong(l == 0 ? 100 : Math.min(100, pos * 100 / l)).add('%');
+      } else {
+        final int s = data.meta.size;
+        tb.add("moving values, ").addLong(s == 0 ? 100 : Math.min(100, pos * 100 / s));
+        tb.add('%');
+      }
+      tb.add(", ").add(Performance.format(reclaimed)).add(NL);
+    }
+
+    /**
+     * Drops the gaps that may have been modified by updates. A slot that is freed may be
+     * extended to the gap that directly follows it.
+     */
+    private void invalidate() {
+      if(freed.isEmpty()) return;
+      if(phase == IDLE) {
+        // start new cycle
+        phase = SCAN;
+        pos = 0;
+      } else if(phase != MOVE && freed.contains(pos)) {
+        // the next value may have been freed and merged with a preceding slot:
+        // continue with the first freed slot, drop all subsequent gaps
+        pos = freed.first();
+        while(!gaps.isEmpty() && gaps.lastKey() >= pos) {
+          final Entry<Long, Integer> gap = gaps.lastEntry();
+          remove(gap.getKey(), gap.getValue());
+        }
+      }
+      for(final long offset : freed) {
+        final Entry<Long, Integer> gap = gaps.higherEntry(offset);
+        if(gap != null) remove(gap.getKey(), gap.getValue());
+      }
+      freed.clear();
+    }
+
+    /**
+     * Parses the value at the current offset and the subsequent gap.
+     * @return number of bytes that have been read
+     */
+    private long scan() {
+      final long start = pos, length = da.length();
+      long end = start;
+      if((da.read1(end) & 0xFF) != 0xFF) {
+        final int l = da.readNum(end);
+        end += Num.length(l) + l;
+      }
+      // gap: find end
+      final long gap = end;
+      while(end < length && (da.read1(end) & 0xFF) == 0xFF) end++;
+      if(end == length && gap < end) {
+        // gap at the end of the file: discard it
+        da.length(gap);
+        reclaimed += end - gap;
+      } else if(gap < end) {
+        add(gap, (int) Math.min(end - gap, Integer.MAX_VALUE));
+      }
+      pos = end;
+      return end - start;
+    }
+
+    /**
+     * Moves the value of the specified node to a gap with a lower offset.
+     * @param pre pre value
+     * @return number of bytes that have been read or written
+     */
+    private long move(final int pre) {
+      final int kind = data.kind(pre);
+      // attribute values are stored in the values file, all other values in the texts file
+      if(kind == Data.ELEM || (text ? kind == Data.ATTR : kind != Data.ATTR)) return IO.NODESIZE;
+
+      final long old = data.textOff(pre);
+      if((old & IO.OFFNUM) != 0) return IO.NODESIZE;
+      final long off = old & IO.OFFCOMP - 1;
+      if(off < tail) return IO.NODESIZE;
+
+      // find smallest gap with a lower offset that is large enough
+      final byte[] value = da.readToken(off);
+      final int size = Num.length(value.length) + value.length;
+      long target = -1;
+      for(Entry<Integer, TreeSet<Long>> e = sizes.ceilingEntry(size); e != null && target == -1;
+          e = sizes.higherEntry(e.getKey())) {
+        final long o = e.getValue().first();
+        if(o < off) target = o;
+      }
+      if(target == -1) return IO.NODESIZE + size;
+
+      // move value and free original slot
+      final int gap = gaps.get(target);
+      remove(target, gap);
+      if(gap > size) add(target + size, gap - size);
+      da.writeToken(target, value);
+      data.textOff(pre, target | old & IO.OFFCOMP);
+      da.free(off, 0);
+      moved++;
+      return IO.NODESIZE + size * 2L;
+    }
+
+    /**
+     * Clears all recorded gaps.
+     */
+    private void clear() {
+      gaps.clear();
+      sizes.clear();
+      free = 0;
+    }
+
+    /**
+     * Records a gap.
+     * @param offset offset
+     * @param size size
+     */
+    private void add(final long offset, final int size) {
+      gaps.put(offset, size);
+      TreeSet<Long> offsets = sizes.get(size);
+      if(offsets == null) {
+        offsets = new TreeSet<>();
+        sizes.put(size, offsets);
+      }
+      offsets.add(offset);
+      free += size;
+    }
+
+    /**
+     * Removes a recorded gap.
+     * @param offset offset
+     * @param size size
+     */
+    private void remove(final long offset, final int size) {
+      gaps.remove(offset);
+      final TreeSet<Long> offsets = sizes.get(size);
+      offsets.remove(offset);
+      if(offsets.isEmpty()) sizes.remove(size);
+      free -= size;
+    }
+  }
+}
@@ -124,6 +124,14 @@ public abstract class Data {
    */
   public abstract void close();
 
+  /**
+   * Adds storage statistics to the specified token builder.
+   * @param tb token builder
+   */
+  public void storage(final TokenBuilder tb) {
+    table.info(tb);
+  }
+
   /**
    * Drops the specified index.
    * @param type index to be dropped
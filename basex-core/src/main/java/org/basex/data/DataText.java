@@ -40,6 +40,14 @@ public interface DataText {
   String DBUPDIDX = "UPDINDEX";
   /** Automatic optimization. */
   String DBAUTOOPT = "AUTOOPT";
+  /** Table compression. */
+  String DBTBLCOMP = "TBLCOMP";
+  /** Text compression. */
+  String DBTXTCOMP = "TXTCOMP";
+  /** Block size of compressed index lists. */
+  String DBIDXBLK = "IDXBLOCKSIZE";
+  /** Composite index keys. */
+  String DBCOMPOS = "COMPOSITE";
   /** Text indexing. */
   String DBTXTIDX = "TXTINDEX";
   /** Attribute indexing. */
@@ -99,6 +107,10 @@ public interface DataText {
   String DATATMP = "tmp";
   /** Database - Text index. */
   String DATATXT = "txt";
+  /** Database - Directory of compressed texts. */
+  String DATATXTC = "ctxt";
+  /** Database - Directory of compressed attribute values. */
+  String DATAATVC = "catv";
   /** Database - Attribute value index. */
   String DATAATV = "atv";
   /** Database - Full-text index. */
@@ -111,6 +123,8 @@ public interface DataText {
   String DATAPTH = "pth";
   /** Database - ID->PRE mapping. */
   String DATAIDP = "idp";
+  /** Database - Redo log. */
+  String DATALOG = "log";
 
   // XML SERIALIZATION ============================================================================
 
@@ -253,4 +267,23 @@ public interface DataText {
   byte[] TABLEURI = token("URI");
   /** Table kinds. */
   byte[][] TABLEKINDS = tokens("DOC ", "ELEM", "TEXT", "ATTR", "COMM", "PI  ");
+
+  // STORAGE STATISTICS ===========================================================================
+
+  /** Number of allocated table buffers. */
+  byte[] TABLEBUFFERS = token("Table Buffers");
+  /** Number of page requests served by the buffers. */
+  byte[] BUFFERHITS = token("Buffer Hits");
+  /** Number of page requests that required disk access. */
+  byte[] BUFFERMISSES = token("Buffer Misses");
+  /** Number of used and allocated table pages. */
+  byte[] TABLEPAGES = token("Table Pages");
+  /** Compaction of the table. */
+  byte[] TABLECOMPACTION = token("Table Compaction");
+  /** Compaction of the texts. */
+  byte[] TEXTCOMPACTION = token("Text Compaction");
+  /** Compaction of the attribute values. */
+  byte[] ATTRCOMPACTION = token("Attribute Compaction");
+  /** Size of the redo log. */
+  byte[] REDOLOG = token("Redo Log");
 }
@@ -4,6 +4,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
@@ -16,6 +17,7 @@ import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.out.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -38,17 +40,35 @@ public final class DiskData extends Data {
       return new Compress();
     }
   };
+  /** Timer for flushing group commits. */
+  private static final Timer FLUSHER = new Timer(true);
 
   /** Texts access file. */
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Storage compactor. */
+  private Compactor compactor;
   /** Texts buffered for subsequent index updates. */
   private TokenObjMap<IntList> txtBuffer;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvBuffer;
+  /** Ids of texts buffered for subsequent full-text index updates. */
+  private IntList ftIds;
+  /** Texts buffered for subsequent full-text index updates. */
+  private TokenList ftTexts;
   /** Closed flag. */
   private boolean closed;
+  /** Updating flag. */
+  private boolean updating;
+  /** Pending group commit (if not {@code null}, the updating file will be kept). */
+  private TimerTask commit;
+  /** Time at which the pending group commit must be flushed. */
+  private long deadline;
+  /** Redo log (if assigned, changes will be recorded and committed to the log). */
+  private RedoLog log;
+  /** Indicates if a checkpoint will be performed after the next commit. */
+  private boolean checkpoint;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -57,6 +77,8 @@ public final class DiskData extends Data {
    */
   public DiskData(final MetaData meta) throws IOException {
     super(meta);
+    // replay changes that have not been written before the database was closed
+    RedoLog.replay(meta.dbfile(DATALOG));
 
     try(final DataInput in = new DataInput(meta.dbfile(DATAINF))) {
       meta.read(in);
@@ -114,8 +136,24 @@ public final class DiskData extends Data {
    */
   private void init() throws IOException {
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    texts = new DataAccess(meta.dbfile(DATATXT), meta.dbfile(DATATXTC));
+    values = new DataAccess(meta.dbfile(DATAATV), meta.dbfile(DATAATVC));
+    compactor = new Compactor(this, texts, values);
+    lockFree(true);
+  }
+
+  /**
+   * Enables or disables lock-free read access to the table and texts (only if it has been
+   * requested via {@link StaticOptions#MMAP} or {@link StaticOptions#LOCKFREE}).
+   * @param enable enable flag
+   * @throws IOException I/O exception
+   */
+  private void lockFree(final boolean enable) throws IOException {
+    final boolean mapped = meta.mmap;
+    if(!mapped && !meta.lockfree) return;
+    ((TableDiskAccess) table).lockFree(enable, mapped);
+    texts.lockFree(enable, mapped);
+    values.lockFree(enable, mapped);
   }
 
   /**
@@ -124,37 +162,102 @@ public final class DiskData extends Data {
    */
   private void write() throws IOException {
     if(meta.dirty) {
-      try(final DataOutput out = new DataOutput(meta.dbfile(DATAINF))) {
-        meta.write(out);
-        out.writeToken(token(DBTAGS));
-        elemNames.write(out);
-        out.writeToken(token(DBATTS));
-        attrNames.write(out);
-        out.writeToken(token(DBPATH));
-        paths.write(out);
-        out.writeToken(token(DBNS));
-        nspaces.write(out);
-        out.writeToken(token(DBDOCS));
-        resources.write(out);
-        out.write(0);
+      if(log != null) {
+        // files will be written by the next checkpoint
+        ArrayOutput ao = new ArrayOutput();
+        try(final DataOutput out = new DataOutput(ao)) {
+          write(out);
+        }
+        log.file(meta.dbfile(DATAINF), ao.finish());
+        if(idmap != null) {
+          ao = new ArrayOutput();
+          try(final DataOutput out = new DataOutput(ao)) {
+            idmap.write(out);
+          }
+          log.file(meta.dbfile(DATAIDP), ao.finish());
+        }
+        final FTIndex ftx = ftUpdates();
+        if(ftx != null) {
+          ao = new ArrayOutput();
+          try(final DataOutput out = new DataOutput(ao)) {
+            ftx.write(out);
+          }
+          log.file(meta.dbfile(DATAFTX + 'd'), ao.finish());
+        }
+        for(final boolean text : new boolean[] { true, false }) {
+          final UpdatableDiskValues index = valueUpdates(text);
+          if(index == null) continue;
+          ao = new ArrayOutput();
+          try(final DataOutput out = new DataOutput(ao)) {
+            index.write(out);
+          }
+          log.file(meta.dbfile((text ? DATATXT : DATAATV) + 'u'), ao.finish());
+        }
+      } else {
+        try(final DataOutput out = new DataOutput(meta.dbfile(DATAINF))) {
+          write(out);
+        }
+        if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
+        final FTIndex ftx = ftUpdates();
+        if(ftx != null) {
+          try(final DataOutput out = new DataOutput(meta.dbfile(DATAFTX + 'd'))) {
+            ftx.write(out);
+          }
+        }
+        for(final boolean text : new boolean[] { true, false }) {
+          final UpdatableDiskValues index = valueUpdates(text);
+          if(index == null) continue;
+          try(final DataOutput out = new DataOutput(
+              meta.dbfile((text ? DATATXT : DATAATV) + 'u'))) {
+            index.write(out);
+          }
+        }
       }
-      if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
       meta.dirty = false;
     }
   }
 
+  /**
+   * Writes the meta data and the name, path and resource structures.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    elemNames.write(out);
+    out.writeToken(token(DBATTS));
+    attrNames.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+  }
+
   @Override
   public synchronized void close() {
     if(closed) return;
     closed = true;
     try {
+      // all files will be written: detach redo log
+      final RedoLog rl = log;
+      if(rl != null) detach();
       write();
+      // the updating file of a running update will be removed by finishUpdate
+      if(commit != null) committed(!updating);
       table.close();
       texts.close();
       values.close();
       close(IndexType.TEXT);
       close(IndexType.ATTRIBUTE);
       close(IndexType.FULLTEXT);
+      if(rl != null) {
+        RedoLog.sync(meta.path);
+        rl.close();
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -205,6 +308,8 @@ public final class DiskData extends Data {
    */
   private void set(final IndexType type, final Index index) {
     meta.dirty = true;
+    // index files are not recorded in the redo log
+    if(log != null) checkpoint = true;
     switch(type) {
       case TEXT:      textIndex = index; break;
       case ATTRIBUTE: attrIndex = index; break;
@@ -214,9 +319,29 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public void startUpdate(final MainOptions opts) throws IOException {
+  public synchronized void startUpdate(final MainOptions opts) throws IOException {
     if(!table.lock(true)) throw new BaseXException(Text.DB_PINNED_X, meta.name);
-    if(opts.get(MainOptions.AUTOFLUSH)) {
+    // create or remove redo log (not supported for compressed databases)
+    final boolean redo = opts.get(MainOptions.REDOLOG) && !meta.tablecomp && !meta.textcomp;
+    if(redo && log == null) {
+      log = new RedoLog(meta.dbfile(DATALOG));
+    } else if(!redo && log != null) {
+      final RedoLog rl = log;
+      checkpoint();
+      detach();
+      rl.close();
+    }
+    journal(log);
+    // invalidate full-text index if it cannot be updated incrementally
+    if(meta.updindex && meta.ftxtindex && ftUpdates() == null) {
+      meta.ftxtindex = false;
+      meta.dirty = true;
+    }
+    // updates are performed on the buffered files
+    lockFree(false);
+    updating = true;
+    // the updating file of a pending group commit is reused
+    if(opts.get(MainOptions.AUTOFLUSH) && commit == null) {
       final IOFile uf = meta.updateFile();
       if(uf.exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
       if(!uf.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
@@ -225,37 +350,165 @@ public final class DiskData extends Data {
 
   @Override
   public synchronized void finishUpdate(final MainOptions opts) {
-    // remove updating file
     final boolean auto = opts.get(MainOptions.AUTOFLUSH);
-    if(auto) {
+    final int delay = auto ? opts.get(MainOptions.GROUPCOMMIT) : 0;
+    // updating file will be kept for group commits
+    final boolean remove = auto && commit == null && (delay <= 0 || closed);
+
+    // db:optimize(..., true) will close the database before this function is called
+    if(!closed) compact(opts.get(MainOptions.COMPACTION));
+    updating = false;
+    if(!closed) {
+      if(delay > 0) {
+        group(delay);
+      } else {
+        flush(auto);
+      }
+    }
+
+    // remove updating file after the changes have been written or committed
+    if(remove) {
       final IOFile uf = meta.updateFile();
       if(!uf.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
       if(!uf.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
     }
-
-    // db:optimize(..., true) will close the database before this function is called
-    if(!closed) {
-      flush(auto);
-      if(!table.lock(false)) throw Util.notExpected("Database '%': could not unlock.", meta.name);
+    if(!closed && !table.lock(false)) {
+      throw Util.notExpected("Database '%': could not unlock.", meta.name);
     }
   }
 
   @Override
   public synchronized void flush(final boolean all) {
     try {
-      table.flush(all);
-      if(all) {
-        write();
-        texts.flush();
-        values.flush();
-        if(textIndex != null) ((DiskValues) textIndex).flush();
-        if(attrIndex != null) ((DiskValues) attrIndex).flush();
+      write(all);
+      if(all && !updating) {
+        // commit changes to the redo log
+        if(log != null) {
+          log.commit();
+          if(checkpoint || log.length() >= RedoLog.CHECKPOINT) checkpoint();
+        }
+        // contents have been written: remap files, finish pending group commit
+        lockFree(true);
+        if(commit != null) committed(true);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Writes the buffered data.
+   * @param all write all data
+   * @throws IOException I/O exception
+   */
+  private void write(final boolean all) throws IOException {
+    table.flush(all);
+    if(all) {
+      write();
+      texts.flush();
+      values.flush();
+      if(textIndex != null) ((DiskValues) textIndex).flush();
+      if(attrIndex != null) ((DiskValues) attrIndex).flush();
+    }
+  }
+
+  /**
+   * Assigns the specified redo log to all files that are changed by updates.
+   * @param rl redo log (may be {@code null})
+   */
+  private void journal(final RedoLog rl) {
+    ((TableDiskAccess) table).journal(rl);
+    texts.journal(rl);
+    values.journal(rl);
+    if(textIndex != null) ((DiskValues) textIndex).journal(rl);
+    if(attrIndex != null) ((DiskValues) attrIndex).journal(rl);
+  }
+
+  /**
+   * Detaches the redo log. The files whose contents have only been recorded in the log
+   * will be written by the next flush.
+   */
+  private void detach() {
+    log = null;
+    journal(null);
+    meta.dirty = true;
+  }
+
+  /**
+   * Performs a checkpoint: writes all files, forces them to disk, and discards the records of
+   * the redo log.
+   * @throws IOException I/O exception
+   */
+  private void checkpoint() throws IOException {
+    final RedoLog rl = log;
+    detach();
+    write(true);
+    RedoLog.sync(meta.path);
+    rl.reset();
+    log = rl;
+    journal(rl);
+    checkpoint = false;
+  }
+
+  /**
+   * Adds an update to a group commit. The dirty buffers and the meta data of all updates
+   * will be flushed at once, either by a timer or by the first update that exceeds the
+   * specified delay.
+   * @param delay maximum delay (in milliseconds)
+   */
+  private void group(final int delay) {
+    if(commit == null) {
+      deadline = System.currentTimeMillis() + delay;
+      commit = new TimerTask() {
+        @Override
+        public void run() {
+          synchronized(DiskData.this) {
+            // skip flush if an update is running: it will be flushed by this update
+            if(commit == this && !updating) flush(true);
+          }
+        }
+      };
+      FLUSHER.schedule(commit, delay);
+    } else if(System.currentTimeMillis() >= deadline) {
+      flush(true);
+    }
+  }
+
+  /**
+   * Finishes a pending group commit after all data has been written.
+   * @param remove remove updating file
+   */
+  private void committed(final boolean remove) {
+    commit.cancel();
+    commit = null;
+    // no exception is raised, as this method may be called by the timer thread
+    if(remove && !meta.updateFile().delete()) {
+      Util.errln("%: could not delete lock file.", meta.name);
+    }
+  }
+
+  /**
+   * Performs a compaction step.
+   * @param kb maximum number of kilobytes to be read and written (0: no compaction)
+   */
+  private void compact(final int kb) {
+    if(kb <= 0) return;
+    try {
+      compactor.step((long) kb << 10);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  @Override
+  public synchronized void storage(final TokenBuilder tb) {
+    super.storage(tb);
+    compactor.info(tb);
+    if(log != null) {
+      tb.add(' ').add(REDOLOG).add(Text.COLS).add(Performance.format(log.length())).add(Text.NL);
+    }
+  }
+
   @Override
   public byte[] text(final int pre, final boolean text) {
     final long o = textOff(pre);
@@ -279,9 +532,10 @@ public final class DiskData extends Data {
     final long o = textOff(pre);
     if(number(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long off = o & IO.OFFCOMP - 1;
+    final int l = da.readNum(off);
     // compressed: next number contains number of compressed bytes
-    return compressed(o) ? da.readNum() : l;
+    return compressed(o) ? da.readNum(off + Num.length(l)) : l;
   }
 
   /**
@@ -295,6 +549,15 @@ public final class DiskData extends Data {
     return compressed(off) ? COMP.get().unpack(txt) : txt;
   }
 
+  /**
+   * Packs a text or attribute value. Values will not be packed if the text files are compressed.
+   * @param value value
+   * @return packed or original value
+   */
+  private byte[] pack(final byte[] value) {
+    return meta.textcomp ? value : COMP.get().pack(value);
+  }
+
   /**
    * Returns true if the specified value contains a number.
    * @param offset offset
@@ -320,7 +583,11 @@ public final class DiskData extends Data {
     // old entry (offset or value)
     final long old = textOff(pre);
     // fill unused space with zero-bytes
-    if(!number(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    if(!number(old)) {
+      final long off = old & IO.OFFCOMP - 1;
+      (text ? texts : values).free(off, 0);
+      compactor.freed(text, off);
+    }
   }
 
   @Override
@@ -334,6 +601,11 @@ public final class DiskData extends Data {
       final DiskValues index = (DiskValues) (text ? textIndex : attrIndex);
       // don't index document names
       if(index != null && kind != DOC) index.replace(oldval, value, id);
+      final FTIndex ftx = kind == TEXT ? ftUpdates() : null;
+      if(ftx != null) {
+        ftx.delete(new IntList(1).add(id), new TokenList(1).add(oldval));
+        ftx.add(new IntList(1).add(id), new TokenList(1).add(value));
+      }
     }
 
     // reference to text store
@@ -345,7 +617,7 @@ public final class DiskData extends Data {
     final long v = toSimpleInt(value);
     if(v == Integer.MIN_VALUE) {
       // text to be stored (possibly packed)
-      final byte[] val = COMP.get().pack(value);
+      final byte[] val = pack(value);
       // old entry (offset or value)
       final long old = textOff(pre);
 
@@ -357,7 +629,9 @@ public final class DiskData extends Data {
       } else {
         // text size (0 if value will be inlined)
         final int vl = val.length;
-        off = store.free(old & IO.OFFCOMP - 1, vl + Num.length(vl));
+        final long o = old & IO.OFFCOMP - 1;
+        off = store.free(o, vl + Num.length(vl));
+        compactor.freed(text, o);
       }
 
       store.writeToken(off, val);
@@ -372,18 +646,41 @@ public final class DiskData extends Data {
   void indexBegin() {
     txtBuffer = new TokenObjMap<>();
     atvBuffer = new TokenObjMap<>();
+    ftIds = new IntList();
+    ftTexts = new TokenList();
   }
 
   @Override
   protected void indexAdd() {
     if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).add(txtBuffer);
     if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).add(atvBuffer);
+    if(!ftIds.isEmpty()) ftUpdates().add(ftIds, ftTexts);
   }
 
   @Override
   void indexDelete() {
     if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).delete(txtBuffer);
     if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).delete(atvBuffer);
+    if(!ftIds.isEmpty()) ftUpdates().delete(ftIds, ftTexts);
+  }
+
+  /**
+   * Returns the updatable text or attribute index if it exists.
+   * @param text text or attribute index
+   * @return index or {@code null}
+   */
+  private UpdatableDiskValues valueUpdates(final boolean text) {
+    final Index index = text ? textIndex : attrIndex;
+    return index instanceof UpdatableDiskValues ? (UpdatableDiskValues) index : null;
+  }
+
+  /**
+   * Returns the full-text index if it exists and can be incrementally updated.
+   * @return index or {@code null}
+   */
+  private FTIndex ftUpdates() {
+    return meta.updindex && meta.ftxtindex && ftxtIndex != null &&
+        ((FTIndex) ftxtIndex).updatable() ? (FTIndex) ftxtIndex : null;
   }
 
   @Override
@@ -408,6 +705,10 @@ public final class DiskData extends Data {
       }
       ids.add(id);
     }
+    if(kind == TEXT && ftUpdates() != null) {
+      ftIds.add(id);
+      ftTexts.add(value);
+    }
 
     // add text to text file
     // inline integer value...
@@ -416,20 +717,24 @@ public final class DiskData extends Data {
 
     // store text
     final long off = store.length();
-    final byte[] val = COMP.get().pack(value);
+    final byte[] val = pack(value);
     store.writeToken(off, val);
     return val == value ? off : off | IO.OFFCOMP;
   }
 
   @Override
   protected void indexDelete(final int pre, final int size) {
-    final boolean textI = meta.textindex, attrI = meta.attrindex;
-    if(textI || attrI) {
+    final boolean textI = meta.textindex, attrI = meta.attrindex, ftxtI = ftUpdates() != null;
+    if(textI || attrI || ftxtI) {
       // collect all keys and ids
       indexBegin();
       final int l = pre + size;
       for(int p = pre; p < l; ++p) {
         final int k = kind(p);
+        if(ftxtI && k == TEXT) {
+          ftIds.add(id(p));
+          ftTexts.add(text(p, true));
+        }
         // consider nodes which are attribute, text, comment, or proc. instruction
         final boolean text = k == TEXT || k == COMM || k == PI;
         if(textI && text || attrI && k == ATTR) {
@@ -45,6 +45,10 @@ public final class MetaData {
   public volatile boolean updindex;
   /** Flag for automatic index updating. */
   public volatile boolean autoopt;
+  /** Flag for compressed table pages. */
+  public volatile boolean tablecomp;
+  /** Flag for compressed texts and attribute values. */
+  public volatile boolean textcomp;
   /** Indicates if a text index exists. */
   public volatile boolean textindex;
   /** Indicates if an attribute index exists. */
@@ -71,6 +75,10 @@ public final class MetaData {
   public volatile int maxcats;
   /** Maximum token length. */
   public volatile int maxlen;
+  /** Number of entries per compressed block of index lists (0: uncompressed lists). */
+  public volatile int blocksize;
+  /** Flag for composite keys (names and values) in the text and attribute index. */
+  public volatile boolean composite;
 
   /** Language of full-text search index. */
   public volatile Language language;
@@ -86,6 +94,14 @@ public final class MetaData {
   public volatile int size;
   /** Last (highest) id assigned to a node. */
   public volatile int lastid = -1;
+  /** Maximum number of buffered table pages (not persisted). */
+  public final int buffers;
+  /** Maximum number of table pages that are read ahead (not persisted). */
+  public final int prefetch;
+  /** Memory-mapped read access (not persisted). */
+  public final boolean mmap;
+  /** Lock-free read access with thread-local cursors (not persisted). */
+  public final boolean lockfree;
 
   /** Flag for out-of-date indexes. */
   private volatile boolean oldindex;
@@ -100,6 +116,8 @@ public final class MetaData {
    */
   MetaData(final MainOptions options) {
     this("", options, null);
+    // main-memory indexes do not support composite keys
+    composite = false;
   }
 
   /**
@@ -111,6 +129,12 @@ public final class MetaData {
   public MetaData(final String name, final MainOptions options, final StaticOptions sopts) {
     this.name = name;
     path = sopts != null ? sopts.dbpath(name) : null;
+    buffers = sopts != null ? sopts.get(StaticOptions.TABLEBUFFERS) :
+      StaticOptions.TABLEBUFFERS.value;
+    prefetch = sopts != null ? sopts.get(StaticOptions.TABLEPREFETCH) :
+      StaticOptions.TABLEPREFETCH.value;
+    mmap = sopts != null && sopts.get(StaticOptions.MMAP);
+    lockfree = sopts != null && sopts.get(StaticOptions.LOCKFREE);
     chop = options.get(MainOptions.CHOP);
     createtext = options.get(MainOptions.TEXTINDEX);
     createattr = options.get(MainOptions.ATTRINDEX);
@@ -120,8 +144,12 @@ public final class MetaData {
     casesens = options.get(MainOptions.CASESENS);
     updindex = options.get(MainOptions.UPDINDEX);
     autoopt = options.get(MainOptions.AUTOOPTIMIZE);
+    tablecomp = options.get(MainOptions.TABLECOMPRESS);
+    textcomp = options.get(MainOptions.TEXTCOMPRESS);
     maxlen = options.get(MainOptions.MAXLEN);
     maxcats = options.get(MainOptions.MAXCATS);
+    blocksize = Math.max(0, options.get(MainOptions.INDEXBLOCKSIZE));
+    composite = options.get(MainOptions.COMPOSITE);
     stopwords = options.get(MainOptions.STOPWORDS);
     language = Language.get(options);
   }
@@ -289,6 +317,8 @@ public final class MetaData {
         else if(k.equals(DBSCTYPE))   scoring    = toInt(v);
         else if(k.equals(DBMAXLEN))   maxlen     = toInt(v);
         else if(k.equals(DBMAXCATS))  maxcats    = toInt(v);
+        else if(k.equals(DBIDXBLK))   blocksize  = toInt(v);
+        else if(k.equals(DBCOMPOS))   composite  = toBool(v);
         else if(k.equals(DBLASTID))   lastid     = toInt(v);
         else if(k.equals(DBTIME))     time       = toLong(v);
         else if(k.equals(DBFSIZE))    filesize   = toLong(v);
@@ -296,6 +326,8 @@ public final class MetaData {
         else if(k.equals(DBCHOP))     chop       = toBool(v);
         else if(k.equals(DBUPDIDX))   updindex   = toBool(v);
         else if(k.equals(DBAUTOOPT))  autoopt    = toBool(v);
+        else if(k.equals(DBTBLCOMP))  tablecomp  = toBool(v);
+        else if(k.equals(DBTXTCOMP))  textcomp   = toBool(v);
         else if(k.equals(DBTXTIDX))   textindex  = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex  = toBool(v);
         else if(k.equals(DBFTXIDX))   ftxtindex  = toBool(v);
@@ -339,6 +371,8 @@ public final class MetaData {
     writeInfo(out, DBCHOP,     chop);
     writeInfo(out, DBUPDIDX,   updindex);
     writeInfo(out, DBAUTOOPT,  autoopt);
+    writeInfo(out, DBTBLCOMP,  tablecomp);
+    writeInfo(out, DBTXTCOMP,  textcomp);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBFTXIDX,   ftxtindex);
@@ -351,6 +385,8 @@ public final class MetaData {
     writeInfo(out, DBFTSW,     stopwords);
     writeInfo(out, DBMAXLEN,   maxlen);
     writeInfo(out, DBMAXCATS,  maxcats);
+    writeInfo(out, DBIDXBLK,   blocksize);
+    writeInfo(out, DBCOMPOS,   composite);
     writeInfo(out, DBUPTODATE, uptodate);
     writeInfo(out, DBLASTID,   lastid);
     if(language != null) writeInfo(out, DBFTLN, language.toString());
@@ -368,8 +404,8 @@ public final class MetaData {
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      ftxtindex = false;
     }
-    ftxtindex = false;
   }
 
   /**
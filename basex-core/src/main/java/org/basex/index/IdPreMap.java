@@ -12,27 +12,37 @@ import org.basex.util.list.*;
 /**
  * ID -> PRE mapping.
  *
+ * The mapping is represented by records of inserted and deleted ID ranges, which are ordered by
+ * their PRE values. The records are stored in a randomized balanced tree (treap), which is
+ * addressed by the position of the records. PRE and increment values of subsequent records are
+ * shifted lazily, and the records of inserted IDs are additionally indexed by their first ID.
+ * As a result, lookups and updates take logarithmic time. Adjacent records of inserted IDs are
+ * merged whenever the number of records has doubled.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Dimitar Popov
  */
 public class IdPreMap {
   /** Invalid id-value. */
   private static final int INV = -1;
+  /** Minimum number of records before a compaction is performed. */
+  private static final int COMPACT = 1 << 6;
+
+  /** Records of inserted IDs, indexed by their first ID. */
+  private final TreeMap<Integer, Run> inserted = new TreeMap<>();
   /** Base ID value. */
   private int baseid;
-  /** PRE values of the inserted/deleted IDs. */
-  private int[] pres;
-  /** Inserted first ID values. */
-  private int[] fids;
-  /** Inserted last ID values. */
-  private int[] nids;
-  /** Increments showing how the PRE values have been modified. */
-  private int[] incs;
-  /** ID values for the PRE, before inserting/deleting a record. */
-  private int[] oids;
-
-  /** Number of records in the table. */
-  private int rows;
+  /** Root of the record tree ({@code null} if no updates have been performed). */
+  private Run root;
+  /** Number of records after the last compaction. */
+  private int compacted;
+  /** Seed for random priorities. */
+  private int seed = 0x2545F491;
+
+  /** Left tree, resulting from the last split. */
+  private Run splitL;
+  /** Right tree, resulting from the last split. */
+  private Run splitR;
 
   /**
    * Constructor.
@@ -40,11 +50,6 @@ public class IdPreMap {
    */
   public IdPreMap(final int id) {
     baseid = id;
-    pres = new int[1];
-    fids = new int[pres.length];
-    nids = new int[pres.length];
-    incs = new int[pres.length];
-    oids = new int[pres.length];
   }
 
   /**
@@ -55,12 +60,14 @@ public class IdPreMap {
   public IdPreMap(final IOFile f) throws IOException {
     try(final DataInput in = new DataInput(f)) {
       baseid = in.readNum();
-      rows = in.readNum();
-      pres = in.readNums();
-      fids = in.readNums();
-      nids = in.readNums();
-      incs = in.readNums();
-      oids = in.readNums();
+      final int rows = in.readNum();
+      final int[] pres = in.readNums(), fids = in.readNums(), nids = in.readNums();
+      final int[] incs = in.readNums(), oids = in.readNums();
+      final Run[] runs = new Run[rows];
+      for(int r = 0; r < rows; r++) {
+        runs[r] = new Run(pres[r], fids[r], nids[r], incs[r], oids[r], random());
+      }
+      build(runs, rows);
     }
   }
 
@@ -71,35 +78,79 @@ public class IdPreMap {
    */
   public void write(final IOFile file) throws IOException {
     try(final DataOutput out = new DataOutput(file)) {
-      out.writeNum(baseid);
-      out.writeNum(rows);
-      out.writeNums(pres);
-      out.writeNums(fids);
-      out.writeNums(nids);
-      out.writeNums(incs);
-      out.writeNums(oids);
+      write(out);
     }
   }
 
+  /**
+   * Write the map to the specified output stream.
+   * @param out output stream
+   * @throws IOException I/O error while writing to the stream
+   */
+  public void write(final DataOutput out) throws IOException {
+    compact();
+    final Run[] runs = runs();
+    final int rows = runs.length;
+    final int[] pres = new int[rows], fids = new int[rows], nids = new int[rows];
+    final int[] incs = new int[rows], oids = new int[rows];
+    for(int r = 0; r < rows; r++) {
+      final Run run = runs[r];
+      pres[r] = run.pre;
+      fids[r] = run.fid;
+      nids[r] = run.nid;
+      incs[r] = run.inc;
+      oids[r] = run.oid;
+    }
+    out.writeNum(baseid);
+    out.writeNum(rows);
+    out.writeNums(pres);
+    out.writeNums(fids);
+    out.writeNums(nids);
+    out.writeNums(incs);
+    out.writeNums(oids);
+  }
+
   /**
    * Find the PRE value of a given ID.
+   * This method does not modify the map and can be called by concurrent readers.
    * @param id ID
    * @return PRE or -1 if the ID is already deleted
    */
   public int pre(final int id) {
     // no updates or id is not affected by updates
-    if(rows == 0 || id < pres[0]) return id;
+    Run t = root;
+    if(t == null) return id;
+    int add = 0;
+    while(t.left != null) {
+      add += t.add;
+      t = t.left;
+    }
+    if(id < t.pre + add) return id;
 
     if(id > baseid) {
       // id was inserted by update
-      for(int i = 0; i < rows; ++i) {
-        // if(fids[i] == id) return pres[i]; // is this optimization?
-        if(fids[i] <= id && id <= nids[i]) return pres[i] + id - fids[i];
+      final Map.Entry<Integer, Run> e = inserted.floorEntry(id);
+      if(e != null) {
+        final Run run = e.getValue();
+        if(id <= run.nid) return pre(run) + id - run.fid;
       }
     } else {
-      // id is affected by updates
-      final int i = sortedLastIndexOf(oids, id);
-      return id + incs[i < 0 ? -i - 2 : i];
+      // id is affected by updates: find last record with an original ID smaller than or
+      // equal to the given ID
+      t = root;
+      add = 0;
+      int inc = 0;
+      while(t != null) {
+        if(t.oid <= id) {
+          inc = t.inc + add;
+          add += t.add;
+          t = t.right;
+        } else {
+          add += t.add;
+          t = t.left;
+        }
+      }
+      return id + inc;
     }
     return -1;
   }
@@ -124,6 +175,7 @@ public class IdPreMap {
    * @param c number of inserted records
    */
   public void insert(final int pre, final int id, final int c) {
+    final int rows = size(root);
     if(rows == 0 && pre == id && id == baseid + 1) {
       // no mapping and we append at the end => nothing to do
       baseid += c;
@@ -135,37 +187,37 @@ public class IdPreMap {
     int oid = pre;
 
     if(rows > 0) {
-      pos = Arrays.binarySearch(pres, 0, rows, pre);
+      pos = search(pre);
       if(pos < 0) {
         pos = -pos - 1;
         if(pos != 0) {
           // check if inserting into an existing id interval
-          final int prev = pos - 1;
-          final int prevcnt = nids[prev] - fids[prev] + 1;
-          final int prevpre = pres[prev];
+          final Run prev = run(pos - 1);
+          final int prevcnt = prev.nid - prev.fid + 1;
+          final int prevpre = prev.pre;
 
           if(pre < prevpre + prevcnt) {
             // split the id interval
             final int split = pre - prevpre;
-            final int fid = fids[prev] + split;
+            final int fid = prev.fid + split;
 
             // add a new next interval
-            add(pos, pre, fid, nids[prev], incs[prev], oids[prev]);
+            add(pos, pre, fid, prev.nid, prev.inc, prev.oid);
 
             // shrink the previous interval
-            nids[prev] = fid - 1;
-            incs[prev] -= prevcnt - split;
+            ids(prev, prev.fid, fid - 1);
+            prev.inc -= prevcnt - split;
 
-            oid = oids[prev];
-            inc += incs[prev];
+            oid = prev.oid;
+            inc += prev.inc;
           } else {
-            oid = pre - incs[prev];
-            inc += incs[prev];
+            oid = pre - prev.inc;
+            inc += prev.inc;
           }
         }
       } else if(pos > 0) {
-        oid = oids[pos];
-        inc += incs[pos - 1];
+        oid = run(pos).oid;
+        inc += run(pos - 1).inc;
       }
 
       increment(pos, c);
@@ -173,6 +225,7 @@ public class IdPreMap {
 
     // add the new interval
     add(pos, pre, id, id + c - 1, inc, oid);
+    if(size(root) >= Math.max(COMPACT, compacted << 1)) compact();
   }
 
   /**
@@ -182,13 +235,13 @@ public class IdPreMap {
    * @param c number of deleted records
    */
   public void delete(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id - c == baseid + 1) {
+    if(root == null && pre == id && id - c == baseid + 1) {
       // no mapping and we delete at the end => nothing to do
       baseid += c;
       return;
     }
 
-    if(rows == 0) {
+    if(root == null) {
       // no previous updates: add a new record
       add(0, pre, INV, INV, c, id);
       return;
@@ -196,13 +249,15 @@ public class IdPreMap {
 
     final int end = pre - c - 1;
     final int startIndex = findPre(pre);
+    int rows = size(root);
 
     // remove all updates which has affected records which now have to be deleted
-    final int removeStart = startIndex < rows && pres[startIndex] < pre ?
+    final int removeStart = startIndex < rows && run(startIndex).pre < pre ?
          startIndex + 1 : startIndex;
     int removeEnd = -1;
     for(int i = startIndex; i < rows; ++i) {
-      if(end < pres[i] + nids[i] - fids[i]) break;
+      final Run run = run(i);
+      if(end < run.pre + run.nid - run.fid) break;
       removeEnd = i;
     }
 
@@ -210,86 +265,136 @@ public class IdPreMap {
     final int oid;
     int endIndex;
     if(removeEnd >= 0) {
-      inc = incs[removeEnd];
-      oid = oids[removeEnd];
+      final Run run = run(removeEnd);
+      inc = run.inc;
+      oid = run.oid;
       endIndex = removeStart;
       remove(removeStart, removeEnd);
     } else {
-      inc = startIndex > 0 ? incs[startIndex - 1] : 0;
+      inc = startIndex > 0 ? run(startIndex - 1).inc : 0;
       oid = id;
       endIndex = startIndex;
     }
 
+    rows = size(root);
     if(rows <= startIndex) {
       // the delete does not affect previous updates
       add(startIndex, pre, INV, INV, inc + c, oid);
       return;
     }
 
-    final int min = pres[startIndex];
+    final Run start = run(startIndex);
+    final int min = start.pre;
     if(startIndex < endIndex) {
-      if(endIndex < rows && pres[endIndex] <= end) {
-        shrinkFromStart(endIndex, pre, c);
-        shrinkFromEnd(startIndex, pre, inc + c);
+      if(endIndex < rows && run(endIndex).pre <= end) {
+        shrinkFromStart(run(endIndex), pre, c);
+        shrinkFromEnd(start, pre, inc + c);
       } else {
         --endIndex;     // endIndex is not processed, so we let the increment do that
-        shrinkFromEnd(startIndex, pre, inc + c);
+        shrinkFromEnd(start, pre, inc + c);
       }
     } else if(min < pre) {
-      add(++endIndex, pres[startIndex], fids[startIndex], nids[startIndex],
-          incs[startIndex], oids[startIndex]);
-      shrinkFromStart(endIndex, pre, c);
-      shrinkFromEnd(startIndex, pre, inc + c);
+      add(++endIndex, start.pre, start.fid, start.nid, start.inc, start.oid);
+      shrinkFromStart(run(endIndex), pre, c);
+      shrinkFromEnd(start, pre, inc + c);
     } else if(end < min) {
       add(endIndex, pre, INV, INV, inc + c, oid);
     } else {
-      shrinkFromStart(startIndex, pre, c);
+      shrinkFromStart(start, pre, c);
     }
 
     increment(endIndex + 1, c);
   }
 
   /**
-   * Shrink the given tuple from the start.
-   * @param i index of the tuple
+   * Size of the map.
+   * @return number of stored tuples.
+   */
+  public int size() {
+    return size(root);
+  }
+
+  @Override
+  public String toString() {
+    final Table t = new Table();
+    t.header.add("pres");
+    t.header.add("fids");
+    t.header.add("nids");
+    t.header.add("incs");
+    t.header.add("oids");
+    for(int i = 0; i < 5; ++i) t.align.add(true);
+
+    for(final Run run : runs()) {
+      final TokenList tl = new TokenList();
+      tl.add(Token.token(run.pre));
+      tl.add(Token.token(run.fid));
+      tl.add(Token.token(run.nid));
+      tl.add(Token.token(run.inc));
+      tl.add(Token.token(run.oid));
+      t.contents.add(tl);
+    }
+    return t.toString();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Shrink the given record from the start.
+   * @param run record
    * @param pre pre-value
    * @param c number of deleted records (negative number)
    */
-  private void shrinkFromStart(final int i, final int pre, final int c) {
-    incs[i] += c;
-    fids[i] += pre - c - pres[i];
-    pres[i] = pre;
+  private void shrinkFromStart(final Run run, final int pre, final int c) {
+    run.inc += c;
+    ids(run, run.fid + pre - c - run.pre, run.nid);
+    run.pre = pre;
   }
 
   /**
-   * Shrink the given tuple from the end.
-   * @param i index of the tuple
+   * Shrink the given record from the end.
+   * @param run record
    * @param pre pre-value
    * @param inc new inc-value
    */
-  private void shrinkFromEnd(final int i, final int pre, final int inc) {
-    nids[i] = fids[i] + pre - pres[i] - 1;
-    incs[i] = inc;
+  private void shrinkFromEnd(final Run run, final int pre, final int inc) {
+    ids(run, run.fid, run.fid + pre - run.pre - 1);
+    run.inc = inc;
   }
 
   /**
-   * Increment the pre- and inc-values of all tuples starting from the given index.
-   * @param from start index
-   * @param with increment value
+   * Assigns the ID range of a record and updates the index of inserted IDs.
+   * @param run record
+   * @param fid first ID
+   * @param nid last ID
    */
-  private void increment(final int from, final int with) {
-    for(int i = from; i < rows; ++i) {
-      pres[i] += with;
-      incs[i] += with;
-    }
+  private void ids(final Run run, final int fid, final int nid) {
+    if(inserted.get(run.fid) == run) inserted.remove(run.fid);
+    run.fid = fid;
+    run.nid = nid;
+    if(fid >= 0 && fid <= nid) inserted.put(fid, run);
   }
 
   /**
-   * Size of the map.
-   * @return number of stored tuples.
+   * Increment the pre- and inc-values of all records starting from the given index.
+   * @param from start index
+   * @param with increment value
    */
-  public int size() {
-    return rows;
+  private void increment(final int from, final int with) {
+    int i = from;
+    for(Run t = root; t != null;) {
+      push(t);
+      final int ls = size(t.left);
+      if(i <= ls) {
+        // record and right subtree are affected
+        t.pre += with;
+        t.inc += with;
+        apply(t.right, with);
+        t = t.left;
+      } else {
+        i -= ls + 1;
+        t = t.right;
+      }
+    }
   }
 
   /**
@@ -299,31 +404,71 @@ public class IdPreMap {
    */
   private int findPre(final int pre) {
     int low = 0;
-    int high = rows - 1;
-    while(low <= high) {
-      final int mid = low + high >>> 1;
-      final int midValMin = pres[mid];
-      final int midValMax = midValMin + nids[mid] - fids[mid];
-      if(midValMax < pre) low = mid + 1;
-      else if(midValMin > pre) high = mid - 1;
-      else return mid; // key found
+    for(Run t = root; t != null;) {
+      push(t);
+      if(t.pre + t.nid - t.fid < pre) {
+        low += size(t.left) + 1;
+        t = t.right;
+      } else if(t.pre > pre) {
+        t = t.left;
+      } else {
+        return low + size(t.left); // key found
+      }
     }
     return low; // key not found.
   }
 
   /**
-   * Binary search of a key in a list. If there are several hits the last one is returned.
-   * @param a array to search into
-   * @param e key to search for
-   * @return index of the found hit or where the key ought to be inserted
+   * Binary search for the record with the given pre value.
+   * @param pre pre value
+   * @return index of the record, or {@code -(insertion point) - 1}
    */
-  private int sortedLastIndexOf(final int[] a, final int e) {
-    int i = Arrays.binarySearch(a, 0, rows, e);
-    if(i >= 0) {
-      while(++i < rows && a[i] == e);
-      return i - 1;
+  private int search(final int pre) {
+    int low = 0;
+    for(Run t = root; t != null;) {
+      push(t);
+      if(t.pre < pre) {
+        low += size(t.left) + 1;
+        t = t.right;
+      } else if(t.pre > pre) {
+        t = t.left;
+      } else {
+        return low + size(t.left);
+      }
     }
-    return i;
+    return -low - 1;
+  }
+
+  /**
+   * Returns the record at the specified index.
+   * @param index index
+   * @return record
+   */
+  private Run run(final int index) {
+    int i = index;
+    Run t = root;
+    while(true) {
+      push(t);
+      final int ls = size(t.left);
+      if(i == ls) return t;
+      if(i < ls) {
+        t = t.left;
+      } else {
+        i -= ls + 1;
+        t = t.right;
+      }
+    }
+  }
+
+  /**
+   * Returns the actual pre value of the specified record.
+   * @param run record
+   * @return pre value
+   */
+  private static int pre(final Run run) {
+    int pre = run.pre;
+    for(Run p = run.parent; p != null; p = p.parent) pre += p.add;
+    return pre;
   }
 
   /**
@@ -337,68 +482,274 @@ public class IdPreMap {
    */
   private void add(final int i, final int pre, final int fid, final int nid,
       final int inc, final int oid) {
-    if(rows == pres.length) {
-      final int s = Array.newSize(rows);
-      pres = Arrays.copyOf(pres, s);
-      fids = Arrays.copyOf(fids, s);
-      nids = Arrays.copyOf(nids, s);
-      incs = Arrays.copyOf(incs, s);
-      oids = Arrays.copyOf(oids, s);
-    }
-    if(i < rows) {
-      final int destPos = i + 1;
-      final int length = rows - i;
-      System.arraycopy(pres, i, pres, destPos, length);
-      System.arraycopy(fids, i, fids, destPos, length);
-      System.arraycopy(nids, i, nids, destPos, length);
-      System.arraycopy(incs, i, incs, destPos, length);
-      System.arraycopy(oids, i, oids, destPos, length);
-    }
-    pres[i] = pre;
-    fids[i] = fid;
-    nids[i] = nid;
-    incs[i] = inc;
-    oids[i] = oid;
-    ++rows;
+    final Run run = new Run(pre, INV, INV, inc, oid, random());
+    ids(run, fid, nid);
+    split(root, i);
+    final Run r = splitR;
+    root = merge(merge(splitL, run), r);
+    root.parent = null;
   }
 
   /**
-   * Remove a records from the table and the ID index.
+   * Remove records from the table and the ID index.
    * @param s start index of records in the table (inclusive)
    * @param e end index of records in the table (inclusive)
    */
   private void remove(final int s, final int e) {
-    if(s <= e) {
-      final int last = e + 1;
-      final int length = rows - last;
-      System.arraycopy(pres, last, pres, s, length);
-      System.arraycopy(fids, last, fids, s, length);
-      System.arraycopy(nids, last, nids, s, length);
-      System.arraycopy(incs, last, incs, s, length);
-      System.arraycopy(oids, last, oids, s, length);
-      rows -= last - s;
+    if(s > e) return;
+    split(root, e + 1);
+    final Run r = splitR;
+    split(splitL, s);
+    unindex(splitR);
+    root = merge(splitL, r);
+    if(root != null) root.parent = null;
+  }
+
+  /**
+   * Removes all records of the specified tree from the index of inserted IDs.
+   * @param t tree
+   */
+  private void unindex(final Run t) {
+    if(t == null) return;
+    if(inserted.get(t.fid) == t) inserted.remove(t.fid);
+    unindex(t.left);
+    unindex(t.right);
+  }
+
+  /**
+   * Merges adjacent records of inserted IDs and rebuilds the tree.
+   */
+  private void compact() {
+    final Run[] runs = runs();
+    int rows = 0;
+    for(final Run run : runs) {
+      final Run prev = rows == 0 ? null : runs[rows - 1];
+      if(prev != null && prev.fid >= 0 && prev.fid <= prev.nid && run.fid == prev.nid + 1 &&
+          run.nid >= run.fid && run.pre == prev.pre + prev.nid - prev.fid + 1 &&
+          run.oid == prev.oid && run.inc == prev.inc + run.nid - run.fid + 1) {
+        // consecutive IDs and PRE values: merge records
+        inserted.remove(run.fid);
+        prev.nid = run.nid;
+        prev.inc = run.inc;
+      } else {
+        runs[rows++] = run;
+      }
     }
+    build(runs, rows);
+    compacted = rows;
   }
 
-  @Override
-  public String toString() {
-    final Table t = new Table();
-    t.header.add("pres");
-    t.header.add("fids");
-    t.header.add("nids");
-    t.header.add("incs");
-    t.header.add("oids");
-    for(int i = 0; i < 5; ++i) t.align.add(true);
+  /**
+   * Returns all records in their order. Pending increments are applied.
+   * @return records
+   */
+  private Run[] runs() {
+    final Run[] runs = new Run[size(root)];
+    int r = 0;
+    // in-order traversal
+    final ArrayList<Run> stack = new ArrayList<>();
+    for(Run t = root; t != null || !stack.isEmpty();) {
+      if(t != null) {
+        push(t);
+        stack.add(t);
+        t = t.left;
+      } else {
+        t = stack.remove(stack.size() - 1);
+        runs[r++] = t;
+        t = t.right;
+      }
+    }
+    return runs;
+  }
 
-    for(int i = 0; i < rows; i++) {
-      final TokenList tl = new TokenList();
-      tl.add(Token.token(pres[i]));
-      tl.add(Token.token(fids[i]));
-      tl.add(Token.token(nids[i]));
-      tl.add(Token.token(incs[i]));
-      tl.add(Token.token(oids[i]));
-      t.contents.add(tl);
+  /**
+   * Builds a new tree from the specified records.
+   * @param runs records (the priorities of which will be reassigned)
+   * @param rows number of records
+   */
+  private void build(final Run[] runs, final int rows) {
+    inserted.clear();
+    // build cartesian tree, using the priorities of the records
+    final ArrayList<Run> stack = new ArrayList<>();
+    for(int r = 0; r < rows; r++) {
+      final Run run = runs[r];
+      run.left = null;
+      run.right = null;
+      run.add = 0;
+      Run last = null;
+      while(!stack.isEmpty() && stack.get(stack.size() - 1).prio < run.prio) {
+        last = stack.remove(stack.size() - 1);
+      }
+      run.left = last;
+      if(!stack.isEmpty()) stack.get(stack.size() - 1).right = run;
+      stack.add(run);
+      if(run.fid >= 0 && run.fid <= run.nid) inserted.put(run.fid, run);
+    }
+    root = stack.isEmpty() ? null : stack.get(0);
+    if(root != null) {
+      root.parent = null;
+      refresh(root);
+    }
+  }
+
+  /**
+   * Recomputes the sizes and parent references of the specified tree.
+   * @param t tree
+   */
+  private static void refresh(final Run t) {
+    if(t.left != null) refresh(t.left);
+    if(t.right != null) refresh(t.right);
+    update(t);
+  }
+
+  /**
+   * Splits the specified tree. The resulting trees are assigned to {@link #splitL} and
+   * {@link #splitR}.
+   * @param t tree
+   * @param k number of records in the left tree
+   */
+  private void split(final Run t, final int k) {
+    if(t == null) {
+      splitL = null;
+      splitR = null;
+      return;
+    }
+    push(t);
+    final int ls = size(t.left);
+    if(ls >= k) {
+      split(t.left, k);
+      t.left = splitR;
+      update(t);
+      splitR = t;
+    } else {
+      split(t.right, k - ls - 1);
+      t.right = splitL;
+      update(t);
+      splitL = t;
+    }
+  }
+
+  /**
+   * Merges two trees.
+   * @param a left tree
+   * @param b right tree
+   * @return merged tree
+   */
+  private static Run merge(final Run a, final Run b) {
+    if(a == null) return b;
+    if(b == null) return a;
+    if(a.prio > b.prio) {
+      push(a);
+      a.right = merge(a.right, b);
+      update(a);
+      return a;
+    }
+    push(b);
+    b.left = merge(a, b.left);
+    update(b);
+    return b;
+  }
+
+  /**
+   * Applies a pending increment to the children of a record.
+   * @param t record
+   */
+  private static void push(final Run t) {
+    final int add = t.add;
+    if(add != 0) {
+      apply(t.left, add);
+      apply(t.right, add);
+      t.add = 0;
+    }
+  }
+
+  /**
+   * Increments the pre- and inc-values of all records of the specified tree.
+   * @param t tree (can be {@code null})
+   * @param with increment value
+   */
+  private static void apply(final Run t, final int with) {
+    if(t != null) {
+      t.pre += with;
+      t.inc += with;
+      t.add += with;
+    }
+  }
+
+  /**
+   * Updates the size of the specified record and the parent references of its children.
+   * @param t record
+   */
+  private static void update(final Run t) {
+    t.size = 1 + size(t.left) + size(t.right);
+    if(t.left != null) t.left.parent = t;
+    if(t.right != null) t.right.parent = t;
+  }
+
+  /**
+   * Returns the size of the specified tree.
+   * @param t tree (can be {@code null})
+   * @return size
+   */
+  private static int size(final Run t) {
+    return t == null ? 0 : t.size;
+  }
+
+  /**
+   * Returns a random priority.
+   * @return priority
+   */
+  private int random() {
+    int s = seed;
+    s ^= s << 13;
+    s ^= s >>> 17;
+    s ^= s << 5;
+    seed = s;
+    return s;
+  }
+
+  /** Record of inserted or deleted IDs. */
+  private static final class Run {
+    /** PRE value. */
+    int pre;
+    /** First ID value. */
+    int fid;
+    /** Last ID value. */
+    int nid;
+    /** Increment, showing how the PRE values have been modified. */
+    int inc;
+    /** ID value for the PRE, before inserting/deleting a record. */
+    int oid;
+    /** Priority. */
+    final int prio;
+    /** Pending increment of the descendants. */
+    int add;
+    /** Size of the subtree. */
+    int size = 1;
+    /** Left child. */
+    Run left;
+    /** Right child. */
+    Run right;
+    /** Parent. */
+    Run parent;
+
+    /**
+     * Constructor.
+     * @param pre PRE value
+     * @param fid first ID value
+     * @param nid last ID value
+     * @param inc increment value
+     * @param oid original ID value
+     * @param prio priority
+     */
+    Run(final int pre, final int fid, final int nid, final int inc, final int oid,
+        final int prio) {
+      this.pre = pre;
+      this.fid = fid;
+      this.nid = nid;
+      this.inc = inc;
+      this.oid = oid;
+      this.prio = prio;
     }
-    return t.toString();
   }
 }
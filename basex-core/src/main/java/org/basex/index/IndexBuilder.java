@@ -7,31 +7,45 @@ import java.io.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This interface defines the functions which are needed for building
  * new index structures.
  *
+ * If the database is large enough, its pre values are partitioned, and each partition is
+ * indexed by a separate {@link Worker} thread. Workers write their structures as partial
+ * indexes, which are finally merged.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Proc {
+  /** Minimum number of nodes to be indexed by a single worker. */
+  private static final int PARTITION = 1 << 14;
+
   /** Data reference. */
   protected final Data data;
   /** Total parsing value. */
   protected final int size;
   /** Number of index operations to perform before writing a partial index to disk. */
   private final int splitSize;
+  /** Number of workers. */
+  private final int threads;
 
   /** Maximum memory to consume. */
   private final long maxMem = (long) (Runtime.getRuntime().maxMemory() * 0.8);
 
-  /** Current pre value. */
-  protected int pre;
-  /** Total number of index operations (may get pretty large). */
-  protected long count;
+  /** Workers. */
+  private Worker[] workers = {};
   /** Number of partial index structures. */
   protected int splits;
+  /** Number of workers that are still indexing. */
+  private int active;
+  /** Number of times main memory was exhausted. */
+  private int exhausted;
+  /** Number of workers that have written their structures since memory was exhausted. */
+  private int spilled;
   /** Threshold for freeing memory when estimating main memory consumption. */
   private int gcCount;
 
@@ -39,11 +53,14 @@ public abstract class IndexBuilder extends Proc {
    * Constructor.
    * @param data reference
    * @param max maximum number of operations per partial index
+   * @param threads number of threads (0: number of available processors)
    */
-  protected IndexBuilder(final Data data, final int max) {
+  protected IndexBuilder(final Data data, final int max, final int threads) {
     this.data = data;
     size = data.meta.size;
     splitSize = max;
+    final int t = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.threads = Math.max(1, Math.min(t, size / PARTITION));
     if(Performance.memory() >= maxMem) Performance.gc(1);
   }
 
@@ -55,45 +72,129 @@ public abstract class IndexBuilder extends Proc {
   public abstract Index build() throws IOException;
 
   /**
-   * Checks if the command was interrupted, and prints some debug output.
+   * Creates a worker for the specified partition.
+   * @param start first pre value
+   * @param end pre value after the last pre value of the partition
+   * @return worker
+   * @throws IOException I/O Exception
    */
-  protected final void check() {
-    checkStop();
-    if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
-  }
+  protected abstract Worker worker(final int start, final int end) throws IOException;
 
   /**
-   * Decides whether in-memory temporary index structures are so large
-   * that we must flush them to disk before continuing.
-   * @return true if structures shall be flushed to disk
+   * Indexes all nodes. If a single worker has not written any partial index, its structure
+   * is written as final index. Otherwise, the ids of all partial indexes are returned, which
+   * must then be merged by the caller.
+   * @return ids of the partial indexes, sorted by the pre values of the indexed nodes
+   *   (empty if the final index has been written)
    * @throws IOException I/O Exception
    */
-  protected final boolean split() throws IOException {
-    // checks if a fixed split size has been specified
-    final boolean split;
-    if(splitSize > 0) {
-      split = count >= (splits + 1L) * splitSize;
+  protected final int[] index() throws IOException {
+    final int ws = threads;
+    workers = new Worker[ws];
+    for(int w = 0; w < ws; w++) {
+      workers[w] = worker((int) ((long) size * w / ws), (int) ((long) size * (w + 1) / ws));
+    }
+    active = ws;
+    spilled = ws;
+
+    if(ws == 1) {
+      final Worker worker = workers[0];
+      worker.index();
+      finished();
+      if(worker.splits == 0) {
+        worker.write(-1);
+        return new int[0];
+      }
+      worker.spill();
     } else {
-      // if not, estimate how much main memory is left
-      split = Performance.memory() >= maxMem;
-      // stop operation if index splitting degenerates
+      final Thread[] th = new Thread[ws];
+      final Throwable[] errors = new Throwable[ws];
+      for(int w = 0; w < ws; w++) {
+        final Worker worker = workers[w];
+        final int i = w;
+        th[w] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              worker.index();
+              finished();
+              worker.spill();
+            } catch(final Throwable ex) {
+              errors[i] = ex;
+              // stop all other workers
+              IndexBuilder.this.stop();
+            }
+          }
+        };
+        th[w].start();
+      }
+      for(final Thread t : th) {
+        try {
+          t.join();
+        } catch(final InterruptedException ex) {
+          stop();
+          throw new BaseXException(ex);
+        }
+      }
+      // rethrow original error; interruptions of other workers are ignored
+      for(final Throwable ex : errors) {
+        if(ex == null || ex instanceof ProcException) continue;
+        if(ex instanceof IOException) throw (IOException) ex;
+        if(ex instanceof RuntimeException) throw (RuntimeException) ex;
+        throw (Error) ex;
+      }
+      checkStop();
+    }
+
+    // return ids of partial indexes in the order of the workers
+    final IntList ids = new IntList(splits);
+    for(final Worker worker : workers) ids.add(worker.ids.finish());
+    return ids.finish();
+  }
+
+  /**
+   * Checks if main memory is exhausted. If this is the case, all workers will write their
+   * structures to disk before memory will be checked again.
+   * @return number of times main memory was exhausted
+   * @throws IOException I/O Exception
+   */
+  private synchronized int exhausted() throws IOException {
+    if(spilled >= active) {
       int gc = gcCount;
-      if(split) {
+      if(Performance.memory() >= maxMem) {
+        // stop operation if index splitting degenerates
         if(gc >= 0) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
-        gc = 30;
+        gc = 30 * active;
+        exhausted++;
+        spilled = 0;
       } else {
         gc = Math.max(-1, gc - 1);
       }
       gcCount = gc;
     }
-    if(split && Prop.debug) Util.err("|");
-    return split;
+    return exhausted;
+  }
+
+  /**
+   * Registers a worker that has written its structure.
+   * @return id of the partial index
+   */
+  private synchronized int spilled() {
+    spilled++;
+    return splits++;
+  }
+
+  /**
+   * Registers a worker that has indexed all nodes of its partition.
+   */
+  private synchronized void finished() {
+    active--;
   }
 
   /**
    * Performs memory cleanup after writing partial memory if necessary.
    */
-  protected final void finishSplit() {
+  private void finishSplit() {
     if(splitSize <= 0) Performance.gc(1);
   }
 
@@ -104,7 +205,10 @@ public abstract class IndexBuilder extends Proc {
   protected final void finishIndex(final Performance perf) {
     if(!Prop.debug) return;
 
+    long count = 0;
+    for(final Worker worker : workers) count += worker.count;
     final StringBuilder sb = new StringBuilder();
+    if(workers.length > 1) sb.append(' ').append(workers.length).append(" threads,");
     if(splits > 1) sb.append(' ').append(splits).append(" splits,");
     sb.append(' ').append(count).append(" operations, ");
     sb.append(perf).append(" (").append(Performance.getMemory()).append(')');
@@ -118,6 +222,94 @@ public abstract class IndexBuilder extends Proc {
 
   @Override
   public final double prog() {
-    return pre / (size + (splits > 0 ? size / 50d : 0d));
+    long done = 0;
+    for(final Worker worker : workers) done += worker.pre - worker.start;
+    return done / (size + (splits > 0 ? size / 50d : 0d));
+  }
+
+  /**
+   * Indexes the nodes of a partition of the database.
+   */
+  protected abstract class Worker {
+    /** First pre value. */
+    protected final int start;
+    /** Pre value after the last pre value of the partition. */
+    protected final int end;
+    /** Ids of the partial index structures written by this worker. */
+    private final IntList ids = new IntList();
+    /** Number of times main memory was exhausted when the structure was last written. */
+    private int exhausted;
+
+    /** Current pre value. */
+    protected int pre;
+    /** Total number of index operations (may get pretty large). */
+    protected long count;
+    /** Number of partial index structures written by this worker. */
+    protected int splits;
+
+    /**
+     * Constructor.
+     * @param start first pre value
+     * @param end pre value after the last pre value of the partition
+     */
+    protected Worker(final int start, final int end) {
+      this.start = start;
+      this.end = end;
+      pre = start;
+    }
+
+    /**
+     * Indexes all nodes of the partition.
+     * @throws IOException I/O Exception
+     */
+    protected abstract void index() throws IOException;
+
+    /**
+     * Writes the current structure to disk.
+     * @param id id of the partial index, or {@code -1} for the final index
+     * @throws IOException I/O Exception
+     */
+    protected abstract void write(final int id) throws IOException;
+
+    /**
+     * Checks if the command was interrupted, and prints some debug output.
+     */
+    protected final void check() {
+      checkStop();
+      if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
+    }
+
+    /**
+     * Decides whether in-memory temporary index structures are so large
+     * that we must flush them to disk before continuing.
+     * @return true if structures shall be flushed to disk
+     * @throws IOException I/O Exception
+     */
+    protected final boolean split() throws IOException {
+      // checks if a fixed split size has been specified
+      final boolean split;
+      if(splitSize > 0) {
+        split = count >= (splits + 1L) * splitSize;
+      } else {
+        // if not, check if main memory has been exhausted since the last split
+        final int e = exhausted();
+        split = e != exhausted;
+        exhausted = e;
+      }
+      if(split && Prop.debug) Util.err("|");
+      return split;
+    }
+
+    /**
+     * Writes the current structure as partial index to disk.
+     * @throws IOException I/O Exception
+     */
+    protected final void spill() throws IOException {
+      final int id = spilled();
+      write(id);
+      ids.add(id);
+      splits++;
+      finishSplit();
+    }
   }
 }
@@ -2,7 +2,8 @@ package org.basex.index;
 
 import static org.basex.util.Token.*;
 
-import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
 import java.util.concurrent.locks.*;
 
 import org.basex.util.*;
@@ -10,41 +11,47 @@ import org.basex.util.*;
 /**
  * This class caches sizes and offsets from index results.
  *
+ * <p>The cache is split into shards, which are chosen by the hash of a key and which are
+ * guarded by separate read-write locks. The number of cached entries is bounded: if a shard
+ * is full, entries are evicted by the CLOCK algorithm (second chance). Lookups only mark an
+ * entry as used, so they never need to modify the shared structures.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Dimitar Popov
  */
 public final class IndexCache {
-  /** Queue used to collect unused keys. */
-  private final ReferenceQueue<IndexEntry> queue = new ReferenceQueue<>();
-  /** Read-write lock. */
-  private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
-  /** Hash table buckets. */
-  private BucketEntry[] buckets = new BucketEntry[Array.CAPACITY];
-  /** Number of entries in the cache. */
-  private int size;
+  /** Default maximum number of cached entries. */
+  public static final int MAX = 1 << 16;
+  /** Number of shards (must be a power of two). */
+  private static final int SHARDS = 1 << 4;
+
+  /** Shards. */
+  private final Shard[] shards = new Shard[SHARDS];
+
+  /**
+   * Constructor, using the default number of entries.
+   */
+  public IndexCache() {
+    this(MAX);
+  }
+
+  /**
+   * Constructor.
+   * @param max maximum number of cached entries
+   */
+  public IndexCache(final int max) {
+    final int m = Math.max(1, max / SHARDS);
+    for(int s = 0; s < SHARDS; s++) shards[s] = new Shard(m);
+  }
 
   /**
    * Gets cached entry for the specified key.
    * @param key key
-   * @return cached entry or {@code null} if the entry is stale
+   * @return cached entry or {@code null} if the entry is not cached
    */
   public IndexEntry get(final byte[] key) {
     final int hash = hash(key);
-    rwl.readLock().lock();
-
-    try {
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i];
-      while(e != null) {
-        final IndexEntry entry = e.get();
-        if(entry != null && e.hash == hash && eq(entry.key, key)) return entry;
-        e = e.next;
-      }
-    } finally {
-      rwl.readLock().unlock();
-    }
-
-    return null;
+    return shard(hash).get(key, hash);
   }
 
   /**
@@ -57,31 +64,7 @@ public final class IndexCache {
    */
   public IndexEntry add(final byte[] key, final int sz, final long off) {
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry current = buckets[i], prev = current;
-      while(current != null) {
-        final BucketEntry next = current.next;
-        final IndexEntry entry = current.get();
-        if(entry == null) {
-          delete(i, current, prev, next);
-        } else if(current.hash == hash && eq(entry.key, key)) {
-          update(entry, sz, off);
-          return entry;
-        }
-        prev = current;
-        current = next;
-      }
-
-      final IndexEntry entry = new IndexEntry(key, sz, off);
-      add(i, hash, entry);
-      return entry;
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    return shard(hash).add(key, hash, sz, off);
   }
 
   /**
@@ -90,117 +73,228 @@ public final class IndexCache {
    */
   public void delete(final byte[] key) {
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i], prev = e;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final IndexEntry entry = e.get();
-        if(entry == null) {
-          delete(i, e, prev, next);
-        } else if(e.hash == hash && eq(entry.key, key)) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = e;
-        e = next;
-      }
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    shard(hash).delete(key, hash);
   }
 
   /**
-   * Purges stale entries from the cache.
+   * Returns the number of cached entries.
+   * @return number of entries
    */
-  private void purge() {
-    for(Object x; (x = queue.poll()) != null;) {
-      final BucketEntry e = (BucketEntry) x;
-      final int i = indexFor(e.hash, buckets.length);
-      BucketEntry prev = buckets[i], p = prev;
-      while(p != null) {
-        final BucketEntry next = p.next;
-        if(p == e) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = p;
-        p = next;
-      }
-    }
+  public int size() {
+    int size = 0;
+    for(final Shard shard : shards) size += shard.size();
+    return size;
   }
 
   /**
-   * Add a new index entry to the bucket with the specified index.
-   * @param i bucket index
-   * @param hash hash of the new index key
-   * @param entry index entry
+   * Returns the number of successful lookups.
+   * @return number of hits
    */
-  private void add(final int i, final int hash, final IndexEntry entry) {
-    buckets[i] = new BucketEntry(hash, buckets[i], entry, queue);
-    if(++size == buckets.length) rehash();
+  public long hits() {
+    long hits = 0;
+    for(final Shard shard : shards) hits += shard.hits.get();
+    return hits;
   }
 
   /**
-   * Update an existing index entry.
-   * @param entry index entry to update
-   * @param sz new size
-   * @param off new offset
+   * Returns the number of failed lookups.
+   * @return number of misses
    */
-  private static void update(final IndexEntry entry, final int sz, final long off) {
-    entry.size = sz;
-    entry.offset = off;
+  public long misses() {
+    long misses = 0;
+    for(final Shard shard : shards) misses += shard.misses.get();
+    return misses;
   }
 
   /**
-   * Deletes a cached entry from the buckets with the specified index.
-   * @param i buckets index
-   * @param e cached entry to delete
-   * @param p previous cache entry
-   * @param n next cache entry
+   * Returns the shard for the specified hash code. The upper bits of the scrambled hash are
+   * used, as the lower bits are used to choose the buckets.
+   * @param hash hash code
+   * @return shard
    */
-  private void delete(final int i, final BucketEntry e, final BucketEntry p, final BucketEntry n) {
-    if(p == e) buckets[i] = n;
-    else p.next = n;
-    e.next = null;
-    --size;
+  private Shard shard(final int hash) {
+    return shards[hash * 0x9E3779B9 >>> 28];
+  }
+
+  @Override
+  public String toString() {
+    return Util.info("% entries, % hits, % misses", size(), hits(), misses());
   }
 
   /**
-   * Resizes the hash table.
+   * Shard of the cache.
    */
-  private void rehash() {
-    purge();
-
-    final int s = size << 1;
-    final BucketEntry[] tmp = new BucketEntry[s];
-
-    final int l = buckets.length;
-    for(int i = 0; i < l; ++i) {
-      BucketEntry e = buckets[i];
-      buckets[i] = null;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final int p = indexFor(e.hash, tmp.length);
-        e.next = tmp[p];
-        tmp[p] = e;
-        e = next;
+  private static final class Shard {
+    /** Read-write lock. */
+    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
+    /** Number of successful lookups. */
+    private final AtomicLong hits = new AtomicLong();
+    /** Number of failed lookups. */
+    private final AtomicLong misses = new AtomicLong();
+    /** Maximum number of entries. */
+    private final int max;
+    /** Hash table buckets. */
+    private BucketEntry[] buckets = new BucketEntry[Array.CAPACITY];
+    /** All entries, in the order in which they are visited by the clock hand. */
+    private BucketEntry[] clock = new BucketEntry[Array.CAPACITY];
+    /** Position of the clock hand. */
+    private int hand;
+    /** Number of entries in the shard. */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param max maximum number of entries
+     */
+    Shard(final int max) {
+      this.max = max;
+    }
+
+    /**
+     * Gets cached entry for the specified key.
+     * @param key key
+     * @param hash hash code of the key
+     * @return cached entry or {@code null}
+     */
+    IndexEntry get(final byte[] key, final int hash) {
+      rwl.readLock().lock();
+      try {
+        for(BucketEntry e = buckets[hash & buckets.length - 1]; e != null; e = e.next) {
+          if(e.hash == hash && eq(e.entry.key, key)) {
+            // concurrent assignments are harmless, as all readers assign the same value
+            e.used = true;
+            hits.incrementAndGet();
+            return e.entry;
+          }
+        }
+      } finally {
+        rwl.readLock().unlock();
       }
+      misses.incrementAndGet();
+      return null;
     }
-    buckets = tmp;
-  }
 
-  /**
-   * Returns buckets index for a hash code.
-   * @param h hash code
-   * @param n number of available buckets
-   * @return index of a buckets
-   */
-  private static int indexFor(final int h, final int n) {
-    return h & n - 1;
+    /**
+     * Adds or updates a cache entry.
+     * @param key key
+     * @param hash hash code of the key
+     * @param sz number of index hits
+     * @param off offset to id list
+     * @return cache entry
+     */
+    IndexEntry add(final byte[] key, final int hash, final int sz, final long off) {
+      rwl.writeLock().lock();
+      try {
+        for(BucketEntry e = buckets[hash & buckets.length - 1]; e != null; e = e.next) {
+          if(e.hash == hash && eq(e.entry.key, key)) {
+            e.entry.size = sz;
+            e.entry.offset = off;
+            e.used = true;
+            return e.entry;
+          }
+        }
+        if(size == max) evict();
+
+        final IndexEntry entry = new IndexEntry(key, sz, off);
+        final int i = hash & buckets.length - 1;
+        final BucketEntry e = new BucketEntry(hash, buckets[i], entry);
+        buckets[i] = e;
+        if(size == clock.length) clock = Arrays.copyOf(clock, Math.min(size << 1, max));
+        e.slot = size;
+        clock[size++] = e;
+        if(size == buckets.length) rehash();
+        return entry;
+      } finally {
+        rwl.writeLock().unlock();
+      }
+    }
+
+    /**
+     * Deletes a cached entry.
+     * @param key key
+     * @param hash hash code of the key
+     */
+    void delete(final byte[] key, final int hash) {
+      rwl.writeLock().lock();
+      try {
+        for(BucketEntry e = buckets[hash & buckets.length - 1]; e != null; e = e.next) {
+          if(e.hash == hash && eq(e.entry.key, key)) {
+            remove(e);
+            break;
+          }
+        }
+      } finally {
+        rwl.writeLock().unlock();
+      }
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return number of entries
+     */
+    int size() {
+      rwl.readLock().lock();
+      try {
+        return size;
+      } finally {
+        rwl.readLock().unlock();
+      }
+    }
+
+    /**
+     * Evicts an entry that has not been used since the clock hand passed it for the last time.
+     */
+    private void evict() {
+      while(true) {
+        if(hand >= size) hand = 0;
+        final BucketEntry e = clock[hand];
+        if(!e.used) {
+          remove(e);
+          return;
+        }
+        e.used = false;
+        hand++;
+      }
+    }
+
+    /**
+     * Removes an entry from the buckets and the clock.
+     * @param e entry to be removed
+     */
+    private void remove(final BucketEntry e) {
+      final int i = e.hash & buckets.length - 1;
+      if(buckets[i] == e) {
+        buckets[i] = e.next;
+      } else {
+        BucketEntry p = buckets[i];
+        while(p.next != e) p = p.next;
+        p.next = e.next;
+      }
+      // move last entry to the free slot
+      final BucketEntry last = clock[--size];
+      clock[e.slot] = last;
+      last.slot = e.slot;
+      clock[size] = null;
+    }
+
+    /**
+     * Resizes the hash table.
+     */
+    private void rehash() {
+      final int s = buckets.length << 1;
+      final BucketEntry[] tmp = new BucketEntry[s];
+      for(final BucketEntry bucket : buckets) {
+        BucketEntry e = bucket;
+        while(e != null) {
+          final BucketEntry next = e.next;
+          final int p = e.hash & s - 1;
+          e.next = tmp[p];
+          tmp[p] = e;
+          e = next;
+        }
+      }
+      buckets = tmp;
+    }
   }
 
   /**
@@ -208,24 +302,28 @@ public final class IndexCache {
    * each buckets. It also stores the hash of the current entry for better
    * performance.
    */
-  private static class BucketEntry extends SoftReference<IndexEntry> {
+  private static final class BucketEntry {
     /** Hash code of the stored cache entry key. */
     final int hash;
+    /** Cache entry. */
+    final IndexEntry entry;
     /** Next buckets entry or {@code null} if the last one for this buckets. */
     BucketEntry next;
+    /** Position in the clock. */
+    int slot;
+    /** Indicates if the entry has been used since the clock hand passed it. */
+    boolean used;
 
     /**
      * Constructor.
      * @param h hash code of the cache entry key
      * @param n next buckets entry or {@code null} if the last one
      * @param v stored cache entry
-     * @param rq reference queue
      */
-    BucketEntry(final int h, final BucketEntry n, final IndexEntry v,
-        final ReferenceQueue<IndexEntry> rq) {
-      super(v, rq);
+    BucketEntry(final int h, final BucketEntry n, final IndexEntry v) {
       hash = h;
       next = n;
+      entry = v;
     }
   }
 }
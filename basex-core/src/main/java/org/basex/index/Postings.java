@@ -0,0 +1,363 @@
+package org.basex.index;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class writes and reads the posting lists of the value and full-text indexes.
+ * A posting list consists of ascending (but not necessarily distinct) values and,
+ * optionally, attached values (e.g. the token positions of full-text entries).</p>
+ *
+ * <p>If a block size is specified, the entries of a list are compressed in blocks.
+ * A list with {@code n} entries, which will be stored by the caller, has the following
+ * format:</p>
+ * <ul>
+ * <li> The skip table contains one entry for each full block: the distance between the first
+ *   value of the block and the first value of the previous block (or {@code 0}), and the
+ *   byte size of the block [{@link Num}, 2x].</li>
+ * <li> Each full block contains the distances between the remaining values of the block and,
+ *   if available, the attached values of all entries. Both are encoded in the PFOR format:
+ *   all numbers are packed with the bit width that results in the smallest block size
+ *   [byte], and the upper bits of larger numbers are stored as exceptions. The number of
+ *   exceptions [{@link Num}] is followed by the packed numbers and the exceptions,
+ *   which consist of the index and the upper bits of a number [{@link Num}, 2x].</li>
+ * <li> The remaining entries are stored uncompressed: the distance to the previous value
+ *   (or to the first value of the last full block) and, if available, the attached
+ *   value [{@link Num}].</li>
+ * </ul>
+ *
+ * <p>Without block size, the list is stored in the original uncompressed format: distances
+ * between all values, or pairs of values and attached values [{@link Num}].</p>
+ *
+ * <p>In both cases, the first number of a list is its first value. Lists that are shorter
+ * than a block do not contain any blocks, so their size will not grow.</p>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Postings {
+  /** Data access. */
+  private final DataAccess da;
+  /** Number of entries. */
+  private final int size;
+  /** Number of entries per block (0: uncompressed list). */
+  private final int block;
+  /** Values of the current block. */
+  private final int[] values;
+  /** Attached values of the current block (can be {@code null}). */
+  private final int[] attached;
+  /** First values of the full blocks. */
+  private final int[] firsts;
+  /** Offsets of the full blocks; the last offset points to the remaining entries. */
+  private final long[] offsets;
+
+  /** Current block. */
+  private int blk = -1;
+  /** Number of entries in the current block. */
+  private int count;
+  /** Current entry in the block. */
+  private int entry;
+
+  /** Buffered bytes. */
+  private byte[] buffer = Token.EMPTY;
+  /** Position in the buffered bytes. */
+  private int bp;
+  /** File offset of the buffered bytes. */
+  private long off;
+
+  /**
+   * Constructor, reading the skip table of a list.
+   * <p><em>Important:</em> Read access must be synchronized by the caller.</p>
+   * @param da data access
+   * @param offset offset of the list
+   * @param size number of entries
+   * @param block number of entries per block (0: uncompressed list)
+   * @param attach entries have attached values
+   */
+  public Postings(final DataAccess da, final long offset, final int size, final int block,
+      final boolean attach) {
+
+    this.da = da;
+    this.size = size;
+    this.block = block;
+    if(block == 0) {
+      values = new int[1];
+      attached = attach ? new int[1] : null;
+      firsts = null;
+      offsets = null;
+      off = offset;
+    } else {
+      values = new int[block];
+      attached = attach ? new int[block] : null;
+      final int bs = size / block;
+      firsts = new int[bs];
+      offsets = new long[bs + 1];
+      off = offset;
+      final int[] sizes = new int[bs];
+      for(int b = 0, f = 0; b < bs; b++) {
+        fill(bs - b, 10);
+        f += num();
+        firsts[b] = f;
+        sizes[b] = num();
+      }
+      long o = off + bp;
+      for(int b = 0; b < bs; b++) {
+        offsets[b] = o;
+        o += sizes[b];
+      }
+      offsets[bs] = o;
+    }
+  }
+
+  /**
+   * Moves the cursor to the next entry.
+   * <p><em>Important:</em> Read access must be synchronized by the caller.</p>
+   * @return {@code true} if another entry exists
+   */
+  public boolean more() {
+    if(block == 0) {
+      // uncompressed list: decode next entry
+      if(++entry > size) return false;
+      fill(size - entry + 1, attached != null ? 10 : 5);
+      final int v = num();
+      if(attached != null) {
+        values[0] = v;
+        attached[0] = num();
+      } else {
+        values[0] += v;
+      }
+      return true;
+    }
+    if(++entry < count) return true;
+    if(blk >= firsts.length) return false;
+    load(blk + 1);
+    entry = 0;
+    return count > 0;
+  }
+
+  /**
+   * Moves the cursor to the next entry with a value that is equal to or greater than the
+   * specified value. Blocks whose values are all smaller will be skipped without being
+   * decompressed.
+   * <p><em>Important:</em> Read access must be synchronized by the caller.</p>
+   * @param value value
+   * @return {@code true} if such an entry exists
+   */
+  public boolean more(final int value) {
+    if(block != 0) {
+      // find last block with a first value that is smaller than the specified value
+      int l = blk + 1, h = firsts.length - 1;
+      while(l <= h) {
+        final int m = l + h >>> 1;
+        if(firsts[m] < value) l = m + 1;
+        else h = m - 1;
+      }
+      if(h > blk) {
+        load(h);
+        entry = -1;
+      }
+    }
+    while(more()) {
+      if(value() >= value) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the value of the current entry.
+   * @return value
+   */
+  public int value() {
+    return values[block == 0 ? 0 : entry];
+  }
+
+  /**
+   * Returns the attached value of the current entry.
+   * @return attached value
+   */
+  public int attached() {
+    return attached[block == 0 ? 0 : entry];
+  }
+
+  /**
+   * Writes a list. The number of entries must be written by the caller.
+   * @param out output stream
+   * @param vals values (must be sorted)
+   * @param atts attached values (can be {@code null})
+   * @param block number of entries per block (0: uncompressed list)
+   * @throws IOException I/O exception
+   */
+  public static void write(final DataOutput out, final IntList vals, final IntList atts,
+      final int block) throws IOException {
+
+    final int size = vals.size();
+    if(block == 0) {
+      for(int i = 0, o = 0; i < size; i++) {
+        final int v = vals.get(i);
+        if(atts != null) {
+          out.writeNum(v);
+          out.writeNum(atts.get(i));
+        } else {
+          out.writeNum(v - o);
+          o = v;
+        }
+      }
+      return;
+    }
+
+    // compress full blocks, write skip table and blocks
+    final int bs = size / block;
+    final byte[][] blocks = new byte[bs][];
+    final int[] nums = new int[block];
+    for(int b = 0; b < bs; b++) {
+      final int s = b * block;
+      final ByteList bl = new ByteList();
+      for(int i = 1; i < block; i++) nums[i - 1] = vals.get(s + i) - vals.get(s + i - 1);
+      pack(bl, nums, block - 1);
+      if(atts != null) {
+        for(int i = 0; i < block; i++) nums[i] = atts.get(s + i);
+        pack(bl, nums, block);
+      }
+      blocks[b] = bl.finish();
+      out.writeNum(vals.get(s) - (b == 0 ? 0 : vals.get(s - block)));
+      out.writeNum(blocks[b].length);
+    }
+    for(final byte[] b : blocks) out.writeBytes(b);
+
+    // write remaining entries
+    for(int i = bs * block, o = bs == 0 ? 0 : vals.get((bs - 1) * block); i < size; i++) {
+      final int v = vals.get(i);
+      out.writeNum(v - o);
+      o = v;
+      if(atts != null) out.writeNum(atts.get(i));
+    }
+  }
+
+  /**
+   * Decompresses the specified block, or reads the remaining entries.
+   * @param b block
+   */
+  private void load(final int b) {
+    final int bs = firsts.length;
+    off = offsets[b];
+    bp = 0;
+    if(b < bs) {
+      buffer = da.readBytes(off, (int) (offsets[b + 1] - off));
+      values[0] = firsts[b];
+      unpack(values, 1, block - 1);
+      for(int i = 1; i < block; i++) values[i] += values[i - 1];
+      if(attached != null) unpack(attached, 0, block);
+      count = block;
+    } else {
+      buffer = Token.EMPTY;
+      count = size - bs * block;
+      for(int i = 0, v = bs == 0 ? 0 : firsts[bs - 1]; i < count; i++) {
+        fill(count - i, attached != null ? 10 : 5);
+        v += num();
+        values[i] = v;
+        if(attached != null) attached[i] = num();
+      }
+    }
+    blk = b;
+  }
+
+  /**
+   * Buffers the bytes of the next entries if the current entry may not be completely buffered.
+   * @param entries maximum number of remaining entries
+   * @param max maximum number of bytes per entry
+   */
+  private void fill(final int entries, final int max) {
+    if(bp + max <= buffer.length) return;
+    off += bp;
+    bp = 0;
+    final long len = Math.min(Math.min((long) entries * max, IO.BLOCKSIZE), da.length() - off);
+    buffer = da.readBytes(off, (int) len);
+  }
+
+  /**
+   * Returns the next buffered number.
+   * @return number
+   */
+  private int num() {
+    final int v = Num.get(buffer, bp);
+    bp += Num.length(buffer, bp);
+    return v;
+  }
+
+  /**
+   * Packs numbers in the PFOR format.
+   * @param out output
+   * @param nums numbers (must not be negative)
+   * @param n number of numbers
+   */
+  private static void pack(final ByteList out, final int[] nums, final int n) {
+    if(n == 0) return;
+
+    // choose bit width with the smallest total size
+    int width = 0, exc = 0, min = Integer.MAX_VALUE;
+    for(int w = 0; w <= 32; w++) {
+      int sz = n * w + 7 >>> 3, e = 0;
+      for(int i = 0; i < n && sz < min; i++) {
+        final int high = (int) ((nums[i] & 0xFFFFFFFFL) >>> w);
+        if(high != 0) {
+          sz += Num.length(i) + Num.length(high);
+          e++;
+        }
+      }
+      if(sz < min) {
+        min = sz;
+        width = w;
+        exc = e;
+      }
+    }
+
+    out.add(width).add(Num.num(exc));
+    final long mask = (1L << width) - 1;
+    long buffer = 0;
+    int bits = 0;
+    for(int i = 0; i < n; i++) {
+      buffer |= (nums[i] & mask) << bits;
+      for(bits += width; bits >= 8; bits -= 8) {
+        out.add((int) buffer);
+        buffer >>>= 8;
+      }
+    }
+    if(bits > 0) out.add((int) buffer);
+    // add upper bits of large numbers
+    for(int i = 0; i < n && exc > 0; i++) {
+      final int high = (int) ((nums[i] & 0xFFFFFFFFL) >>> width);
+      if(high != 0) out.add(Num.num(i)).add(Num.num(high));
+    }
+  }
+
+  /**
+   * Unpacks buffered numbers in the PFOR format.
+   * @param nums numbers
+   * @param start first array position
+   * @param n number of numbers
+   */
+  private void unpack(final int[] nums, final int start, final int n) {
+    if(n == 0) return;
+
+    final byte[] in = buffer;
+    final int width = in[bp++] & 0xFF;
+    final int exc = num();
+    final long mask = (1L << width) - 1;
+    long bits = 0;
+    for(int i = 0, b = 0; i < n; i++) {
+      for(; b < width; b += 8) bits |= (long) (in[bp++] & 0xFF) << b;
+      nums[start + i] = (int) (bits & mask);
+      bits >>>= width;
+      b -= width;
+    }
+    for(int e = 0; e < exc; e++) {
+      final int i = num();
+      nums[start + i] |= num() << width;
+    }
+  }
+}
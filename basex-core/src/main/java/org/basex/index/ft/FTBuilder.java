@@ -21,12 +21,18 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Number of indexed tokens. */
-  private long ntok;
+  /** Full-text options. */
+  private final FTOpt fto;
+  /** Indicates if ids are indexed instead of pre values (required for updatable indexes). */
+  private final boolean ids;
+  /** Number of entries per compressed block of pre/pos lists (0: uncompressed lists). */
+  private final int blocks;
+  /** Encoded numbers of tokens of the indexed texts, indexed by pre values or ids. */
+  private final byte[] norms;
+  /** Number of indexed texts. */
+  private long texts;
+  /** Total number of tokens of the indexed texts. */
+  private long tokens;
 
   /**
    * Constructor.
@@ -35,101 +41,157 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public FTBuilder(final Data data, final MainOptions options) throws IOException {
-    super(data, options.get(MainOptions.FTINDEXSPLITSIZE));
-    tree = new FTIndexTrees(data.meta.maxlen);
+    super(data, options.get(MainOptions.FTINDEXSPLITSIZE), options.get(MainOptions.INDEXTHREADS));
 
-    final FTOpt fto = new FTOpt();
+    fto = new FTOpt();
     fto.set(FTFlag.DC, options.get(MainOptions.DIACRITICS));
     fto.set(FTFlag.ST, options.get(MainOptions.STEMMING));
     fto.cs = options.get(MainOptions.CASESENS) ? FTCase.SENSITIVE : FTCase.INSENSITIVE;
     fto.sw = new StopWords(data, options);
     fto.ln = Language.get(options);
+    // lists of updatable indexes are not compressed, as ids are not sorted
+    ids = data.meta.updindex;
+    blocks = ids ? 0 : data.meta.blocksize;
+    norms = new byte[ids ? data.meta.lastid + 1 : size];
 
     if(!Tokenizer.supportFor(fto.ln))
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(options.get(MainOptions.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
-
-    lex = new FTLexer(fto);
   }
 
-  /**
-   * Extracts and indexes words from the specified data reference.
-   * @throws IOException I/O Exception
-   */
-  private void index() throws IOException {
+  @Override
+  public FTIndex build() throws IOException {
     // delete old index
     abort();
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
-
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) continue;
-
-      /* Current lexer position. */
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      int pos = -1;
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
-          // check if main memory is exhausted
-          if((ntok++ & 0x0FFF) == 0 && split()) {
-            writeIndex(true);
-            finishSplit();
-          }
-          tree.index(tok, pre, pos, splits);
-          count++;
-        }
-      }
+    // extract and index words, merge partial index structures
+    final int[] ids = index();
+    if(ids.length > 0) merge(ids);
+    // create term dictionary, write text lengths
+    FTTrie.write(data, DATAFTX);
+    try(final DataOutput outN = new DataOutput(data.meta.dbfile(DATAFTX + 'n'))) {
+      outN.writeBytes(norms);
     }
 
-    // finalize partial or all index structures
-    write(splits > 0);
-
     data.meta.ftxtindex = true;
     finishIndex(perf);
+    return new FTIndex(data);
   }
 
   @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTIndex(data);
+  protected Worker worker(final int start, final int end) {
+    return new Worker(start, end) {
+      /** Value trees. */
+      private final FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+      /** Word parser. */
+      private final FTLexer lex = new FTLexer(fto);
+      /** Number of indexed tokens. */
+      private long ntok;
+      /** Number of texts. */
+      private long txts;
+      /** Number of tokens of all texts. */
+      private long toks;
+
+      @Override
+      protected void index() throws IOException {
+        for(; pre < end; ++pre) {
+          if((pre & 0xFFFF) == 0) check();
+
+          final int k = data.kind(pre);
+          if(k != Data.TEXT) continue;
+
+          /* Current lexer position. */
+          final StopWords sw = lex.ftOpt().sw;
+          final int id = ids ? data.id(pre) : pre;
+          lex.init(data.text(pre, true));
+          int pos = -1;
+          while(lex.hasNext()) {
+            final byte[] tok = lex.nextToken();
+            ++pos;
+            // skip too long and stopword tokens
+            if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+              // check if main memory is exhausted
+              if((ntok++ & 0x0FFF) == 0 && split()) spill();
+              tree.index(tok, id, pos, splits);
+              count++;
+            }
+          }
+          // remember number of tokens for scoring
+          if(pos != -1) {
+            norms[id] = (byte) Scoring.norm(pos + 1);
+            txts++;
+            toks += pos + 1;
+          }
+        }
+        stats(txts, toks);
+      }
+
+      @Override
+      protected void write(final int id) throws IOException {
+        writeIndex(tree, splits, id);
+      }
+    };
+  }
+
+  /**
+   * Registers the statistics of a worker.
+   * @param txts number of texts
+   * @param toks number of tokens of all texts
+   */
+  private synchronized void stats(final long txts, final long toks) {
+    texts += txts;
+    tokens += toks;
   }
 
   /**
-   * Writes the index data to disk.
-   * @param partial write partial index
+   * Writes the header of the statistics file.
+   * @param outS output
+   * @param ids ids are indexed instead of pre values
+   * @param seq sequence number of the last segment that has been merged into the index
+   * @param texts number of indexed texts
+   * @param tokens total number of tokens of the indexed texts
    * @throws IOException I/O exception
    */
-  private void write(final boolean partial) throws IOException {
-    writeIndex(partial);
-    if(!partial) return;
+  static void stats(final DataOutput outS, final boolean ids, final int seq, final long texts,
+      final long tokens) throws IOException {
+    outS.write1(ids ? 1 : 0);
+    outS.write4(seq);
+    outS.write5(texts);
+    outS.write5(tokens);
+  }
 
+  /**
+   * Merges partial indexes.
+   * @param ids ids of the partial indexes, sorted by the pre values of the indexed nodes
+   * @throws IOException I/O exception
+   */
+  private void merge(final int[] ids) throws IOException {
     // merges temporary index files
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
-        final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'))) {
+        final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'));
+        final DataOutput outS = new DataOutput(data.meta.dbfile(DATAFTX + 's'))) {
 
+      stats(outS, this.ids, 0, texts, tokens);
       final IntList ind = new IntList();
 
       // open all temporary sorted lists
-      final FTList[] v = new FTList[splits];
-      for(int b = 0; b < splits; ++b) v[b] = new FTList(data, b);
+      final int vs = ids.length;
+      final FTList[] v = new FTList[vs];
+      for(int b = 0; b < vs; ++b) v[b] = new FTList(data, ids[b]);
 
       final IntList il = new IntList();
       while(check(v)) {
+        checkStop();
         il.reset();
         int m = 0;
         il.add(m);
         // find next token to write on disk
-        for(int i = 0; i < splits; ++i) {
+        for(int i = 0; i < vs; ++i) {
           if(m == i || v[i].tok.length == 0) continue;
           final int l = v[i].tok.length - v[m].tok.length;
           final int d = diff(v[m].tok, v[i].tok);
@@ -152,7 +214,7 @@ public final class FTBuilder extends IndexBuilder {
         // pointer on full-text data
         outY.write5(outZ.size());
         // merge and write data size
-        outY.write4(merge(outZ, il, v));
+        outY.write4(merge(outZ, outS, il, v));
       }
       writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
     }
@@ -166,7 +228,7 @@ public final class FTBuilder extends IndexBuilder {
    * @param lp last offset
    * @throws IOException I/O exception
    */
-  private static void writeInd(final DataOutput outX, final IntList il,
+  static void writeInd(final DataOutput outX, final IntList il,
       final int ls, final int lp) throws IOException {
 
     final int is = il.size();
@@ -181,15 +243,21 @@ public final class FTBuilder extends IndexBuilder {
 
   /**
    * Writes the current index to disk.
-   * @param partial partial flag
+   * @param tree index trees
+   * @param splits number of partial indexes that have been written for the trees
+   * @param id id of the partial index, or {@code -1} for the final index
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+  private void writeIndex(final FTIndexTrees tree, final int splits, final int id)
+      throws IOException {
+    final String name = DATAFTX + (id != -1 ? id : "");
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
-        final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
+        final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'));
+        // statistics are only written for the final index
+        final DataOutput outS = id != -1 ? null : new DataOutput(data.meta.dbfile(name + 's'))) {
 
+      if(outS != null) stats(outS, ids, 0, texts, tokens);
       final IntList ind = new IntList();
       tree.init();
       long dr = 0;
@@ -212,7 +280,14 @@ public final class FTBuilder extends IndexBuilder {
         // write full-text data size (number of pre values)
         outY.write4(t.nextNumPre());
         // write compressed pre and pos arrays
-        writeFTData(outZ, t.nextPres(), t.nextPoss());
+        if(id != -1 || blocks == 0) {
+          writeFTData(outZ, t.nextPres(), t.nextPoss());
+          if(outS != null) outS.write4(texts(ints(t.nextPres())));
+        } else {
+          final IntList pres = ints(t.nextPres());
+          Postings.write(outZ, pres, ints(t.nextPoss()), blocks);
+          outS.write4(texts(pres));
+        }
 
         dr = outZ.size();
         tr = (int) outY.size();
@@ -220,45 +295,60 @@ public final class FTBuilder extends IndexBuilder {
       writeInd(outX, ind, ++j, tr);
     }
     tree.initFT();
-
-    // increase split counter
-    splits++;
   }
 
   /**
    * Merges temporary indexes for the current token.
    * @param out full-text data
+   * @param outS statistics
    * @param il array mapping
    * @param v full-text list
    * @return written size
    * @throws IOException I/O exception
    */
-  private static int merge(final DataOutput out, final IntList il, final FTList[] v)
-      throws IOException {
+  private int merge(final DataOutput out, final DataOutput outS, final IntList il,
+      final FTList[] v) throws IOException {
 
-    final TokenBuilder tbp = new TokenBuilder();
-    final TokenBuilder tbo = new TokenBuilder();
-    tbp.add(new byte[4]);
-    tbo.add(new byte[4]);
+    final IntList pres = new IntList();
+    final IntList poss = new IntList();
     // merge full-text data of all sorted lists with the same token
-    int s = 0;
     final int is = il.size();
     for(int j = 0; j < is; ++j) {
       final int m = il.get(j);
-      for(final int p : v[m].prv) tbp.add(Num.num(p));
-      for(final int p : v[m].pov) tbo.add(Num.num(p));
-      s += v[m].size;
+      pres.add(v[m].prv);
+      poss.add(v[m].pov);
       v[m].next();
     }
-    // write compressed pre and pos arrays
-    final byte[] pr = tbp.finish();
-    Num.size(pr, pr.length);
-    final byte[] po = tbo.finish();
-    Num.size(po, po.length);
-
     // write full-text data
-    writeFTData(out, pr, po);
-    return s;
+    Postings.write(out, pres, poss, blocks);
+    outS.write4(texts(pres));
+    return pres.size();
+  }
+
+  /**
+   * Returns the number of distinct texts.
+   * @param pres pre values or ids (equal values must be adjacent)
+   * @return number of texts
+   */
+  static int texts(final IntList pres) {
+    final int ps = pres.size();
+    int c = 0;
+    for(int p = 0; p < ps; p++) {
+      if(p == 0 || pres.get(p) != pres.get(p - 1)) c++;
+    }
+    return c;
+  }
+
+  /**
+   * Returns the values of a compressed array.
+   * @param nums compressed values
+   * @return values
+   */
+  private static IntList ints(final byte[] nums) {
+    final IntList il = new IntList();
+    final int ns = Num.size(nums);
+    for(int n = 4; n < ns; n += Num.length(nums, n)) il.add(Num.get(nums, n));
+    return il;
   }
 
   /**
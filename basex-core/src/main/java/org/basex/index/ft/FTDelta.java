@@ -0,0 +1,134 @@
+package org.basex.index.ft;
+
+import java.io.*;
+
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * In-memory segment of an updatable full-text index. A segment contains the postings of all
+ * texts that have been added after the segment was created, and the ids of all texts that
+ * have been deleted. Deletions only apply to older segments and the index files: postings of
+ * deleted texts that have been added to the same segment are removed right away.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class FTDelta {
+  /** Sequence number. */
+  final int seq;
+  /** Postings (pairs of ids and positions), indexed by tokens. */
+  final TokenObjMap<IntList> postings = new TokenObjMap<>();
+  /** Ids of deleted texts. */
+  final IntSet deleted = new IntSet();
+  /** Encoded numbers of tokens of the added texts, indexed by ids. */
+  final IntMap norms = new IntMap();
+  /** Difference in the number of indexed texts. */
+  long texts;
+  /** Difference in the total number of tokens. */
+  long tokens;
+  /** Number of postings. */
+  int size;
+
+  /**
+   * Constructor.
+   * @param seq sequence number
+   */
+  FTDelta(final int seq) {
+    this.seq = seq;
+  }
+
+  /**
+   * Constructor, reading a segment from disk.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  FTDelta(final DataInput in) throws IOException {
+    seq = in.readNum();
+    texts = in.read8();
+    tokens = in.read8();
+    for(int d = in.readNum(); d > 0; d--) deleted.add(in.readNum());
+    for(int n = in.readNum(); n > 0; n--) norms.put(in.readNum(), in.readNum());
+    for(int t = in.readNum(); t > 0; t--) {
+      final byte[] token = in.readToken();
+      final IntList list = new IntList(in.readNums());
+      postings.put(token, list);
+      size += list.size() >>> 1;
+    }
+  }
+
+  /**
+   * Writes the segment to disk.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out) throws IOException {
+    out.writeNum(seq);
+    out.write8(texts);
+    out.write8(tokens);
+    final int[] ids = deleted.toArray();
+    out.writeNum(ids.length);
+    for(final int id : ids) out.writeNum(id);
+    final int[] nids = norms.toArray();
+    out.writeNum(nids.length);
+    for(final int id : nids) {
+      out.writeNum(id);
+      out.writeNum(norms.get(id));
+    }
+    int ts = 0;
+    for(final byte[] token : postings) {
+      if(!postings.get(token).isEmpty()) ts++;
+    }
+    out.writeNum(ts);
+    for(final byte[] token : postings) {
+      final IntList list = postings.get(token);
+      if(list.isEmpty()) continue;
+      out.writeToken(token);
+      out.writeNums(list.toArray());
+    }
+  }
+
+  /**
+   * Adds a posting.
+   * @param token token
+   * @param id id of the text
+   * @param pos position of the token
+   */
+  void add(final byte[] token, final int id, final int pos) {
+    IntList list = postings.get(token);
+    if(list == null) {
+      list = new IntList(2);
+      postings.put(token, list);
+    }
+    list.add(id).add(pos);
+    size++;
+  }
+
+  /**
+   * Removes all postings of a text that has been added to this segment.
+   * @param token token
+   * @param id id of the text
+   */
+  void remove(final byte[] token, final int id) {
+    final IntList list = postings.get(token);
+    if(list == null) return;
+    final IntList tmp = new IntList(list.size());
+    final int ls = list.size();
+    for(int l = 0; l < ls; l += 2) {
+      if(list.get(l) == id) continue;
+      tmp.add(list.get(l)).add(list.get(l + 1));
+    }
+    size -= ls - tmp.size() >>> 1;
+    postings.put(token, tmp);
+  }
+
+  /**
+   * Checks if the segment contains no updates.
+   * @return result of check
+   */
+  boolean isEmpty() {
+    return size == 0 && deleted.isEmpty() && norms.isEmpty();
+  }
+}
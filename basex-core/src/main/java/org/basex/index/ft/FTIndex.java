@@ -6,12 +6,16 @@ import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.query.expr.ft.*;
 import org.basex.util.*;
@@ -38,37 +42,86 @@ import org.basex.util.list.*;
  * {@code z} is the pointer on the data entries of the token [long]<br/>
  * {@code s} is the number of pre values, saved in data [int]
  * </li>
+ * <li>File <b>t</b> contains the tokens as compact trie, which is described in the
+ *   {@link FTTrie} class.</li>
+ * <li>File <b>s</b> contains the statistics for BM25 scoring:<br/>
+ * Structure: {@code [i, q, t, n, d0, d1, ...]}<br/>
+ * {@code i} indicates if the index references ids instead of pre values [byte]<br/>
+ * {@code q} is the sequence number of the last segment that has been merged [int]<br/>
+ * {@code t} is the number of indexed texts [long]<br/>
+ * {@code n} is the total number of tokens of these texts [long]<br/>
+ * {@code d0, d1, ...} are the numbers of texts containing the tokens, stored in the order
+ *   of file <b>y</b> [int]
+ * </li>
+ * <li>File <b>n</b> contains the encoded number of tokens for each text node, referenced by
+ *   its pre value or id [byte]. The encoding is described in the {@link Scoring} class.</li>
  * <li>File <b>z</b> contains the {@code id/pos} references.
  *   The values are ordered, but not distinct:<br/>
- *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
+ *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]<br/>
+ *   If {@link MainOptions#INDEXBLOCKSIZE} was assigned, the references are compressed
+ *   in blocks, as described in the {@link Postings} class.</li>
+ * <li>File <b>d</b> contains the segments with pending updates, as described in the
+ *   {@link FTDelta} class.</li>
  * </ul>
  *
+ * <p>If {@link MainOptions#UPDINDEX} is enabled, ids are referenced instead of pre values,
+ * and the index is incrementally updated: updates are stored in in-memory segments, which are
+ * merged with the index files in a background thread as soon as they exceed a certain size.
+ * Query results are composed from the index files and all segments.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class FTIndex implements Index {
   /** Entry size. */
-  private static final int ENTRY = 9;
+  static final int ENTRY = 9;
+  /** Number of pending updates after which the segments will be merged with the index files. */
+  private static final int MERGE = 1 << 16;
 
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  private final IntObjMap<byte[]> ctext = new IntObjMap<>();
   /** Levenshtein reference. */
   private final Levenshtein ls = new Levenshtein();
   /** Data reference. */
   private final Data data;
+  /** Segments with pending updates, oldest first (if {@code null}, index is not updatable).
+   * Updates are added to the last segment. */
+  private final ArrayList<FTDelta> deltas;
+  /** Full-text options for tokenizing updated texts (can be {@code null}). */
+  private final FTOpt fto;
 
+  /** Cached texts. Increases used memory, but speeds up repeated queries. */
+  private IntObjMap<byte[]> ctext;
   /** Index storing each unique token length and pointer
    * on the first token with this length. */
-  private final DataAccess inX;
+  private DataAccess inX;
   /** Index storing each token, its data size and pointer on the data. */
-  private final DataAccess inY;
+  private DataAccess inY;
   /** Storing pre and pos values for each token. */
-  private final DataAccess inZ;
+  private DataAccess inZ;
+  /** Term dictionary for wildcard and fuzzy search (can be {@code null}). */
+  private FTTrie trie;
+  /** Numbers of texts containing the tokens (can be {@code null}). */
+  private DataAccess inS;
+  /** Encoded numbers of tokens of all texts (can be {@code null}). */
+  private DataAccess inN;
+  /** Number of texts in the index files. */
+  private long texts;
+  /** Total number of tokens in the index files. */
+  private long tokens;
+  /** Indicates if ids are referenced instead of pre values. */
+  private boolean ids;
+  /** Sequence number of the last segment that has been merged with the index files. */
+  private int seq;
 
   /** Cache for number of hits and data reference per token. */
-  private final IndexCache cache = new IndexCache();
+  private IndexCache cache;
   /** Token positions. */
-  private final int[] tp;
+  private int[] tp;
+  /** Number of entries with a smaller token length, indexed by token length. */
+  private int[] ords;
+  /** Number of entries per compressed block of pre/pos lists (0: uncompressed lists). */
+  private int blocks;
+  /** Thread that merges segments with the index files (can be {@code null}). */
+  private Thread merger;
 
   /**
    * Constructor, initializing the index structure.
@@ -77,6 +130,37 @@ public final class FTIndex implements Index {
    */
   public FTIndex(final Data data) throws IOException {
     this.data = data;
+    open();
+
+    if(ids) {
+      // read segments that have not been merged yet
+      deltas = new ArrayList<>();
+      final IOFile file = data.meta.dbfile(DATAFTX + 'd');
+      if(file.exists()) {
+        try(final DataInput in = new DataInput(file)) {
+          for(int d = in.readNum(); d > 0; d--) {
+            final FTDelta delta = new FTDelta(in);
+            if(delta.seq > seq) deltas.add(delta);
+          }
+        }
+      }
+      if(deltas.isEmpty()) deltas.add(new FTDelta(seq + 1));
+      fto = new FTOpt().copy(data.meta);
+      fto.sw = new StopWords();
+      fto.sw.comp(data);
+    } else {
+      deltas = null;
+      fto = null;
+    }
+  }
+
+  /**
+   * Opens the index files.
+   * @throws IOException I/O Exception
+   */
+  private void open() throws IOException {
+    ctext = new IntObjMap<>();
+    cache = new IndexCache();
 
     // cache token length index
     inY = new DataAccess(data.meta.dbfile(DATAFTX + 'y'));
@@ -100,6 +184,34 @@ public final class FTIndex implements Index {
       tp[p] = r;
     }
     tp[tl - 1] = (int) inY.length();
+
+    // term dictionary does not exist in databases of older versions
+    final IOFile file = data.meta.dbfile(DATAFTX + 't');
+    trie = file.exists() ? new FTTrie(file) : null;
+
+    // scoring statistics do not exist in databases of older versions
+    ords = new int[tl];
+    for(int t = 0, o = 0; t < tl - 1; t++) {
+      ords[t] = o;
+      if(tp[t] == -1) continue;
+      int e = -1;
+      for(int n = t + 1; e == -1; n++) e = tp[n];
+      o += (e - tp[t]) / (t + ENTRY);
+    }
+    final IOFile stats = data.meta.dbfile(DATAFTX + 's');
+    final IOFile norms = data.meta.dbfile(DATAFTX + 'n');
+    if(stats.exists() && norms.exists()) {
+      inS = new DataAccess(stats);
+      inN = new DataAccess(norms);
+      ids = inS.read1() == 1;
+      seq = inS.read4();
+      texts = inS.read5();
+      tokens = inS.read5();
+    } else {
+      inS = null;
+      inN = null;
+    }
+    blocks = ids ? 0 : data.meta.blocksize;
   }
 
   @Override
@@ -114,7 +226,14 @@ public final class FTIndex implements Index {
     final FTOpt opt = ((FTLexer) it).ftOpt();
     if(opt.is(FZ) || opt.is(WC)) return Math.max(1, data.meta.size >> 4);
 
-    return entry(tok).size;
+    int size = entry(tok).size;
+    if(ids) {
+      for(final FTDelta delta : deltas) {
+        final IntList list = delta.postings.get(tok);
+        if(list != null) size += list.size() >>> 1;
+      }
+    }
+    return size;
   }
 
   @Override
@@ -131,7 +250,12 @@ public final class FTIndex implements Index {
 
     // return cached or new result
     final IndexEntry e = entry(tok);
-    return e.size > 0 ? iter(e.offset, e.size, inZ, tok) : FTIndexIterator.FTEMPTY;
+    if(ids) {
+      final IntList pr = new IntList(), ps = new IntList();
+      add(e.offset, e.size, pr, ps);
+      return iter(pr, ps, tok, null, -1);
+    }
+    return e.size > 0 ? iter(e.offset, e.size, -1, tok) : FTIndexIterator.FTEMPTY;
   }
 
   /**
@@ -151,6 +275,15 @@ public final class FTIndex implements Index {
   @Override
   public EntryIterator entries(final IndexEntries entries) {
     final byte[] prefix = entries.get();
+    return ids ? updated(prefix) : entries(prefix);
+  }
+
+  /**
+   * Returns an iterator for the entries of the index files.
+   * @param prefix prefix of the returned entries
+   * @return iterator
+   */
+  private EntryIterator entries(final byte[] prefix) {
     return new EntryIterator() {
       int ti = prefix.length - 1, i, e, nr;
       boolean inner;
@@ -192,6 +325,59 @@ public final class FTIndex implements Index {
     };
   }
 
+  /**
+   * Returns the entries of an updatable index, including the tokens of all segments.
+   * Deleted texts are ignored.
+   * @param prefix prefix of the returned entries
+   * @return iterator
+   */
+  private synchronized EntryIterator updated(final byte[] prefix) {
+    final TokenIntMap map = new TokenIntMap();
+    final EntryIterator ei = entries(prefix);
+    for(byte[] token; (token = ei.next()) != null;) {
+      final IndexEntry e = entry(token);
+      final Postings pl = new Postings(inZ, e.offset, e.size, blocks, true);
+      int c = 0;
+      while(pl.more()) {
+        if(!deleted(pl.value(), 0)) c++;
+      }
+      map.put(token, c);
+    }
+    final int ds = deltas.size();
+    for(int d = 0; d < ds; d++) {
+      final TokenObjMap<IntList> postings = deltas.get(d).postings;
+      for(final byte[] token : postings) {
+        if(!startsWith(token, prefix)) continue;
+        final IntList list = postings.get(token);
+        final int ls = list.size();
+        int c = 0;
+        for(int l = 0; l < ls; l += 2) {
+          if(!deleted(list.get(l), d + 1)) c++;
+        }
+        map.put(token, Math.max(0, map.get(token)) + c);
+      }
+    }
+
+    final TokenList list = new TokenList(map.size());
+    for(final byte[] token : map) {
+      if(map.get(token) > 0) list.add(token);
+    }
+    final byte[][] tokens = list.finish();
+    Arrays.sort(tokens, FTMerger.ORDER);
+    return new EntryIterator() {
+      int t = -1;
+
+      @Override
+      public byte[] next() {
+        return ++t < tokens.length ? tokens[t] : null;
+      }
+      @Override
+      public int count() {
+        return map.get(tokens[t]);
+      }
+    };
+  }
+
   /**
    * Binary search.
    * @param token token to look for
@@ -224,6 +410,7 @@ public final class FTIndex implements Index {
     final TokenBuilder tb = new TokenBuilder();
     final long l = inX.length() + inY.length() + inZ.length();
     tb.add(LI_SIZE + Performance.format(l, true) + NL);
+    tb.add(LI_CACHE + cache + NL);
 
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
     addOccs(stats);
@@ -233,14 +420,201 @@ public final class FTIndex implements Index {
 
   @Override
   public boolean drop() {
-    return data.meta.drop(DATAFTX + '.');
+    finish();
+    return data.meta.drop(DATAFTX + ".*");
   }
 
   @Override
-  public synchronized void close() {
+  public void close() {
+    finish();
+    synchronized(this) {
+      closeFiles();
+    }
+  }
+
+  /**
+   * Closes the index files.
+   */
+  private void closeFiles() {
     inX.close();
     inY.close();
     inZ.close();
+    if(trie != null) trie.close();
+    if(inS != null) {
+      inS.close();
+      inN.close();
+    }
+  }
+
+  /**
+   * Checks if the index is updatable.
+   * @return result of check
+   */
+  public boolean updatable() {
+    return ids;
+  }
+
+  /**
+   * Indexes the specified texts. This function must only be called for updatable indexes.
+   * @param il ids of the texts
+   * @param tl texts
+   */
+  public synchronized void add(final IntList il, final TokenList tl) {
+    final FTDelta delta = deltas.get(deltas.size() - 1);
+    final FTLexer lex = new FTLexer(fto);
+    final int is = il.size();
+    for(int i = 0; i < is; i++) {
+      final int id = il.get(i);
+      lex.init(tl.get(i));
+      int pos = -1;
+      while(lex.hasNext()) {
+        final byte[] tok = lex.nextToken();
+        ++pos;
+        if(indexed(tok)) delta.add(tok, id, pos);
+      }
+      if(pos != -1) {
+        delta.norms.put(id, Scoring.norm(pos + 1));
+        delta.texts++;
+        delta.tokens += pos + 1;
+      }
+    }
+    merge();
+  }
+
+  /**
+   * Removes the specified texts from the index. This function must only be called for
+   * updatable indexes.
+   * @param il ids of the texts
+   * @param tl texts
+   */
+  public synchronized void delete(final IntList il, final TokenList tl) {
+    final FTDelta delta = deltas.get(deltas.size() - 1);
+    final FTLexer lex = new FTLexer(fto);
+    final int is = il.size();
+    for(int i = 0; i < is; i++) {
+      final int id = il.get(i);
+      // remove postings of texts that have been added to the current segment
+      final boolean added = delta.norms.get(id) != Integer.MIN_VALUE;
+      lex.init(tl.get(i));
+      int pos = -1;
+      while(lex.hasNext()) {
+        final byte[] tok = lex.nextToken();
+        ++pos;
+        if(added && indexed(tok)) delta.remove(tok, id);
+      }
+      delta.deleted.add(id);
+      if(pos != -1) {
+        delta.texts--;
+        delta.tokens -= pos + 1;
+      }
+    }
+    merge();
+  }
+
+  /**
+   * Writes the segments with pending updates.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  public synchronized void write(final DataOutput out) throws IOException {
+    out.writeNum(deltas.size());
+    for(final FTDelta delta : deltas) delta.write(out);
+  }
+
+  /**
+   * Checks if a token is indexed.
+   * @param token token
+   * @return result of check
+   */
+  private boolean indexed(final byte[] token) {
+    return token.length <= data.meta.maxlen && (fto.sw.isEmpty() || !fto.sw.contains(token));
+  }
+
+  /**
+   * Merges the segments with the index files if the number of pending updates exceeds the
+   * limit. The index files are written in a background thread, and new updates will be added
+   * to a new segment.
+   */
+  private void merge() {
+    if(merger != null) return;
+    int pending = 0;
+    for(final FTDelta delta : deltas) pending += delta.size + delta.deleted.size();
+    if(pending < MERGE) return;
+
+    final FTDelta[] segments = deltas.toArray(new FTDelta[deltas.size()]);
+    long txts = texts, toks = tokens;
+    for(final FTDelta segment : segments) {
+      txts += segment.texts;
+      toks += segment.tokens;
+    }
+    final long mtexts = txts, mtokens = toks;
+    deltas.add(new FTDelta(segments[segments.length - 1].seq + 1));
+
+    merger = new Thread() {
+      @Override
+      public void run() {
+        try {
+          new FTMerger(data, segments).write(mtexts, mtokens);
+          swap(segments);
+        } catch(final IOException ex) {
+          Util.debug(ex);
+          data.meta.drop(FTMerger.NAME + '.');
+          synchronized(FTIndex.this) {
+            merger = null;
+          }
+        }
+      }
+    };
+    merger.setDaemon(true);
+    merger.start();
+  }
+
+  /**
+   * Replaces the index files with the merged files.
+   * @param segments segments that have been merged
+   * @throws IOException I/O exception
+   */
+  private synchronized void swap(final FTDelta[] segments) throws IOException {
+    closeFiles();
+    // statistics will be replaced last, as they contain the sequence number of the merge
+    for(final char c : new char[] { 'x', 'y', 'z', 't', 'n', 's' }) {
+      final IOFile file = data.meta.dbfile(DATAFTX + c);
+      file.delete();
+      data.meta.dbfile(FTMerger.NAME + c).rename(file);
+    }
+    open();
+    deltas.removeAll(Arrays.asList(segments));
+    merger = null;
+  }
+
+  /**
+   * Waits until a running merge has been finished.
+   */
+  private void finish() {
+    final Thread thread;
+    synchronized(this) {
+      thread = merger;
+    }
+    if(thread == null) return;
+    try {
+      thread.join();
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Checks if a text has been deleted in one of the segments.
+   * @param id id of the text
+   * @param start index of the first segment to be checked
+   * @return result of check
+   */
+  private boolean deleted(final int id, final int start) {
+    final int ds = deltas.size();
+    for(int d = start; d < ds; d++) {
+      if(deltas.get(d).deleted.contains(id)) return true;
+    }
+    return false;
   }
 
   /**
@@ -273,6 +647,66 @@ public final class FTIndex implements Index {
     return r != x && l == r && eq(inY.readBytes(l, tl), token) ? l : -1;
   }
 
+  /**
+   * Returns the number of texts containing a token.
+   * @param pt pointer on token
+   * @param lt length of the token
+   * @return number of texts
+   */
+  private int texts(final int pt, final int lt) {
+    return inS.read4(15 + 4L * (ords[lt] + (pt - tp[lt]) / (lt + ENTRY)));
+  }
+
+  /**
+   * Returns the number of indexed texts.
+   * @return number of texts
+   */
+  private long texts() {
+    long t = texts;
+    if(ids) {
+      for(final FTDelta delta : deltas) t += delta.texts;
+    }
+    return t;
+  }
+
+  /**
+   * Returns the average number of tokens per text.
+   * @return average number of tokens
+   */
+  private double avg() {
+    long t = tokens;
+    if(ids) {
+      for(final FTDelta delta : deltas) t += delta.tokens;
+    }
+    return Math.max(1, (double) t / Math.max(1, texts()));
+  }
+
+  /**
+   * Returns the encoded number of tokens of a text.
+   * @param pre pre value of the text
+   * @return encoded number of tokens
+   */
+  private int norm(final int pre) {
+    if(!ids) return inN.read1(pre) & 0xFF;
+    final int id = data.id(pre);
+    for(int d = deltas.size() - 1; d >= 0; d--) {
+      final int n = deltas.get(d).norms.get(id);
+      if(n != Integer.MIN_VALUE) return n;
+    }
+    return id < inN.length() ? inN.read1(id) & 0xFF : 0;
+  }
+
+  /**
+   * Computes the BM25 score of a token in a text.
+   * @param tf number of occurrences of the token in the text
+   * @param df number of texts containing the token
+   * @param pre pre value of the text
+   * @return unbounded score
+   */
+  private double bm25(final int tf, final int df, final int pre) {
+    return Scoring.bm25(tf, df, texts(), Scoring.length(norm(pre)), avg());
+  }
+
   /**
    * Collects all tokens and their sizes found in the index structure.
    * @param stats statistics
@@ -322,6 +756,18 @@ public final class FTIndex implements Index {
    */
   private synchronized IndexIterator fuzzy(final byte[] token, final int k) {
     FTIndexIterator it = FTIndexIterator.FTEMPTY;
+    final IntList pr = new IntList(), ps = new IntList();
+    if(trie != null) {
+      final IntList entries = trie.fuzzy(token, k, ls);
+      final int es = entries.size();
+      for(int e = 0; e < es; e += 2) {
+        final int p = entries.get(e), s = entries.get(e + 1);
+        if(ids) add(pointer(p, s), size(p, s), pr, ps);
+        else it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), p, token), it);
+      }
+      return ids ? iter(pr, ps, token, null, k) : it;
+    }
+
     final int tokl = token.length, tl = tp.length;
     final int e = Math.min(tl - 1, tokl + k);
     int s = Math.max(1, tokl - k) - 1;
@@ -333,12 +779,13 @@ public final class FTIndex implements Index {
       while(t < tl && r == -1) r = tp[t++];
       while(p < r) {
         if(ls.similar(inY.readBytes(p, s), token, k)) {
-          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), inZ, token), it);
+          if(ids) add(pointer(p, s), size(p, s), pr, ps);
+          else it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), p, token), it);
         }
         p += s + ENTRY;
       }
     }
-    return it;
+    return ids ? iter(pr, ps, token, null, k) : it;
   }
 
   /**
@@ -353,6 +800,14 @@ public final class FTIndex implements Index {
 
     final IntList pr = new IntList();
     final IntList ps = new IntList();
+    // traverse term dictionary, unless each token would need to be checked
+    if(trie != null && !wc.unlimited()) {
+      final IntList entries = trie.wildcard(wc);
+      final int es = entries.size();
+      for(int e = 0; e < es; e += 2) add(entries.get(e), entries.get(e + 1), pr, ps);
+      return iter(pr, ps, token, wc, -1);
+    }
+
     final byte[] pref = wc.prefix();
     final int pl = pref.length, tl = tp.length;
     final int l = Math.min(tl - 1, wc.max());
@@ -367,38 +822,204 @@ public final class FTIndex implements Index {
       while(i < e) {
         final byte[] t = inY.readBytes(i, ti);
         if(!startsWith(t, pref)) break;
-        if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
+        if(wc.match(t)) add(i, ti, pr, ps);
+        i += ti + ENTRY;
+      }
+    }
+    return iter(pr, ps, token, wc, -1);
+  }
+
+  /**
+   * Adds the pre and pos values of a token.
+   * @param pt pointer on token
+   * @param lt length of the token
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void add(final int pt, final int lt, final IntList pr, final IntList ps) {
+    add(pointer(pt, lt), size(pt, lt), pr, ps);
+  }
+
+  /**
+   * Adds the pre and pos values of an index entry.
+   * @param off offset on entries
+   * @param size number of id/pos entries
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void add(final long off, final int size, final IntList pr, final IntList ps) {
+    final Postings list = new Postings(inZ, off, size, blocks, true);
+    while(list.more()) {
+      pr.add(list.value());
+      ps.add(list.attached());
+    }
+  }
+
+  /**
+   * Returns an iterator for the postings of the index files. If the index is updatable,
+   * postings of deleted texts are skipped, postings of all segments are added, and ids are
+   * replaced with pre values.
+   * @param pr pre values or ids
+   * @param ps pos values
+   * @param token index token
+   * @param wc wildcard expression (can be {@code null})
+   * @param k number of errors allowed for fuzzy search ({@code -1}: no fuzzy search)
+   * @return iterator
+   */
+  private FTIndexIterator iter(final IntList pr, final IntList ps, final byte[] token,
+      final FTWildcard wc, final int k) {
+    if(!ids) return iter(new FTCache(pr, ps), token);
+
+    final IntList ip = new IntList(), is = new IntList();
+    final int s = pr.size();
+    for(int i = 0; i < s; i++) {
+      final int id = pr.get(i);
+      if(deleted(id, 0)) continue;
+      ip.add(data.pre(id));
+      is.add(ps.get(i));
+    }
+    final int ds = deltas.size();
+    for(int d = 0; d < ds; d++) {
+      final TokenObjMap<IntList> postings = deltas.get(d).postings;
+      if(wc == null && k == -1) {
+        add(postings.get(token), d + 1, ip, is);
+      } else {
+        for(final byte[] tok : postings) {
+          if(wc != null ? wc.match(tok) : ls.similar(tok, token, k)) {
+            add(postings.get(tok), d + 1, ip, is);
           }
         }
-        i += ti + ENTRY;
       }
     }
-    return iter(new FTCache(pr, ps), token);
+    return iter(new FTCache(ip, is), token);
+  }
+
+  /**
+   * Adds the pre and pos values of the postings of a segment.
+   * Texts that have been deleted in newer segments are skipped.
+   * @param postings pairs of ids and positions (can be {@code null})
+   * @param start index of the first newer segment
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void add(final IntList postings, final int start, final IntList pr,
+      final IntList ps) {
+    final int s = postings == null ? 0 : postings.size();
+    for(int p = 0; p < s; p += 2) {
+      final int id = postings.get(p);
+      if(deleted(id, start)) continue;
+      pr.add(data.pre(id));
+      ps.add(postings.get(p + 1));
+    }
   }
 
   /**
    * Returns an iterator for an index entry.
    * @param off offset on entries
    * @param size number of id/pos entries
-   * @param da data source
+   * @param pt pointer on token ({@code -1}: pointer on the index token)
    * @param token index token
    * @return iterator
    */
-  private static FTIndexIterator iter(final long off, final int size, final DataAccess da,
+  private FTIndexIterator iter(final long off, final int size, final int pt,
       final byte[] token) {
-    da.cursor(off);
-    final IntList pr = new IntList(size);
-    final IntList ps = new IntList(size);
-    for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+    final Postings pl = new Postings(inZ, off, size, blocks, true);
+    if(blocks == 0) {
+      final IntList pr = new IntList(size);
+      final IntList ps = new IntList(size);
+      while(pl.more()) {
+        pr.add(pl.value());
+        ps.add(pl.attached());
+      }
+      return iter(new FTCache(pr, ps), token);
     }
-    return iter(new FTCache(pr, ps), token);
+
+    // compressed lists are sorted by pre values and positions: decompress blocks on demand
+    return new FTIndexIterator() {
+      final FTMatches all = new FTMatches();
+      /** Indicates if the list points to the first entry of the next result. */
+      boolean ahead;
+      int pos, pre, tf, df = -1;
+
+      @Override
+      public boolean more() {
+        synchronized(FTIndex.this) {
+          return (ahead || pl.more()) && next();
+        }
+      }
+
+      @Override
+      public boolean more(final int p) {
+        synchronized(FTIndex.this) {
+          return (ahead && pl.value() >= p || pl.more(p)) && next();
+        }
+      }
+
+      /**
+       * Assigns the pre value and the positions of the next result.
+       * @return {@code true}
+       */
+      private boolean next() {
+        pre = pl.value();
+        all.reset(pos);
+        tf = 0;
+        do {
+          all.or(pl.attached());
+          tf++;
+        } while((ahead = pl.more()) && pl.value() == pre);
+        return true;
+      }
+
+      @Override
+      public double score() {
+        if(inS == null) return -1;
+        synchronized(FTIndex.this) {
+          return bm25(tf, df(), pre);
+        }
+      }
+
+      @Override
+      public double bound() {
+        if(inS == null) return -1;
+        synchronized(FTIndex.this) {
+          return Scoring.bm25(df(), texts());
+        }
+      }
+
+      /**
+       * Returns the number of texts containing the token.
+       * @return number of texts
+       */
+      private int df() {
+        if(df == -1) df = texts(pt != -1 ? pt : token(token), token.length);
+        return df;
+      }
+
+      @Override
+      public FTMatches matches() {
+        return all;
+      }
+
+      @Override
+      public int pre() {
+        return pre;
+      }
+
+      @Override
+      public void pos(final int p) {
+        pos = p;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public String toString() {
+        return new TokenBuilder(token).add('(').addExt(size).add("x)").toString();
+      }
+    };
   }
 
   /**
@@ -407,12 +1028,12 @@ public final class FTIndex implements Index {
    * @param token index token
    * @return iterator
    */
-  private static synchronized FTIndexIterator iter(final FTCache ftc, final byte[] token) {
+  private synchronized FTIndexIterator iter(final FTCache ftc, final byte[] token) {
     final int size = ftc.pre.size();
 
     return new FTIndexIterator() {
       final FTMatches all = new FTMatches();
-      int pos, pre, c;
+      int pos, pre, c, tf;
 
       @Override
       public synchronized boolean more() {
@@ -420,12 +1041,30 @@ public final class FTIndex implements Index {
         all.reset(pos);
         pre = ftc.pre.get(ftc.order[c]);
         all.or(ftc.pos.get(ftc.order[c++]));
+        tf = 1;
         while(c < size && pre == ftc.pre.get(ftc.order[c])) {
           all.or(ftc.pos.get(ftc.order[c++]));
+          tf++;
         }
         return true;
       }
 
+      @Override
+      public synchronized double score() {
+        if(inS == null) return -1;
+        synchronized(FTIndex.this) {
+          return bm25(tf, ftc.texts, pre);
+        }
+      }
+
+      @Override
+      public synchronized double bound() {
+        if(inS == null) return -1;
+        synchronized(FTIndex.this) {
+          return Scoring.bm25(ftc.texts, texts());
+        }
+      }
+
       @Override
       public synchronized FTMatches matches() {
         return all;
@@ -463,6 +1102,8 @@ public final class FTIndex implements Index {
     private final IntList pre;
     /** Pos values. */
     private final IntList pos;
+    /** Number of distinct pre values. */
+    private final int texts;
 
     /**
      * Constructor.
@@ -476,6 +1117,11 @@ public final class FTIndex implements Index {
       order = Array.createOrder(v, true);
       pre = pr;
       pos = ps;
+      int t = 0;
+      for(int i = 0; i < s; i++) {
+        if(i == 0 || pr.get(order[i]) != pr.get(order[i - 1])) t++;
+      }
+      texts = t;
     }
   }
 }
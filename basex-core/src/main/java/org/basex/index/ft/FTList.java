@@ -25,6 +25,8 @@ final class FTList {
   private final IOFile files;
   /** Data file. */
   private final IOFile filed;
+  /** Indicates if the files are temporary and will be deleted after they have been read. */
+  private final boolean temp;
   /** Wasted flag. */
   private boolean wasted;
 
@@ -58,14 +60,26 @@ final class FTList {
    * @throws IOException I/O exception
    */
   FTList(final Data data, final int prefix) throws IOException {
-    files = data.meta.dbfile(DATAFTX + prefix + 'y');
-    filed = data.meta.dbfile(DATAFTX + prefix + 'z');
+    this(data, DATAFTX + prefix, true);
+  }
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param data data
+   * @param name name prefix of the index files
+   * @param temp indicates if the files are temporary and will be deleted after reading
+   * @throws IOException I/O exception
+   */
+  FTList(final Data data, final String name, final boolean temp) throws IOException {
+    this.temp = temp;
+    files = data.meta.dbfile(name + 'y');
+    filed = data.meta.dbfile(name + 'z');
     str = new DataAccess(files);
     dat = new DataAccess(filed);
     tp = new int[data.meta.maxlen + 3];
     final int tl = tp.length;
     for(int t = 0; t < tl; t++) tp[t] = -1;
-    sizes = data.meta.dbfile(DATAFTX + prefix + 'x');
+    sizes = data.meta.dbfile(name + 'x');
     try(final DataAccess li = new DataAccess(sizes)) {
       int is = li.readNum();
       while(--is >= 0) {
@@ -85,7 +99,6 @@ final class FTList {
 
     tok = token();
     if(tok.length == 0) {
-      wasted = true;
       prv = NOINTS;
       pov = NOINTS;
       close();
@@ -100,14 +113,18 @@ final class FTList {
   }
 
   /**
-   * Closes and deletes the input files.
+   * Closes the input files. Temporary files will be deleted.
    */
-  private void close() {
+  void close() {
+    if(wasted) return;
+    wasted = true;
     str.close();
     dat.close();
-    files.delete();
-    filed.delete();
-    sizes.delete();
+    if(temp) {
+      files.delete();
+      filed.delete();
+      sizes.delete();
+    }
   }
 
   /**
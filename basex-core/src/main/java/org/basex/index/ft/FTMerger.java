@@ -0,0 +1,156 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class merges segments with pending updates into the files of an updatable full-text
+ * index. The merged index is written to files with the prefix {@link #NAME}, which will
+ * replace the original files after the merge has been finished.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class FTMerger {
+  /** Name prefix of the merged index files. */
+  static final String NAME = DATAFTX + 'm';
+  /** Order of index tokens (length, lexical order). */
+  static final Comparator<byte[]> ORDER = new Comparator<byte[]>() {
+    @Override
+    public int compare(final byte[] token1, final byte[] token2) {
+      final int d = token1.length - token2.length;
+      return d != 0 ? d : diff(token1, token2);
+    }
+  };
+
+  /** Data reference. */
+  private final Data data;
+  /** Segments to be merged (oldest first). */
+  private final FTDelta[] segments;
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @param segments segments to be merged (oldest first)
+   */
+  FTMerger(final Data data, final FTDelta[] segments) {
+    this.data = data;
+    this.segments = segments;
+  }
+
+  /**
+   * Writes the merged index files.
+   * @param texts number of indexed texts
+   * @param tokens total number of tokens of the indexed texts
+   * @throws IOException I/O exception
+   */
+  void write(final long texts, final long tokens) throws IOException {
+    // tokens of all segments, sorted by length and lexical order
+    final TokenSet set = new TokenSet();
+    for(final FTDelta segment : segments) {
+      for(final byte[] token : segment.postings) set.put(token);
+    }
+    final int ts = set.size();
+    final byte[][] toks = new byte[ts][];
+    int t = 0;
+    for(final byte[] token : set) toks[t++] = token;
+    Arrays.sort(toks, ORDER);
+
+    final FTList list = new FTList(data, DATAFTX, false);
+    try(final DataOutput outX = new DataOutput(data.meta.dbfile(NAME + 'x'));
+        final DataOutput outY = new DataOutput(data.meta.dbfile(NAME + 'y'));
+        final DataOutput outZ = new DataOutput(data.meta.dbfile(NAME + 'z'));
+        final DataOutput outS = new DataOutput(data.meta.dbfile(NAME + 's'))) {
+
+      FTBuilder.stats(outS, true, segments[segments.length - 1].seq, texts, tokens);
+      final IntList ind = new IntList(), ids = new IntList(), poss = new IntList();
+      t = 0;
+      while(list.tok.length != 0 || t < ts) {
+        // choose next token: compare tokens of index files and segments
+        final int c = list.tok.length == 0 ? 1 : t == ts ? -1 : ORDER.compare(list.tok, toks[t]);
+        final byte[] token = c <= 0 ? list.tok : toks[t];
+        ids.reset();
+        poss.reset();
+        if(c <= 0) {
+          // add postings of the index files, skip deleted texts
+          final int ls = list.prv.length;
+          for(int l = 0; l < ls; l++) {
+            final int id = list.prv[l];
+            if(deleted(id, 0)) continue;
+            ids.add(id);
+            poss.add(list.pov[l]);
+          }
+          list.next();
+        }
+        if(c >= 0) {
+          // add postings of the segments, skip texts that have been deleted later on
+          final int sl = segments.length;
+          for(int s = 0; s < sl; s++) {
+            final IntList pst = segments[s].postings.get(token);
+            final int ps = pst == null ? 0 : pst.size();
+            for(int p = 0; p < ps; p += 2) {
+              final int id = pst.get(p);
+              if(deleted(id, s + 1)) continue;
+              ids.add(id);
+              poss.add(pst.get(p + 1));
+            }
+          }
+          t++;
+        }
+        if(ids.isEmpty()) continue;
+
+        if(ind.isEmpty() || ind.get(ind.size() - 2) < token.length) {
+          ind.add(token.length);
+          ind.add((int) outY.size());
+        }
+        outY.writeBytes(token);
+        outY.write5(outZ.size());
+        outY.write4(ids.size());
+        Postings.write(outZ, ids, poss, 0);
+        outS.write4(FTBuilder.texts(ids));
+      }
+      FTBuilder.writeInd(outX, ind, ind.isEmpty() ? 1 : ind.get(ind.size() - 2) + 1,
+          (int) outY.size());
+    } finally {
+      list.close();
+    }
+
+    // write numbers of tokens, create term dictionary
+    final byte[] old = data.meta.dbfile(DATAFTX + 'n').read();
+    int max = old.length;
+    for(final FTDelta segment : segments) {
+      for(final int id : segment.norms.toArray()) max = Math.max(max, id + 1);
+    }
+    final byte[] norms = Arrays.copyOf(old, max);
+    for(final FTDelta segment : segments) {
+      for(final int id : segment.norms.toArray()) norms[id] = (byte) segment.norms.get(id);
+    }
+    try(final DataOutput outN = new DataOutput(data.meta.dbfile(NAME + 'n'))) {
+      outN.writeBytes(norms);
+    }
+    FTTrie.write(data, NAME);
+  }
+
+  /**
+   * Checks if a text has been deleted in one of the specified segments.
+   * @param id id of the text
+   * @param start index of the first segment to be checked
+   * @return result of check
+   */
+  private boolean deleted(final int id, final int start) {
+    final int sl = segments.length;
+    for(int s = start; s < sl; s++) {
+      if(segments[s].deleted.contains(id)) return true;
+    }
+    return false;
+  }
+}
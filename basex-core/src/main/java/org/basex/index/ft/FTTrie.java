@@ -0,0 +1,413 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.query.expr.ft.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides access to the term dictionary of the full-text index, which is
+ * stored as a compact trie. It is used to find all tokens that are matched by a wildcard
+ * expression or that are similar to a fuzzy search term. Subtrees are skipped as soon as
+ * no token with the current prefix can be matched anymore.</p>
+ *
+ * <p>The trie is stored in the database file {@link DataText#DATAFTX}{@code t}. Nodes are
+ * written in postorder and have the following format:</p>
+ *
+ * <ul>
+ * <li>pointer on the entry of the token in file <b>y</b>, incremented by one,
+ *   or {@code 0} if no token ends at this node [{@link Num}]</li>
+ * <li>number of children [{@link Num}]</li>
+ * <li>for each child: length of the edge label [{@link Num}], the label, and the distance
+ *   between the offsets of the node and the child [{@link Num}]</li>
+ * </ul>
+ *
+ * <p>Nodes with a single child and without token are merged with their child. The last five
+ * bytes of the file contain the offset of the root node.</p>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class FTTrie {
+  /** Number of bytes that are read at once from a group of tokens with the same length. */
+  private static final int CHUNK = 1 << 14;
+
+  /** Trie. */
+  private final DataAccess da;
+  /** Offset of the root node. */
+  private final long root;
+
+  /**
+   * Constructor.
+   * @param file trie file
+   * @throws IOException I/O exception
+   */
+  FTTrie(final IOFile file) throws IOException {
+    da = new DataAccess(file);
+    root = da.read5(da.length() - 5);
+  }
+
+  /**
+   * Returns the tokens that are similar to the specified token.
+   * <p><em>Important:</em> Read access must be synchronized by the caller.</p>
+   * @param token token to look for
+   * @param k number of errors allowed
+   * @param ls Levenshtein reference
+   * @return pointers on the token entries and token lengths
+   */
+  IntList fuzzy(final byte[] token, final int k, final Levenshtein ls) {
+    final int[] sub = Levenshtein.chars(token);
+    final int sl = sub.length, errors = Levenshtein.errors(sl, k);
+    final int min = Math.max(1, token.length - k), max = token.length + k;
+    return walk(new Walker() {
+      int[][] rows = { Levenshtein.row(new int[sl + 1]) };
+      int[] chars = new int[1];
+
+      @Override
+      boolean step(final int depth, final int cp) {
+        // skip subtree if the minimum distance of a row exceeds the number of errors
+        if(depth >= sl + errors) return false;
+        if(depth + 1 == rows.length) {
+          rows = Arrays.copyOf(rows, depth + 2);
+          rows[depth + 1] = new int[sl + 1];
+          chars = Arrays.copyOf(chars, depth + 1);
+        }
+        final int e = Levenshtein.normalize(cp);
+        chars[depth] = e;
+        return Levenshtein.row(rows[depth], rows[depth + 1], e,
+            depth == 0 ? -1 : chars[depth - 1], sub) <= errors;
+      }
+
+      @Override
+      boolean accept(final int depth, final byte[] path, final int length) {
+        return length >= min && length <= max &&
+            ls.similar(Arrays.copyOf(path, length), token, k);
+      }
+    });
+  }
+
+  /**
+   * Returns the tokens that are matched by the specified wildcard expression.
+   * <p><em>Important:</em> Read access must be synchronized by the caller.</p>
+   * @param wc wildcard expression
+   * @return pointers on the token entries and token lengths
+   */
+  IntList wildcard(final FTWildcard wc) {
+    return walk(new Walker() {
+      int[][] states = { wc.start() };
+
+      @Override
+      boolean step(final int depth, final int cp) {
+        if(depth + 1 == states.length) states = Arrays.copyOf(states, depth + 2);
+        final int[] next = wc.next(states[depth], cp);
+        states[depth + 1] = next;
+        return next.length != 0;
+      }
+
+      @Override
+      boolean accept(final int depth, final byte[] path, final int length) {
+        return wc.accept(states[depth]);
+      }
+    });
+  }
+
+  /**
+   * Closes the trie.
+   */
+  void close() {
+    da.close();
+  }
+
+  /**
+   * Traverses all nodes that are accepted by the specified walker.
+   * @param walker walker
+   * @return pointers on the token entries and token lengths
+   */
+  private IntList walk(final Walker walker) {
+    final IntList entries = new IntList();
+    walk(root, new byte[IO.BLOCKSIZE], 0, 0, 0, walker, entries);
+    return entries;
+  }
+
+  /**
+   * Traverses a node and its descendants.
+   * @param node offset of the node
+   * @param path bytes of the current path
+   * @param length length of the path
+   * @param done length of the completed characters of the path
+   * @param depth number of completed characters of the path
+   * @param walker walker
+   * @param entries pointers on the token entries and token lengths
+   */
+  private void walk(final long node, final byte[] path, final int length, final int done,
+      final int depth, final Walker walker, final IntList entries) {
+
+    da.cursor(node);
+    final int entry = da.readNum(), cs = da.readNum();
+    if(entry != 0 && walker.accept(depth, path, length)) entries.add(entry - 1).add(length);
+
+    // read children before traversing them
+    final byte[][] labels = new byte[cs][];
+    final long[] children = new long[cs];
+    for(int c = 0; c < cs; c++) {
+      labels[c] = da.readBytes(da.readNum());
+      children[c] = node - da.readNum();
+    }
+
+    for(int c = 0; c < cs; c++) {
+      final byte[] label = labels[c];
+      final int ll = label.length, pl = length + ll;
+      if(pl > path.length) continue;
+      System.arraycopy(label, 0, path, length, ll);
+      // consume completed characters (labels may end inside characters)
+      int p = done, d = depth;
+      boolean ok = true;
+      while(ok && p < pl && p + cl(path, p) <= pl) {
+        ok = walker.step(d++, cp(path, p));
+        p += cl(path, p);
+      }
+      if(ok) walk(children[c], path, pl, p, d, walker, entries);
+    }
+  }
+
+  /**
+   * Creates the trie for the full-text index of the specified database.
+   * @param data data reference
+   * @param name name prefix of the index files
+   * @throws IOException I/O exception
+   */
+  static void write(final Data data, final String name) throws IOException {
+    try(final DataAccess inX = new DataAccess(data.meta.dbfile(name + 'x'));
+        final DataAccess inY = new DataAccess(data.meta.dbfile(name + 'y'));
+        final DataOutput out = new DataOutput(data.meta.dbfile(name + 't'))) {
+
+      // create cursors for all groups of tokens with the same length
+      final int gs = inX.readNum();
+      final int[] lengths = new int[gs], offsets = new int[gs + 1];
+      for(int g = 0; g < gs; g++) {
+        lengths[g] = inX.readNum();
+        offsets[g] = inX.read4();
+      }
+      offsets[gs] = (int) inY.length();
+      final ArrayList<Group> groups = new ArrayList<>();
+      int ml = 0;
+      for(int g = 0; g < gs; g++) {
+        final Group group = new Group(inY, lengths[g], offsets[g], offsets[g + 1]);
+        if(group.next()) groups.add(group);
+        ml = Math.max(ml, lengths[g]);
+      }
+
+      // add tokens in lexicographical order
+      final Builder builder = new Builder(out, ml);
+      while(!groups.isEmpty()) {
+        int m = 0;
+        final int gl = groups.size();
+        for(int g = 1; g < gl; g++) {
+          if(diff(groups.get(g).token, groups.get(m).token) < 0) m = g;
+        }
+        final Group group = groups.get(m);
+        builder.add(group.token, group.entry);
+        if(!group.next()) groups.remove(m);
+      }
+      out.write5(builder.finish());
+    }
+  }
+
+  /** Walker for traversing the trie. */
+  private abstract static class Walker {
+    /**
+     * Consumes a character.
+     * @param depth number of characters consumed so far
+     * @param cp character
+     * @return {@code false} if no token with the resulting prefix will be accepted
+     */
+    abstract boolean step(int depth, int cp);
+
+    /**
+     * Checks if the token of the current path is accepted.
+     * @param depth number of characters of the token
+     * @param path bytes of the path
+     * @param length length of the token
+     * @return result of check
+     */
+    abstract boolean accept(int depth, byte[] path, int length);
+  }
+
+  /** Cursor on a group of tokens with the same length. */
+  private static final class Group {
+    /** Index file with tokens. */
+    private final DataAccess inY;
+    /** Size of a token entry. */
+    private final int size;
+    /** Offset after the last entry. */
+    private final int end;
+    /** Offset of the next entry. */
+    private int pos;
+    /** Buffered entries. */
+    private byte[] buffer = EMPTY;
+    /** Position in the buffer. */
+    private int bp;
+
+    /** Current token. */
+    byte[] token;
+    /** Pointer on the entry of the current token, incremented by one. */
+    int entry;
+
+    /**
+     * Constructor.
+     * @param inY index file with tokens
+     * @param length token length
+     * @param start offset of the first entry
+     * @param end offset after the last entry
+     */
+    Group(final DataAccess inY, final int length, final int start, final int end) {
+      this.inY = inY;
+      this.end = end;
+      token = new byte[length];
+      size = length + FTIndex.ENTRY;
+      pos = start;
+    }
+
+    /**
+     * Reads the next token.
+     * @return {@code false} if all tokens have been read
+     */
+    boolean next() {
+      if(pos >= end) return false;
+      if(bp == buffer.length) {
+        buffer = inY.readBytes(pos, Math.min(Math.max(1, CHUNK / size) * size, end - pos));
+        bp = 0;
+      }
+      System.arraycopy(buffer, bp, token, 0, token.length);
+      entry = pos + 1;
+      bp += size;
+      pos += size;
+      return true;
+    }
+  }
+
+  /** Creates a trie from tokens in lexicographical order. */
+  private static final class Builder {
+    /** Output stream. */
+    private final DataOutput out;
+    /** Nodes on the path of the last token (one per byte). */
+    private final Node[] nodes;
+    /** Last token. */
+    private byte[] last = EMPTY;
+
+    /**
+     * Constructor.
+     * @param out output stream
+     * @param max maximum token length
+     */
+    Builder(final DataOutput out, final int max) {
+      this.out = out;
+      nodes = new Node[max + 1];
+      for(int n = 0; n <= max; n++) nodes[n] = new Node();
+    }
+
+    /**
+     * Adds a token.
+     * @param token token
+     * @param entry pointer on the token entry, incremented by one
+     * @throws IOException I/O exception
+     */
+    void add(final byte[] token, final int entry) throws IOException {
+      final int tl = token.length, ll = last.length, ml = Math.min(tl, ll);
+      int c = 0;
+      while(c < ml && token[c] == last[c]) c++;
+      // write nodes that are not shared with the new token
+      for(int n = ll; n > c; n--) close(n);
+      for(int n = c + 1; n <= tl; n++) nodes[n].reset();
+      nodes[tl].entry = entry;
+      last = token.clone();
+    }
+
+    /**
+     * Writes all remaining nodes.
+     * @return offset of the root node
+     * @throws IOException I/O exception
+     */
+    long finish() throws IOException {
+      for(int n = last.length; n > 0; n--) close(n);
+      return write(nodes[0]);
+    }
+
+    /**
+     * Writes the node at the specified depth and adds it to its parent.
+     * @param depth depth
+     * @throws IOException I/O exception
+     */
+    private void close(final int depth) throws IOException {
+      final Node node = nodes[depth], parent = nodes[depth - 1];
+      final byte b = last[depth - 1];
+      if(node.entry == 0 && node.size == 1) {
+        // merge node with its single child
+        parent.add(concat(new byte[] { b }, node.labels[0]), node.children[0]);
+      } else {
+        parent.add(new byte[] { b }, write(node));
+      }
+    }
+
+    /**
+     * Writes a node.
+     * @param node node
+     * @return offset of the node
+     * @throws IOException I/O exception
+     */
+    private long write(final Node node) throws IOException {
+      final long offset = out.size();
+      out.writeNum(node.entry);
+      final int ns = node.size;
+      out.writeNum(ns);
+      for(int n = 0; n < ns; n++) {
+        out.writeToken(node.labels[n]);
+        out.writeNum((int) (offset - node.children[n]));
+      }
+      return offset;
+    }
+  }
+
+  /** Node of the trie that has not been written yet. */
+  private static final class Node {
+    /** Pointer on the token entry, incremented by one (0: no token). */
+    int entry;
+    /** Labels of the edges to the children. */
+    byte[][] labels = new byte[1][];
+    /** Offsets of the children. */
+    long[] children = new long[1];
+    /** Number of children. */
+    int size;
+
+    /**
+     * Resets the node.
+     */
+    void reset() {
+      entry = 0;
+      size = 0;
+    }
+
+    /**
+     * Adds a child.
+     * @param label edge label
+     * @param child offset of the child
+     */
+    void add(final byte[] label, final long child) {
+      if(size == labels.length) {
+        labels = Arrays.copyOf(labels, size << 1);
+        children = Arrays.copyOf(children, size << 1);
+      }
+      labels[size] = label;
+      children[size++] = child;
+    }
+  }
+}
@@ -21,6 +21,10 @@ public abstract class FTIndexIterator extends IndexIterator {
     public int size() { return 0; }
     @Override
     public void pos(final int p) { }
+    @Override
+    public double score() { return 0; }
+    @Override
+    public double bound() { return 0; }
   };
 
   /**
@@ -35,6 +39,32 @@ public abstract class FTIndexIterator extends IndexIterator {
    */
   public abstract void pos(final int p);
 
+  /**
+   * Returns the BM25 score of the current result.
+   * @return unbounded score, or {@code -1} if no index statistics are available
+   */
+  public double score() {
+    return -1;
+  }
+
+  /**
+   * Returns an upper bound for the BM25 scores of all results.
+   * @return unbounded score, or {@code -1} if no index statistics are available
+   */
+  public double bound() {
+    return -1;
+  }
+
+  /**
+   * Adds two scores.
+   * @param score1 first score
+   * @param score2 second score
+   * @return sum, or {@code -1} if one of the scores is unknown
+   */
+  private static double add(final double score1, final double score2) {
+    return score1 < 0 || score2 < 0 ? -1 : score1 + score2;
+  }
+
   /**
    * Merges two index array iterators.
    * @param i1 first index array iterator to merge
@@ -50,6 +80,22 @@ public abstract class FTIndexIterator extends IndexIterator {
       public boolean more() {
         if(diff <= 0) ii1 = i1.more() ? i1 : null;
         if(diff >= 0) ii2 = i2.more() ? i2 : null;
+        return next();
+      }
+
+      @Override
+      public boolean more(final int pre) {
+        // skip returned results and pending results with smaller pre values
+        if(diff <= 0 || ii1 != null && ii1.pre() < pre) ii1 = i1.more(pre) ? i1 : null;
+        if(diff >= 0 || ii2 != null && ii2.pre() < pre) ii2 = i2.more(pre) ? i2 : null;
+        return next();
+      }
+
+      /**
+       * Chooses the iterator with the next result.
+       * @return result of check
+       */
+      private boolean next() {
         diff = ii1 != null ? ii2 != null ? ii1.pre() - ii2.pre() : -1 : 1;
         next = diff <= 0 ? ii1 : ii2;
         return next != null;
@@ -68,6 +114,16 @@ public abstract class FTIndexIterator extends IndexIterator {
         return next.pre();
       }
 
+      @Override
+      public double score() {
+        return diff == 0 ? add(ii1.score(), ii2.score()) : next.score();
+      }
+
+      @Override
+      public double bound() {
+        return add(i1.bound(), i2.bound());
+      }
+
       @Override
       public void pos(final int p) {
         i1.pos(p);
@@ -97,29 +153,51 @@ public abstract class FTIndexIterator extends IndexIterator {
       final int dis) {
 
     return new FTIndexIterator() {
-      private FTIndexIterator ii1, ii2;
       private FTMatches all;
 
       @Override
       public boolean more() {
-        int d = 0;
-        while(true) {
-          if(d <= 0) ii1 = i1.more() ? i1 : null;
-          if(d >= 0) ii2 = i2.more() ? i2 : null;
-          if(ii1 == null || ii2 == null) return false;
-          d = ii1.pre() - ii2.pre();
-          if(d != 0) continue;
-          all = ii1.matches();
-          final FTMatches all2 = ii2.matches();
+        return next(i1.more(), i2.more());
+      }
+
+      @Override
+      public boolean more(final int pre) {
+        return next(i1.more(pre), i2.more(pre));
+      }
+
+      /**
+       * Finds the next result.
+       * @param more1 first iterator has more results
+       * @param more2 second iterator has more results
+       * @return result of check
+       */
+      private boolean next(final boolean more1, final boolean more2) {
+        boolean m1 = more1, m2 = more2;
+        while(m1 && m2) {
+          // skip results of the iterator with the smaller pre value
+          final int d = i1.pre() - i2.pre();
+          if(d < 0) {
+            m1 = i1.more(i2.pre());
+            continue;
+          }
+          if(d > 0) {
+            m2 = i2.more(i1.pre());
+            continue;
+          }
+          all = i1.matches();
+          final FTMatches all2 = i2.matches();
           if(dis == 0) {
-            for(final FTMatch m1 : all) {
-              for(final FTMatch m2 : all2) m1.add(m2);
+            for(final FTMatch ma1 : all) {
+              for(final FTMatch ma2 : all2) ma1.add(ma2);
             }
             return true;
           } else if(all.phrase(all2, dis)) {
             return true;
           }
+          m1 = i1.more();
+          m2 = i2.more();
         }
+        return false;
       }
 
       @Override
@@ -129,7 +207,17 @@ public abstract class FTIndexIterator extends IndexIterator {
 
       @Override
       public int pre() {
-        return ii1.pre();
+        return i1.pre();
+      }
+
+      @Override
+      public double score() {
+        return add(i1.score(), i2.score());
+      }
+
+      @Override
+      public double bound() {
+        return add(i1.bound(), i2.bound());
       }
 
       @Override
@@ -23,6 +23,20 @@ public abstract class IndexIterator {
    */
   public abstract boolean more();
 
+  /**
+   * Skips all results with pre values smaller than the specified value and returns true if
+   * more results can be returned. By default, results are skipped one by one; iterators
+   * over compressed index lists may skip larger ranges of results.
+   * @param pre pre value
+   * @return result of check
+   */
+  public boolean more(final int pre) {
+    while(more()) {
+      if(pre() >= pre) return true;
+    }
+    return false;
+  }
+
   /**
    * Returns the next pre value.
    * @return result
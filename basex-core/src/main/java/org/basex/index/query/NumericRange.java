@@ -14,19 +14,37 @@ public final class NumericRange implements IndexToken {
   private final boolean text;
   /** Minimum value. */
   public final double min;
+  /** Include minimum value. */
+  public final boolean mni;
   /** Maximum value. */
   public final double max;
+  /** Include maximum value. */
+  public final boolean mxi;
 
   /**
    * Constructor.
    * @param text text/attribute index
    * @param min minimum value
+   * @param mni include minimum value
    * @param max maximum value
+   * @param mxi include maximum value
    */
-  public NumericRange(final boolean text, final double min, final double max) {
+  public NumericRange(final boolean text, final double min, final boolean mni, final double max,
+      final boolean mxi) {
     this.text = text;
     this.min = min;
+    this.mni = mni;
     this.max = max;
+    this.mxi = mxi;
+  }
+
+  /**
+   * Checks if the specified value is contained in the range.
+   * @param value value
+   * @return result of check
+   */
+  public boolean contains(final double value) {
+    return (mni ? value >= min : value > min) && (mxi ? value <= max : value < max);
   }
 
   @Override
@@ -1,6 +1,7 @@
 package org.basex.index.query;
 
 import org.basex.index.*;
+import org.basex.util.*;
 
 /**
  * This class defines access to index text tokens.
@@ -24,6 +25,49 @@ public final class StringToken implements IndexToken {
     this.token = token;
   }
 
+  /**
+   * Constructor for composite keys.
+   * @param text text index
+   * @param name id of the parent element (text index) or the attribute name (attribute index)
+   * @param value value
+   */
+  public StringToken(final boolean text, final int name, final byte[] value) {
+    this(text, key(name, value));
+  }
+
+  /**
+   * Returns a composite key, consisting of a name id and a value. As XML texts contain no
+   * null bytes, composite keys are preceded by a null byte and sorted before all other keys.
+   * @param name name id
+   * @param value value
+   * @return key
+   */
+  public static byte[] key(final int name, final byte[] value) {
+    final int nl = Num.length(name), vl = value.length;
+    final byte[] key = new byte[1 + nl + vl];
+    System.arraycopy(Num.num(name), 0, key, 1, nl);
+    System.arraycopy(value, 0, key, 1 + nl, vl);
+    return key;
+  }
+
+  /**
+   * Checks if the specified key is a composite key.
+   * @param key key
+   * @return result of check
+   */
+  public static boolean composite(final byte[] key) {
+    return key.length != 0 && key[0] == 0;
+  }
+
+  /**
+   * Returns the length of the value of the specified key.
+   * @param key key
+   * @return length
+   */
+  public static int length(final byte[] key) {
+    return composite(key) ? key.length - 1 - Num.length(key, 1) : key.length;
+  }
+
   @Override
   public IndexType type() {
     return type;
@@ -12,6 +12,7 @@ import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -25,23 +26,32 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public class DiskValues implements Index {
-  /** ID references. */
-  final DataAccess idxr;
-  /** ID lists. */
-  final DataAccess idxl;
+  /** Smallest key that is no composite key. */
+  private static final byte[] FIRST = { 1 };
+
   /** Data reference. */
   final Data data;
-  /** Cached index entries: mapping between keys and index entries. */
-  final IndexCache cache = new IndexCache();
-  /** Cached texts: mapping between key positions and indexed texts. */
-  final IntObjMap<byte[]> ctext = new IntObjMap<>();
   /** Number of current index entries. */
   final AtomicInteger size = new AtomicInteger();
-
+  /** Number of entries per compressed block of id lists (0: uncompressed lists). */
+  final int blocks;
   /** Value type (texts/attributes). */
-  private final boolean text;
+  final boolean text;
   /** Synchronization object. */
-  private final Object monitor = new Object();
+  final Object monitor = new Object();
+
+  /** ID references. */
+  DataAccess idxr;
+  /** ID lists. */
+  DataAccess idxl;
+  /** Cached index entries: mapping between keys and index entries. */
+  IndexCache cache;
+  /** Cached texts: mapping between key positions and indexed texts. */
+  IntObjMap<byte[]> ctext;
+  /** Keys of updatable indexes (can be {@code null}). */
+  DataAccess keys;
+  /** Numeric keys (can be {@code null}). */
+  private NumericTree numbers;
 
   /**
    * Constructor, initializing the index structure.
@@ -63,9 +73,25 @@ public class DiskValues implements Index {
   DiskValues(final Data data, final boolean text, final String pref) throws IOException {
     this.data = data;
     this.text = text;
+    blocks = blocks(data);
+    open(pref);
+  }
+
+  /**
+   * Opens the index files.
+   * @param pref file prefix
+   * @throws IOException I/O Exception
+   */
+  final void open(final String pref) throws IOException {
     idxl = new DataAccess(data.meta.dbfile(pref + 'l'));
     idxr = new DataAccess(data.meta.dbfile(pref + 'r'));
     size.set(idxl.read4());
+    cache = new IndexCache();
+    ctext = new IntObjMap<>();
+    final IOFile nums = data.meta.dbfile(pref + 'n');
+    numbers = nums.exists() ? new NumericTree(nums) : null;
+    final IOFile ks = data.meta.dbfile(pref + 'k');
+    keys = ks.exists() ? new DataAccess(ks) : null;
   }
 
   @Override
@@ -80,11 +106,12 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       final long l = idxl.length() + idxr.length();
       tb.add(LI_SIZE).add(Performance.format(l, true)).add(NL);
+      tb.add(LI_CACHE).add(cache.toString()).add(NL);
       final int s = size();
-      for(int m = 0; m < s; ++m) {
+      for(int m = first(); m < s; ++m) {
         final long pos = idxr.read5(m * 5L);
         final int oc = idxl.readNum(pos);
-        if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum()), text));
+        if(stats.adding(oc)) stats.add(key(m, idxl.readNum()));
       }
     }
     stats.print(tb);
@@ -94,9 +121,12 @@ public class DiskValues implements Index {
   @Override
   public int costs(final IndexToken it) {
     if(it instanceof StringRange) return idRange((StringRange) it).size();
-    if(it instanceof NumericRange) return idRange((NumericRange) it).size();
+    if(it instanceof NumericRange) {
+      // without numeric keys, ranges can only be found by scanning all keys
+      return numbers == null ? Integer.MAX_VALUE : count((NumericRange) it);
+    }
     final byte[] key = it.get();
-    return key.length <= data.meta.maxlen ? entry(key).size : Integer.MAX_VALUE;
+    return StringToken.length(key) <= data.meta.maxlen ? entry(key).size : Integer.MAX_VALUE;
   }
 
   @Override
@@ -108,8 +138,8 @@ public class DiskValues implements Index {
   }
 
   @Override
-  public final boolean drop() {
-    return data.meta.drop((text ? DATATXT : DATAATV) + '.');
+  public boolean drop() {
+    return data.meta.drop((text ? DATATXT : DATAATV) + ".+");
   }
 
   @Override
@@ -117,6 +147,8 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       idxl.close();
       idxr.close();
+      if(numbers != null) numbers.close();
+      if(keys != null) keys.close();
     }
   }
 
@@ -159,15 +191,47 @@ public class DiskValues implements Index {
     idxr.flush();
   }
 
+  /**
+   * Assigns a redo log, which will record all subsequent changes of the index files.
+   * @param log redo log (may be {@code null})
+   */
+  public final void journal(final RedoLog log) {
+    idxl.journal(log);
+    idxr.journal(log);
+  }
+
+  /**
+   * Returns the number of entries per compressed block of id lists. Lists of updatable
+   * indexes are never compressed.
+   * @param data data reference
+   * @return block size (0: uncompressed lists)
+   */
+  static int blocks(final Data data) {
+    return data.meta.updindex ? 0 : data.meta.blocksize;
+  }
+
   /**
    * Returns the {@code pre} value for the specified id.
    * @param id id value
-   * @return pre value
+   * @return pre value, or {@code -1} if the id will be ignored
    */
   int pre(final int id) {
     return id;
   }
 
+  /**
+   * Returns the key of an index entry.
+   * <p><em>Important:</em> This method is NOT thread-safe, since it is used in loops.</p>
+   * @param index index of the entry
+   * @param id first id of the entry
+   * @return key
+   */
+  byte[] key(final int index, final int id) {
+    if(keys == null) return data.text(pre(id), text);
+    // key offsets are stored after the keys, followed by the sequence number and the count
+    return keys.readToken(keys.read5(keys.length() - 8 - 5L * (size() - index)));
+  }
+
   /**
    * Binary search for key in the {@link #idxr}.
    * <p><em>Important:</em> This method is thread-safe.</p>
@@ -209,6 +273,35 @@ public class DiskValues implements Index {
     return size.get();
   }
 
+  /**
+   * Returns the index of the first entry that has no composite key
+   * (see {@link StringToken#key(int, byte[])}).
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @return index
+   */
+  private int first() {
+    final int i = get(FIRST);
+    return i < 0 ? -i - 1 : i;
+  }
+
+  /**
+   * Returns the number of ids of a key that will not be ignored.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param key key
+   * @return number of ids
+   */
+  int count(final byte[] key) {
+    final IndexEntry e = entry(key);
+    int c = 0;
+    synchronized(monitor) {
+      final Postings pl = new Postings(idxl, e.offset, e.size, blocks, false);
+      while(pl.more()) {
+        if(pre(pl.value()) != -1) c++;
+      }
+    }
+    return c;
+  }
+
   /**
    * Returns a cache entry.
    * <p><em>Important:</em> This method is thread-safe.</p>
@@ -242,8 +335,8 @@ public class DiskValues implements Index {
    * @return entries
    */
   private EntryIterator allKeys(final boolean reverse) {
-    final int s = size() - 1;
-    return reverse ? keysWithinReverse(0, s) : keysWithin(0, s);
+    final int f = first(), s = size() - 1;
+    return reverse ? keysWithinReverse(f, s) : keysWithin(f, s);
   }
 
   /**
@@ -256,7 +349,8 @@ public class DiskValues implements Index {
     final int s = size() - 1;
     int i = get(key);
     if(i < 0) i = -i - 1;
-    return reverse ? keysWithinReverse(0, i - 1) : keysWithin(i, s);
+    final int f = first();
+    return reverse ? keysWithinReverse(f, i - 1) : keysWithin(Math.max(f, i), s);
   }
 
   /**
@@ -374,31 +468,76 @@ public class DiskValues implements Index {
     final int sz = idxl.readNum(pos);
     final long off = pos + Num.length(sz);
     if(key == null) {
-      key = data.text(pre(idxl.readNum()), text);
+      key = key(index, idxl.readNum());
       ctext.put(index, key);
     }
     return cache.add(key, sz, off);
   }
 
   /**
-   * Iterator method.
+   * Iterator method. If ids are pre values, they will be lazily decoded. This way,
+   * consumers that only need the first results will not read the complete list.
    * <p><em>Important:</em> This method is thread-safe.</p>
    * @param sz number of values
    * @param offset offset
    * @return iterator
    */
   private IndexIterator iter(final int sz, final long offset) {
+    if(!data.meta.updindex) {
+      // ids are ordered pre values: decode them on demand, skip compressed blocks
+      final Postings pl;
+      synchronized(monitor) {
+        pl = new Postings(idxl, offset, sz, blocks, false);
+      }
+      return new IndexIterator() {
+        @Override
+        public boolean more() {
+          synchronized(monitor) {
+            return pl.more();
+          }
+        }
+
+        @Override
+        public boolean more(final int pre) {
+          synchronized(monitor) {
+            return pl.more(pre);
+          }
+        }
+
+        @Override
+        public int pre() {
+          return pl.value();
+        }
+
+        @Override
+        public int size() {
+          return sz;
+        }
+      };
+    }
+
     final IntList pres = new IntList(sz);
     synchronized(monitor) {
-      idxl.cursor(offset);
-      for(int i = 0, id = 0; i < sz; i++) {
-        id += idxl.readNum();
-        pres.add(pre(id));
-      }
+      pres(offset, sz, pres);
     }
     return iter(pres.sort());
   }
 
+  /**
+   * Adds the pre values of an id list.
+   * <p><em>Important:</em> This method is NOT thread-safe, since it is used in loops.</p>
+   * @param offset offset of the list
+   * @param sz number of ids
+   * @param pres pre values
+   */
+  private void pres(final long offset, final int sz, final IntList pres) {
+    final Postings pl = new Postings(idxl, offset, sz, blocks, false);
+    while(pl.more()) {
+      final int pre = pre(pl.value());
+      if(pre != -1) pres.add(pre);
+    }
+  }
+
   /**
    * Performs a string-based range query.
    * <p><em>Important:</em> This method is thread-safe.</p>
@@ -411,19 +550,16 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       final int i = get(tok.min);
       final int s = size();
-      for(int l = i < 0 ? -i - 1 : tok.mni ? i : i + 1; l < s; l++) {
-        final int ps = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+      for(int l = Math.max(first(), i < 0 ? -i - 1 : tok.mni ? i : i + 1); l < s; l++) {
+        final long pos = idxr.read5(l * 5L);
+        final int ps = idxl.readNum(pos);
+        final long off = pos + Num.length(ps);
 
         // value is too large: skip traversal
-        final int d = diff(data.text(pre, text), tok.max);
+        final int d = diff(key(l, idxl.readNum(off)), tok.max);
         if(d > 0 || !tok.mxi && d == 0) break;
         // add pre values
-        for(int p = 0; p < ps; ++p) {
-          pres.add(pre(id));
-          id += idxl.readNum();
-        }
+        pres(off, ps, pres);
       }
     }
     return iter(pres.sort());
@@ -436,27 +572,37 @@ public class DiskValues implements Index {
    * @return results
    */
   private IndexIterator idRange(final NumericRange tok) {
-    // check if min and max are positive integers with the same number of digits
-    final double min = tok.min, max = tok.max;
-    final int len = max > 0 && (long) max == max ? token(max).length : 0;
-    final boolean simple = len != 0 && min > 0 && (long) min == min && token(min).length == len;
-
     final IntList pres = new IntList();
     synchronized(monitor) {
-      final int s = size();
-      for(int l = 0; l < s; ++l) {
-        final int ds = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+      if(numbers != null) {
+        // look up keys in the tree of numeric keys
+        final IntList keys = numbers.keys(tok);
+        final int ks = keys.size();
+        for(int k = 0; k < ks; k++) {
+          final long pos = idxr.read5(keys.get(k) * 5L);
+          final int ds = idxl.readNum(pos);
+          pres(pos + Num.length(ds), ds, pres);
+        }
+        return iter(pres.sort());
+      }
+
+      // check if min and max are positive integers with the same number of digits
+      final double min = tok.min, max = tok.max;
+      final int len = max > 0 && (long) max == max ? token(max).length : 0;
+      final boolean simple = len != 0 && min > 0 && (long) min == min && token(min).length == len;
 
-        final double v = data.textDbl(pre, text);
-        if(v >= min && v <= max) {
+      final int s = size();
+      for(int l = first(); l < s; ++l) {
+        final long pos = idxr.read5(l * 5L);
+        final int ds = idxl.readNum(pos);
+        final long off = pos + Num.length(ds);
+        final byte[] key = key(l, idxl.readNum(off));
+
+        final double v = toDouble(key);
+        if(tok.contains(v)) {
           // value is in range
-          for(int d = 0; d < ds; ++d) {
-            pres.add(pre(id));
-            id += idxl.readNum();
-          }
-        } else if(simple && v > max && data.textLen(pre, text) == len) {
+          pres(off, ds, pres);
+        } else if(simple && v > max && key.length == len) {
           // if limits are integers, if min, max and current value have the same
           // string length, and if current value is larger than max, test can be
           // skipped, as all remaining values will be bigger
@@ -467,12 +613,28 @@ public class DiskValues implements Index {
     return iter(pres.sort());
   }
 
+  /**
+   * Returns the number of results of a range query, using the tree of numeric keys.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param tok index term
+   * @return number of results
+   */
+  private int count(final NumericRange tok) {
+    long count = 0;
+    synchronized(monitor) {
+      final IntList keys = numbers.keys(tok);
+      final int ks = keys.size();
+      for(int k = 0; k < ks; k++) count += idxl.readNum(idxr.read5(keys.get(k) * 5L));
+    }
+    return (int) Math.min(count, Integer.MAX_VALUE - 1);
+  }
+
   /**
    * Returns an iterator for the specified id list.
    * @param pres pre values
    * @return iterator
    */
-  private static IndexIterator iter(final IntList pres) {
+  static IndexIterator iter(final IntList pres) {
     return new IndexIterator() {
       final int s = pres.size();
       int p = -1;
@@ -505,13 +667,12 @@ public class DiskValues implements Index {
       for(int m = 0; m < sz; m++) {
         final long pos = idxr.read5(m * 5L);
         final int oc = idxl.readNum(pos);
-        int id = idxl.readNum();
-        tb.add("  ").addInt(m).add(". key: \"").add(data.text(pre(id), text)).add("\"; offset: ");
+        final Postings pl = new Postings(idxl, pos + Num.length(oc), oc, blocks, false);
+        pl.more();
+        final int id = pl.value();
+        tb.add("  ").addInt(m).add(". key: \"").add(key(m, id)).add("\"; offset: ");
         tb.addLong(pos).add("; id/dists: ").addInt(id).add('/').addInt(pre(id));
-        for(int n = 1; n < oc; n++) {
-          id += idxl.readNum();
-          tb.add(",").addInt(id).add('/').addInt(pre(id));
-        }
+        while(pl.more()) tb.add(",").addInt(pl.value()).add('/').addInt(pre(pl.value()));
         tb.add("\n");
       }
     }
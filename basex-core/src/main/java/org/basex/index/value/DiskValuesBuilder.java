@@ -5,13 +5,16 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.query.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 import org.basex.util.list.*;
 
 /**
@@ -22,23 +25,34 @@ import org.basex.util.list.*;
  * <ul>
  * <li> {@code DATATXT/ATV + 'l'}: contains the index values, which are dense id
  *   lists to all text nodes/attribute values, stored in the {@link Num} format:
- *   [size0, id1, id2, ...]. The number of index keys is stored in the first 4
- *   bytes of the file.</li>
+ *   [size0, id1, id2, ...]. If {@link MainOptions#INDEXBLOCKSIZE} was assigned,
+ *   the ids are compressed in blocks, as described in the {@link Postings} class.
+ *   The number of index keys is stored in the first 4 bytes of the file.</li>
  * <li> {@code DATATXT/ATV + 'r'}: contains 5-byte references to the id lists
  *   for all keys. To save space, the keys itself are not stored in the index
  *   structure. Instead, they can be found by following the id references to
  *   the main table.
  * </li>
+ * <li> {@code DATATXT/ATV + 'n'}: contains the numeric keys in a B+-tree, which is
+ *   described in the {@link NumericTree} class.</li>
+ * <li> {@code DATATXT/ATV + 'k'}: contains the keys of updatable indexes, which are described
+ *   in the {@link UpdatableDiskValues} class, and of indexes with composite keys.</li>
  * </ul>
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class DiskValuesBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
+  /** Number of entries per compressed block of id lists (0: uncompressed lists). */
+  private final int blocks;
+  /** Positions of the numeric keys. */
+  private final IntList numKeys = new IntList();
+  /** Values of the numeric keys. */
+  private double[] numValues = new double[1];
+  /** Offsets of the keys of updatable indexes. */
+  private long[] keyOffsets = new long[1];
 
   /**
    * Constructor.
@@ -47,8 +61,20 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @param text value type (text/attribute)
    */
   public DiskValuesBuilder(final Data data, final MainOptions options, final boolean text) {
-    super(data, options.get(MainOptions.INDEXSPLITSIZE));
+    super(data, options.get(MainOptions.INDEXSPLITSIZE), options.get(MainOptions.INDEXTHREADS));
     this.text = text;
+    blocks = DiskValues.blocks(data);
+  }
+
+  /**
+   * Constructor for merging the segments of updatable indexes.
+   * @param data data reference
+   * @param text value type (text/attribute)
+   */
+  DiskValuesBuilder(final Data data, final boolean text) {
+    super(data, 0, 1);
+    this.text = text;
+    blocks = DiskValues.blocks(data);
   }
 
   @Override
@@ -59,32 +85,14 @@ public final class DiskValuesBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    final int k = text ? Data.TEXT : Data.ATTR;
-
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(split()) {
-          writeIndex(true);
-          index = new IndexTree();
-          finishSplit();
-        }
-      }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-        count++;
-      }
-    }
-
-    writeIndex(splits > 0);
     // merge partial index structures
-    if(splits > 1) {
-      index = null;
+    final int[] ids = index();
+    if(ids.length > 0) {
       Performance.gc(1);
-      merge();
+      merge(ids);
     }
+    // sort numeric keys, write tree
+    numbers(text ? DATATXT : DATAATV);
 
     if(text) data.meta.textindex = true;
     else data.meta.attrindex = true;
@@ -93,22 +101,76 @@ public final class DiskValuesBuilder extends IndexBuilder {
     return data.meta.updindex ? new UpdatableDiskValues(data, text) : new DiskValues(data, text);
   }
 
+  @Override
+  protected Worker worker(final int start, final int end) {
+    return new Worker(start, end) {
+      /** Temporary value tree. */
+      private IndexTree index = new IndexTree();
+
+      @Override
+      protected void index() throws IOException {
+        final int k = text ? Data.TEXT : Data.ATTR;
+        for(; pre < end; ++pre) {
+          if((pre & 0x0FFF) == 0) {
+            check();
+            // check if main memory is exhausted
+            if(split()) spill();
+          }
+          // skip too long values
+          if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
+            final byte[] value = data.text(pre, text);
+            final int id = data.meta.updindex ? data.id(pre) : pre;
+            index.index(value, id);
+            if(data.meta.composite) {
+              // add composite key with the name of the attribute or parent element
+              final int par = text ? data.parent(pre, k) : pre;
+              if(data.kind(par) != Data.DOC) {
+                index.index(StringToken.key(data.name(par), value), id);
+              }
+            }
+            count++;
+          }
+        }
+      }
+
+      @Override
+      protected void write(final int id) throws IOException {
+        writeIndex(index, id);
+        index = new IndexTree();
+      }
+    };
+  }
+
   /**
    * Merges cached index files.
+   * @param ids ids of the partial indexes
+   * @throws IOException I/O exception
+   */
+  private void merge(final int[] ids) throws IOException {
+    final int ms = ids.length;
+    final DiskValuesMerger[] vm = new DiskValuesMerger[ms];
+    for(int i = 0; i < ms; ++i) vm[i] = new DiskValuesMerger(data, text, ids[i]);
+    merge(vm, text ? DATATXT : DATAATV, 0);
+  }
+
+  /**
+   * Merges index structures and writes the final index files. Keys without ids are skipped.
+   * @param vm index structures
+   * @param name name prefix of the index files
+   * @param seq sequence number of the last merged segment (ignored if index is not updatable)
    * @throws IOException I/O exception
    */
-  private void merge() throws IOException {
-    final String f = text ? DATATXT : DATAATV;
+  void merge(final DiskValuesMerger[] vm, final String name, final int seq) throws IOException {
     int sz = 0;
-    try(final DataOutput outL = new DataOutput(data.meta.dbfile(f + 'l'));
-        final DataOutput outR = new DataOutput(data.meta.dbfile(f + 'r'))) {
+    try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
+        final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
+        final DataOutput outK = keys(name)) {
       outL.write4(0);
 
       // initialize cached index iterators
       final IntList ml = new IntList();
       final IntList il = new IntList();
-      final DiskValuesMerger[] vm = new DiskValuesMerger[splits];
-      for(int i = 0; i < splits; ++i) vm[i] = new DiskValuesMerger(data, text, i);
+      final int ms = vm.length;
 
       // parse through all values
       while(true) {
@@ -116,13 +178,13 @@ public final class DiskValuesBuilder extends IndexBuilder {
 
         // find first index which is not completely parsed yet
         int min = -1;
-        while(++min < splits && vm[min].values.length == 0);
-        if(min == splits) break;
+        while(++min < ms && vm[min].key == null);
+        if(min == ms) break;
 
         // find index entry with smallest key
         ml.reset();
-        for(int i = min; i < splits; ++i) {
-          if(vm[i].values.length == 0) continue;
+        for(int i = min; i < ms; ++i) {
+          if(vm[i].key == null) continue;
           final int d = diff(vm[min].key, vm[i].key);
           if(d < 0) continue;
           if(d > 0) {
@@ -133,44 +195,132 @@ public final class DiskValuesBuilder extends IndexBuilder {
         }
 
         // parse through all values, cache and sort id values
-        final int ms = ml.size();
-        for(int m = 0; m < ms; ++m) {
+        final byte[] key = vm[min].key;
+        final int mls = ml.size();
+        for(int m = 0; m < mls; ++m) {
           final DiskValuesMerger t = vm[ml.get(m)];
-          final int vl = t.values.length;
-          for(int l = 4, v; l < vl; l += Num.length(v)) {
-            v = Num.get(t.values, l);
-            il.add(v);
-          }
+          il.add(t.ids.toArray());
           t.next();
         }
+        if(il.isEmpty()) continue;
+
         // write final structure to disk
+        number(key, sz);
+        key(outK, key, sz);
         write(outL, outR, il);
         ++sz;
       }
+      keys(outK, sz, seq);
     }
 
     // write number of entries to first position
-    try(final DataAccess da = new DataAccess(data.meta.dbfile(f + 'l'))) {
+    try(final DataAccess da = new DataAccess(data.meta.dbfile(name + 'l'))) {
+      da.write4(sz);
+    }
+  }
+
+  /**
+   * Writes the index files of a segment of an updatable index. Keys without ids are skipped.
+   * @param map keys and ids
+   * @param name name prefix of the index files
+   * @param seq sequence number of the segment
+   * @throws IOException I/O exception
+   */
+  void write(final TokenObjMap<IntList> map, final String name, final int seq)
+      throws IOException {
+    int sz = 0;
+    try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
+        final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
+        final DataOutput outK = keys(name)) {
+      outL.write4(0);
+      final IntList il = new IntList();
+      for(final byte[] key : new TokenList(map).sort(true)) {
+        final IntList ids = map.get(key);
+        if(ids.isEmpty()) continue;
+        il.add(ids.toArray());
+        number(key, sz);
+        key(outK, key, sz);
+        write(outL, outR, il);
+        ++sz;
+      }
+      keys(outK, sz, seq);
+    }
+    try(final DataAccess da = new DataAccess(data.meta.dbfile(name + 'l'))) {
       da.write4(sz);
     }
+    numbers(name);
+  }
+
+  /**
+   * Writes the tree with the numeric keys.
+   * @param name name prefix of the index files
+   * @throws IOException I/O exception
+   */
+  void numbers(final String name) throws IOException {
+    NumericTree.write(data.meta.dbfile(name + 'n'), numKeys, numValues);
+  }
+
+  /**
+   * Creates the output stream for the keys of an updatable index or an index with composite
+   * keys (which cannot be restored from the database texts).
+   * @param name name prefix of the index files
+   * @return output stream, or {@code null} if no keys need to be stored
+   * @throws IOException I/O exception
+   */
+  private DataOutput keys(final String name) throws IOException {
+    return data.meta.updindex || data.meta.composite ?
+      new DataOutput(data.meta.dbfile(name + 'k')) : null;
+  }
+
+  /**
+   * Writes a key of an updatable index or an index with composite keys.
+   * @param outK output stream (can be {@code null})
+   * @param key key
+   * @param pos position of the key
+   * @throws IOException I/O exception
+   */
+  private void key(final DataOutput outK, final byte[] key, final int pos) throws IOException {
+    if(outK == null) return;
+    if(pos == keyOffsets.length) keyOffsets = Arrays.copyOf(keyOffsets, pos << 1);
+    keyOffsets[pos] = outK.size();
+    outK.writeToken(key);
+  }
+
+  /**
+   * Finishes the keys of an updatable index by writing the key offsets, the sequence number
+   * and the number of keys.
+   * @param outK output stream (can be {@code null})
+   * @param sz number of keys
+   * @param seq sequence number of the last merged segment
+   * @throws IOException I/O exception
+   */
+  private void keys(final DataOutput outK, final int sz, final int seq) throws IOException {
+    if(outK == null) return;
+    for(int k = 0; k < sz; k++) outK.write5(keyOffsets[k]);
+    outK.write4(seq);
+    outK.write4(sz);
   }
 
   /**
-   * Writes the current index tree to disk.
-   * @param partial partial flag
+   * Writes an index tree to disk.
+   * @param index index tree
+   * @param id id of the partial index, or {@code -1} for the final index
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
+  private void writeIndex(final IndexTree index, final int id) throws IOException {
     // write id arrays and references
-    final String name = (text ? DATATXT : DATAATV) + (partial ? splits : "");
+    final boolean partial = id != -1;
+    final String name = (text ? DATATXT : DATAATV) + (partial ? id : "");
     try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
-        final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
+        final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
+        final DataOutput outK = partial ? null : keys(name)) {
       outL.write4(index.size());
 
       final IntList il = new IntList();
       index.init();
-      while(index.more()) {
-        final byte[] values = index.values.get(index.next());
+      for(int k = 0; index.more(); k++) {
+        final int i = index.next();
+        final byte[] values = index.values.get(i);
         final int vs = Num.size(values);
 
         if(partial) {
@@ -183,9 +333,13 @@ public final class DiskValuesBuilder extends IndexBuilder {
             il.add(Num.get(values, ip));
           }
           // write final structure to disk
+          final byte[] key = index.keys.get(i);
+          number(key, k);
+          key(outK, key, k);
           write(outL, outR, il);
         }
       }
+      if(!partial) keys(outK, index.size(), 0);
     }
 
     // temporarily write texts
@@ -195,8 +349,20 @@ public final class DiskValuesBuilder extends IndexBuilder {
         while(index.more()) outT.writeToken(index.keys.get(index.next()));
       }
     }
-    // increase split counter
-    splits++;
+  }
+
+  /**
+   * Caches the position of a key if it is numeric.
+   * @param key key
+   * @param pos position of the key
+   */
+  private void number(final byte[] key, final int pos) {
+    final double v = toDouble(key);
+    if(Double.isNaN(v)) return;
+    final int s = numKeys.size();
+    if(s == numValues.length) numValues = Arrays.copyOf(numValues, s << 1);
+    numValues[s] = v;
+    numKeys.add(pos);
   }
 
   /**
@@ -206,19 +372,14 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @param il values
    * @throws IOException I/O exception
    */
-  private static void write(final DataOutput outL, final DataOutput outR, final IntList il)
+  private void write(final DataOutput outL, final DataOutput outR, final IntList il)
       throws IOException {
 
     // sort values before writing
     il.sort();
-    final int is = il.size();
     outR.write5(outL.size());
-    outL.writeNum(is);
-    for(int i = 0, o = 0; i < is; i++) {
-      final int v = il.get(i);
-      outL.writeNum(v - o);
-      o = v;
-    }
+    outL.writeNum(il.size());
+    Postings.write(outL, il, null, blocks);
     il.reset();
   }
 
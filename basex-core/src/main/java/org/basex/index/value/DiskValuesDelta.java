@@ -0,0 +1,119 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * In-memory segment (memtable) of an updatable value index. A segment contains the ids of all
+ * values that have been added after the segment was created, and the ids of all values that
+ * have been deleted. Deletions only apply to older segments and the index files: ids of deleted
+ * values that have been added to the same segment are removed right away.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class DiskValuesDelta {
+  /** Sequence number. */
+  final int seq;
+  /** Ids, indexed by keys. */
+  final TokenObjMap<IntList> ids = new TokenObjMap<>();
+  /** Ids of deleted values. */
+  final IntSet deleted = new IntSet();
+  /** Number of ids. */
+  int size;
+
+  /**
+   * Constructor.
+   * @param seq sequence number
+   */
+  DiskValuesDelta(final int seq) {
+    this.seq = seq;
+  }
+
+  /**
+   * Constructor, reading a segment from disk.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  DiskValuesDelta(final DataInput in) throws IOException {
+    seq = in.readNum();
+    for(final int id : in.readNums()) deleted.add(id);
+    for(int k = in.readNum(); k > 0; k--) {
+      final byte[] key = in.readToken();
+      final IntList list = new IntList(in.readNums());
+      ids.put(key, list);
+      size += list.size();
+    }
+  }
+
+  /**
+   * Writes the segment to disk.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out) throws IOException {
+    out.writeNum(seq);
+    out.writeNums(deleted.toArray());
+    int ks = 0;
+    for(final byte[] key : ids) {
+      if(!ids.get(key).isEmpty()) ks++;
+    }
+    out.writeNum(ks);
+    for(final byte[] key : ids) {
+      final IntList list = ids.get(key);
+      if(list.isEmpty()) continue;
+      out.writeToken(key);
+      out.writeNums(list.toArray());
+    }
+  }
+
+  /**
+   * Adds an id.
+   * @param key key
+   * @param id id of the value
+   */
+  void add(final byte[] key, final int id) {
+    IntList list = ids.get(key);
+    if(list == null) {
+      list = new IntList(1);
+      ids.put(key, list);
+    }
+    list.add(id);
+    size++;
+  }
+
+  /**
+   * Deletes an id. The id will be removed if it has been added to this segment.
+   * @param key key
+   * @param id id of the value
+   */
+  void delete(final byte[] key, final int id) {
+    final IntList list = ids.get(key);
+    if(list != null) {
+      final int ls = list.size();
+      list.delete(id);
+      size -= ls - list.size();
+    }
+    deleted.add(id);
+  }
+
+  /**
+   * Returns the number of pending updates.
+   * @return number of added ids and deletions
+   */
+  int pending() {
+    return size + deleted.size();
+  }
+
+  /**
+   * Checks if the segment contains no updates.
+   * @return result of check
+   */
+  boolean isEmpty() {
+    return pending() == 0;
+  }
+}
@@ -1,15 +1,19 @@
 package org.basex.index.value;
 
 import static org.basex.data.DataText.*;
-import static org.basex.util.Token.*;
 
 import java.io.*;
 
 import org.basex.data.*;
+import org.basex.index.*;
 import org.basex.io.in.DataInput;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
 
 /**
- * This class provides data for merging temporary value indexes.
+ * This class provides data for merging temporary value indexes, segments of updatable indexes,
+ * and the main index structure.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -23,48 +27,92 @@ final class DiskValuesMerger {
   private final String pref;
   /** Data reference. */
   private final Data data;
+  /** Indicates if the files are temporary and will be deleted after they have been read. */
+  private final boolean temp;
+  /** Indicates if the files contain the main index structure. */
+  private final boolean main;
+  /** Ids to be skipped (can be {@code null}). */
+  private final IntSet[] deleted;
 
-  /** Current key. */
+  /** Current key ({@code null} if the end of file is reached). */
   byte[] key;
-  /** Current values. */
-  byte[] values;
+  /** Current ids. */
+  final IntList ids = new IntList();
 
   /**
-   * Constructor.
+   * Constructor for temporary files.
    * @param data data reference
    * @param text text flag
    * @param i merge id
    * @throws IOException I/O exception
    */
   DiskValuesMerger(final Data data, final boolean text, final int i) throws IOException {
-    pref = (text ? DATATXT : DATAATV) + i;
-    dk = new DataInput(data.meta.dbfile(pref + 't'));
-    dv = new DiskValues(data, text, pref);
+    this(data, text, (text ? DATATXT : DATAATV) + i, true, false, null);
+  }
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @param text text flag
+   * @param pref file prefix
+   * @param temp indicates if the files are temporary and will be deleted after reading
+   * @param main indicates if the files contain the main index structure
+   * @param deleted ids to be skipped (can be {@code null})
+   * @throws IOException I/O exception
+   */
+  DiskValuesMerger(final Data data, final boolean text, final String pref, final boolean temp,
+      final boolean main, final IntSet[] deleted) throws IOException {
+    this.pref = pref;
     this.data = data;
+    this.temp = temp;
+    this.main = main;
+    this.deleted = deleted;
+    dk = new DataInput(data.meta.dbfile(pref + (main ? 'k' : 't')));
+    dv = new DiskValues(data, text, pref);
     next();
   }
 
   /**
-   * Jumps to the next value. {@link #values} will have 0 entries if the end of file is reached.
+   * Jumps to the next value. {@link #key} will be {@code null} if the end of file is reached.
    * @throws IOException I/O exception
    */
   void next() throws IOException {
-    values = nextValues();
-    if(values.length == 0) {
+    ids.reset();
+    if(dv.idxr.cursor() >= dv.idxr.length()) {
+      key = null;
       dv.close();
       dk.close();
-      data.meta.drop(pref + '.');
+      if(temp) data.meta.drop(pref + '.');
+      return;
+    }
+    key = dk.readToken();
+    final long off = dv.idxr.read5();
+    if(main) {
+      // id lists of the main index structure
+      final int s = dv.idxl.readNum(off);
+      final Postings pl = new Postings(dv.idxl, dv.idxl.cursor(), s, dv.blocks, false);
+      while(pl.more()) add(pl.value());
     } else {
-      key = dk.readToken();
+      // temporary structure: number of entries, absolute values
+      final byte[] values = dv.idxl.readBytes(off, dv.idxl.read4(off));
+      final int vl = values.length;
+      for(int l = 4, v; l < vl; l += Num.length(v)) {
+        v = Num.get(values, l);
+        add(v);
+      }
     }
   }
 
   /**
-   * Returns next values. Called by the {@link DiskValuesBuilder}.
-   * @return compressed values
+   * Adds an id, unless it is to be skipped.
+   * @param id id
    */
-  private byte[] nextValues() {
-    return dv.idxr.cursor() >= dv.idxr.length() ? EMPTY :
-      dv.idxl.readBytes(dv.idxr.read5(), dv.idxl.read4());
+  private void add(final int id) {
+    if(deleted != null) {
+      for(final IntSet set : deleted) {
+        if(set.contains(id)) return;
+      }
+    }
+    ids.add(id);
   }
 }
@@ -0,0 +1,82 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.*;
+
+/**
+ * Immutable segment of an updatable value index, which has been written to disk.
+ * The index files have the same structure as the main index files. In addition, a file with
+ * the suffix {@code 'd'} contains the ids of all values that have been deleted in the segment.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class DiskValuesSegment extends DiskValues {
+  /** Updatable index. */
+  private final UpdatableDiskValues index;
+  /** File prefix. */
+  final String pref;
+  /** Sequence number. */
+  final int seq;
+  /** Ids of deleted values. */
+  final IntSet deleted = new IntSet();
+
+  /**
+   * Constructor, opening an existing segment.
+   * @param index updatable index
+   * @param pref file prefix of the index
+   * @param seq sequence number
+   * @throws IOException I/O Exception
+   */
+  DiskValuesSegment(final UpdatableDiskValues index, final String pref, final int seq)
+      throws IOException {
+    super(index.data, index.text, name(pref, seq));
+    this.index = index;
+    this.pref = name(pref, seq);
+    this.seq = seq;
+    try(final DataInput in = new DataInput(data.meta.dbfile(this.pref + 'd'))) {
+      for(final int id : in.readNums()) deleted.add(id);
+    }
+  }
+
+  /**
+   * Writes an in-memory segment to disk.
+   * @param index updatable index
+   * @param pref file prefix of the index
+   * @param delta in-memory segment
+   * @return segment
+   * @throws IOException I/O Exception
+   */
+  static DiskValuesSegment write(final UpdatableDiskValues index, final String pref,
+      final DiskValuesDelta delta) throws IOException {
+    final String name = name(pref, delta.seq);
+    new DiskValuesBuilder(index.data, index.text).write(delta.ids, name, delta.seq);
+    try(final DataOutput out = new DataOutput(index.data.meta.dbfile(name + 'd'))) {
+      out.writeNums(delta.deleted.toArray());
+    }
+    return new DiskValuesSegment(index, pref, delta.seq);
+  }
+
+  /**
+   * Returns the file prefix of a segment.
+   * @param pref file prefix of the index
+   * @param seq sequence number
+   * @return file prefix
+   */
+  private static String name(final String pref, final int seq) {
+    return pref + 's' + seq;
+  }
+
+  @Override
+  int pre(final int id) {
+    return index.pre(id, seq);
+  }
+
+  @Override
+  public boolean drop() {
+    return data.meta.drop(pref + '.');
+  }
+}
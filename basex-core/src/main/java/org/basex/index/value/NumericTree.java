@@ -0,0 +1,177 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides a static B+-tree for the numeric keys of a value index.
+ * It allows range queries to be answered in {@code O(log n + k)} instead of scanning all
+ * keys of the index.</p>
+ *
+ * <p>The tree is bulk-loaded by the {@link DiskValuesBuilder} and stored in a single file
+ * ({@code DATATXT/ATV + 'n'}):</p>
+ * <ul>
+ * <li> The header contains the number of entries and the number of inner levels
+ *   (4 bytes each).</li>
+ * <li> The leaf level contains all entries, sorted by their numeric values. Each entry
+ *   consists of the double value (8 bytes) and the position of the key in the value
+ *   index (4 bytes).</li>
+ * <li> The inner levels follow in ascending order. Each inner level contains the
+ *   smallest values of the nodes of the level below. The top level is the root node.</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class NumericTree {
+  /** Size of the header. */
+  private static final int HEADER = 8;
+  /** Size of a leaf entry. */
+  private static final int ENTRY = 12;
+  /** Number of entries in a leaf node. */
+  private static final int LEAF = IO.BLOCKSIZE / ENTRY;
+  /** Number of values in an inner node. */
+  private static final int NODE = IO.BLOCKSIZE / 8;
+
+  /** File access. */
+  private final DataAccess da;
+  /** Number of entries. */
+  private final int size;
+  /** Offsets of the inner levels. */
+  private final long[] offsets;
+  /** Number of values of the inner levels. */
+  private final int[] counts;
+
+  /**
+   * Constructor, opening the tree.
+   * @param file index file
+   * @throws IOException I/O exception
+   */
+  NumericTree(final IOFile file) throws IOException {
+    da = new DataAccess(file);
+    size = da.read4(0);
+    final int levels = da.read4(4);
+    offsets = new long[levels];
+    counts = new int[levels];
+    long off = HEADER + (long) size * ENTRY;
+    for(int l = 0, c = size, n = LEAF; l < levels; l++, n = NODE) {
+      c = (c + n - 1) / n;
+      offsets[l] = off;
+      counts[l] = c;
+      off += c * 8L;
+    }
+  }
+
+  /**
+   * Writes a tree with the specified keys.
+   * @param file index file
+   * @param keys positions of the keys in the value index
+   * @param values numeric values of the keys (will be sorted as well)
+   * @throws IOException I/O exception
+   */
+  static void write(final IOFile file, final IntList keys, final double[] values)
+      throws IOException {
+
+    keys.sort(values, true);
+    final int size = keys.size();
+    // compute number of inner levels
+    int levels = 0;
+    for(int c = size, n = LEAF; c > n; n = NODE) {
+      c = (c + n - 1) / n;
+      levels++;
+    }
+
+    try(final DataOutput out = new DataOutput(file)) {
+      out.write4(size);
+      out.write4(levels);
+      for(int e = 0; e < size; e++) {
+        out.write8(Double.doubleToRawLongBits(values[e]));
+        out.write4(keys.get(e));
+      }
+      // inner levels: smallest value of each node of the level below
+      double[] level = values;
+      for(int l = 0, c = size, n = LEAF; l < levels; l++, n = NODE) {
+        final int nc = (c + n - 1) / n;
+        final double[] next = new double[nc];
+        for(int i = 0; i < nc; i++) {
+          next[i] = level[i * n];
+          out.write8(Double.doubleToRawLongBits(next[i]));
+        }
+        level = next;
+        c = nc;
+      }
+    }
+  }
+
+  /**
+   * Returns the positions of all keys within the specified range, sorted by their values.
+   * @param range numeric range
+   * @return key positions
+   */
+  synchronized IntList keys(final NumericRange range) {
+    final IntList keys = new IntList();
+    for(int e = first(range); e < size; e++) {
+      final long off = HEADER + (long) e * ENTRY;
+      final double v = value(off);
+      if(range.mxi ? v > range.max : v >= range.max) break;
+      keys.add(da.read4(off + 8));
+    }
+    return keys;
+  }
+
+  /**
+   * Closes the tree.
+   */
+  synchronized void close() {
+    da.close();
+  }
+
+  /**
+   * Returns the position of the first entry that is not smaller than the minimum of the
+   * specified range.
+   * @param range numeric range
+   * @return entry position
+   */
+  private int first(final NumericRange range) {
+    // descend from the root to the leaf that may contain the first entry
+    int node = 0;
+    for(int l = offsets.length - 1; l >= 0; l--) {
+      // find last child whose smallest value is below the minimum
+      int lo = node * NODE, hi = Math.min(lo + NODE, counts[l]) - 1;
+      while(lo < hi) {
+        final int m = lo + hi + 1 >>> 1;
+        if(below(value(offsets[l] + m * 8L), range)) lo = m;
+        else hi = m - 1;
+      }
+      node = lo;
+    }
+    // scan leaf; the first entry may also be the first entry of the next leaf
+    int e = node * LEAF;
+    while(e < size && below(value(HEADER + (long) e * ENTRY), range)) e++;
+    return e;
+  }
+
+  /**
+   * Checks if the specified value is smaller than the minimum of the range.
+   * @param value value
+   * @param range numeric range
+   * @return result of check
+   */
+  private static boolean below(final double value, final NumericRange range) {
+    return range.mni ? value < range.min : value <= range.min;
+  }
+
+  /**
+   * Reads a double value.
+   * @param off file offset
+   * @return value
+   */
+  private double value(final long off) {
+    return Double.longBitsToDouble((long) da.read4(off) << 32 | da.read4(off + 4) & 0xFFFFFFFFL);
+  }
+}
@@ -1,10 +1,18 @@
 package org.basex.index.value;
 
 import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 import org.basex.util.list.*;
@@ -13,12 +21,37 @@ import org.basex.util.list.*;
  * This class provides access and update functions to attribute values and text contents stored on
  * disk. The data structure is described in the {@link DiskValuesBuilder} class.
  *
+ * <p>The index files are never changed in place. Updates are added to an in-memory segment
+ * ({@link DiskValuesDelta}), which is written to an immutable segment on disk
+ * ({@link DiskValuesSegment}) as soon as it exceeds a limit. Deletions are recorded as ids,
+ * which hide the entries of all older segments and the index files. If the number of segments
+ * on disk exceeds a limit, they are merged with the index files in a background thread.</p>
+ *
+ * <p>Query results are composed from the index files and all segments. The keys of the index
+ * files are stored in a separate file ({@code 'k'}), as the texts of deleted ids cannot be
+ * accessed anymore. This file ends with the sequence number of the last segment that has been
+ * merged with the index files. The sequence numbers of the segments on disk and the in-memory
+ * segment are stored in the file with suffix {@code 'u'}.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class UpdatableDiskValues extends DiskValues {
-  /** Free slots. */
-  private final FreeSlots free = new FreeSlots();
+  /** Number of pending updates after which the in-memory segment will be written to disk. */
+  private static final int MEMTABLE = 1 << 16;
+  /** Number of segments on disk after which they will be merged with the index files. */
+  private static final int SEGMENTS = 8;
+
+  /** File prefix. */
+  private final String pref;
+  /** Segments on disk, oldest first. */
+  private final ArrayList<DiskValuesSegment> segments = new ArrayList<>();
+  /** In-memory segment. */
+  private DiskValuesDelta delta;
+  /** Sequence number of the last segment that has been merged with the index files. */
+  private int seq;
+  /** Thread that merges segments with the index files (can be {@code null}). */
+  private Thread merger;
 
   /**
    * Constructor, initializing the index structure.
@@ -28,255 +61,362 @@ public final class UpdatableDiskValues extends DiskValues {
    */
   public UpdatableDiskValues(final Data data, final boolean text) throws IOException {
     super(data, text, text ? DATATXT : DATAATV);
+    pref = text ? DATATXT : DATAATV;
+    seq = seq();
+
+    // read segments that have not been merged yet
+    final IOFile file = data.meta.dbfile(pref + 'u');
+    if(file.exists()) {
+      try(final DataInput in = new DataInput(file)) {
+        for(int s = in.readNum(); s > 0; s--) {
+          final int sq = in.readNum();
+          if(sq > seq) segments.add(new DiskValuesSegment(this, pref, sq));
+        }
+        final DiskValuesDelta dlt = new DiskValuesDelta(in);
+        if(dlt.seq > seq) delta = dlt;
+      }
+    }
+    if(delta == null) delta = new DiskValuesDelta(next());
+  }
+
+  @Override
+  int pre(final int id) {
+    return pre(id, seq);
+  }
+
+  /**
+   * Returns the {@code pre} value for the specified id.
+   * @param id id value
+   * @param sq sequence number of the segment that contains the id
+   * @return pre value, or {@code -1} if the id has been deleted in a newer segment
+   */
+  int pre(final int id, final int sq) {
+    for(final DiskValuesSegment segment : segments) {
+      if(segment.seq > sq && segment.deleted.contains(id)) return -1;
+    }
+    return delta.deleted.contains(id) ? -1 : data.pre(id);
   }
 
   @Override
-  protected int pre(final int id) {
-    return data.pre(id);
+  public synchronized int costs(final IndexToken it) {
+    long costs = super.costs(it);
+    for(final DiskValuesSegment segment : segments) costs += segment.costs(it);
+    costs += matches(it).size();
+    return (int) Math.min(costs, Integer.MAX_VALUE);
   }
 
   @Override
-  public synchronized void add(final TokenObjMap<IntList> map) {
-    // create a sorted list of the new keys and update the old keys
-    final TokenList newKeys = new TokenList();
+  public synchronized IndexIterator iter(final IndexToken it) {
+    if(segments.isEmpty() && delta.size == 0) return super.iter(it);
+
+    final IntList pres = new IntList();
+    add(super.iter(it), pres);
+    for(final DiskValuesSegment segment : segments) add(segment.iter(it), pres);
+    final IntList ids = matches(it);
+    final int is = ids.size();
+    for(int i = 0; i < is; i++) pres.add(data.pre(ids.get(i)));
+    return iter(pres.sort());
+  }
 
-    // update id lists of existing keys (use sorted map to allow for binary search)
-    int index = 0;
-    final int sz = size();
-    for(final byte[] key : new TokenList(map).sort(true)) {
-      index = get(key, index, sz);
-      if(index >= 0) {
-        final int[] ids = map.get(key).finish();
-        final long off = idxr.read5(index * 5L);
-        final int oldSize = idxl.readNum(off);
-        final IntList il = new IntList(oldSize + ids.length);
-        for(int o = 0, c = 0; o < oldSize; ++o) {
-          c += idxl.readNum();
-          il.add(c);
-        }
-        // write new ids
-        free.add((int) (idxl.cursor() - off), off);
-        writeIds(key, il.add(ids), index++);
-      } else {
-        index = -(index + 1);
-        newKeys.add(key);
-      }
+  @Override
+  public synchronized EntryIterator entries(final IndexEntries input) {
+    if(segments.isEmpty() && delta.isEmpty()) return super.entries(input);
+
+    // collect keys of the index files and all segments
+    final TokenSet set = new TokenSet();
+    add(super.entries(input), set);
+    for(final DiskValuesSegment segment : segments) add(segment.entries(input), set);
+    final byte[] token = input.get();
+    for(final byte[] key : delta.ids) {
+      if(delta.ids.get(key).isEmpty()) continue;
+      if(token.length == 0 || (input.prefix ? startsWith(key, token) :
+        input.descending ? diff(key, token) < 0 : diff(key, token) >= 0)) set.put(key);
+    }
+
+    // count ids that have not been deleted, skip keys without ids
+    final TokenList keys = new TokenList(set.size());
+    final IntList counts = new IntList(set.size());
+    for(final byte[] key : new TokenList(set).sort(true, !input.descending)) {
+      int c = count(key);
+      for(final DiskValuesSegment segment : segments) c += segment.count(key);
+      final IntList ids = delta.ids.get(key);
+      if(ids != null) c += ids.size();
+      if(c == 0) continue;
+      keys.add(key);
+      counts.add(c);
     }
+    return new EntryIterator() {
+      final int ks = keys.size();
+      int k = -1;
+
+      @Override
+      public byte[] next() {
+        return ++k < ks ? keys.get(k) : null;
+      }
 
-    // insert new keys in descending order
-    final int ns = newKeys.size();
-    for(int j = ns - 1, oldIndex = sz - 1, newIndex = sz + j; j >= 0; --j) {
-      final byte[] key = newKeys.get(j);
-      final int idx = -(1 + get(key, 0, oldIndex + 1));
-      if(idx < 0) throw Util.notExpected("Key should not exist: '%'", key);
-
-      // create space for new entry
-      while(oldIndex >= idx) {
-        final long off = idxr.read5(oldIndex * 5L);
-        writeIdOffset(newIndex--, off, ctext.put(oldIndex--, null));
+      @Override
+      public int count() {
+        return k < ks ? counts.get(k) : -1;
       }
-      // add the new key and its ids
-      writeIds(key, map.get(key), newIndex--);
+    };
+  }
+
+  @Override
+  public synchronized void add(final TokenObjMap<IntList> map) {
+    prepare();
+    for(final byte[] key : map) {
+      final IntList ids = map.get(key);
+      final int is = ids.size();
+      for(int i = 0; i < is; i++) delta.add(key, ids.get(i));
     }
-    size(sz + ns);
+    freeze();
   }
 
   @Override
   public synchronized void delete(final TokenObjMap<IntList> map) {
-    // delete ids and create a list of the key positions which should be deleted
-    final IntList il = new IntList(map.size());
-
-    // add sorted keys (allows faster binary search)
-    int p = 0;
-    final int sz = size();
-    for(final byte[] key : new TokenList(map).sort(true)) {
-      p = get(key, p, sz);
-      if(p < 0) throw Util.notExpected("Key does not exist: '%'", key);
-      if(deleteIds(p, key, map.get(key).sort().finish())) il.add(p);
-      p++;
+    prepare();
+    for(final byte[] key : map) {
+      final IntList ids = map.get(key);
+      final int is = ids.size();
+      for(int i = 0; i < is; i++) delta.delete(key, ids.get(i));
     }
-    // empty should contain sorted keys, since keys were sorted, too
-    if(!il.isEmpty()) deleteKeys(il.finish());
+    freeze();
   }
 
   @Override
   public synchronized void replace(final byte[] old, final byte[] key, final int id) {
-    // delete the id from the old key
-    final int p = get(old);
-    if(p >= 0) {
-      final int[] tmp = { id };
-      if(deleteIds(p, old, tmp)) {
-        tmp[0] = p;
-        deleteKeys(tmp);
-      }
-    }
+    prepare();
+    delta.delete(old, id);
+    delta.add(key, id);
+    freeze();
+  }
 
-    final IntList newIds;
-    int index = get(key);
-    if(index < 0) {
-      newIds = new IntList(1).add(id);
-
-      // new id list
-      index = -(index + 1);
-      // create space for new entry
-      final int sz = size() + 1;
-      final byte[] tmp = idxr.readBytes(0, sz * 5);
-      for(int i = sz - 1; i > index; --i) copy(tmp, i, i - 1);
-      idxr.cursor(0);
-      idxr.writeBytes(tmp, 0, sz * 5);
-      size(sz);
+  /**
+   * Writes the sequence numbers of the segments on disk and the in-memory segment.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  public synchronized void write(final DataOutput out) throws IOException {
+    out.writeNum(segments.size());
+    for(final DiskValuesSegment segment : segments) out.writeNum(segment.seq);
+    delta.write(out);
+  }
 
-    } else {
-      // add id to the existing id list
-      final long off = idxr.read5(index * 5L);
-      final int num = idxl.readNum(off);
-      final int newSize = num + 1;
-      newIds = new IntList(newSize);
-
-      boolean notadded = true;
-      int prevId = 0;
-      for(int i = 0; i < num; ++i) {
-        int v = idxl.readNum();
-        if(notadded && id < prevId + v) {
-          // add the new id
-          newIds.add(id);
-          notadded = false;
-          // decrement the difference to the next id
-          v -= id - prevId;
-          prevId = id;
-        }
-        newIds.add(id);
-        prevId += v;
-      }
-      if(notadded) newIds.add(id);
+  @Override
+  public void close() {
+    finish();
+    synchronized(this) {
+      for(final DiskValuesSegment segment : segments) segment.close();
+      super.close();
     }
-    // write new ids
-    writeIds(key, newIds, index);
+  }
+
+  @Override
+  public boolean drop() {
+    finish();
+    return super.drop();
   }
 
   /**
-   * Removes record ids from the index.
-   * @param index index of the key
-   * @param key record key
-   * @param ids list of record ids to delete
-   * @return {@code true} if list was completely deleted
+   * Writes the in-memory segment to disk if the number of pending updates exceeds the limit,
+   * and starts merging the segments if their number exceeds the limit.
    */
-  private boolean deleteIds(final int index, final byte[] key, final int[] ids) {
-    final long off = idxr.read5(index * 5L);
-
-    // read each id from the list and skip the ones that should be deleted
-    final int oldSize = idxl.readNum(off), delSize = ids.length, newSize = oldSize - delSize;
-    final IntList newIds = new IntList(newSize);
-    for(int o = 0, d = 0, currId = 0; o < oldSize; o++) {
-      currId += idxl.readNum();
-      if(d < delSize && currId == ids[d]) d++;
-      else newIds.add(currId);
+  private void freeze() {
+    if(delta.pending() < MEMTABLE) return;
+    try {
+      segments.add(DiskValuesSegment.write(this, pref, delta));
+    } catch(final IOException ex) {
+      throw Util.notExpected(ex);
     }
+    delta = new DiskValuesDelta(next());
+    merge();
+  }
 
-    // remove old ids
-    free.add((int) (idxl.cursor() - off), off);
+  /**
+   * Returns the next sequence number.
+   * @return sequence number
+   */
+  private int next() {
+    return (segments.isEmpty() ? seq : segments.get(segments.size() - 1).seq) + 1;
+  }
+
+  /**
+   * Merges the segments on disk with the index files if their number exceeds the limit.
+   * The index files are written in a background thread. Queries will be answered by the
+   * original files and segments until the merge has been finished.
+   */
+  private void merge() {
+    if(merger != null || segments.size() < SEGMENTS) return;
+
+    final DiskValuesSegment[] merged = segments.toArray(new DiskValuesSegment[segments.size()]);
+    final int ms = merged.length;
+    merger = new Thread() {
+      @Override
+      public void run() {
+        try {
+          // each structure is filtered by the deletions of all newer segments
+          final DiskValuesMerger[] vm = new DiskValuesMerger[ms + 1];
+          vm[0] = new DiskValuesMerger(data, text, pref, false, true, deleted(merged, 0));
+          for(int m = 0; m < ms; m++) {
+            vm[m + 1] = new DiskValuesMerger(data, text, merged[m].pref, false, true,
+                deleted(merged, m + 1));
+          }
+          final DiskValuesBuilder builder = new DiskValuesBuilder(data, text);
+          builder.merge(vm, pref + 'm', merged[ms - 1].seq);
+          builder.numbers(pref + 'm');
+          swap(merged);
+        } catch(final IOException ex) {
+          Util.debug(ex);
+          data.meta.drop(pref + "m.");
+          synchronized(UpdatableDiskValues.this) {
+            merger = null;
+          }
+        }
+      }
+    };
+    merger.setDaemon(true);
+    merger.start();
+  }
 
-    // delete cached index entry if no ids remain
-    if(newSize == 0) {
-      cache.delete(key);
-      return true;
+  /**
+   * Replaces the index files with the merged files.
+   * @param merged segments that have been merged
+   * @throws IOException I/O exception
+   */
+  private synchronized void swap(final DiskValuesSegment[] merged) throws IOException {
+    super.close();
+    // keys will be replaced last, as they contain the sequence number of the merge
+    for(final char c : new char[] { 'l', 'r', 'n', 'k' }) {
+      final IOFile file = data.meta.dbfile(pref + c);
+      file.delete();
+      final IOFile mfile = data.meta.dbfile(pref + 'm' + c);
+      if(mfile.exists()) mfile.rename(file);
+    }
+    open(pref);
+    seq = seq();
+    for(final DiskValuesSegment segment : merged) {
+      segment.close();
+      segment.drop();
     }
+    segments.removeAll(Arrays.asList(merged));
+    merger = null;
+  }
 
-    // write new ids
-    writeIds(key, newIds, index);
-    return false;
+  /**
+   * Waits until a running merge has been finished.
+   */
+  private void finish() {
+    final Thread thread;
+    synchronized(this) {
+      thread = merger;
+    }
+    if(thread == null) return;
+    try {
+      thread.join();
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+    }
   }
 
   /**
-   * Deletes keys from the index.
-   * @param keys list of key positions to delete
+   * Prepares the index for updates. Indexes of older versions, which have been updated in
+   * place, have no file with keys. It will be created before the first update.
    */
-  private void deleteKeys(final int[] keys) {
-    int sz = size();
-    final int kl = keys.length;
-    final byte[] tmp = idxr.readBytes(0, sz * 5);
-    for(int k = 0, newIndex = keys[k++], oldIndex = newIndex + 1; oldIndex < sz; oldIndex++) {
-      if(k < kl && oldIndex == keys[k]) {
-        k++;
-      } else {
-        copy(tmp, oldIndex, newIndex++);
+  private void prepare() {
+    if(keys != null) return;
+    final IOFile file = data.meta.dbfile(pref + 'k');
+    final int sz = size();
+    final long[] offsets = new long[sz];
+    try {
+      synchronized(monitor) {
+        try(final DataOutput out = new DataOutput(file)) {
+          for(int i = 0; i < sz; i++) {
+            idxl.readNum(idxr.read5(i * 5L));
+            offsets[i] = out.size();
+            out.writeToken(key(i, idxl.readNum()));
+          }
+          for(final long offset : offsets) out.write5(offset);
+          out.write4(seq);
+          out.write4(sz);
+        }
+        keys = new DataAccess(file);
       }
+    } catch(final IOException ex) {
+      throw Util.notExpected(ex);
     }
-    sz -= kl;
-    size(sz);
+  }
 
-    idxr.cursor(0);
-    idxr.writeBytes(tmp, 0, sz * 5);
+  /**
+   * Returns the sequence number of the last segment that has been merged with the index files.
+   * @return sequence number
+   */
+  private int seq() {
+    return keys == null ? 0 : keys.read4(keys.length() - 8);
   }
 
   /**
-   * Copies an ID reference entry in the array.
-   * @param tmp reference array
-   * @param oldIndex old position
-   * @param newIndex new position
+   * Returns the ids of the in-memory segment that match the specified token.
+   * @param it index token
+   * @return ids
    */
-  private void copy(final byte[] tmp, final int oldIndex, final int newIndex) {
-    System.arraycopy(tmp, oldIndex * 5, tmp, newIndex * 5, 5);
-    ctext.put(newIndex, ctext.put(oldIndex, null));
+  private IntList matches(final IndexToken it) {
+    final IntList list = new IntList();
+    if(it instanceof StringRange || it instanceof NumericRange) {
+      for(final byte[] key : delta.ids) {
+        if(it instanceof StringRange ? contains((StringRange) it, key) :
+          ((NumericRange) it).contains(toDouble(key))) list.add(delta.ids.get(key).toArray());
+      }
+    } else {
+      final IntList ids = delta.ids.get(it.get());
+      if(ids != null) list.add(ids.toArray());
+    }
+    return list;
   }
 
   /**
-   * Writes a new ID list.
+   * Checks if a key is contained in a string range.
+   * @param range range
    * @param key key
-   * @param ids id list
-   * @param index index in reference file
+   * @return result of check
    */
-  private void writeIds(final byte[] key, final IntList ids, final int index) {
-    // compute compressed size of distance list
-    final int[] dists = distances(ids);
-    final int sz = dists.length;
-    int bytes = Num.length(sz);
-    for(final int id : dists) bytes += Num.length(id);
-
-    // choose new insertion position (append at the end if no slot is found)
-    final long offset = free.get(bytes, idxl.length());
-
-    // write new id values
-    writeIdOffset(index, offset, key);
-    idxl.writeNums(offset, dists);
-
-    // update the cache entry
-    cache.add(key, sz, offset + Num.length(sz));
+  private static boolean contains(final StringRange range, final byte[] key) {
+    final int mn = diff(key, range.min), mx = diff(key, range.max);
+    return (mn > 0 || range.mni && mn == 0) && (mx < 0 || range.mxi && mx == 0);
   }
 
   /**
-   * Updates an ID reference.
-   * @param index index in reference file
-   * @param offset offset of ID list
-   * @param key key
+   * Returns the deletions of the specified segments.
+   * @param merged segments to be merged
+   * @param start index of the first segment
+   * @return deleted ids
    */
-  private void writeIdOffset(final int index, final long offset, final byte[] key) {
-    idxr.write5(index * 5L, offset);
-    ctext.put(index, key);
+  private static IntSet[] deleted(final DiskValuesSegment[] merged, final int start) {
+    final int ms = merged.length;
+    final IntSet[] deleted = new IntSet[ms - start];
+    for(int m = start; m < ms; m++) deleted[m - start] = merged[m].deleted;
+    return deleted;
   }
 
   /**
-   * Assigns the number of index entries.
-   * @param sz number of index entries
+   * Adds the results of an iterator.
+   * @param iter iterator
+   * @param pres pre values
    */
-  private void size(final int sz) {
-    size.set(sz);
-    idxl.write4(0, sz);
+  private static void add(final IndexIterator iter, final IntList pres) {
+    while(iter.more()) pres.add(iter.pre());
   }
 
   /**
-   * Returns a new array which contains the id distances in ascending order.
-   * @param ids id list
-   * @return differences
+   * Adds the keys of an iterator.
+   * @param iter iterator
+   * @param keys keys
    */
-  private static int[] distances(final IntList ids) {
-    final int[] tmp = ids.sort().finish();
-    for(int l = tmp.length - 1; l > 0; --l) tmp[l] -= tmp[l - 1];
-    return tmp;
+  private static void add(final EntryIterator iter, final TokenSet keys) {
+    for(byte[] key; (key = iter.next()) != null;) keys.put(key);
   }
 
   @Override
   public String toString() {
-    return super.toString() + "FREE BLOCKS: " + free;
+    return super.toString() + "SEGMENTS: " + segments.size() + ", PENDING: " + delta.pending();
   }
 }
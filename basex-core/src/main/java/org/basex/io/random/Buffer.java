@@ -9,10 +9,26 @@ import org.basex.io.*;
  * @author Christian Gruen
  */
 final class Buffer {
+  /** Queue flag: buffer has not been assigned yet. */
+  static final int NONE = 0;
+  /** Queue flag: probation queue. */
+  static final int IN = 1;
+  /** Queue flag: main queue. */
+  static final int MAIN = 2;
+
   /** Buffer data. */
   final byte[] data = new byte[IO.BLOCKSIZE];
   /** Disk offset, or block position. */
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+
+  /** Queue of the buffer. */
+  int queue = NONE;
+  /** Previous buffer in the queue. */
+  Buffer prev;
+  /** Next buffer in the queue. */
+  Buffer next;
+  /** Next buffer in the hash bucket. */
+  Buffer hnext;
 }
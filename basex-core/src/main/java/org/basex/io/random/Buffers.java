@@ -1,32 +1,92 @@
 package org.basex.io.random;
 
+import java.util.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides a buffer pool with hash-based page lookup and a scan-resistant
+ * replacement policy (2Q, as introduced by Johnson and Shasha).
+ *
+ * Pages that are requested for the first time are placed in a FIFO probation queue.
+ * Only pages that are requested again after having been evicted from this queue (as recorded
+ * in a queue of ghost entries) are promoted to the main LRU queue. As a result, pages that are
+ * only touched once, such as those read by a sequential scan, will not displace the working set.
+ *
+ * Buffers are allocated lazily, so large pools do not occupy memory before they are needed.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
-  /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
-  /** Current buffer offset. */
-  private int off;
+  /** Default number of buffers. */
+  static final int BUFFERS = 1 << 4;
+
+  /** Buffers (allocated on demand). */
+  private final Buffer[] buf;
+  /** Hash buckets (page lookup). */
+  private final Buffer[] buckets;
+  /** Maximum size of the probation queue. */
+  private final int maxIn;
+  /** Number of allocated buffers. */
+  private int size;
+
+  /** Current buffer. */
+  private Buffer current;
+  /** Head of the probation queue (oldest entry). */
+  private Buffer inHead;
+  /** Tail of the probation queue (newest entry). */
+  private Buffer inTail;
+  /** Number of buffers in the probation queue. */
+  private int inSize;
+  /** Head of the main queue (least recently used entry). */
+  private Buffer mainHead;
+  /** Tail of the main queue (most recently used entry). */
+  private Buffer mainTail;
+
+  /** Positions of evicted probation pages (ring buffer). */
+  private final long[] ghosts;
+  /** Chained indexes of ghost entries. */
+  private final int[] ghostNext;
+  /** Hash buckets of ghost entries (index + 1, or 0). */
+  private final int[] ghostBuckets;
+  /** Next ghost index to be written. */
+  private int ghostPos;
+  /** Number of ghost entries. */
+  private int ghostSize;
+
+  /** Number of page requests served by the pool. */
+  private long hits;
+  /** Number of page requests that required a buffer to be (re)loaded. */
+  private long misses;
 
   /**
-   * Constructor.
+   * Constructor, using the default number of buffers.
    */
   Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+    this(BUFFERS);
   }
 
   /**
-   * Returns all buffers.
+   * Constructor.
+   * @param capacity maximum number of buffers (at least 2 will be assigned)
+   */
+  Buffers(final int capacity) {
+    final int c = Math.max(2, capacity);
+    buf = new Buffer[c];
+    buckets = new Buffer[Integer.highestOneBit(c) << 1];
+    maxIn = Math.max(1, c >>> 2);
+    final int g = Math.max(1, c >>> 1);
+    ghosts = new long[g];
+    ghostNext = new int[g];
+    ghostBuckets = new int[Integer.highestOneBit(g) << 1];
+    current = buffer();
+  }
+
+  /**
+   * Returns all allocated buffers.
    * @return buffers
    */
   Buffer[] all() {
-    return buf;
+    return size == buf.length ? buf : Arrays.copyOf(buf, size);
   }
 
   /**
@@ -34,20 +94,270 @@ final class Buffers {
    * @return current buffer
    */
   Buffer current() {
-    return buf[off];
+    return current;
   }
 
   /**
-   * Chooses a buffer and sets the offset.
+   * Chooses a buffer for the specified page and makes it the current one.
+   * If the page is not cached yet, a free or evicted buffer will be returned. In this case,
+   * the caller is expected to write back the buffer if it is dirty, and to assign the new
+   * position and contents.
    * @param p buffer pointer
    * @return true if cursor has changed
    */
   boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
+    if(current.pos == p) return false;
+
+    // page is cached
+    final Buffer cached = find(p);
+    if(cached != null) {
+      // pages in the probation queue are not touched (correlated references)
+      if(cached.queue == Buffer.MAIN) {
+        unlink(cached);
+        appendMain(cached);
+      }
+      ++hits;
+      current = cached;
+      return false;
+    }
+
+    // page is not cached: choose free or evicted buffer
+    ++misses;
+    // pages that were recently evicted from the probation queue will be promoted
+    final boolean promote = removeGhost(p);
+    final Buffer bf;
+    if(current.queue == Buffer.NONE) {
+      // initial buffer
+      bf = current;
+    } else if(size < buf.length) {
+      bf = buffer();
+    } else if(inSize > maxIn || mainHead == null) {
+      bf = inHead;
+      unlink(bf);
+      addGhost(bf.pos);
+      remove(bf);
+    } else {
+      bf = mainHead;
+      unlink(bf);
+      remove(bf);
+    }
+
+    if(promote) appendMain(bf);
+    else appendIn(bf);
+
+    // the caller will assign the new position
+    final int h = hash(p, buckets.length);
+    bf.hnext = buckets[h];
+    buckets[h] = bf;
+    current = bf;
     return true;
   }
+
+  /**
+   * Checks if the specified page is cached. The replacement queues are not changed.
+   * @param p page position
+   * @return result of check
+   */
+  boolean contains(final long p) {
+    return find(p) != null;
+  }
+
+  /**
+   * Discards the buffers of all pages at or after the specified position.
+   * The contents of these buffers will not be written back.
+   * @param p first page position
+   */
+  void discard(final long p) {
+    for(int b = 0; b < size; b++) {
+      final Buffer bf = buf[b];
+      if(bf.pos >= p) {
+        remove(bf);
+        bf.pos = -1;
+        bf.dirty = false;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of allocated buffers.
+   * @return number of buffers
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the maximum number of buffers.
+   * @return number of buffers
+   */
+  int capacity() {
+    return buf.length;
+  }
+
+  /**
+   * Returns the number of page requests that were served from the pool.
+   * @return number of hits
+   */
+  long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of page requests that required a buffer to be loaded.
+   * @return number of misses
+   */
+  long misses() {
+    return misses;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Allocates a new buffer.
+   * @return buffer
+   */
+  private Buffer buffer() {
+    final Buffer bf = new Buffer();
+    buf[size++] = bf;
+    return bf;
+  }
+
+  /**
+   * Returns the cached buffer for the specified page.
+   * @param p page position
+   * @return buffer or {@code null}
+   */
+  private Buffer find(final long p) {
+    for(Buffer b = buckets[hash(p, buckets.length)]; b != null; b = b.hnext) {
+      if(b.pos == p) return b;
+    }
+    return null;
+  }
+
+  /**
+   * Removes the specified buffer from the hash buckets.
+   * @param bf buffer
+   */
+  private void remove(final Buffer bf) {
+    final int h = hash(bf.pos, buckets.length);
+    Buffer prev = null;
+    for(Buffer b = buckets[h]; b != null; prev = b, b = b.hnext) {
+      if(b == bf) {
+        if(prev == null) buckets[h] = b.hnext;
+        else prev.hnext = b.hnext;
+        break;
+      }
+    }
+    bf.hnext = null;
+  }
+
+  /**
+   * Appends a buffer to the probation queue.
+   * @param bf buffer
+   */
+  private void appendIn(final Buffer bf) {
+    bf.queue = Buffer.IN;
+    bf.prev = inTail;
+    if(inTail == null) inHead = bf;
+    else inTail.next = bf;
+    inTail = bf;
+    ++inSize;
+  }
+
+  /**
+   * Appends a buffer to the main queue.
+   * @param bf buffer
+   */
+  private void appendMain(final Buffer bf) {
+    bf.queue = Buffer.MAIN;
+    bf.prev = mainTail;
+    if(mainTail == null) mainHead = bf;
+    else mainTail.next = bf;
+    mainTail = bf;
+  }
+
+  /**
+   * Removes a buffer from its queue.
+   * @param bf buffer
+   */
+  private void unlink(final Buffer bf) {
+    final boolean in = bf.queue == Buffer.IN;
+    if(bf.prev == null) {
+      if(in) inHead = bf.next;
+      else mainHead = bf.next;
+    } else {
+      bf.prev.next = bf.next;
+    }
+    if(bf.next == null) {
+      if(in) inTail = bf.prev;
+      else mainTail = bf.prev;
+    } else {
+      bf.next.prev = bf.prev;
+    }
+    if(in) --inSize;
+    bf.prev = null;
+    bf.next = null;
+  }
+
+  /**
+   * Records the position of a page that has been evicted from the probation queue.
+   * @param p page position
+   */
+  private void addGhost(final long p) {
+    if(p < 0) return;
+    final int g = ghostPos;
+    if(ghostSize == ghosts.length) unlinkGhost(g);
+    else ++ghostSize;
+    ghosts[g] = p;
+    final int h = hash(p, ghostBuckets.length);
+    ghostNext[g] = ghostBuckets[h];
+    ghostBuckets[h] = g + 1;
+    ghostPos = g + 1 == ghosts.length ? 0 : g + 1;
+  }
+
+  /**
+   * Removes the ghost entry of the specified page.
+   * @param p page position
+   * @return {@code true} if an entry was found
+   */
+  private boolean removeGhost(final long p) {
+    for(int i = ghostBuckets[hash(p, ghostBuckets.length)]; i != 0; i = ghostNext[i - 1]) {
+      if(ghosts[i - 1] == p) {
+        unlinkGhost(i - 1);
+        // invalidate entry; the slot will be reused when the ring buffer wraps around
+        ghosts[i - 1] = -1;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes the ghost entry at the specified index from its hash chain.
+   * @param g index
+   */
+  private void unlinkGhost(final int g) {
+    if(ghosts[g] == -1) return;
+    final int h = hash(ghosts[g], ghostBuckets.length);
+    int prev = 0;
+    for(int i = ghostBuckets[h]; i != 0; prev = i, i = ghostNext[i - 1]) {
+      if(i - 1 == g) {
+        if(prev == 0) ghostBuckets[h] = ghostNext[g];
+        else ghostNext[prev - 1] = ghostNext[g];
+        return;
+      }
+    }
+  }
+
+  /**
+   * Computes the hash bucket of a page position.
+   * @param p page position
+   * @param length number of buckets (power of two)
+   * @return bucket
+   */
+  private static int hash(final long p, final int length) {
+    int h = (int) (p ^ p >>> 32);
+    h *= 0x9E3779B9;
+    return (h ^ h >>> 16) & length - 1;
+  }
 }
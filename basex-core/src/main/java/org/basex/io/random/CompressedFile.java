@@ -0,0 +1,258 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+
+/**
+ * This class provides positional access to a file whose contents are stored in independently
+ * compressed chunks (see {@link LZCodec}). Each chunk is preceded by the length of its compressed
+ * data. A directory file contains the logical file length and the offsets and slot sizes of all
+ * chunks. A small cache keeps recently accessed chunks in decompressed form. Chunks that do not
+ * fit into their slot any more after an update will be relocated to the end of the file.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class CompressedFile {
+  /** Chunk size (power of two). */
+  private static final int CHUNKPOWER = 16;
+  /** Chunk size. */
+  static final int CHUNKSIZE = 1 << CHUNKPOWER;
+  /** Number of cached chunks. */
+  private static final int CACHE = 4;
+
+  /** Compressed file. */
+  private final RandomAccessFile file;
+  /** Directory file. */
+  private final IOFile dir;
+  /** Cached chunks. */
+  private final Chunk[] cache = new Chunk[CACHE];
+  /** File offsets of compressed chunks. */
+  private long[] offsets;
+  /** Slot sizes of compressed chunks (0: chunk has not been written yet). */
+  private int[] sizes;
+  /** End of the compressed file. */
+  private long end;
+  /** Logical file length. */
+  private long length;
+  /** Indicates if the directory has been changed. */
+  private boolean changed;
+  /** Access counter. */
+  private long access;
+
+  /**
+   * Constructor.
+   * @param file compressed file
+   * @param dir directory file
+   * @throws IOException I/O exception
+   */
+  CompressedFile(final RandomAccessFile file, final IOFile dir) throws IOException {
+    this.file = file;
+    this.dir = dir;
+    try(final DataInput in = new DataInput(dir)) {
+      length = in.read8();
+      offsets = in.readLongs(in.readNum());
+      sizes = in.readNums();
+    }
+    end = file.length();
+    // slots may exceed the end of the file
+    for(int c = 0; c < offsets.length; c++) end = Math.max(end, offsets[c] + sizes[c]);
+  }
+
+  /**
+   * Compresses the specified file and writes a directory.
+   * @param source file to be compressed (will be replaced)
+   * @param dir directory file
+   * @throws IOException I/O exception
+   */
+  static void compress(final IOFile source, final IOFile dir) throws IOException {
+    final IOFile tmp = new IOFile(source.path() + 'z');
+    final byte[] chunk = new byte[CHUNKSIZE];
+    final long len;
+    final long[] offs;
+    final int[] szs;
+    try(final RandomAccessFile in = new RandomAccessFile(source.file(), "r");
+        final DataOutput out = new DataOutput(tmp)) {
+      len = in.length();
+      final int n = (int) ((len + CHUNKSIZE - 1) >>> CHUNKPOWER);
+      offs = new long[n];
+      szs = new int[n];
+      long off = 0;
+      for(int c = 0; c < n; c++) {
+        final int l = (int) Math.min(CHUNKSIZE, len - ((long) c << CHUNKPOWER));
+        in.readFully(chunk, 0, l);
+        final byte[] data = LZCodec.encode(chunk, l);
+        out.write4(data.length);
+        out.writeBytes(data);
+        offs[c] = off;
+        szs[c] = data.length + 4;
+        off += szs[c];
+      }
+    }
+    writeDirectory(dir, len, offs, szs, offs.length);
+    if(!source.delete() || !tmp.rename(source))
+      throw new IOException("Could not replace " + source);
+  }
+
+  /**
+   * Returns the logical file length.
+   * @return length
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Reads a block from the specified position.
+   * @param pos position (aligned to {@link IO#BLOCKSIZE})
+   * @param data target buffer
+   * @throws IOException I/O exception
+   */
+  void read(final long pos, final byte[] data) throws IOException {
+    final Chunk ch = chunk(pos >>> CHUNKPOWER);
+    System.arraycopy(ch.data, (int) (pos & CHUNKSIZE - 1), data, 0, data.length);
+  }
+
+  /**
+   * Writes a block to the specified position.
+   * @param pos position (aligned to {@link IO#BLOCKSIZE})
+   * @param data source buffer
+   * @throws IOException I/O exception
+   */
+  void write(final long pos, final byte[] data) throws IOException {
+    final Chunk ch = chunk(pos >>> CHUNKPOWER);
+    System.arraycopy(data, 0, ch.data, (int) (pos & CHUNKSIZE - 1), data.length);
+    ch.dirty = true;
+  }
+
+  /**
+   * Assigns the logical file length.
+   * @param len length
+   */
+  void length(final long len) {
+    if(len != length) {
+      length = len;
+      changed = true;
+    }
+  }
+
+  /**
+   * Writes all dirty chunks and the directory.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    for(final Chunk ch : cache) if(ch != null && ch.dirty) store(ch);
+    if(changed) {
+      final int n = (int) Math.min((length + CHUNKSIZE - 1) >>> CHUNKPOWER, offsets.length);
+      writeDirectory(dir, length, offsets, sizes, n);
+      changed = false;
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the decompressed chunk with the specified index.
+   * @param c chunk index
+   * @return chunk
+   * @throws IOException I/O exception
+   */
+  private Chunk chunk(final long c) throws IOException {
+    // find cached chunk or least recently used entry
+    int lru = 0;
+    for(int i = 0; i < CACHE; i++) {
+      final Chunk ch = cache[i];
+      if(ch == null) {
+        lru = i;
+        break;
+      }
+      if(ch.index == c) {
+        ch.access = ++access;
+        return ch;
+      }
+      if(ch.access < cache[lru].access) lru = i;
+    }
+
+    Chunk ch = cache[lru];
+    if(ch == null) {
+      ch = new Chunk();
+      cache[lru] = ch;
+    } else if(ch.dirty) {
+      store(ch);
+    }
+    ch.index = c;
+    ch.access = ++access;
+
+    final int i = (int) c;
+    if(i < sizes.length && sizes[i] != 0) {
+      file.seek(offsets[i]);
+      final byte[] data = new byte[file.readInt()];
+      file.readFully(data);
+      Arrays.fill(ch.data, LZCodec.decode(data, data.length, ch.data), CHUNKSIZE, (byte) 0);
+    } else {
+      Arrays.fill(ch.data, (byte) 0);
+    }
+    return ch;
+  }
+
+  /**
+   * Compresses and writes the specified chunk.
+   * @param ch chunk
+   * @throws IOException I/O exception
+   */
+  private void store(final Chunk ch) throws IOException {
+    final byte[] data = LZCodec.encode(ch.data, CHUNKSIZE);
+    final int c = (int) ch.index;
+    if(c >= sizes.length) {
+      final int ns = Math.max(sizes.length << 1, c + 1);
+      offsets = Arrays.copyOf(offsets, ns);
+      sizes = Arrays.copyOf(sizes, ns);
+    }
+    final int size = data.length + 4;
+    if(size > sizes[c]) {
+      // relocate chunk to the end of the file, reserve some space for future updates
+      offsets[c] = end;
+      sizes[c] = size + (size >>> 3);
+      end += sizes[c];
+      changed = true;
+    }
+    file.seek(offsets[c]);
+    file.writeInt(data.length);
+    file.write(data);
+    ch.dirty = false;
+  }
+
+  /**
+   * Writes a directory file.
+   * @param dir directory file
+   * @param len logical file length
+   * @param offs chunk offsets
+   * @param szs slot sizes
+   * @param n number of chunks
+   * @throws IOException I/O exception
+   */
+  private static void writeDirectory(final IOFile dir, final long len, final long[] offs,
+      final int[] szs, final int n) throws IOException {
+    try(final DataOutput out = new DataOutput(dir)) {
+      out.write8(len);
+      out.writeLongs(Arrays.copyOf(offs, n));
+      out.writeNums(Arrays.copyOf(szs, n));
+    }
+  }
+
+  /** Decompressed chunk. */
+  private static final class Chunk {
+    /** Decompressed data. */
+    final byte[] data = new byte[CHUNKSIZE];
+    /** Chunk index. */
+    long index = -1;
+    /** Last access. */
+    long access;
+    /** Dirty flag. */
+    boolean dirty;
+  }
+}
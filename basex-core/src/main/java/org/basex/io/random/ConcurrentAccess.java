@@ -0,0 +1,91 @@
+package org.basex.io.random;
+
+import org.basex.util.*;
+
+/**
+ * This abstract class provides positional read access to a file, which can be used by
+ * concurrent threads without locking. Instances reflect the file contents at the time of
+ * their creation; they must be discarded before the file is modified.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+abstract class ConcurrentAccess {
+  /**
+   * Reads a byte value from the specified position.
+   * @param pos position
+   * @return unsigned byte value
+   */
+  abstract int read1(long pos);
+
+  /**
+   * Reads a number of bytes from the specified position.
+   * @param pos position
+   * @param len number of bytes
+   * @return byte array
+   */
+  abstract byte[] readBytes(long pos, int len);
+
+  /**
+   * Releases the resources of this instance.
+   */
+  void close() { }
+
+  /**
+   * Reads a short value from the specified position.
+   * @param pos position
+   * @return integer value
+   */
+  int read2(final long pos) {
+    return (read1(pos) << 8) + read1(pos + 1);
+  }
+
+  /**
+   * Reads an integer value from the specified position.
+   * @param pos position
+   * @return integer value
+   */
+  int read4(final long pos) {
+    return (read1(pos) << 24) + (read1(pos + 1) << 16) + (read1(pos + 2) << 8) + read1(pos + 3);
+  }
+
+  /**
+   * Reads a 5-byte value from the specified position.
+   * @param pos position
+   * @return long value
+   */
+  long read5(final long pos) {
+    return ((long) read1(pos) << 32) + ((long) read1(pos + 1) << 24) + (read1(pos + 2) << 16) +
+      (read1(pos + 3) << 8) + read1(pos + 4);
+  }
+
+  /**
+   * Reads a compressed number from the specified position.
+   * @param pos position
+   * @return integer value
+   */
+  int readNum(final long pos) {
+    final int value = read1(pos);
+    switch(value & 0xC0) {
+      case 0:
+        return value;
+      case 0x40:
+        return (value - 0x40 << 8) + read1(pos + 1);
+      case 0x80:
+        return (value - 0x80 << 24) + (read1(pos + 1) << 16) + (read1(pos + 2) << 8) +
+          read1(pos + 3);
+      default:
+        return read4(pos + 1);
+    }
+  }
+
+  /**
+   * Reads a token from the specified position.
+   * @param pos position
+   * @return token
+   */
+  byte[] readToken(final long pos) {
+    final int len = readNum(pos);
+    return readBytes(pos + Num.length(len), len);
+  }
+}
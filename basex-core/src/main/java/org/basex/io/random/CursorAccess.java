@@ -0,0 +1,116 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides concurrent read access to a file via thread-local cursors.
+ * Each thread reads the file with its own file handle and caches the last accessed block.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class CursorAccess extends ConcurrentAccess {
+  /** File. */
+  private final File file;
+  /** File length. */
+  private final long length;
+  /** All cursors that have been created so far. */
+  private final ArrayList<Cursor> cursors = new ArrayList<>();
+  /** Thread-local cursors. */
+  private final ThreadLocal<Cursor> cursor = new ThreadLocal<Cursor>() {
+    @Override
+    protected Cursor initialValue() {
+      final Cursor c = new Cursor();
+      synchronized(cursors) {
+        cursors.add(c);
+      }
+      return c;
+    }
+  };
+
+  /**
+   * Constructor.
+   * @param file file to be read
+   * @param length file length
+   */
+  CursorAccess(final File file, final long length) {
+    this.file = file;
+    this.length = length;
+  }
+
+  @Override
+  int read1(final long pos) {
+    final Buffer bf = buffer(pos);
+    return bf.data[(int) (pos - bf.pos)] & 0xFF;
+  }
+
+  @Override
+  byte[] readBytes(final long pos, final int len) {
+    final byte[] bytes = new byte[len];
+    long p = pos;
+    int o = 0;
+    while(o < len) {
+      final Buffer bf = buffer(p);
+      final int off = (int) (p - bf.pos), l = Math.min(len - o, IO.BLOCKSIZE - off);
+      System.arraycopy(bf.data, off, bytes, o, l);
+      o += l;
+      p += l;
+    }
+    return bytes;
+  }
+
+  @Override
+  void close() {
+    synchronized(cursors) {
+      for(final Cursor c : cursors) c.close();
+      cursors.clear();
+    }
+  }
+
+  /**
+   * Returns the buffer of the current thread, containing the block of the specified position.
+   * @param pos position
+   * @return buffer
+   */
+  private Buffer buffer(final long pos) {
+    final Cursor c = cursor.get();
+    final Buffer bf = c.buffer;
+    final long b = pos - (pos & IO.BLOCKSIZE - 1);
+    if(bf.pos != b) {
+      try {
+        if(c.raf == null) c.raf = new RandomAccessFile(file, "r");
+        c.raf.seek(b);
+        c.raf.readFully(bf.data, 0, (int) Math.min(length - b, IO.BLOCKSIZE));
+        bf.pos = b;
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    return bf;
+  }
+
+  /** Thread-local cursor. */
+  private static final class Cursor {
+    /** Buffer. */
+    final Buffer buffer = new Buffer();
+    /** File handle (opened on demand). */
+    RandomAccessFile raf;
+
+    /**
+     * Closes the file handle.
+     */
+    void close() {
+      if(raf == null) return;
+      try {
+        raf.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+      raf = null;
+    }
+  }
+}
@@ -7,6 +7,7 @@ import org.basex.util.*;
 
 /**
  * This class allows positional read and write access to a database file.
+ * If a directory file exists, the file contents are stored in compressed chunks.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -22,6 +23,14 @@ public final class DataAccess implements Closeable {
   private boolean changed;
   /** Offset. */
   private int off;
+  /** File. */
+  private final IOFile file;
+  /** Compressed file contents ({@code null} if the file is not compressed). */
+  private CompressedFile comp;
+  /** Lock-free read access (if assigned, positional reads will be performed without locking). */
+  private volatile ConcurrentAccess reader;
+  /** Redo log (if assigned, all changes will be recorded). */
+  private RedoLog log;
 
   /**
    * Constructor, initializing the file reader.
@@ -29,10 +38,26 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile file) throws IOException {
+    this(file, null);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param dir directory of compressed chunks (ignored if it is {@code null} or does not exist)
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final IOFile dir) throws IOException {
+    this.file = file;
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(file.file(), "rw");
-      length = f.length();
+      if(dir != null && dir.exists()) {
+        comp = new CompressedFile(f, dir);
+        length = comp.length();
+      } else {
+        length = f.length();
+      }
       raf = f;
       cursor(0);
     } catch(final IOException ex) {
@@ -41,14 +66,28 @@ public final class DataAccess implements Closeable {
     }
   }
 
+  /**
+   * Compresses the specified file and writes a directory of compressed chunks.
+   * @param file file to be compressed (will be replaced)
+   * @param dir directory file
+   * @throws IOException I/O Exception
+   */
+  public static void compress(final IOFile file, final IOFile dir) throws IOException {
+    CompressedFile.compress(file, dir);
+  }
+
   /**
    * Flushes the buffered data.
    */
   public synchronized void flush() {
     try {
       for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-      if(changed) {
+      if(comp != null) {
+        comp.length(length);
+        comp.flush();
+      } else if(changed) {
         raf.setLength(length);
+        if(log != null) log.length(file.name(), length);
         changed = false;
       }
     } catch(final IOException ex) {
@@ -56,8 +95,45 @@ public final class DataAccess implements Closeable {
     }
   }
 
+  /**
+   * Assigns a redo log, which will record all subsequent changes of the uncompressed file.
+   * @param rl redo log (may be {@code null})
+   */
+  public synchronized void journal(final RedoLog rl) {
+    log = comp == null ? rl : null;
+  }
+
+  /**
+   * Enables or disables lock-free read access. If enabled, all buffers will be flushed, and
+   * the positional read methods will access the file contents without locking, either via
+   * memory mapping or with thread-local cursors. Lock-free access must be disabled before the
+   * file is modified, and sequential reads must not be mixed with positional reads while it is
+   * enabled. Compressed files will always be accessed via the buffers.
+   * @param enable enable flag
+   * @param mapped use memory mapping
+   */
+  public synchronized void lockFree(final boolean enable, final boolean mapped) {
+    final ConcurrentAccess ca = reader;
+    reader = null;
+    if(ca != null) ca.close();
+    if(enable && comp == null) {
+      flush();
+      if(mapped) {
+        try {
+          reader = new MappedAccess(raf);
+          return;
+        } catch(final IOException ex) {
+          // fall back to thread-local cursors
+          Util.debug(ex);
+        }
+      }
+      reader = new CursorAccess(file.file(), length);
+    }
+  }
+
   @Override
   public synchronized void close() {
+    lockFree(false, false);
     flush();
     try {
       raf.close();
@@ -95,9 +171,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized byte read1(final long pos) {
-    cursor(pos);
-    return read1();
+  public byte read1(final long pos) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return (byte) ca.read1(pos);
+    synchronized(this) {
+      cursor(pos);
+      return read1();
+    }
   }
 
   /**
@@ -113,9 +193,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized int read4(final long pos) {
-    cursor(pos);
-    return read4();
+  public int read4(final long pos) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.read4(pos);
+    synchronized(this) {
+      cursor(pos);
+      return read4();
+    }
   }
 
   /**
@@ -131,9 +215,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return long value
    */
-  public synchronized long read5(final long pos) {
-    cursor(pos);
-    return read5();
+  public long read5(final long pos) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.read5(pos);
+    synchronized(this) {
+      cursor(pos);
+      return read5();
+    }
   }
 
   /**
@@ -149,9 +237,13 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return read num
    */
-  public synchronized int readNum(final long p) {
-    cursor(p);
-    return readNum();
+  public int readNum(final long p) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.readNum(p);
+    synchronized(this) {
+      cursor(p);
+      return readNum();
+    }
   }
 
   /**
@@ -159,9 +251,13 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long p) {
-    cursor(p);
-    return readToken();
+  public byte[] readToken(final long p) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.readToken(p);
+    synchronized(this) {
+      cursor(p);
+      return readToken();
+    }
   }
 
   /**
@@ -179,9 +275,13 @@ public final class DataAccess implements Closeable {
    * @param len length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long pos, final int len) {
-    cursor(pos);
-    return readBytes(len);
+  public byte[] readBytes(final long pos, final int len) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.readBytes(pos, len);
+    synchronized(this) {
+      cursor(pos);
+      return readBytes(len);
+    }
   }
 
   /**
@@ -221,9 +321,13 @@ public final class DataAccess implements Closeable {
     try {
       if(bf.dirty) writeBlock(bf);
       bf.pos = b;
-      raf.seek(bf.pos);
-      if(bf.pos < raf.length())
-        raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
+      if(comp != null) {
+        comp.read(bf.pos, bf.data);
+      } else {
+        raf.seek(bf.pos);
+        if(bf.pos < raf.length())
+          raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -376,10 +480,10 @@ public final class DataAccess implements Closeable {
   }
 
   /**
-   * Sets the file length.
+   * Sets the file length. Bytes beyond the new length will be discarded.
    * @param len file length
    */
-  private synchronized void length(final long len) {
+  public synchronized void length(final long len) {
     if(len != length) {
       changed = true;
       length = len;
@@ -443,9 +547,18 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer buffer) throws IOException {
-    final long pos = buffer.pos, len = Math.min(IO.BLOCKSIZE, length - pos);
-    raf.seek(pos);
-    raf.write(buffer.data, 0, (int) len);
+    final long pos = buffer.pos;
+    if(comp != null) {
+      comp.write(pos, buffer.data);
+    } else {
+      // skip blocks that have been discarded by truncating the file
+      final long len = Math.min(IO.BLOCKSIZE, length - pos);
+      if(len > 0) {
+        raf.seek(pos);
+        raf.write(buffer.data, 0, (int) len);
+        if(log != null) log.block(file.name(), pos, buffer.data, (int) len);
+      }
+    }
     buffer.dirty = false;
   }
 
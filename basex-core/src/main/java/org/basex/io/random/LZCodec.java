@@ -0,0 +1,147 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+/**
+ * This class compresses and decompresses blocks of bytes with a simple LZ77 variant
+ * (similar to the LZ4 block format). Blocks must not be larger than 64 KB.
+ *
+ * A compressed block consists of sequences, each of which contains:
+ * <ul>
+ *   <li>1 byte: number of literals (bits 7-4) and match length minus 4 (bits 3-0); a value of 15
+ *     indicates that additional length bytes follow (until a byte smaller than 255 is found)</li>
+ *   <li>literals</li>
+ *   <li>2 bytes: match offset (little endian), followed by optional match length bytes</li>
+ * </ul>
+ * The last sequence only contains literals.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class LZCodec {
+  /** Minimum match length. */
+  private static final int MINMATCH = 4;
+  /** Maximum match offset. */
+  private static final int MAXOFFSET = 0xFFFF;
+  /** Number of hash bits. */
+  private static final int HASHBITS = 14;
+
+  /** Private constructor. */
+  private LZCodec() { }
+
+  /**
+   * Compresses the specified bytes.
+   * @param input input
+   * @param len number of bytes to compress
+   * @return compressed bytes
+   */
+  static byte[] encode(final byte[] input, final int len) {
+    final byte[] out = new byte[len + len / 255 + 16];
+    final int[] table = new int[1 << HASHBITS];
+    Arrays.fill(table, -1);
+
+    int o = 0, anchor = 0, i = 0;
+    while(i + MINMATCH <= len) {
+      final int v = int4(input, i), h = v * 0x9E3779B1 >>> 32 - HASHBITS, ref = table[h];
+      table[h] = i;
+      if(ref < 0 || i - ref > MAXOFFSET || int4(input, ref) != v) {
+        ++i;
+        continue;
+      }
+      // extend match
+      int ml = MINMATCH;
+      while(i + ml < len && input[ref + ml] == input[i + ml]) ++ml;
+
+      final int ll = i - anchor, off = i - ref;
+      o = token(out, o, ll, ml - MINMATCH);
+      System.arraycopy(input, anchor, out, o, ll);
+      o += ll;
+      out[o++] = (byte) off;
+      out[o++] = (byte) (off >>> 8);
+      if(ml - MINMATCH >= 15) o = length(out, o, ml - MINMATCH - 15);
+      i += ml;
+      anchor = i;
+    }
+
+    // last literals
+    final int ll = len - anchor;
+    o = token(out, o, ll, 0);
+    System.arraycopy(input, anchor, out, o, ll);
+    return Arrays.copyOf(out, o + ll);
+  }
+
+  /**
+   * Decompresses the specified bytes.
+   * @param input compressed bytes
+   * @param len length of compressed bytes
+   * @param output output (must be large enough to store the decompressed bytes)
+   * @return number of decompressed bytes
+   */
+  static int decode(final byte[] input, final int len, final byte[] output) {
+    int i = 0, o = 0;
+    while(i < len) {
+      final int t = input[i++] & 0xFF;
+      // literals
+      int ll = t >>> 4;
+      if(ll == 15) {
+        int b;
+        do ll += b = input[i++] & 0xFF; while(b == 255);
+      }
+      System.arraycopy(input, i, output, o, ll);
+      i += ll;
+      o += ll;
+      if(i >= len) break;
+
+      // match
+      final int off = (input[i] & 0xFF) | (input[i + 1] & 0xFF) << 8;
+      i += 2;
+      int ml = t & 0x0F;
+      if(ml == 15) {
+        int b;
+        do ml += b = input[i++] & 0xFF; while(b == 255);
+      }
+      ml += MINMATCH;
+      // matches may overlap with the bytes to be written
+      for(int r = o - off, e = o + ml; o < e;) output[o++] = output[r++];
+    }
+    return o;
+  }
+
+  /**
+   * Writes a sequence token and the additional literal length bytes.
+   * @param out output
+   * @param o output offset
+   * @param ll number of literals
+   * @param ml match length, minus the minimum match length
+   * @return new output offset
+   */
+  private static int token(final byte[] out, final int o, final int ll, final int ml) {
+    out[o] = (byte) (Math.min(ll, 15) << 4 | Math.min(ml, 15));
+    return ll >= 15 ? length(out, o + 1, ll - 15) : o + 1;
+  }
+
+  /**
+   * Writes additional length bytes.
+   * @param out output
+   * @param o output offset
+   * @param len remaining length
+   * @return new output offset
+   */
+  private static int length(final byte[] out, final int o, final int len) {
+    int p = o, l = len;
+    for(; l >= 255; l -= 255) out[p++] = (byte) 255;
+    out[p++] = (byte) l;
+    return p;
+  }
+
+  /**
+   * Returns an integer from the specified position.
+   * @param input input
+   * @param i offset
+   * @return integer
+   */
+  private static int int4(final byte[] input, final int i) {
+    return (input[i] & 0xFF) << 24 | (input[i + 1] & 0xFF) << 16 |
+      (input[i + 2] & 0xFF) << 8 | input[i + 3] & 0xFF;
+  }
+}
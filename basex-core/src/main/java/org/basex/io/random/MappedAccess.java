@@ -0,0 +1,62 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class provides concurrent read access to a memory-mapped file.
+ * The file is mapped in chunks, which are multiples of the block size. As the contents of the
+ * mapped buffers are only accessed via absolute positions, no locking is required.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class MappedAccess extends ConcurrentAccess {
+  /** Chunk size (power of two). */
+  private static final int POWER = 30;
+  /** Bit mask for offsets in a chunk. */
+  private static final long MASK = (1L << POWER) - 1;
+
+  /** Mapped chunks. */
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * Constructor, mapping the current contents of the specified file.
+   * @param file file to be mapped
+   * @throws IOException I/O exception
+   */
+  MappedAccess(final RandomAccessFile file) throws IOException {
+    final FileChannel fc = file.getChannel();
+    final long len = fc.size();
+    final int cs = (int) (len + MASK >>> POWER);
+    chunks = new MappedByteBuffer[cs];
+    for(int c = 0; c < cs; c++) {
+      final long pos = (long) c << POWER;
+      chunks[c] = fc.map(MapMode.READ_ONLY, pos, Math.min(MASK + 1, len - pos));
+    }
+  }
+
+  @Override
+  int read1(final long pos) {
+    return chunks[(int) (pos >>> POWER)].get((int) (pos & MASK)) & 0xFF;
+  }
+
+  @Override
+  byte[] readBytes(final long pos, final int len) {
+    final byte[] bytes = new byte[len];
+    long p = pos;
+    int o = 0;
+    while(o < len) {
+      // create view to copy bytes without changing the position of the shared buffer
+      final ByteBuffer bb = chunks[(int) (p >>> POWER)].duplicate();
+      final int off = (int) (p & MASK), l = Math.min(len - o, bb.limit() - off);
+      bb.position(off);
+      bb.get(bytes, o, l);
+      o += l;
+      p += l;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,238 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+import org.basex.io.*;
+
+/**
+ * This class compresses and decompresses table pages.
+ *
+ * A page is split into four integer columns (bytes 0-3, 4-7, 8-11 and 12-15 of all
+ * {@link IO#ENTRIES} entries). Each column is encoded separately, either with frame-of-reference
+ * encoding (offsets to the minimum value) or with delta encoding (zigzag-encoded differences
+ * between subsequent values), depending on which of the two yields the smaller bit width.
+ * The resulting values are bit-packed. Columns with node ids or ascending text offsets
+ * can usually be stored with a few bits per entry.
+ *
+ * Encoded columns have the following layout:
+ * <ul>
+ *   <li>1 byte: encoding (bit 7: delta encoding) and bit width (bits 5-0)</li>
+ *   <li>4 bytes: base value (minimum or first value)</li>
+ *   <li>bit-packed values</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class PageCodec {
+  /** Number of columns. */
+  private static final int COLUMNS = 1 << IO.NODEPOWER >>> 2;
+  /** Delta encoding flag. */
+  private static final int DELTA = 0x80;
+
+  /** Private constructor. */
+  private PageCodec() { }
+
+  /**
+   * Compresses a page.
+   * @param page page ({@link IO#BLOCKSIZE} bytes)
+   * @return compressed page
+   */
+  static byte[] encode(final byte[] page) {
+    final int n = IO.ENTRIES;
+    final int[] values = new int[n], diffs = new int[n];
+    // maximum size: header and uncompressed values
+    final BitOutput out = new BitOutput(COLUMNS * (5 + (n << 2)));
+    for(int c = 0; c < COLUMNS; c++) {
+      int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE, or = 0;
+      for(int i = 0; i < n; i++) {
+        final int o = (i << IO.NODEPOWER) + (c << 2);
+        final int v = ((page[o] & 0xFF) << 24) + ((page[o + 1] & 0xFF) << 16) +
+          ((page[o + 2] & 0xFF) << 8) + (page[o + 3] & 0xFF);
+        values[i] = v;
+        if(v < min) min = v;
+        if(v > max) max = v;
+        if(i > 0) {
+          final int d = v - values[i - 1];
+          diffs[i] = d << 1 ^ d >> 31;
+          or |= diffs[i];
+        }
+      }
+      final int fw = bits((long) max - min), dw = bits(or & 0xFFFFFFFFL);
+      if(dw < fw) {
+        out.header(DELTA | dw, values[0]);
+        for(int i = 1; i < n; i++) out.write(diffs[i], dw);
+      } else {
+        out.header(fw, min);
+        for(int i = 0; i < n; i++) out.write(values[i] - min, fw);
+      }
+      out.align();
+    }
+    return out.finish();
+  }
+
+  /**
+   * Decompresses a page.
+   * @param input compressed page
+   * @param page target page ({@link IO#BLOCKSIZE} bytes)
+   */
+  static void decode(final byte[] input, final byte[] page) {
+    final int n = IO.ENTRIES;
+    final BitInput in = new BitInput(input);
+    for(int c = 0; c < COLUMNS; c++) {
+      final int h = in.read1(), w = h & 0x3F, base = in.read4();
+      final boolean delta = (h & DELTA) != 0;
+      int v = base;
+      for(int i = 0; i < n; i++) {
+        if(!delta) {
+          v = base + in.read(w);
+        } else if(i > 0) {
+          final int d = in.read(w);
+          v += d >>> 1 ^ -(d & 1);
+        }
+        final int o = (i << IO.NODEPOWER) + (c << 2);
+        page[o] = (byte) (v >>> 24);
+        page[o + 1] = (byte) (v >>> 16);
+        page[o + 2] = (byte) (v >>> 8);
+        page[o + 3] = (byte) v;
+      }
+      in.align();
+    }
+  }
+
+  /**
+   * Returns the number of bits required to store the specified unsigned value.
+   * @param value value
+   * @return number of bits
+   */
+  private static int bits(final long value) {
+    return 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  /** Bit-oriented output (least significant bits first). */
+  private static final class BitOutput {
+    /** Output buffer. */
+    private final byte[] buffer;
+    /** Number of written bytes. */
+    private int pos;
+    /** Pending bits. */
+    private long bits;
+    /** Number of pending bits. */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param capacity maximum output size
+     */
+    BitOutput(final int capacity) {
+      buffer = new byte[capacity];
+    }
+
+    /**
+     * Writes a column header.
+     * @param header header byte
+     * @param base base value
+     */
+    void header(final int header, final int base) {
+      buffer[pos++] = (byte) header;
+      buffer[pos++] = (byte) (base >>> 24);
+      buffer[pos++] = (byte) (base >>> 16);
+      buffer[pos++] = (byte) (base >>> 8);
+      buffer[pos++] = (byte) base;
+    }
+
+    /**
+     * Writes the lower bits of the specified value.
+     * @param value value
+     * @param width number of bits
+     */
+    void write(final int value, final int width) {
+      if(width == 0) return;
+      bits |= (value & (1L << width) - 1) << size;
+      size += width;
+      while(size >= 8) {
+        buffer[pos++] = (byte) bits;
+        bits >>>= 8;
+        size -= 8;
+      }
+    }
+
+    /**
+     * Writes pending bits.
+     */
+    void align() {
+      if(size > 0) buffer[pos++] = (byte) bits;
+      bits = 0;
+      size = 0;
+    }
+
+    /**
+     * Returns the written bytes.
+     * @return bytes
+     */
+    byte[] finish() {
+      return Arrays.copyOf(buffer, pos);
+    }
+  }
+
+  /** Bit-oriented input (least significant bits first). */
+  private static final class BitInput {
+    /** Input buffer. */
+    private final byte[] buffer;
+    /** Number of read bytes. */
+    private int pos;
+    /** Pending bits. */
+    private long bits;
+    /** Number of pending bits. */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param buffer input buffer
+     */
+    BitInput(final byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Reads a byte.
+     * @return byte value
+     */
+    int read1() {
+      return buffer[pos++] & 0xFF;
+    }
+
+    /**
+     * Reads an integer.
+     * @return integer value
+     */
+    int read4() {
+      return (read1() << 24) + (read1() << 16) + (read1() << 8) + read1();
+    }
+
+    /**
+     * Reads the specified number of bits.
+     * @param width number of bits
+     * @return value
+     */
+    int read(final int width) {
+      if(width == 0) return 0;
+      while(size < width) {
+        bits |= (long) (buffer[pos++] & 0xFF) << size;
+        size += 8;
+      }
+      final int v = (int) (bits & (1L << width) - 1);
+      bits >>>= width;
+      size -= width;
+      return v;
+    }
+
+    /**
+     * Skips pending bits.
+     */
+    void align() {
+      bits = 0;
+      size = 0;
+    }
+  }
+}
@@ -0,0 +1,294 @@
+package org.basex.io.random;
+
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.io.out.*;
+import org.basex.util.*;
+
+/**
+ * This class provides an append-only redo log for the files of a database.
+ *
+ * All physical changes of the database files are recorded as after-images: blocks that are
+ * written to the table and to the text and value files, new file lengths, and the contents of
+ * small files (such as the meta data or the page index), which are only rewritten by
+ * checkpoints. Records are appended in frames, which are secured by checksums. A commit appends
+ * a commit frame and forces the log to disk. As the records are idempotent, all committed
+ * records can be replayed after a crash, no matter which database files have been written
+ * before. Records without subsequent commit frame are ignored.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class RedoLog implements Closeable {
+  /** Size of the log after which a checkpoint should be performed. */
+  public static final long CHECKPOINT = 1 << 24;
+  /** Number of buffered bytes after which records are appended to the log. */
+  private static final int SPILL = 1 << 20;
+
+  /** Frame: records. */
+  private static final int RECORDS = 1;
+  /** Frame: commit. */
+  private static final int COMMIT = 2;
+  /** Record: block contents. */
+  private static final int BLOCK = 1;
+  /** Record: file length. */
+  private static final int LENGTH = 2;
+  /** Record: file contents. */
+  private static final int FILE = 3;
+
+  /** Log file. */
+  private final IOFile file;
+  /** File access. */
+  private final RandomAccessFile raf;
+  /** Buffered records. */
+  private final ArrayOutput buffer = new ArrayOutput();
+  /** Output stream for records. */
+  private final DataOutput out = new DataOutput(buffer);
+  /** Size of the log file. */
+  private long size;
+
+  /**
+   * Constructor, opening the log for appending records.
+   * @param file log file
+   * @throws IOException I/O exception
+   */
+  public RedoLog(final IOFile file) throws IOException {
+    this.file = file;
+    raf = new RandomAccessFile(file.file(), "rw");
+    size = raf.length();
+    raf.seek(size);
+  }
+
+  /**
+   * Records the contents of a block.
+   * @param name name of the database file
+   * @param pos file offset
+   * @param data block data
+   * @param len number of bytes to be recorded
+   * @throws IOException I/O exception
+   */
+  synchronized void block(final String name, final long pos, final byte[] data, final int len)
+      throws IOException {
+    out.write1(BLOCK);
+    out.writeToken(token(name));
+    out.write8(pos);
+    out.writeToken(len == data.length ? data : Arrays.copyOf(data, len));
+    spill();
+  }
+
+  /**
+   * Records the length of a file.
+   * @param name name of the database file
+   * @param length file length
+   * @throws IOException I/O exception
+   */
+  synchronized void length(final String name, final long length) throws IOException {
+    out.write1(LENGTH);
+    out.writeToken(token(name));
+    out.write8(length);
+    spill();
+  }
+
+  /**
+   * Records the contents of a file. The file itself will only be written by the next checkpoint.
+   * @param target database file
+   * @param contents file contents
+   * @throws IOException I/O exception
+   */
+  public synchronized void file(final IOFile target, final byte[] contents) throws IOException {
+    out.write1(FILE);
+    out.writeToken(token(target.name()));
+    out.writeToken(contents);
+    spill();
+  }
+
+  /**
+   * Appends a commit frame and forces all records to disk.
+   * @throws IOException I/O exception
+   */
+  public synchronized void commit() throws IOException {
+    frame();
+    raf.write(COMMIT);
+    raf.writeInt(0);
+    raf.writeInt(0);
+    raf.getFD().sync();
+    size += 9;
+  }
+
+  /**
+   * Returns the current size of the log, including buffered records.
+   * @return size
+   */
+  public synchronized long length() {
+    return size + buffer.size();
+  }
+
+  /**
+   * Discards all records. Must only be called after all database files have been synchronized.
+   * @throws IOException I/O exception
+   */
+  public synchronized void reset() throws IOException {
+    buffer.reset();
+    raf.setLength(0);
+    raf.getFD().sync();
+    size = 0;
+  }
+
+  /**
+   * Closes and deletes the log. Must only be called after all database files have been
+   * synchronized.
+   * @throws IOException I/O exception
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    raf.close();
+    if(!file.delete()) throw new IOException("Could not delete " + file);
+  }
+
+  /**
+   * Replays all committed records of the specified log, synchronizes the database files and
+   * deletes the log.
+   * @param file log file
+   * @return {@code true} if records were replayed
+   * @throws IOException I/O exception
+   */
+  public static boolean replay(final IOFile file) throws IOException {
+    if(!file.exists()) return false;
+
+    boolean replayed = false;
+    try(final RandomAccessFile log = new RandomAccessFile(file.file(), "rw")) {
+      // find end of last commit frame; ignore incomplete or corrupt frames
+      long end = 0;
+      for(int type; (type = log.read()) != -1;) {
+        if(type == COMMIT) {
+          if(log.skipBytes(8) < 8) break;
+          end = log.getFilePointer();
+        } else if(type != RECORDS || frame(log) == null) {
+          break;
+        }
+      }
+
+      // apply committed records
+      final HashMap<String, RandomAccessFile> files = new HashMap<>();
+      final IOFile dir = new IOFile(file.dir());
+      try {
+        log.seek(0);
+        while(log.getFilePointer() < end) {
+          if(log.read() == RECORDS) {
+            apply(frame(log), dir, files);
+            replayed = true;
+          } else {
+            log.skipBytes(8);
+          }
+        }
+      } finally {
+        for(final RandomAccessFile raf : files.values()) raf.close();
+      }
+      if(replayed) sync(dir);
+    }
+    if(!file.delete()) throw new IOException("Could not delete " + file);
+    return replayed;
+  }
+
+  /**
+   * Forces the contents of all files in the specified directory to disk.
+   * @param dir directory
+   * @throws IOException I/O exception
+   */
+  public static void sync(final IOFile dir) throws IOException {
+    for(final IOFile f : dir.children()) {
+      if(f.isDir()) continue;
+      try(final RandomAccessFile raf = new RandomAccessFile(f.file(), "rw")) {
+        raf.getFD().sync();
+      }
+    }
+  }
+
+  /**
+   * Appends the buffered records to the log if the buffer is full.
+   * @throws IOException I/O exception
+   */
+  private void spill() throws IOException {
+    if(buffer.size() >= SPILL) frame();
+  }
+
+  /**
+   * Appends the buffered records to the log as a new frame.
+   * @throws IOException I/O exception
+   */
+  private void frame() throws IOException {
+    final int s = (int) buffer.size();
+    if(s == 0) return;
+    final byte[] records = buffer.buffer();
+    final CRC32 crc = new CRC32();
+    crc.update(records, 0, s);
+    raf.write(RECORDS);
+    raf.writeInt(s);
+    raf.writeInt((int) crc.getValue());
+    raf.write(records, 0, s);
+    buffer.reset();
+    size += 9 + s;
+  }
+
+  /**
+   * Reads and checks a frame with records.
+   * @param log log file
+   * @return records, or {@code null} if the frame is incomplete or corrupt
+   * @throws IOException I/O exception
+   */
+  private static byte[] frame(final RandomAccessFile log) throws IOException {
+    if(log.length() - log.getFilePointer() < 8) return null;
+    final int size = log.readInt(), checksum = log.readInt();
+    if(size < 0 || log.length() - log.getFilePointer() < size) return null;
+    final byte[] records = new byte[size];
+    log.readFully(records);
+    final CRC32 crc = new CRC32();
+    crc.update(records, 0, size);
+    return (int) crc.getValue() == checksum ? records : null;
+  }
+
+  /**
+   * Applies the specified records.
+   * @param records records
+   * @param dir database directory
+   * @param files opened database files
+   * @throws IOException I/O exception
+   */
+  private static void apply(final byte[] records, final IOFile dir,
+      final HashMap<String, RandomAccessFile> files) throws IOException {
+
+    try(final DataInput in = new DataInput(new IOContent(records))) {
+      for(int type; (type = in.read()) != -1;) {
+        final String name = string(in.readToken());
+        if(type == FILE) {
+          // close file if it has been opened before
+          final RandomAccessFile raf = files.remove(name);
+          if(raf != null) raf.close();
+          new IOFile(dir, name).write(in.readToken());
+          continue;
+        }
+        RandomAccessFile raf = files.get(name);
+        if(raf == null) {
+          raf = new RandomAccessFile(new IOFile(dir, name).file(), "rw");
+          files.put(name, raf);
+        }
+        final long pos = in.read8();
+        if(type == BLOCK) {
+          raf.seek(pos);
+          raf.write(in.readToken());
+        } else if(type == LENGTH) {
+          raf.setLength(pos);
+        } else {
+          throw Util.notExpected("Unknown log record: %", type);
+        }
+      }
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.io.*;
 
 import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.util.*;
 
 /**
  * This abstract class defines the methods for accessing the
@@ -46,6 +47,12 @@ public abstract class TableAccess {
    */
   public abstract boolean lock(final boolean write);
 
+  /**
+   * Adds storage statistics to the specified token builder.
+   * @param tb token builder
+   */
+  public void info(final TokenBuilder tb) { }
+
   /**
    * Reads a byte value and returns it as an integer value.
    * @param p pre value
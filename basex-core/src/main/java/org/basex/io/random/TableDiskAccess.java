@@ -1,5 +1,6 @@
 package org.basex.io.random;
 
+import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
@@ -11,10 +12,21 @@ import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.out.*;
 import org.basex.util.*;
 
 /**
  * This class stores the table on disk and reads it block-wise.
+ * If lock-free read access is enabled, entries will be read without synchronization.
+ *
+ * If the table is compressed, all pages are stored with {@link PageCodec}. A directory file
+ * contains the file offsets and slot sizes of all pages. Compressed pages will be decoded when
+ * they are loaded into the buffer pool, and encoded again when they are written back. Pages
+ * that do not fit into their slot any more will be relocated to the end of the file.
+ *
+ * After updates, the table can be compacted incrementally (see {@link #compact}): partially
+ * filled pages are filled up with the entries of subsequent pages, pages are moved to the
+ * positions that reflect their order, and unused pages at the end of the file are discarded.
  *
  * NOTE: this class is not thread-safe.
  *
@@ -23,14 +35,33 @@ import org.basex.util.*;
  * @author Tim Petrowsky
  */
 public final class TableDiskAccess extends TableAccess {
+  /** Compaction phase: fill pages. */
+  private static final int FILL = 0;
+  /** Compaction phase: order pages. */
+  private static final int ORDER = 1;
+  /** Compaction phase: no fragmentation found. */
+  private static final int IDLE = 2;
+  /** Names of the compaction phases. */
+  private static final String[] PHASES = { "filling pages", "ordering pages", "idle" };
+
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
+  /** Maximum number of blocks that are read ahead. */
+  private final int prefetch;
+  /** Block that continues a sequential access pattern if it is read next. */
+  private int next = -1;
   /** File storing all blocks. */
   private final RandomAccessFile file;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
   private FileLock fl;
+  /** Lock-free read access (if assigned, entries will be read without locking). */
+  private volatile ConcurrentAccess reader;
+  /** Redo log (if assigned, all changes will be recorded). */
+  private RedoLog log;
+  /** Indicates if the page index has been recorded in the redo log, but not been written. */
+  private boolean logged;
 
   /** First pre values (ascending order); will be initialized with the first update. */
   private int[] fpres;
@@ -44,11 +75,29 @@ public final class TableDiskAccess extends TableAccess {
   /** First pre value of the next block. */
   private int npre = -1;
 
+  /** File offsets of compressed pages ({@code null} if the table is not compressed). */
+  private long[] offsets;
+  /** Slot sizes of compressed pages (0: page has not been written yet). */
+  private int[] sizes;
+  /** End of the compressed table file. */
+  private long end;
+  /** Indicates if compressed pages have been relocated. */
+  private boolean moved;
+
   /** Total number of blocks. */
   private int blocks;
   /** Number of used blocks. */
   private int used;
 
+  /** Compaction phase. */
+  private int phase = IDLE;
+  /** Index of the page that will be processed by the next compaction step. */
+  private int cpage;
+  /** Indicates if the table has been modified since the current compaction cycle was started. */
+  private boolean modified = true;
+  /** Number of pages that have been released or moved by compaction steps. */
+  private long compacted;
+
   /**
    * Constructor.
    * @param md meta data
@@ -57,6 +106,9 @@ public final class TableDiskAccess extends TableAccess {
    */
   public TableDiskAccess(final MetaData md, final boolean write) throws IOException {
     super(md);
+    bm = new Buffers(md.buffers);
+    // prefetched blocks must fit into the probation queue of the buffer pool
+    prefetch = Math.min(md.prefetch, bm.capacity() / 4 - 1);
 
     // read meta and index data
     try(final DataInput in = new DataInput(meta.dbfile(DATATBL + 'i'))) {
@@ -82,8 +134,22 @@ public final class TableDiskAccess extends TableAccess {
       }
     }
 
+    // read directory of compressed pages
+    final IOFile dir = meta.dbfile(DATATBL + 'c');
+    if(dir.exists()) {
+      try(final DataInput in = new DataInput(dir)) {
+        offsets = in.readLongs(in.readNum());
+        sizes = in.readNums();
+      }
+    }
+
     // initialize data file
     file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
+    end = file.length();
+    if(offsets != null) {
+      // slots may exceed the end of the file
+      for(int p = 0; p < offsets.length; p++) end = Math.max(end, offsets[p] + sizes[p]);
+    }
     if(!lock(write)) throw new BaseXException(Text.DB_PINNED_X, md.name);
   }
 
@@ -104,29 +170,133 @@ public final class TableDiskAccess extends TableAccess {
     }
   }
 
+  /**
+   * Compresses the table of the specified database.
+   * The uncompressed table file will be replaced with a file containing the compressed pages,
+   * and a directory with the offsets and slot sizes of the pages will be written.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  public static void compress(final MetaData md) throws IOException {
+    final IOFile table = md.dbfile(DATATBL), tmp = md.dbfile(DATATBL + 'z');
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    final int n;
+    final long[] offs;
+    final int[] szs;
+    try(final RandomAccessFile in = new RandomAccessFile(table.file(), "r");
+        final DataOutput out = new DataOutput(tmp)) {
+      final long len = in.length();
+      n = (int) ((len + IO.BLOCKSIZE - 1) / IO.BLOCKSIZE);
+      offs = new long[n];
+      szs = new int[n];
+      long off = 0;
+      for(int p = 0; p < n; p++) {
+        // the last page may be incomplete
+        final int l = (int) Math.min(IO.BLOCKSIZE, len - (long) p * IO.BLOCKSIZE);
+        in.readFully(page, 0, l);
+        Arrays.fill(page, l, IO.BLOCKSIZE, (byte) 0);
+        final byte[] c = PageCodec.encode(page);
+        out.writeBytes(c);
+        offs[p] = off;
+        szs[p] = c.length;
+        off += c.length;
+      }
+    }
+    writeDirectory(md, offs, szs, n);
+    if(!table.delete() || !tmp.rename(table)) throw new IOException("Could not replace " + table);
+  }
+
   @Override
   public synchronized void flush(final boolean all) throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-    if(!dirty || !all) return;
+    if(!all) return;
+    if(moved) {
+      writeDirectory(meta, offsets, sizes, Math.min(blocks, offsets.length));
+      moved = false;
+    }
+    if(!dirty) return;
+
+    final IOFile index = meta.dbfile(DATATBL + 'i');
+    if(log != null) {
+      // page index will be written by the next checkpoint
+      final ArrayOutput ao = new ArrayOutput();
+      try(final DataOutput out = new DataOutput(ao)) {
+        writeIndex(out);
+      }
+      log.file(index, ao.finish());
+      logged = true;
+    } else {
+      try(final DataOutput out = new DataOutput(index)) {
+        writeIndex(out);
+      }
+    }
+    dirty = false;
+  }
 
-    try(final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'))) {
-      final int blcks = blocks;
-      out.writeNum(blcks);
-      out.writeNum(used);
+  /**
+   * Writes the page index.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void writeIndex(final DataOutput out) throws IOException {
+    final int blcks = blocks;
+    out.writeNum(blcks);
+    out.writeNum(used);
+
+    // due to legacy issues, number of blocks is written several times
+    out.writeNum(blcks);
+    for(int a = 0; a < blocks; a++) out.writeNum(fpres[a]);
+    out.writeNum(blcks);
+    for(int a = 0; a < blocks; a++) out.writeNum(pages[a]);
+
+    out.writeLongs(usedPages.toArray());
+  }
 
-      // due to legacy issues, number of blocks is written several times
-      out.writeNum(blcks);
-      for(int a = 0; a < blocks; a++) out.writeNum(fpres[a]);
-      out.writeNum(blcks);
-      for(int a = 0; a < blocks; a++) out.writeNum(pages[a]);
+  /**
+   * Assigns a redo log, which will record all subsequent changes of the uncompressed table.
+   * If the log is removed, the page index will be written by the next flush.
+   * @param rl redo log (may be {@code null})
+   */
+  public synchronized void journal(final RedoLog rl) {
+    if(rl == null && logged) {
+      dirty = true;
+      logged = false;
+    }
+    log = offsets == null ? rl : null;
+  }
 
-      out.writeLongs(usedPages.toArray());
+  /**
+   * Enables or disables lock-free read access. If enabled, all buffers will be flushed, and
+   * table entries will be read without locking, either via memory mapping or with thread-local
+   * cursors. Lock-free access must be disabled before the table is modified.
+   * Compressed tables will always be accessed via the buffer pool.
+   * @param enable enable flag
+   * @param mapped use memory mapping
+   * @throws IOException I/O exception
+   */
+  public synchronized void lockFree(final boolean enable, final boolean mapped)
+      throws IOException {
+    final ConcurrentAccess ca = reader;
+    reader = null;
+    if(ca != null) ca.close();
+    if(enable && offsets == null) {
+      for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+      if(mapped) {
+        try {
+          reader = new MappedAccess(file);
+          return;
+        } catch(final IOException ex) {
+          // fall back to thread-local cursors
+          Util.debug(ex);
+        }
+      }
+      reader = new CursorAccess(meta.dbfile(DATATBL).file(), file.length());
     }
-    dirty = false;
   }
 
   @Override
   public synchronized void close() throws IOException {
+    lockFree(false, false);
     flush(true);
     file.close();
   }
@@ -144,33 +314,98 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public synchronized void info(final TokenBuilder tb) {
+    tb.add(' ').add(TABLEBUFFERS).add(COLS).addLong(bm.size()).add('/').addLong(bm.capacity());
+    tb.add(NL).add(' ').add(BUFFERHITS).add(COLS).addLong(bm.hits());
+    tb.add(NL).add(' ').add(BUFFERMISSES).add(COLS).addLong(bm.misses());
+    tb.add(NL).add(' ').add(TABLEPAGES).add(COLS).addLong(used).add('/').addLong(blocks);
+    tb.add(NL).add(' ').add(TABLECOMPACTION).add(COLS).add(PHASES[phase]);
+    if(phase != IDLE) tb.add(", ").addLong(used == 0 ? 100 : cpage * 100L / used).add('%');
+    tb.add(", ").addLong(compacted).add(" pages").add(NL);
+  }
+
+  /**
+   * Performs a compaction step. The table must be locked for writing.
+   * @param budget maximum number of bytes to be read and written
+   * @return number of bytes that have been read or written
+   * @throws IOException I/O exception
+   */
+  public synchronized long compact(final long budget) throws IOException {
+    long spent = 0;
+    while(spent < budget) {
+      if(phase == IDLE) {
+        // start new cycle if the table has been updated
+        if(!modified || fpres == null) break;
+        modified = false;
+        phase = FILL;
+        cpage = 0;
+      } else if(phase == FILL) {
+        if(cpage + 1 >= used) {
+          // uncompressed tables: move pages to the positions that reflect their order
+          phase = offsets == null ? ORDER : IDLE;
+          cpage = 0;
+        } else if(occSpace(cpage) == IO.ENTRIES) {
+          ++cpage;
+        } else {
+          spent += fill(cpage);
+        }
+      } else {
+        if(cpage < used) {
+          if(pages[cpage] == cpage) ++cpage;
+          else spent += order(cpage++);
+        } else {
+          if(blocks > used) truncate();
+          phase = IDLE;
+        }
+      }
+    }
+    return spent;
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read1(final int pre, final int off) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.read1(offset(pre) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return b[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.read2(offset(pre) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.read4(offset(pre) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
+  }
+
+  @Override
+  public long read5(final int pre, final int off) {
+    final ConcurrentAccess ca = reader;
+    if(ca != null) return ca.read5(offset(pre) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    }
   }
 
   @Override
@@ -433,6 +668,7 @@ public final class TableDiskAccess extends TableAccess {
       usedPages = new BitArray(used, true);
     }
     dirty = true;
+    modified = true;
   }
 
   // PRIVATE METHODS ==========================================================
@@ -470,6 +706,23 @@ public final class TableDiskAccess extends TableAccess {
     return pre - fpre << IO.NODEPOWER;
   }
 
+  /**
+   * Returns the file offset of the entry with the specified pre value.
+   * Does not change the state of the instance and can thus be called by concurrent readers.
+   * @param pre pre value
+   * @return file offset
+   */
+  private long offset(final int pre) {
+    final int p;
+    if(fpres == null) {
+      p = pre / IO.ENTRIES;
+    } else {
+      final int i = Arrays.binarySearch(fpres, 0, used, pre);
+      p = i >= 0 ? i : -i - 2;
+    }
+    return (long) page(p) * IO.BLOCKSIZE + (pre - fpre(p) << IO.NODEPOWER);
+  }
+
   /**
    * Updates the page pointers.
    * @param p page index
@@ -520,15 +773,85 @@ public final class TableDiskAccess extends TableAccess {
       bf.pos = b;
       if(b >= blocks) {
         blocks = b + 1;
+      } else if(offsets != null) {
+        if(b < sizes.length && sizes[b] != 0) {
+          final byte[] c = new byte[sizes[b]];
+          file.seek(offsets[b]);
+          // slots may be larger than the compressed page, and the last slot may be truncated
+          file.read(c);
+          PageCodec.decode(c, bf.data);
+        } else {
+          Arrays.fill(bf.data, (byte) 0);
+        }
       } else {
-        file.seek(bf.pos * IO.BLOCKSIZE);
-        file.readFully(bf.data);
+        final int n = ahead(b);
+        if(n == 0) {
+          file.seek(bf.pos * IO.BLOCKSIZE);
+          file.readFully(bf.data);
+        } else {
+          prefetch(b, n);
+        }
       }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Returns the number of blocks that will be read ahead, starting after the specified block.
+   * Blocks will only be read ahead if the requested blocks have been read sequentially.
+   * @param b block to be read
+   * @return number of blocks
+   * @throws IOException I/O exception
+   */
+  private int ahead(final int b) throws IOException {
+    int n = 0;
+    if(b == next && prefetch > 0) {
+      final long last = Math.min(blocks, file.length() / IO.BLOCKSIZE);
+      n = (int) Math.max(0, Math.min(prefetch, last - b - 1));
+    }
+    next = b + n + 1;
+    return n;
+  }
+
+  /**
+   * Reads the specified block and the blocks following it with a single I/O operation.
+   * Blocks that have not been buffered yet will be added to the buffer pool.
+   * @param b block to be read (the buffer is assigned to the current buffer)
+   * @param n number of blocks to be read ahead
+   * @throws IOException I/O exception
+   */
+  private void prefetch(final int b, final int n) throws IOException {
+    final byte[] data = new byte[(n + 1) * IO.BLOCKSIZE];
+    file.seek((long) b * IO.BLOCKSIZE);
+    file.readFully(data);
+    System.arraycopy(data, 0, bm.current().data, 0, IO.BLOCKSIZE);
+    // skip cached blocks, which may have been modified. The check must precede the loading:
+    // modified blocks that are evicted by the following blocks will be written back to disk
+    final boolean[] cached = new boolean[n + 1];
+    for(int i = 1; i <= n; i++) cached[i] = bm.contains(b + i);
+    for(int i = 1; i <= n; i++) {
+      if(!cached[i]) load(b + i, data, i);
+    }
+    // restore current buffer
+    load(b, data, 0);
+  }
+
+  /**
+   * Assigns the contents of a block to its buffer and makes it the current one.
+   * @param b block
+   * @param data block data
+   * @param i index of the block in the data array
+   * @throws IOException I/O exception
+   */
+  private void load(final int b, final byte[] data, final int i) throws IOException {
+    if(!bm.cursor(b)) return;
+    final Buffer bf = bm.current();
+    if(bf.dirty) writeBlock(bf);
+    bf.pos = b;
+    System.arraycopy(data, i * IO.BLOCKSIZE, bf.data, 0, IO.BLOCKSIZE);
+  }
+
   /**
    * Moves the cursor to a free block (either new or existing empty one).
    */
@@ -546,11 +869,145 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
+    if(offsets != null) {
+      final byte[] c = PageCodec.encode(bf.data);
+      final int b = (int) bf.pos;
+      if(b >= sizes.length) {
+        final int ns = Math.max(sizes.length << 1, b + 1);
+        offsets = Arrays.copyOf(offsets, ns);
+        sizes = Arrays.copyOf(sizes, ns);
+      }
+      if(c.length > sizes[b]) {
+        // relocate page to the end of the file, reserve some space for future updates
+        offsets[b] = end;
+        sizes[b] = c.length + (c.length >>> 3);
+        end += sizes[b];
+        moved = true;
+      }
+      file.seek(offsets[b]);
+      file.write(c);
+    } else {
+      file.seek(bf.pos * IO.BLOCKSIZE);
+      file.write(bf.data);
+      if(log != null) log.block(meta.dbfile(DATATBL).name(), bf.pos * IO.BLOCKSIZE, bf.data,
+          IO.BLOCKSIZE);
+    }
     bf.dirty = false;
   }
 
+  /**
+   * Fills up the specified page with entries of the subsequent page.
+   * If all entries are moved, the subsequent page is released.
+   * @param p page index
+   * @return number of bytes that have been read or written
+   */
+  private int fill(final int p) {
+    final int occ = occSpace(p), next = occSpace(p + 1), n = Math.min(IO.ENTRIES - occ, next);
+    final byte[] entries = new byte[n << IO.NODEPOWER];
+
+    // remove entries from the beginning of the next page
+    readPage(p + 1);
+    final Buffer bf = bm.current();
+    System.arraycopy(bf.data, 0, entries, 0, entries.length);
+    copy(bf.data, n, bf.data, 0, next - n);
+    if(n == next) {
+      // release empty page
+      usedPages.clear(pages[p + 1]);
+      Array.move(fpres, p + 2, -1, used - p - 2);
+      Array.move(pages, p + 2, -1, used - p - 2);
+      --used;
+      ++compacted;
+    } else {
+      fpres[p + 1] += n;
+    }
+
+    // append entries to the current page
+    readPage(p);
+    final Buffer cb = bm.current();
+    System.arraycopy(entries, 0, cb.data, occ << IO.NODEPOWER, entries.length);
+    cb.dirty = true;
+    dirty = true;
+    reset();
+    return IO.BLOCKSIZE << 2;
+  }
+
+  /**
+   * Moves the specified page to the block with the same index.
+   * If this block is used by another page, the pages will be swapped.
+   * @param p page index
+   * @return number of bytes that have been read or written
+   */
+  private int order(final int p) {
+    final int b = pages[p];
+    // find page stored in the target block (all preceding pages have already been moved)
+    int o = -1;
+    if(usedPages.get(p)) {
+      for(int i = p + 1; i < used && o == -1; i++) if(pages[i] == p) o = i;
+    }
+
+    readBlock(b);
+    final byte[] data = bm.current().data.clone();
+    readBlock(p);
+    Buffer bf = bm.current();
+    final byte[] target = o == -1 ? null : bf.data.clone();
+    System.arraycopy(data, 0, bf.data, 0, IO.BLOCKSIZE);
+    bf.dirty = true;
+    if(target != null) {
+      readBlock(b);
+      bf = bm.current();
+      System.arraycopy(target, 0, bf.data, 0, IO.BLOCKSIZE);
+      bf.dirty = true;
+      pages[o] = b;
+    } else {
+      usedPages.clear(b);
+      usedPages.set(p);
+    }
+    pages[p] = p;
+    dirty = true;
+    ++compacted;
+    reset();
+    return IO.BLOCKSIZE << (target != null ? 2 : 1);
+  }
+
+  /**
+   * Discards the unused blocks at the end of the table file.
+   * @throws IOException I/O exception
+   */
+  private void truncate() throws IOException {
+    bm.discard(used);
+    blocks = used;
+    final long length = (long) used * IO.BLOCKSIZE;
+    file.setLength(length);
+    if(log != null) log.length(meta.dbfile(DATATBL).name(), length);
+    dirty = true;
+    reset();
+  }
+
+  /**
+   * Resets the page pointers.
+   */
+  private void reset() {
+    page = -1;
+    fpre = -1;
+    npre = -1;
+  }
+
+  /**
+   * Writes the directory of compressed pages.
+   * @param md meta data
+   * @param offs page offsets
+   * @param szs slot sizes
+   * @param n number of pages
+   * @throws IOException I/O exception
+   */
+  private static void writeDirectory(final MetaData md, final long[] offs, final int[] szs,
+      final int n) throws IOException {
+    try(final DataOutput out = new DataOutput(md.dbfile(DATATBL + 'c'))) {
+      out.writeLongs(Arrays.copyOf(offs, n));
+      out.writeNums(Arrays.copyOf(szs, n));
+    }
+  }
+
   /**
    * Updates the firstPre index entries.
    * @param nr number of entries to move
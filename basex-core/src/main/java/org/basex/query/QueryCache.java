@@ -0,0 +1,116 @@
+package org.basex.query;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.core.*;
+import org.basex.core.users.*;
+import org.basex.util.*;
+
+/**
+ * This class caches parsed queries, which can be reused by subsequent evaluations of the same
+ * query string (see {@link StaticOptions#QUERYCACHE}).
+ *
+ * <p>A cached query is a {@link QueryContext} instance that has been parsed, but not compiled.
+ * Its main module and static variables are copied to the context of each new evaluation.
+ * As the copied expressions share the static context of the cached query, a query is
+ * removed from the cache while it is being used, and added again when the evaluation has
+ * been finished. If the same query is evaluated concurrently, multiple instances will be
+ * cached. The least recently used queries will be evicted first.</p>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCache {
+  /** Parsed queries, ordered by their last access. */
+  private final LinkedHashMap<String, ArrayList<QueryContext>> queries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  /** Number of cached queries. */
+  private int size;
+  /** Number of successful lookups. */
+  private long hits;
+  /** Number of failed lookups. */
+  private long misses;
+
+  /**
+   * Returns the cache key for the specified query. Besides the query string, the key includes
+   * all options and user properties that are evaluated by the query parser and the static
+   * context, which is reused together with the parsed query.
+   * @param query query string
+   * @param ctx database context
+   * @return key
+   */
+  static String key(final String query, final Context ctx) {
+    final User user = ctx.user();
+    final MainOptions opts = ctx.options;
+    return new StringBuilder().append(user.name()).append('/').append(user.perm(null)).
+        append('/').append(opts.get(MainOptions.MIXUPDATES)).append('/').
+        append(opts.get(MainOptions.QUERYPATH)).append('/').
+        append(opts.get(MainOptions.SERIALIZER)).append('\n').append(query).toString();
+  }
+
+  /**
+   * Removes a parsed query from the cache.
+   * @param key key
+   * @return query context, or {@code null} if no query was found
+   */
+  synchronized QueryContext remove(final String key) {
+    final ArrayList<QueryContext> list = queries.get(key);
+    if(list == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    size--;
+    final QueryContext qc = list.remove(list.size() - 1);
+    if(list.isEmpty()) queries.remove(key);
+    return qc;
+  }
+
+  /**
+   * Adds a parsed query to the cache. If the maximum number of queries has been reached,
+   * the least recently used queries will be evicted.
+   * @param key key
+   * @param qc query context
+   * @param max maximum number of cached queries
+   */
+  synchronized void add(final String key, final QueryContext qc, final int max) {
+    final Iterator<Entry<String, ArrayList<QueryContext>>> it = queries.entrySet().iterator();
+    while(size >= max && it.hasNext()) {
+      final Entry<String, ArrayList<QueryContext>> entry = it.next();
+      if(entry.getKey().equals(key)) continue;
+      size -= entry.getValue().size();
+      it.remove();
+    }
+    if(size >= max) return;
+
+    ArrayList<QueryContext> list = queries.get(key);
+    if(list == null) {
+      list = new ArrayList<>(1);
+      queries.put(key, list);
+    }
+    list.add(qc);
+    size++;
+  }
+
+  /**
+   * Returns the number of cached queries.
+   * @return number of queries
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Removes all cached queries.
+   */
+  public synchronized void clear() {
+    queries.clear();
+    size = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Util.info("% queries, % hits, % misses", size, hits, misses);
+  }
+}
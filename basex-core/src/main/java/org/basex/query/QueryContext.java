@@ -7,6 +7,7 @@ import static org.basex.util.Token.*;
 import java.io.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.*;
 
 import org.basex.build.json.*;
 import org.basex.build.json.JsonOptions.*;
@@ -139,6 +140,11 @@ public final class QueryContext extends Proc implements Closeable {
   /** Root expression of the query. */
   public MainModule root;
 
+  /** Pool for evaluating parts of the query in parallel (see {@link #pool()}). */
+  private ForkJoinPool pool;
+  /** Indicates if this context evaluates a part of the query in another thread. */
+  private boolean forked;
+
   /** Compilation flag. */
   private boolean compiled;
   /** Indicates if the query context has been closed. */
@@ -174,6 +180,65 @@ public final class QueryContext extends Proc implements Closeable {
     info = new QueryInfo(this);
   }
 
+  /**
+   * Creates a context for evaluating a part of this query in another thread.
+   * The new context shares the resources of this context. The current focus and the variable
+   * bindings of the current stack frame are copied.
+   * @return query context
+   * @throws QueryException query exception
+   */
+  public QueryContext fork() throws QueryException {
+    // the date and time context must be identical for all threads
+    initDateTime();
+    final QueryContext qc = new QueryContext(this);
+    qc.stack.enterFrame(stack);
+    qc.value = value;
+    qc.pos = pos;
+    qc.size = size;
+    qc.date = date;
+    qc.dtm = dtm;
+    qc.time = time;
+    qc.zone = zone;
+    qc.nano = nano;
+    qc.maxCalls = maxCalls;
+    qc.scoring = scoring;
+    qc.collations = collations;
+    qc.stop = stop;
+    qc.thes = thes;
+    qc.http = http;
+    qc.forked = true;
+    return qc;
+  }
+
+  /**
+   * Indicates if this context evaluates a part of the query in another thread.
+   * @return result of check
+   */
+  public boolean forked() {
+    return forked;
+  }
+
+  /**
+   * Returns the maximum number of threads for evaluating parts of the query in parallel.
+   * If {@link MainOptions#FORKJOIN} is not greater than 1, the number of available processors
+   * will be returned.
+   * @return number of threads
+   */
+  public int threads() {
+    final int threads = context.options.get(MainOptions.FORKJOIN);
+    return threads > 1 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the fork/join pool of this query. The pool is created with {@link #threads()}
+   * threads when it is requested first, and it is shut down when the query is closed.
+   * @return pool
+   */
+  public ForkJoinPool pool() {
+    if(pool == null) pool = new ForkJoinPool(threads());
+    return pool;
+  }
+
   /**
    * Parses the specified query.
    * @param query query string
@@ -242,6 +307,56 @@ public final class QueryContext extends Proc implements Closeable {
     updating = rt.expr.has(Flag.UPD);
   }
 
+  /**
+   * Returns a copy of the parsed query, which can be reused by subsequent evaluations of the
+   * same query string. {@code null} is returned if the query has already been compiled, or if it
+   * depends on declarations or resources that are not copied (functions, modules, full-text
+   * options, stop words and thesauri).
+   * @return query context or {@code null}
+   */
+  QueryContext template() {
+    if(root == null || compiled || funcs.funcs().length != 0 || !modParsed.isEmpty() ||
+       resources.modules != null || ftOpt != null || stop != null || thes != null) return null;
+    final QueryContext qc = new QueryContext(context);
+    qc.copy(this);
+    return qc;
+  }
+
+  /**
+   * Copies the main module, the static variables and the prolog options of a parsed query
+   * to this context. The copied expressions share the static context of the parsed query.
+   * @param qc query context of the parsed query
+   */
+  void copy(final QueryContext qc) {
+    final IntObjMap<Var> vs = new IntObjMap<>();
+    vars.copy(qc.vars, this, vs);
+    final VarScope scp = qc.root.scope.copy(this, vs);
+    root = new MainModule(qc.root.expr.copy(this, scp, vs), scp, null, qc.root.sc);
+    updating = qc.updating;
+    info.query = qc.info.query;
+
+    tempOpts.add(qc.tempOpts);
+    for(final Option<?> opt : qc.staticOpts.keySet()) staticOpts.put(opt, context.options.get(opt));
+    if(qc.serialOpts != null) serialOpts = new SerializerOptions(qc.serialOpts);
+    readLocks.add(qc.readLocks);
+    writeLocks.add(qc.writeLocks);
+  }
+
+  /**
+   * Binds the external variables and the context value that have been specified via the
+   * {@link MainOptions#BINDINGS} option.
+   * @param sc static context
+   * @throws QueryException query exception
+   */
+  void bindings(final StaticContext sc) throws QueryException {
+    for(final Entry<String, String> entry : QueryProcessor.bindings(context.options).entrySet()) {
+      final String key = entry.getKey();
+      final Atm value = new Atm(entry.getValue());
+      if(key.isEmpty()) context(value, sc);
+      else bind(key, value, sc);
+    }
+  }
+
   /**
    * Checks function calls and variable references.
    * @param main main module
@@ -567,6 +682,10 @@ public final class QueryContext extends Proc implements Closeable {
       closed = true;
       resources.close();
     }
+    if(pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
 
     // reassign original database options
     for(final Entry<Option<?>, Object> e : staticOpts.entrySet()) {
@@ -74,7 +74,7 @@ public final class QueryInfo {
    * Adds some evaluation info.
    * @param string evaluation info
    */
-  void evalInfo(final String string) {
+  synchronized void evalInfo(final String string) {
     if(verbose) evaluate.add(token(string.replaceAll("\r?\n", "|")));
   }
 
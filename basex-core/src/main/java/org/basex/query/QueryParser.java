@@ -8,7 +8,6 @@ import static org.basex.util.ft.FTFlag.*;
 import java.io.*;
 import java.math.*;
 import java.util.*;
-import java.util.Map.Entry;
 
 import org.basex.core.*;
 import org.basex.core.locks.*;
@@ -139,12 +138,7 @@ public class QueryParser extends InputParser {
     this.sc = sctx;
 
     // bind external variables
-    for(final Entry<String, String> entry : QueryProcessor.bindings(opts).entrySet()) {
-      final String key = entry.getKey();
-      final Atm value = new Atm(entry.getValue());
-      if(key.isEmpty()) qc.context(value, sc);
-      else qc.bind(key, value, sc);
-    }
+    qc.bindings(sc);
   }
 
   /**
@@ -29,13 +29,19 @@ public final class QueryProcessor extends Proc implements Closeable {
   "^(xquery( version ['\"].*?['\"])?( encoding ['\"].*?['\"])? ?; ?)?module namespace.*");
 
   /** Static context. */
-  public final StaticContext sc;
+  public StaticContext sc;
   /** Expression context. */
   public final QueryContext qc;
   /** Query. */
   private final String query;
   /** Parsed flag. */
   private boolean parsed;
+  /** Indicates if the query cache may be used. */
+  private boolean cache;
+  /** Key of the cached query (assigned if the query cache is used). */
+  private String key;
+  /** Cached query (will be returned to the cache after evaluation). */
+  private QueryContext cached;
 
   /**
    * Default constructor.
@@ -55,10 +61,38 @@ public final class QueryProcessor extends Proc implements Closeable {
   public void parse() throws QueryException {
     if(parsed) return;
     parsed = true;
-    qc.parseMain(query, null, sc);
+
+    if(cache && qc.context.soptions.get(StaticOptions.QUERYCACHE) > 0) {
+      key = QueryCache.key(query, qc.context);
+      cached = qc.context.queries.remove(key);
+      if(cached != null) {
+        // reuse parsed query
+        qc.bindings(cached.root.sc);
+        qc.copy(cached);
+        sc = cached.root.sc;
+      } else {
+        // parse query; cache copy if no context value has been declared
+        final MainModule ctx = qc.ctxItem;
+        qc.parseMain(query, null, sc);
+        if(qc.ctxItem == ctx) cached = qc.template();
+      }
+    } else {
+      qc.parseMain(query, null, sc);
+    }
     updating = qc.updating;
   }
 
+  /**
+   * Allows the processor to reuse a query that has been parsed before (see
+   * {@link StaticOptions#QUERYCACHE}). Must only be called if the static context of this
+   * processor will not be modified before the query is parsed.
+   * @return self reference
+   */
+  public QueryProcessor cache() {
+    cache = true;
+    return this;
+  }
+
   /**
    * Compiles the query.
    * @throws QueryException query exception
@@ -234,6 +268,11 @@ public final class QueryProcessor extends Proc implements Closeable {
   @Override
   public void close() {
     qc.close();
+    // return parsed query to the cache
+    if(cached != null) {
+      qc.context.queries.add(key, cached, qc.context.soptions.get(StaticOptions.QUERYCACHE));
+      cached = null;
+    }
   }
 
   @Override
@@ -23,7 +23,8 @@ import org.basex.util.list.*;
 
 /**
  * This class provides access to all kinds of resources (databases, documents, database connections,
- * sessions) used by an XQuery expression.
+ * sessions) used by an XQuery expression. Databases, documents and collections may also be
+ * opened by queries that are evaluated in parallel.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -45,7 +46,7 @@ public final class QueryResources {
   private boolean globalData;
 
   /** Module loader. */
-  private ModuleLoader modules;
+  ModuleLoader modules;
   /** External resources. */
   private final HashMap<Class<? extends QueryResource>, QueryResource> external = new HashMap<>();
 
@@ -123,7 +124,7 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data database(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data database(final String name, final InputInfo info) throws QueryException {
     // check if a database with the same name has already been opened
     for(final Data data : datas) {
       if(data.inMemory()) continue;
@@ -148,7 +149,7 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -196,7 +197,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
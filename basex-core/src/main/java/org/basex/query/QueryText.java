@@ -824,6 +824,8 @@ public interface QueryText {
   String OPTCHILD = "converting % to child steps";
   /** Optimization info. */
   String OPTUNROLL = "unrolling %";
+  /** Optimization info. */
+  String OPTLIMIT = "limiting % to % tuple(s)";
 
   // DEBUGGING INFO
 
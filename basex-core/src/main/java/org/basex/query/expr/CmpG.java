@@ -356,9 +356,9 @@ public final class CmpG extends Cmp {
         // add only expressions that yield results and have not been requested before
         if(!strings.contains(string)) {
           strings.put(string);
-          final int costs = data.costs(new StringToken(ii.text, string));
+          final int costs = data.costs(ii.token(string));
           if(costs != 0) {
-            final ValueAccess va = new ValueAccess(info, it, ii.text, ii.test, ii.ic);
+            final ValueAccess va = new ValueAccess(info, it, ii.text, ii.test, ii.name, ii.ic);
             tmp.add(va);
             if(costs == 1) va.seqType(va.seqType().withOcc(Occ.ZERO_ONE));
             ii.costs += costs;
@@ -380,7 +380,7 @@ public final class CmpG extends Cmp {
 
       // estimate costs (tend to worst case)
       ii.costs = Math.max(2, data.meta.size / 10);
-      root = new ValueAccess(info, arg, ii.text, ii.test, ii.ic);
+      root = new ValueAccess(info, arg, ii.text, ii.test, ii.name, ii.ic);
     }
 
     ii.create(root, info, Util.info(ii.text ? OPTTXTINDEX : OPTATVINDEX, arg), false);
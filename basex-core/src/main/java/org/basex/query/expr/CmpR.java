@@ -147,32 +147,43 @@ public final class CmpR extends Single {
     // accept only location path, string and equality expressions
     final Data data = ii.ic.data;
     // sequential main memory scan is assumed to be faster than range index access
-    if(!mni || !mxi || data.inMemory() || !ii.check(expr, false)) return false;
+    if(data.inMemory() || !ii.check(expr, false)) return false;
 
     final Stats key = key(ii, ii.text);
     if(key == null) return false;
 
     // estimate costs for range access; all values out of range: no results
-    final NumericRange nr = new NumericRange(ii.text,
-        Math.max(min, key.min), Math.min(max, key.max));
+    final boolean mn = min < key.min, mx = max > key.max;
+    final NumericRange nr = new NumericRange(ii.text, mn ? key.min : min, mn || mni,
+        mx ? key.max : max, mx || mxi);
 
     // skip queries with no results
-    if(nr.min > nr.max || nr.max < key.min || nr.min > key.max) {
+    if(nr.min > nr.max || nr.max < key.min || nr.min > key.max ||
+        nr.min == nr.max && !(nr.mni && nr.mxi)) {
       ii.costs = 0;
       return true;
     }
 
-    // skip if numbers are negative, doubles, or of different string length
-    final int mnl = min >= 0 && (long) min == min ? token(min).length : -1;
-    final int mxl = max >= 0 && (long) max == max ? token(max).length : -1;
-    if(mnl != mxl || mnl == -1) return false;
+    // numeric keys of the index can be looked up in a tree: exact costs
+    int costs = data.costs(nr);
+    if(costs == Integer.MAX_VALUE) {
+      // otherwise, all keys need to be scanned
+      if(!mni || !mxi) return false;
 
-    // estimate costs (conservative value)
-    ii.costs = Math.max(2, data.meta.size / 3);
+      // skip if numbers are negative, doubles, or of different string length
+      final int mnl = min >= 0 && (long) min == min ? token(min).length : -1;
+      final int mxl = max >= 0 && (long) max == max ? token(max).length : -1;
+      if(mnl != mxl || mnl == -1) return false;
 
-    // don't use index if min/max values are infinite
-    if(min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY ||
-        token((int) nr.min).length != token((int) nr.max).length) return false;
+      // don't use index if min/max values are infinite
+      if(min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY ||
+          token((int) nr.min).length != token((int) nr.max).length) return false;
+
+      // estimate costs (conservative value)
+      costs = Math.max(2, data.meta.size / 3);
+    }
+    ii.costs = costs;
+    if(costs == 0) return true;
 
     final TokenBuilder tb = new TokenBuilder();
     tb.add(mni ? '[' : '(').addExt(min).add(',').addExt(max).add(mxi ? ']' : ')');
@@ -32,6 +32,8 @@ public final class ValueAccess extends IndexAccess {
   private final boolean text;
   /** Parent name test. */
   private final NameTest test;
+  /** Name id for composite index keys (0: no composite keys). */
+  private final int name;
 
   /**
    * Constructor.
@@ -39,14 +41,16 @@ public final class ValueAccess extends IndexAccess {
    * @param expr index expression
    * @param text text index
    * @param test test test
+   * @param name name id for composite index keys (0: no composite keys)
    * @param ictx index context
    */
   public ValueAccess(final InputInfo info, final Expr expr, final boolean text, final NameTest test,
-      final IndexContext ictx) {
+      final int name, final IndexContext ictx) {
     super(ictx, info);
     this.expr = expr;
     this.text = text;
     this.test = test;
+    this.name = name;
   }
 
   @Override
@@ -75,7 +79,8 @@ public final class ValueAccess extends IndexAccess {
     // otherwise, scan data sequentially
     final Data data = ictx.data;
     final IndexIterator ii = (text ? data.meta.textindex : data.meta.attrindex) &&
-        tl > 0 && tl <= data.meta.maxlen ? data.iter(new StringToken(text, term)) : scan(term);
+        tl > 0 && tl <= data.meta.maxlen ? data.iter(name == 0 ? new StringToken(text, term) :
+        new StringToken(text, name, term)) : scan(term);
 
     final int kind = text ? Data.TEXT : Data.ATTR;
     final DBNode tmp = new DBNode(data, 0, test == null ? kind : Data.ELEM);
@@ -178,7 +183,7 @@ public final class ValueAccess extends IndexAccess {
 
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
-    return copyType(new ValueAccess(info, expr.copy(qc, scp, vs), text, test, ictx));
+    return copyType(new ValueAccess(info, expr.copy(qc, scp, vs), text, test, name, ictx));
   }
 
   @Override
@@ -2,6 +2,8 @@ package org.basex.query.expr.ft;
 
 import static org.basex.query.QueryText.*;
 
+import java.util.*;
+
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
@@ -21,10 +23,21 @@ import org.basex.util.hash.*;
  * @author Christian Gruen
  */
 public final class FTIndexAccess extends Simple {
+  /** Order of ranked results: ascending scores, descending pre values. */
+  static final Comparator<FTNode> ORDER = new Comparator<FTNode>() {
+    @Override
+    public int compare(final FTNode node1, final FTNode node2) {
+      final int c = Double.compare(node1.score(), node2.score());
+      return c != 0 ? c : node2.pre - node1.pre;
+    }
+  };
+
   /** Full-text expression. */
   private final FTExpr ftexpr;
   /** Database name. */
   private final IndexContext ictx;
+  /** Maximum number of results, ordered by descending scores (0: all results). */
+  private final int top;
 
   /**
    * Constructor.
@@ -33,13 +46,28 @@ public final class FTIndexAccess extends Simple {
    * @param ictx index context
    */
   public FTIndexAccess(final InputInfo info, final FTExpr ftexpr, final IndexContext ictx) {
+    this(info, ftexpr, ictx, 0);
+  }
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param ftexpr contains, select and optional ignore expression
+   * @param ictx index context
+   * @param top maximum number of results, ordered by descending scores (0: all results)
+   */
+  public FTIndexAccess(final InputInfo info, final FTExpr ftexpr, final IndexContext ictx,
+      final int top) {
     super(info);
     this.ftexpr = ftexpr;
     this.ictx = ictx;
+    this.top = top;
   }
 
   @Override
   public NodeIter iter(final QueryContext qc) throws QueryException {
+    if(top > 0) return top(qc);
+
     final FTIter ir = ftexpr.iter(qc);
 
     return new NodeIter() {
@@ -59,6 +87,46 @@ public final class FTIndexAccess extends Simple {
     };
   }
 
+  /**
+   * Returns an iterator for the results with the highest scores.
+   * @param qc query context
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  private NodeIter top(final QueryContext qc) throws QueryException {
+    // rank results with early termination, or rank all results
+    FTNode[] nodes = ftexpr instanceof FTWords ? ((FTWords) ftexpr).top(qc, top) : null;
+    if(nodes == null) {
+      final MinHeap<FTNode, FTNode> heap = new MinHeap<>(ORDER);
+      final FTIter ir = ftexpr.iter(qc);
+      for(FTNode it; (it = ir.next()) != null;) {
+        // compute score and cache entry before the matches are reused by the iterator
+        it.score();
+        if(qc.ftPosData != null) qc.ftPosData.add(it.data, it.pre, it.all);
+        it.all = null;
+        heap.insert(it, it);
+        if(heap.size() > top) heap.removeMin();
+      }
+      nodes = new FTNode[heap.size()];
+      for(int n = nodes.length; --n >= 0;) nodes[n] = heap.removeMin();
+    } else {
+      for(final FTNode it : nodes) {
+        if(qc.ftPosData != null) qc.ftPosData.add(it.data, it.pre, it.all);
+        it.all = null;
+      }
+    }
+
+    final FTNode[] results = nodes;
+    return new NodeIter() {
+      int n;
+
+      @Override
+      public ANode next() {
+        return n < results.length ? results[n++] : null;
+      }
+    };
+  }
+
   @Override
   public boolean has(final Flag flag) {
     return ftexpr.has(flag);
@@ -82,7 +150,7 @@ public final class FTIndexAccess extends Simple {
 
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
-    return new FTIndexAccess(info, ftexpr.copy(qc, scp, vs), ictx);
+    return new FTIndexAccess(info, ftexpr.copy(qc, scp, vs), ictx, top);
   }
 
   @Override
@@ -97,7 +165,7 @@ public final class FTIndexAccess extends Simple {
 
   @Override
   public boolean iterable() {
-    return ictx.iterable;
+    return ictx.iterable && top == 0;
   }
 
   @Override
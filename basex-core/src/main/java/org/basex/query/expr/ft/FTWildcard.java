@@ -3,6 +3,7 @@ package org.basex.query.expr.ft;
 import static org.basex.util.Token.*;
 
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * Wildcard expression.
@@ -134,6 +135,88 @@ public final class FTWildcard {
     return match(cps(t), 0, 0);
   }
 
+  /**
+   * Indicates if the expression starts with a wildcard of unlimited length.
+   * If this is the case, no token can be rejected before all its characters have been consumed.
+   * @return result of check
+   */
+  public boolean unlimited() {
+    return size > 0 && wc[0] == DOT && max[0] == Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the initial states of an automaton that accepts all matching tokens.
+   * A state consists of a query position and the number of characters that have been
+   * consumed by the wildcard at this position.
+   * @return states (pairs of positions and numbers of consumed characters)
+   */
+  public int[] start() {
+    return closure(new IntList().add(0).add(0));
+  }
+
+  /**
+   * Returns the states that are reached after consuming a character.
+   * @param states states
+   * @param cp character
+   * @return states (empty if no match is possible anymore)
+   */
+  public int[] next(final int[] states, final int cp) {
+    final IntList next = new IntList();
+    final int sl = states.length;
+    for(int s = 0; s < sl; s += 2) {
+      final int qi = states[s], n = states[s + 1];
+      if(qi == size) continue;
+      if(wc[qi] == DOT) {
+        // numbers of characters beyond the minimum are equivalent for unbounded wildcards
+        if(n < max[qi]) add(next, qi, max[qi] == Integer.MAX_VALUE ? Math.min(n + 1, min[qi]) :
+          n + 1);
+      } else if(wc[qi] == cp) {
+        add(next, qi + 1, 0);
+      }
+    }
+    return closure(next);
+  }
+
+  /**
+   * Checks if the specified states include the final state.
+   * @param states states
+   * @return result of check
+   */
+  public boolean accept(final int[] states) {
+    final int sl = states.length;
+    for(int s = 0; s < sl; s += 2) {
+      if(states[s] == size) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Adds the states that can be reached without consuming characters.
+   * @param states states
+   * @return all states
+   */
+  private int[] closure(final IntList states) {
+    for(int s = 0; s < states.size(); s += 2) {
+      final int qi = states.get(s);
+      if(qi < size && wc[qi] == DOT && states.get(s + 1) >= min[qi]) add(states, qi + 1, 0);
+    }
+    return states.finish();
+  }
+
+  /**
+   * Adds a state if it does not exist yet.
+   * @param states states
+   * @param qi query position
+   * @param n number of consumed characters
+   */
+  private static void add(final IntList states, final int qi, final int n) {
+    final int sl = states.size();
+    for(int s = 0; s < sl; s += 2) {
+      if(states.get(s) == qi && states.get(s + 1) == n) return;
+    }
+    states.add(qi).add(n);
+  }
+
   /**
    * Indicates if the input contains no wildcard characters.
    * @return result of check
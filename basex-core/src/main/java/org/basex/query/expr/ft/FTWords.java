@@ -3,6 +3,8 @@ package org.basex.query.expr.ft;
 import static org.basex.query.QueryText.*;
 import static org.basex.util.ft.FTFlag.*;
 
+import java.util.*;
+
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.query.*;
@@ -118,42 +120,21 @@ public final class FTWords extends FTExpr {
     return new FTIter() {
       FTIndexIterator ftiter;
       int len;
+      boolean bm25;
 
       @Override
       public FTNode next() throws QueryException {
         if(ftiter == null) {
-          final FTLexer lexer = new FTLexer(ftt.opt);
-          lexer.lserror(qc.context.options.get(MainOptions.LSERROR));
-
-          // index iterator tree
-          // number of distinct tokens
-          int t = 0;
-          // loop through unique tokens
-          for(final byte[] k : unique(tokens != null ? tokens : tokens(qc))) {
-            lexer.init(k);
-            if(!lexer.hasNext()) return null;
-
-            int d = 0;
-            FTIndexIterator ii = null;
-            do {
-              final byte[] tok = lexer.nextToken();
-              t += tok.length;
-              if(ftt.opt.sw != null && ftt.opt.sw.contains(tok)) {
-                ++d;
-              } else {
-                final FTIndexIterator ir = lexer.get().length > data.meta.maxlen ? scan(lexer) :
-                  (FTIndexIterator) data.iter(lexer);
-                ir.pos(++qc.ftPos);
-                if(ii == null) {
-                  ii = ir;
-                } else {
-                  ii = FTIndexIterator.intersect(ii, ir, ++d);
-                  d = 0;
-                }
-              }
-            } while(lexer.hasNext());
-
-            // create or combine iterator
+          final IntList lengths = new IntList();
+          final FTIndexIterator[] iters = iterators(qc, lengths);
+          if(iters == null) return null;
+          bm25 = qc.context.options.get(MainOptions.BM25);
+
+          // create or combine iterator
+          final int il = iters.length;
+          for(int i = 0; i < il; i++) {
+            final FTIndexIterator ii = iters[i];
+            final int t = lengths.get(i);
             if(ftiter == null) {
               len = t;
               ftiter = ii;
@@ -171,11 +152,173 @@ public final class FTWords extends FTExpr {
 
         // [CG] XQuery, Full-Text: check scoring in index-based model
         return ftiter == null || !ftiter.more() ? null :
-          new FTNode(ftiter.matches(), data, ftiter.pre(), len, ftiter.size(), -1);
+          new FTNode(ftiter.matches(), data, ftiter.pre(), len, ftiter.size(),
+              bm25 ? Scoring.bm25(ftiter.score()) : -1);
       }
     };
   }
 
+  /**
+   * Returns the results with the highest BM25 scores, ordered by descending scores.
+   * The index iterators of the query strings are sorted by the upper bounds of their scores.
+   * Iterators whose summed bounds are smaller than the lowest score of the current results
+   * will only be probed for the results of the remaining iterators (MaxScore).
+   * @param qc query context
+   * @param top maximum number of results
+   * @return results, or {@code null} if the results cannot be ranked by this expression
+   * @throws QueryException query exception
+   */
+  FTNode[] top(final QueryContext qc, final int top) throws QueryException {
+    if(mode == FTMode.ALL || mode == FTMode.ALL_WORDS ||
+      !qc.context.options.get(MainOptions.BM25)) return null;
+
+    final IntList lengths = new IntList();
+    final FTIndexIterator[] iters = iterators(qc, lengths);
+    if(iters == null) return new FTNode[0];
+
+    // skip iterators without results; check if statistics are available
+    final ArrayList<FTIndexIterator> list = new ArrayList<>();
+    int len = 0, size = 0;
+    final int il = iters.length;
+    for(int i = 0; i < il; i++) {
+      final FTIndexIterator ii = iters[i];
+      if(ii == null || ii.bound() < 0) return null;
+      if(i != 0 && ii.size() == 0) continue;
+      len = i == 0 ? lengths.get(i) : Math.max(len, lengths.get(i));
+      size += ii.size();
+      list.add(ii);
+    }
+    final int n = list.size();
+    final FTIndexIterator[] its = list.toArray(new FTIndexIterator[n]);
+
+    // sort iterators by their bounds, sum up bounds
+    final double[] bounds = new double[n];
+    for(int i = 0; i < n; i++) bounds[i] = its[i].bound();
+    final int[] order = Array.createOrder(bounds.clone(), true);
+    final double[] sums = new double[n];
+    for(int o = 0; o < n; o++) sums[o] = (o == 0 ? 0 : sums[o - 1]) + bounds[order[o]];
+
+    final boolean[] more = new boolean[n], hit = new boolean[n];
+    final double[] scores = new double[n];
+    for(int i = 0; i < n; i++) more[i] = its[i].more();
+
+    final MinHeap<FTNode, FTNode> heap = new MinHeap<>(FTIndexAccess.ORDER);
+    // lowest score of the current results, first essential iterator
+    double min = -1;
+    int ess = 0;
+    while(true) {
+      // choose smallest pre value of the essential iterators
+      int pre = Integer.MAX_VALUE;
+      for(int o = ess; o < n; o++) {
+        final int i = order[o];
+        if(more[i] && its[i].pre() < pre) pre = its[i].pre();
+      }
+      if(pre == Integer.MAX_VALUE) break;
+
+      double score = 0;
+      for(int o = ess; o < n; o++) {
+        final int i = order[o];
+        hit[i] = more[i] && its[i].pre() == pre;
+        if(hit[i]) {
+          scores[i] = its[i].score();
+          score += scores[i];
+        }
+      }
+      // probe non-essential iterators, starting with the largest bounds
+      boolean skip = false;
+      for(int o = ess - 1; o >= 0; o--) {
+        final int i = order[o];
+        skip = Scoring.bm25(score + sums[o]) < min;
+        if(skip) break;
+        if(more[i] && its[i].pre() < pre) more[i] = its[i].more(pre);
+        hit[i] = more[i] && its[i].pre() == pre;
+        if(hit[i]) {
+          scores[i] = its[i].score();
+          score += scores[i];
+        }
+      }
+
+      if(!skip) {
+        // sum up scores and merge matches in the order of the query strings
+        double sum = 0;
+        FTMatches all = null;
+        for(int i = 0; i < n; i++) {
+          if(!hit[i]) continue;
+          sum += scores[i];
+          final FTMatches m = its[i].matches();
+          if(all == null) all = new FTMatches(m.pos);
+          for(final FTMatch ma : m) all.add(ma);
+        }
+        final FTNode node = new FTNode(all, data, pre, len, size, Scoring.bm25(sum));
+        if(heap.size() < top || FTIndexAccess.ORDER.compare(node, heap.min()) > 0) {
+          heap.insert(node, node);
+          if(heap.size() > top) heap.removeMin();
+          if(heap.size() == top) {
+            // make iterators non-essential if they cannot produce new results on their own
+            min = heap.min().score();
+            while(ess < n && Scoring.bm25(sums[ess]) < min) ess++;
+          }
+        }
+      }
+
+      // advance all iterators that are positioned on the current result
+      for(int i = 0; i < n; i++) {
+        if(more[i] && its[i].pre() == pre) more[i] = its[i].more();
+      }
+    }
+
+    final FTNode[] nodes = new FTNode[heap.size()];
+    for(int i = nodes.length; --i >= 0;) nodes[i] = heap.removeMin();
+    return nodes;
+  }
+
+  /**
+   * Returns the index iterators for all unique query strings.
+   * @param qc query context
+   * @param lengths summed token lengths up to the current query string
+   * @return iterators (an entry may be {@code null} if all tokens are stop words),
+   *   or {@code null} if no results will be found
+   * @throws QueryException query exception
+   */
+  private FTIndexIterator[] iterators(final QueryContext qc, final IntList lengths)
+      throws QueryException {
+
+    final FTLexer lexer = new FTLexer(ftt.opt);
+    lexer.lserror(qc.context.options.get(MainOptions.LSERROR));
+
+    final ArrayList<FTIndexIterator> iters = new ArrayList<>();
+    // number of distinct tokens
+    int t = 0;
+    // loop through unique tokens
+    for(final byte[] k : unique(tokens != null ? tokens : tokens(qc))) {
+      lexer.init(k);
+      if(!lexer.hasNext()) return null;
+
+      int d = 0;
+      FTIndexIterator ii = null;
+      do {
+        final byte[] tok = lexer.nextToken();
+        t += tok.length;
+        if(ftt.opt.sw != null && ftt.opt.sw.contains(tok)) {
+          ++d;
+        } else {
+          final FTIndexIterator ir = lexer.get().length > data.meta.maxlen ? scan(lexer) :
+            (FTIndexIterator) data.iter(lexer);
+          ir.pos(++qc.ftPos);
+          if(ii == null) {
+            ii = ir;
+          } else {
+            ii = FTIndexIterator.intersect(ii, ir, ++d);
+            d = 0;
+          }
+        }
+      } while(lexer.hasNext());
+      iters.add(ii);
+      lengths.add(t);
+    }
+    return iters.toArray(new FTIndexIterator[iters.size()]);
+  }
+
   /**
    * Returns a scan-based index iterator.
    * @param lex lexer, including the queried value
@@ -1,7 +1,9 @@
 package org.basex.query.expr.gflwor;
 
 import java.util.*;
+import java.util.List;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.path.*;
@@ -43,22 +45,14 @@ public final class GFLWOR extends ParseExpr {
   }
 
   @Override
-  public Iter iter(final QueryContext qc) {
-    // Start evaluator, doing nothing, once.
-    Eval e = new Eval() {
-      /** First-evaluation flag. */
-      private boolean first = true;
-      @Override
-      public boolean next(final QueryContext q) {
-        if(!first) return false;
-        first = false;
-        return true;
-      }
-    };
-
-    for(final Clause cls : clauses) e = cls.eval(e);
-    final Eval ev = e;
+  public Iter iter(final QueryContext qc) throws QueryException {
+    final int threads = qc.context.options.get(MainOptions.FORKJOIN);
+    if(threads > 1 && !qc.forked() && parallel()) {
+      final Value value = parallel(threads, qc);
+      if(value != null) return value.iter();
+    }
 
+    final Eval ev = eval(clauses);
     return new Iter() {
       /** Return iterator. */
       private Iter sub = Empty.ITER;
@@ -81,6 +75,73 @@ public final class GFLWOR extends ParseExpr {
     };
   }
 
+  /**
+   * Creates an evaluator for the specified clauses.
+   * @param cls clauses
+   * @return evaluator
+   */
+  private static Eval eval(final List<Clause> cls) {
+    // Start evaluator, doing nothing, once.
+    Eval e = new Eval() {
+      /** First-evaluation flag. */
+      private boolean first = true;
+      @Override
+      public boolean next(final QueryContext q) {
+        if(!first) return false;
+        first = false;
+        return true;
+      }
+    };
+    for(final Clause cl : cls) e = cl.eval(e);
+    return e;
+  }
+
+  /**
+   * Checks if the iterations of the first clause can be evaluated in parallel.
+   * This is the case if the first clause is a {@code for} clause without score variable,
+   * if it is only followed by {@code for}, {@code let} and {@code where} clauses, and if the
+   * remaining expressions perform no updates and have no other side effects.
+   * @return result of check
+   */
+  private boolean parallel() {
+    final Clause first = clauses.getFirst();
+    if(!(first instanceof For) || ((For) first).score != null) return false;
+    for(final Clause clause : clauses) {
+      if(!(clause instanceof ForLet || clause instanceof Where)) return false;
+      if(clause != first && (clause.has(Flag.UPD) || clause.has(Flag.NDT))) return false;
+    }
+    return !ret.has(Flag.UPD) && !ret.has(Flag.NDT);
+  }
+
+  /**
+   * Evaluates the iterations of the first {@code for} clause in parallel.
+   * @param threads number of threads
+   * @param qc query context
+   * @return result, or {@code null} if the expression must be evaluated sequentially
+   * @throws QueryException query exception
+   */
+  private Value parallel(final int threads, final QueryContext qc) throws QueryException {
+    final For fr = (For) clauses.getFirst();
+    final Value value = qc.value(fr.expr);
+    final long vs = value.size();
+    // empty sequence: the remaining clauses will be evaluated once if "allowing empty" is set
+    if(vs == 0) return fr.empty ? null : Empty.SEQ;
+    // small number of iterations: sequential evaluation is cheaper
+    if(vs < Parallel.MIN) return null;
+
+    final List<Clause> cls = clauses.subList(1, clauses.size());
+    return new Parallel() {
+      @Override
+      protected Value eval(final long part, final QueryContext tqc) throws QueryException {
+        tqc.set(fr.var, value.itemAt(part), fr.info);
+        if(fr.pos != null) tqc.set(fr.pos, Int.get(part + 1), fr.info);
+        final ValueBuilder vb = new ValueBuilder();
+        for(final Eval ev = GFLWOR.eval(cls); ev.next(tqc);) vb.add(tqc.value(ret));
+        return vb.value();
+      }
+    }.value(vs, threads, qc);
+  }
+
   @Override
   public Expr compile(final QueryContext qc, final VarScope scp) throws QueryException {
     int i = 0;
@@ -235,6 +296,27 @@ public final class GFLWOR extends ParseExpr {
     return this;
   }
 
+  /**
+   * Limits the number of tuples that are sorted by the last {@code order by} clause.
+   * This function is called if only the first results of this expression will be consumed.
+   * The limit is only applied if each tuple yields at least one result.
+   * @param max maximum number of results
+   * @param qc query context
+   */
+  public void limit(final long max, final QueryContext qc) {
+    if(max < 1 || ret.seqType().mayBeZero()) return;
+    for(int c = clauses.size(); --c >= 0;) {
+      final Clause clause = clauses.get(c);
+      if(clause instanceof OrderBy) {
+        qc.compInfo(QueryText.OPTLIMIT, clause, max);
+        ((OrderBy) clause).limit(max);
+        return;
+      }
+      // only let and count clauses preserve the number of tuples
+      if(!(clause instanceof Let || clause instanceof Count)) return;
+    }
+  }
+
   /**
    * Pre-calculates the number of results of this FLWOR expression.
    * @return result size if statically computable, {@code -1} otherwise
@@ -4,7 +4,6 @@ import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
 import java.util.*;
-import java.util.List;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -30,6 +29,8 @@ public final class OrderBy extends Clause {
   private VarRef[] refs;
   /** Sort keys. */
   private final Key[] keys;
+  /** Maximum number of returned tuples. */
+  private long limit = Long.MAX_VALUE;
 
   /**
    * Constructor.
@@ -46,16 +47,20 @@ public final class OrderBy extends Clause {
   @Override
   Eval eval(final Eval sub) {
     return new Eval() {
-      /** Sorted output tuples. */
+      /** Sort keys of the cached tuples. */
+      private Item[][] ks;
+      /** Cached tuples. */
       private Value[][] tpls;
-      /** Permutation of the values. */
-      private Integer[] perm;
+      /** Positions of the cached tuples in the input. */
+      private int[] ids;
+      /** Permutation of the cached tuples. */
+      private int[] perm;
       /** Current position. */
       int pos;
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(tpls == null) sort(qc);
-        if(pos == tpls.length) return false;
+        if(perm == null) sort(qc);
+        if(pos == perm.length) return false;
         final int p = perm[pos++];
         final Value[] tuple = tpls[p];
         // free the space occupied by the tuple
@@ -66,72 +71,187 @@ public final class OrderBy extends Clause {
       }
 
       /**
-       * Caches and sorts all incoming tuples.
+       * Caches and sorts all incoming tuples. If the number of returned tuples is limited,
+       * only the smallest tuples are cached in a binary max-heap.
        * @param qc query context
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext qc) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<>();
-        while(sub.next(qc)) {
+        final boolean heap = limit != Long.MAX_VALUE;
+        int cap = (int) Math.min(Array.CAPACITY, limit);
+        ks = new Item[cap][];
+        tpls = new Value[cap][];
+        ids = new int[cap];
+
+        int size = 0;
+        for(int id = 0; sub.next(qc); id++) {
           final int kl = keys.length;
           final Item[] key = new Item[kl];
           for(int k = 0; k < kl; k++) key[k] = keys[k].expr.atomItem(qc, keys[k].info);
-          tuples.add(key);
+
+          final int t;
+          if(size < limit) {
+            if(size == cap) {
+              cap = (int) Math.min(Array.newSize(cap), limit);
+              ks = Arrays.copyOf(ks, cap);
+              tpls = Arrays.copyOf(tpls, cap);
+              ids = Arrays.copyOf(ids, cap);
+            }
+            t = size++;
+          } else if(compare(key, id, 0) < 0) {
+            // replace largest cached tuple
+            t = 0;
+          } else {
+            continue;
+          }
 
           final int rl = refs.length;
           final Value[] vals = new Value[rl];
           for(int r = 0; r < rl; r++) vals[r] = refs[r].value(qc);
-          tuples.add(vals);
+          ks[t] = key;
+          tpls[t] = vals;
+          ids[t] = id;
+          if(heap) {
+            if(t == 0) down(0, size);
+            else up(t);
+          }
         }
 
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
+        perm = new int[size];
+        for(int p = 0; p < size; p++) perm[p] = p;
+        sort(perm, new int[size], 0, size);
+      }
+
+      /**
+       * Moves a cached tuple up the heap.
+       * @param t position of the tuple
+       * @throws QueryException evaluation exception
+       */
+      private void up(final int t) throws QueryException {
+        for(int c = t; c > 0;) {
+          final int p = c - 1 >>> 1;
+          if(compare(c, p) <= 0) break;
+          swap(c, p);
+          c = p;
         }
-        // be nice to the garbage collector
-        tuples = null;
-        try {
-          Arrays.sort(perm, new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer x, final Integer y) {
-              try {
-                final Item[] a = ks[x], b = ks[y];
-                final int kl = keys.length;
-                for(int k = 0; k < kl; k++) {
-                  final Key or = keys[k];
-                  Item m = a[k], n = b[k];
-                  if(m == Dbl.NAN || m == Flt.NAN) m = null;
-                  if(n == Dbl.NAN || n == Flt.NAN) n = null;
-                  if(m != null && n != null && !m.comparable(n))
-                    throw castError(or.info, n, m.type);
-
-                  final int c = m == null
-                      ? n == null ? 0                 : or.least ? -1 : 1
-                      : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
-                  if(c != 0) return or.desc ? -c : c;
-                }
-                return 0;
-              } catch(final QueryException ex) {
-                throw new QueryRTException(ex);
-              }
-            }
-          });
-        } catch(final QueryRTException ex) {
-          throw ex.getCause();
+      }
+
+      /**
+       * Moves a cached tuple down the heap.
+       * @param t position of the tuple
+       * @param size size of the heap
+       * @throws QueryException evaluation exception
+       */
+      private void down(final int t, final int size) throws QueryException {
+        for(int p = t;;) {
+          int c = (p << 1) + 1;
+          if(c >= size) break;
+          if(c + 1 < size && compare(c + 1, c) > 0) c++;
+          if(compare(c, p) <= 0) break;
+          swap(c, p);
+          p = c;
         }
       }
+
+      /**
+       * Swaps two cached tuples.
+       * @param a first position
+       * @param b second position
+       */
+      private void swap(final int a, final int b) {
+        final Item[] k = ks[a];
+        ks[a] = ks[b];
+        ks[b] = k;
+        final Value[] v = tpls[a];
+        tpls[a] = tpls[b];
+        tpls[b] = v;
+        final int i = ids[a];
+        ids[a] = ids[b];
+        ids[b] = i;
+      }
+
+      /**
+       * Sorts the specified range of the permutation array (merge sort).
+       * @param array permutation array
+       * @param tmp temporary array
+       * @param start start position
+       * @param end end position (exclusive)
+       * @throws QueryException evaluation exception
+       */
+      private void sort(final int[] array, final int[] tmp, final int start, final int end)
+          throws QueryException {
+        if(end - start < 8) {
+          // insertion sort for small ranges
+          for(int i = start + 1; i < end; i++) {
+            final int v = array[i];
+            int j = i;
+            for(; j > start && compare(array[j - 1], v) > 0; j--) array[j] = array[j - 1];
+            array[j] = v;
+          }
+          return;
+        }
+        final int mid = start + end >>> 1;
+        sort(array, tmp, start, mid);
+        sort(array, tmp, mid, end);
+        if(compare(array[mid - 1], array[mid]) <= 0) return;
+
+        System.arraycopy(array, start, tmp, start, end - start);
+        for(int i = start, l = start, r = mid; i < end; i++) {
+          array[i] = r == end || l < mid && compare(tmp[l], tmp[r]) <= 0 ? tmp[l++] : tmp[r++];
+        }
+      }
+
+      /**
+       * Compares two cached tuples.
+       * @param a position of the first tuple
+       * @param b position of the second tuple
+       * @return result of comparison
+       * @throws QueryException evaluation exception
+       */
+      private int compare(final int a, final int b) throws QueryException {
+        return compare(ks[a], ids[a], b);
+      }
+
+      /**
+       * Compares a tuple with a cached tuple. Tuples with equal keys are ordered by their
+       * input position.
+       * @param a keys of the first tuple
+       * @param id input position of the first tuple
+       * @param b position of the cached tuple
+       * @return result of comparison
+       * @throws QueryException evaluation exception
+       */
+      private int compare(final Item[] a, final int id, final int b) throws QueryException {
+        final Item[] bk = ks[b];
+        final int kl = keys.length;
+        for(int k = 0; k < kl; k++) {
+          final Key or = keys[k];
+          Item m = a[k], n = bk[k];
+          if(m == Dbl.NAN || m == Flt.NAN) m = null;
+          if(n == Dbl.NAN || n == Flt.NAN) n = null;
+          if(m != null && n != null && !m.comparable(n)) throw castError(or.info, n, m.type);
+
+          final int c = m == null
+              ? n == null ? 0                 : or.least ? -1 : 1
+              : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
+          if(c != 0) return or.desc ? -c : c;
+        }
+        return id < ids[b] ? -1 : id > ids[b] ? 1 : 0;
+      }
     };
   }
 
+  /**
+   * Limits the number of returned tuples.
+   * @param max maximum number of tuples (1 or larger)
+   */
+  void limit(final long max) {
+    limit = Math.min(limit, max);
+  }
+
   @Override
   public void plan(final FElem plan) {
-    final FElem e = planElem();
+    final FElem e = limit == Long.MAX_VALUE ? planElem() : planElem(MAX, limit);
     for(final Key k : keys) k.plan(e);
     plan.add(e);
   }
@@ -183,7 +303,10 @@ public final class OrderBy extends Clause {
 
   @Override
   public OrderBy copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
-    return new OrderBy(Arr.copyAll(qc, scp, vs, refs), Arr.copyAll(qc, scp, vs, keys), info);
+    final OrderBy ob = new OrderBy(Arr.copyAll(qc, scp, vs, refs), Arr.copyAll(qc, scp, vs, keys),
+        info);
+    ob.limit = limit;
+    return ob;
   }
 
   @Override
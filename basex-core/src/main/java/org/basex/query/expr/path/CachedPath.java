@@ -39,20 +39,25 @@ final class CachedPath extends AxisPath {
     final long cp = qc.pos, cs = qc.size;
     final Value cv = qc.value, r = root != null ? qc.value(root) : cv;
     try {
-      final NodeSeqBuilder nb = new NodeSeqBuilder().check();
+      // collect and sort context nodes
+      NodeSeqBuilder nb = new NodeSeqBuilder().check();
       if(r != null) {
         final Iter ir = qc.iter(r);
         for(Item it; (it = ir.next()) != null;) {
-          // ensure that root only returns nodes
-          if(root != null && !(it instanceof ANode))
-            throw PATHNODE_X_X_X.get(info, steps[0], it.type, it);
-          qc.value = it;
-          iter(0, nb, qc);
+          if(!(it instanceof ANode)) {
+            // ensure that root only returns nodes
+            if(root != null) throw PATHNODE_X_X_X.get(info, steps[0], it.type, it);
+            qc.value = it;
+            ((Step) steps[0]).checkNode(qc);
+          }
+          nb.add((ANode) it);
         }
       } else {
         qc.value = null;
-        iter(0, nb, qc);
+        ((Step) steps[0]).checkNode(qc);
       }
+      // evaluate steps for the sorted results of the previous steps
+      for(final Expr step : steps) nb = step(step, nb, qc);
       return nb.sort();
     } finally {
       qc.value = cv;
@@ -62,27 +67,34 @@ final class CachedPath extends AxisPath {
   }
 
   /**
-   * Recursive step iterator.
-   * @param l current step
-   * @param nc node cache
+   * Evaluates a step for all context nodes.
+   * @param step step
+   * @param nodes context nodes
    * @param qc query context
+   * @return resulting nodes
    * @throws QueryException query exception
    */
-  private void iter(final int l, final NodeSeqBuilder nc, final QueryContext qc)
-      throws QueryException {
+  private static NodeSeqBuilder step(final Expr step, final NodeSeqBuilder nodes,
+      final QueryContext qc) throws QueryException {
 
-    // cast is safe (steps will always return a {@link NodeIter} instance)
-    final NodeIter ni = (NodeIter) qc.iter(steps[l]);
-    final boolean more = l + 1 != steps.length;
-    for(ANode node; (node = ni.next()) != null;) {
-      if(more) {
-        qc.value = node;
-        iter(l + 1, nc, qc);
-      } else {
+    // database nodes: evaluate step via staircase join
+    if(step instanceof IterStep && nodes.dbnodes()) {
+      final NodeSeqBuilder nb = ((IterStep) step).staircase(nodes, qc);
+      if(nb != null) return nb;
+    }
+
+    final NodeSeqBuilder nb = new NodeSeqBuilder().check();
+    final int ns = (int) nodes.size();
+    for(int n = 0; n < ns; n++) {
+      qc.value = nodes.get(n);
+      // cast is safe (steps will always return a {@link NodeIter} instance)
+      final NodeIter ni = (NodeIter) qc.iter(step);
+      for(ANode node; (node = ni.next()) != null;) {
         qc.checkStop();
-        nc.add(node);
+        nb.add(node);
       }
     }
+    return nb;
   }
 
   @Override
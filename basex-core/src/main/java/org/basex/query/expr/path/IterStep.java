@@ -1,6 +1,7 @@
 
 package org.basex.query.expr.path;
 
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
@@ -8,6 +9,7 @@ import org.basex.query.value.node.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
+import org.basex.util.list.*;
 
 /**
  * Iterative step expression without numeric predicates.
@@ -44,6 +46,74 @@ final class IterStep extends Step {
     };
   }
 
+  /**
+   * Evaluates the step for a sorted and duplicate-free sequence of database nodes, which all
+   * refer to the same database (staircase join). Nested context nodes are pruned, and each
+   * relevant pre range is only scanned once. The resulting nodes are sorted and duplicate-free.
+   * @param nodes context nodes
+   * @param qc query context
+   * @return resulting nodes, or {@code null} if the join cannot be applied
+   * @throws QueryException query exception
+   */
+  NodeSeqBuilder staircase(final NodeSeqBuilder nodes, final QueryContext qc)
+      throws QueryException {
+
+    final boolean self = axis == Axis.DESCORSELF || axis == Axis.ANCORSELF;
+    final boolean desc = axis == Axis.DESC || axis == Axis.DESCORSELF;
+    if(!desc && axis != Axis.ANC && axis != Axis.ANCORSELF) return null;
+
+    final int ns = (int) nodes.size();
+    final NodeSeqBuilder nb = new NodeSeqBuilder();
+    if(ns == 0) return nb;
+
+    final DBNode first = (DBNode) nodes.get(0);
+    final Data data = first.data;
+    // attributes are skipped by the descendant scans
+    if(desc && self) {
+      for(int n = 0; n < ns; n++) {
+        if(data.kind(((DBNode) nodes.get(n)).pre) == Data.ATTR) return null;
+      }
+    }
+
+    final DBNode node = first.copy();
+    if(desc) {
+      // prune context nodes that are descendants of the last node
+      int end = -1;
+      for(int n = 0; n < ns; n++) {
+        final int pre = ((DBNode) nodes.get(n)).pre;
+        if(pre < end) continue;
+        final int kind = data.kind(pre);
+        end = pre + data.size(pre, kind);
+        for(int p = self ? pre : pre + data.attSize(pre, kind); p < end;) {
+          qc.checkStop();
+          final int k = data.kind(p);
+          node.set(p, k);
+          if(test.eq(node) && preds(node, qc)) nb.add(node.finish());
+          p += data.attSize(p, k);
+        }
+      }
+    } else {
+      // ancestors with a pre value smaller than the last one have already been visited
+      final IntList pres = new IntList();
+      int last = -1;
+      for(int n = 0; n < ns; n++) {
+        final int pre = ((DBNode) nodes.get(n)).pre;
+        for(int p = self ? pre : data.parent(pre, data.kind(pre)); p > last;
+            p = data.parent(p, data.kind(p))) pres.add(p);
+        if(pres.isEmpty()) continue;
+        last = pres.get(0);
+        for(int i = pres.size() - 1; i >= 0; i--) {
+          qc.checkStop();
+          final int p = pres.get(i);
+          node.set(p, data.kind(p));
+          if(test.eq(node) && preds(node, qc)) nb.add(node.finish());
+        }
+        pres.reset();
+      }
+    }
+    return nb;
+  }
+
   @Override
   public IterStep copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     return copyType(new IterStep(info, axis, test.copy(), Arr.copyAll(qc, scp, vs, preds)));
@@ -11,6 +11,7 @@ import org.basex.index.path.*;
 import org.basex.query.*;
 import org.basex.query.expr.constr.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.ft.*;
 import org.basex.query.expr.List;
 import org.basex.query.expr.path.Test.*;
 import org.basex.query.func.fn.*;
@@ -307,9 +308,17 @@ public abstract class Path extends ParseExpr {
     final SeqType tp = root.seqType();
     boolean atMostOne = size == 0 || size == 1 || tp.zeroOrOne();
     boolean sameDepth = atMostOne || tp.type == NodeType.DOC || tp.type == NodeType.DEL;
+    // inverted parent steps of an iterable index access lead to nodes on the same level
+    boolean inverted = root instanceof IndexAccess || root instanceof FTIndexAccess;
+    boolean parent = false;
 
     for(final Expr expr : steps) {
       final Step step = (Step) expr;
+      if(inverted && step.axis != PARENT && step.axis != SELF) {
+        inverted = false;
+        sameDepth |= parent;
+      }
+      parent |= step.axis == PARENT;
       switch(step.axis) {
         case ANC:
         case ANCORSELF:
@@ -346,7 +355,7 @@ public abstract class Path extends ParseExpr {
           break;
         case PARENT:
           // overlaps
-          if(!atMostOne) return false;
+          if(!atMostOne && !inverted) return false;
           break;
         case SELF:
           // nothing changes
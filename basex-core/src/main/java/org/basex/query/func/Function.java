@@ -456,6 +456,9 @@ public enum Function {
   _ARRAY_SUBARRAY(ArraySubarray.class, "subarray(array,pos[,length])", arg(ARRAY_O, ITR, ITR),
       ARRAY_O, ARRAY_URI),
   /** XQuery function. */
+  _ARRAY_PUT(ArrayPut.class, "put(array,pos,member)", arg(ARRAY_O, ITR, ITEM_ZM), ARRAY_O,
+      ARRAY_URI),
+  /** XQuery function. */
   _ARRAY_REMOVE(ArrayRemove.class, "remove(array,pos)", arg(ARRAY_O, ITR), ARRAY_O, ARRAY_URI),
   /** XQuery function. */
   _ARRAY_INSERT_BEFORE(ArrayInsertBefore.class, "insert-before(array,pos,value)",
@@ -1213,6 +1216,9 @@ public enum Function {
       arg(STR, ITEM), NOD, flag(NDT), XQUERY_URI),
   /** XQuery function. */
   _XQUERY_TYPE(XQueryType.class, "type(value)", arg(ITEM_ZM), ITEM_ZM, XQUERY_URI),
+  /** XQuery function. */
+  _XQUERY_FORK_JOIN(XQueryForkJoin.class, "fork-join(functions)",
+      arg(FUN_ZM), ITEM_ZM, flag(HOF), XQUERY_URI),
 
   /* XSLT Module. */
 
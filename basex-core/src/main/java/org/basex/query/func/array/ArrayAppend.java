@@ -1,8 +1,6 @@
 package org.basex.query.func.array;
 
 import org.basex.query.*;
-import org.basex.query.util.list.*;
-import org.basex.query.value.*;
 import org.basex.query.value.array.Array;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
@@ -16,10 +14,6 @@ import org.basex.util.*;
 public final class ArrayAppend extends ArrayFn {
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
-    final Array array = toArray(exprs[0], qc);
-    final int as = array.arraySize();
-    final ValueList vl = new ValueList(as + 1);
-    for(final Value v : array.members()) vl.add(v);
-    return vl.add(qc.value(exprs[1])).array();
+    return toArray(exprs[0], qc).append(qc.value(exprs[1]));
   }
 }
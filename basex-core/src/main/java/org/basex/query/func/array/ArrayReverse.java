@@ -1,7 +1,7 @@
 package org.basex.query.func.array;
 
 import org.basex.query.*;
-import org.basex.query.util.list.*;
+import org.basex.query.value.*;
 import org.basex.query.value.array.Array;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
@@ -16,9 +16,9 @@ public final class ArrayReverse extends ArrayFn {
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
     final Array array = toArray(exprs[0], qc);
-    final int as = array.arraySize();
-    final ValueList vl = new ValueList(as);
-    for(int a = as - 1; a >= 0; a--) vl.add(array.get(a));
-    return vl.array();
+    int a = array.arraySize();
+    final Value[] members = new Value[a];
+    for(final Value v : array.members()) members[--a] = v;
+    return Array.get(members);
   }
 }
@@ -21,6 +21,6 @@ public final class ArraySubarray extends ArrayFn {
     final int l = exprs.length > 2 ? (int) toLong(exprs[2], qc) : array.arraySize() - p;
     if(l < 0) throw ARRAYNEG_X.get(info, l);
     checkPos(array, p + 1 + l, true);
-    return Array.get(array, p, l);
+    return array.subArray(p, l);
   }
 }
@@ -25,6 +25,6 @@ public class DbText extends DbAccess {
    * @throws QueryException query exception
    */
   final ValueAccess valueAccess(final boolean text, final QueryContext qc) throws QueryException {
-    return new ValueAccess(info, exprs[1], text, null, new IndexContext(checkData(qc), false));
+    return new ValueAccess(info, exprs[1], text, null, 0, new IndexContext(checkData(qc), false));
   }
 }
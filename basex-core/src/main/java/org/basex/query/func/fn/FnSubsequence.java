@@ -2,6 +2,7 @@ package org.basex.query.func.fn;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.func.basex.*;
 import org.basex.query.iter.*;
@@ -137,9 +138,20 @@ public class FnSubsequence extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
     final SeqType st = exprs[0].seqType();
     seqType = SeqType.get(st.type, st.zeroOrOne() ? Occ.ZERO_ONE : Occ.ZERO_MORE);
+
+    // static range: only the first tuples of a sorted FLWOR expression need to be sorted
+    if(exprs[0] instanceof GFLWOR) {
+      boolean values = true;
+      final int el = exprs.length;
+      for(int e = 1; e < el; e++) values &= exprs[e].isValue();
+      final long[] range = values ? range(qc) : null;
+      if(range != null && range != ALL && range[1] != Long.MAX_VALUE) {
+        ((GFLWOR) exprs[0]).limit(range[0] + range[1] - 1, qc);
+      }
+    }
     return this;
   }
 }
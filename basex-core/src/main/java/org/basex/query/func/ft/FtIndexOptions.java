@@ -16,6 +16,8 @@ public class FtIndexOptions extends Options {
   public static final BooleanOption FUZZY = new BooleanOption("fuzzy", false);
   /** Option: wildcards. */
   public static final BooleanOption WILDCARDS = new BooleanOption("wildcards", false);
+  /** Option: top. */
+  public static final NumberOption TOP = new NumberOption("top", 0);
   /** Option: ordered. */
   public static final BooleanOption ORDERED = new BooleanOption("ordered", false);
   /** Option: distance. */
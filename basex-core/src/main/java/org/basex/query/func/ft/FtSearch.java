@@ -41,7 +41,8 @@ public final class FtSearch extends FtAccess {
     qc.ftOpt(opt);
     final FTExpr fte = new FTWords(info, data, terms, mode).compile(qc, null);
     qc.ftOpt(tmp);
-    return new FTIndexAccess(info, options(fte, opts), ic).iter(qc);
+    final int top = Math.max(0, opts.get(FtIndexOptions.TOP));
+    return new FTIndexAccess(info, options(fte, opts), ic, top).iter(qc);
   }
 
   @Override
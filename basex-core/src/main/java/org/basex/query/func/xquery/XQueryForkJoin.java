@@ -0,0 +1,44 @@
+package org.basex.query.func.xquery;
+
+import static org.basex.query.QueryError.*;
+
+import org.basex.query.*;
+import org.basex.query.ann.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class XQueryForkJoin extends StandardFunc {
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    return value(qc).iter();
+  }
+
+  @Override
+  public Value value(final QueryContext qc) throws QueryException {
+    final Value funcs = qc.value(exprs[0]);
+    for(final Item func : funcs) {
+      if(checkArity(func, 0, qc).annotations().contains(Annotation.UPDATING))
+        throw BXXQ_UPDATING.get(info);
+    }
+    final long fs = funcs.size();
+    if(fs == 0) return funcs;
+
+    // evaluate each function in a separate task
+    final int threads = (int) Math.min(fs, qc.threads());
+    return new Parallel() {
+      @Override
+      protected Value eval(final long part, final QueryContext tqc) throws QueryException {
+        return ((FItem) funcs.itemAt(part)).invokeValue(tqc, info);
+      }
+    }.value(fs, threads, qc);
+  }
+}
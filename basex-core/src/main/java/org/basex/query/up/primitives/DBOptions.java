@@ -28,7 +28,8 @@ public final class DBOptions {
     MainOptions.INDEXSPLITSIZE, MainOptions.FTINDEXSPLITSIZE, MainOptions.LANGUAGE,
     MainOptions.STOPWORDS, MainOptions.TEXTINDEX, MainOptions.ATTRINDEX, MainOptions.FTINDEX,
     MainOptions.STEMMING, MainOptions.CASESENS, MainOptions.DIACRITICS, MainOptions.UPDINDEX,
-    MainOptions.AUTOOPTIMIZE };
+    MainOptions.AUTOOPTIMIZE, MainOptions.TABLECOMPRESS,
+    MainOptions.TEXTCOMPRESS, MainOptions.INDEXBLOCKSIZE, MainOptions.COMPOSITE };
 
   /** Runtime options. */
   private final HashMap<Option<?>, Object> map = new HashMap<>();
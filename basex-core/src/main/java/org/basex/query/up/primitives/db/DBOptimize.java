@@ -68,6 +68,10 @@ public final class DBOptimize extends DBUpdate {
     options.assign(MainOptions.FTINDEX,      meta.createftxt);
     options.assign(MainOptions.UPDINDEX,     meta.updindex);
     options.assign(MainOptions.AUTOOPTIMIZE, meta.autoopt);
+    options.assign(MainOptions.TABLECOMPRESS, meta.tablecomp);
+    options.assign(MainOptions.TEXTCOMPRESS, meta.textcomp);
+    options.assign(MainOptions.INDEXBLOCKSIZE, meta.blocksize);
+    options.assign(MainOptions.COMPOSITE, meta.composite);
     options.assignTo(opts);
 
     // adopt runtime options
@@ -75,11 +79,20 @@ public final class DBOptimize extends DBUpdate {
     meta.createattr = opts.get(MainOptions.ATTRINDEX);
     meta.createftxt = opts.get(MainOptions.FTINDEX);
     meta.updindex = opts.get(MainOptions.UPDINDEX);
+    // compression can only be changed by rebuilding the database
+    if(all) {
+      meta.tablecomp = opts.get(MainOptions.TABLECOMPRESS);
+      meta.textcomp = opts.get(MainOptions.TEXTCOMPRESS);
+      meta.blocksize = Math.max(0, opts.get(MainOptions.INDEXBLOCKSIZE));
+    }
 
     // check if indexing options have changed
     final int mc = opts.get(MainOptions.MAXCATS);
     final int ml = opts.get(MainOptions.MAXLEN);
     final boolean rebuild = mc != meta.maxcats || ml != meta.maxlen;
+    // composite keys can only be changed by rebuilding the value indexes
+    final boolean cp = opts.get(MainOptions.COMPOSITE) && !data.inMemory();
+    final boolean rebuildValues = rebuild || cp != meta.composite;
 
     // check if fulltext indexing options have changed
     final boolean st = opts.get(MainOptions.STEMMING);
@@ -97,10 +110,11 @@ public final class DBOptimize extends DBUpdate {
     meta.stopwords  = sw;
     meta.maxcats    = mc;
     meta.maxlen     = ml;
+    meta.composite  = cp;
 
     try {
       if(all) OptimizeAll.optimizeAll(data, qc.context, opts, null);
-      else Optimize.optimize(data, opts, rebuild, rebuildFT, null);
+      else Optimize.optimize(data, opts, rebuildValues, rebuildFT, null);
     } catch(final IOException ex) {
       throw UPDBOPTERR_X.get(info, ex);
     }
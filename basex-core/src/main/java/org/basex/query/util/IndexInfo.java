@@ -1,6 +1,7 @@
 package org.basex.query.util;
 
 import org.basex.data.*;
+import org.basex.index.query.*;
 import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -26,6 +27,8 @@ public final class IndexInfo {
 
   /** Name test of parent element. */
   public NameTest test;
+  /** Name id for composite index keys (0: no composite keys). */
+  public int name;
 
   /** Flag for text index access. */
   public boolean text;
@@ -84,8 +87,13 @@ public final class IndexInfo {
       // only do check if database is up-to-date if no namespaces occur and if name test is used
       if(!data.meta.uptodate || data.nspaces.size() != 0 || s.test.kind != Kind.NAME) return false;
       test = (NameTest) s.test;
-      final Stats stats = data.elemNames.stat(data.elemNames.id(test.name.local()));
+      final int id = data.elemNames.id(test.name.local());
+      final Stats stats = data.elemNames.stat(id);
       if(stats == null || !stats.isLeaf()) return false;
+      if(data.meta.composite) name = id;
+    } else if(s.test.type == NodeType.ATT && s.test.kind == Kind.NAME && data.meta.composite &&
+        data.meta.uptodate && data.nspaces.size() == 0) {
+      name = data.attrNames.id(s.test.name.local());
     }
 
     // check for full-text index access
@@ -97,6 +105,16 @@ public final class IndexInfo {
     return text || attr;
   }
 
+  /**
+   * Returns an index token for the specified value. A composite key will be returned if the
+   * name of the parent element or attribute is known.
+   * @param value value
+   * @return index token
+   */
+  public StringToken token(final byte[] value) {
+    return name == 0 ? new StringToken(text, value) : new StringToken(text, name, value);
+  }
+
   /**
    * Creates an index expression with an inverted axis path.
    * @param root new root expression
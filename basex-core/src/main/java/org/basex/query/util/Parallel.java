@@ -0,0 +1,113 @@
+package org.basex.query.util;
+
+import java.util.concurrent.*;
+
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+
+/**
+ * Evaluates independent parts of a query in parallel. The parts are distributed to the threads
+ * of a fork/join pool. Each task is evaluated with a separate query context
+ * (see {@link QueryContext#fork()}), and the results are returned in the order of the parts.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public abstract class Parallel {
+  /** Minimum number of iterations for evaluating a FLWOR expression in parallel. */
+  public static final int MIN = 64;
+  /** Number of tasks per thread (smaller tasks balance the load better). */
+  private static final int TASKS = 4;
+
+  /**
+   * Evaluates a single part.
+   * @param part index of the part
+   * @param qc query context of the current task
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  protected abstract Value eval(final long part, final QueryContext qc) throws QueryException;
+
+  /**
+   * Evaluates all parts and returns the results in their original order.
+   * If the query context has been forked, the parts are evaluated sequentially.
+   * @param parts number of parts
+   * @param threads number of threads the parts will be distributed to
+   * @param qc query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  public final Value value(final long parts, final int threads, final QueryContext qc)
+      throws QueryException {
+
+    // nested parts: all threads of the pool are already busy
+    if(qc.forked()) {
+      final ValueBuilder vb = new ValueBuilder();
+      for(long p = 0; p < parts; p++) vb.add(eval(p, qc));
+      return vb.value();
+    }
+
+    // initialize date and time context before contexts are forked by other threads
+    qc.initDateTime();
+    final long size = Math.max(1, parts / ((long) threads * TASKS));
+    try {
+      return qc.pool().invoke(new Task(0, parts, size, qc)).value();
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Task, evaluating a range of parts.
+   */
+  private final class Task extends RecursiveTask<ValueBuilder> {
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+    /** First part (inclusive). */
+    private final long start;
+    /** Last part (exclusive). */
+    private final long end;
+    /** Maximum number of parts that will be evaluated without splitting the task. */
+    private final long size;
+    /** Query context. */
+    private final QueryContext qc;
+
+    /**
+     * Constructor.
+     * @param start first part (inclusive)
+     * @param end last part (exclusive)
+     * @param size maximum number of parts of a single task
+     * @param qc query context
+     */
+    Task(final long start, final long end, final long size, final QueryContext qc) {
+      this.start = start;
+      this.end = end;
+      this.size = size;
+      this.qc = qc;
+    }
+
+    @Override
+    protected ValueBuilder compute() {
+      if(end - start > size) {
+        // split task: evaluate second half in this thread
+        final long mid = start + end >>> 1;
+        final Task task = new Task(start, mid, size, qc);
+        task.fork();
+        final Value value = new Task(mid, end, size, qc).compute().value();
+        return task.join().add(value);
+      }
+      try {
+        final QueryContext tqc = qc.fork();
+        final ValueBuilder vb = new ValueBuilder();
+        for(long p = start; p < end; p++) {
+          qc.checkStop();
+          vb.add(eval(p, tqc));
+        }
+        return vb;
+      } catch(final QueryException ex) {
+        throw new QueryRTException(ex);
+      }
+    }
+  }
+}
@@ -3,6 +3,8 @@ package org.basex.query.value.array;
 import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import java.util.*;
+
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.fn.*;
@@ -11,7 +13,7 @@ import org.basex.query.util.collation.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
-import org.basex.query.value.map.*;
+import org.basex.query.value.map.Map;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
@@ -20,30 +22,43 @@ import org.basex.util.*;
 /**
  * Array item.
  *
+ * <p>Arrays are persistent: all updates return new arrays, which share most of their structure
+ * with the original array. The members are stored in a balanced tree (see {@link ArrayNode}).
+ * Up to {@link ArrayNode#MAX} members at the beginning and at the end of the array are stored
+ * in separate buffers, which will only be moved to the tree if they are full. Members can thus
+ * be added to both ends of an array in constant time; all other updates and the access to
+ * single members take logarithmic time.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class Array extends FItem {
+  /** No members. */
+  private static final Value[] NONE = {};
   /** Empty array. */
-  public static final Array EMPTY = new Array(new Value[0], 0, 0);
-  /** Members of the array. */
-  private final Value[] members;
-  /** Starting index. */
-  private final int start;
-  /** Length. */
+  public static final Array EMPTY = new Array(NONE, null, NONE);
+
+  /** First members. */
+  private final Value[] head;
+  /** Tree with the remaining members (can be {@code null}). */
+  private final ArrayNode tree;
+  /** Last members. */
+  private final Value[] tail;
+  /** Number of members. */
   private final int size;
 
   /**
    * Constructor.
-   * @param members array members
-   * @param start starting index
-   * @param size number of members
+   * @param head first members
+   * @param tree tree with the remaining members (can be {@code null})
+   * @param tail last members
    */
-  private Array(final Value[] members, final int start, final int size) {
+  private Array(final Value[] head, final ArrayNode tree, final Value[] tail) {
     super(SeqType.ANY_ARRAY, new AnnList());
-    this.members = members;
-    this.start = start;
-    this.size = size;
+    this.head = head;
+    this.tree = tree;
+    this.tail = tail;
+    size = head.length + treeSize() + tail.length;
   }
 
   /**
@@ -53,7 +68,8 @@ public final class Array extends FItem {
    */
   public static Array get(final Value... members) {
     final int s = members.length;
-    return s == 0 ? EMPTY : new Array(members, 0, s);
+    return s == 0 ? EMPTY : s <= ArrayNode.MAX ? new Array(members, null, NONE) :
+      new Array(NONE, ArrayNode.build(members, 0, s), NONE);
   }
 
   /**
@@ -64,8 +80,116 @@ public final class Array extends FItem {
    * @return resulting array
    */
   public static Array get(final Array array, final int start, final int size) {
-    return size == 0 ? EMPTY : start == 0 && size == array.size ? array :
-      new Array(array.members, array.start + start, size);
+    return array.subArray(start, size);
+  }
+
+  /**
+   * Returns a subarray.
+   * @param start start index (starting from 0}
+   * @param length number of members
+   * @return resulting array
+   */
+  public Array subArray(final int start, final int length) {
+    if(length == 0) return EMPTY;
+    if(start == 0 && length == size) return this;
+
+    final int end = start + length, hs = head.length, ts = treeSize();
+    final Value[] h = slice(head, start, end);
+    final int s = Math.max(0, start - hs), e = Math.min(ts, end - hs);
+    final ArrayNode t = s < e ? tree.slice(s, e) : null;
+    final Value[] l = slice(tail, start - hs - ts, end - hs - ts);
+    return new Array(h, t, l);
+  }
+
+  /**
+   * Returns an array with a replaced member.
+   * @param index index of the member (starting from 0)
+   * @param value new member
+   * @return resulting array
+   */
+  public Array put(final int index, final Value value) {
+    final int hs = head.length, ts = treeSize(), i = index - hs;
+    if(index < hs) {
+      final Value[] h = head.clone();
+      h[index] = value;
+      return new Array(h, tree, tail);
+    }
+    if(i < ts) return new Array(head, tree.put(i, value), tail);
+    final Value[] t = tail.clone();
+    t[i - ts] = value;
+    return new Array(head, tree, t);
+  }
+
+  /**
+   * Returns an array with an inserted member.
+   * @param index index of the new member (starting from 0)
+   * @param value new member
+   * @return resulting array
+   */
+  public Array insertBefore(final int index, final Value value) {
+    final int max = ArrayNode.MAX, hs = head.length, ts = treeSize(), ls = tail.length;
+    if(index <= hs) {
+      // prepend full head to the tree
+      if(hs == max && index == 0) {
+        return new Array(new Value[] { value }, ArrayNode.concat(new ArrayLeaf(head), tree), tail);
+      }
+      final Value[] h = insert(head, index, value);
+      if(hs < max) return new Array(h, tree, tail);
+      // split full head
+      final int m = h.length >>> 1;
+      return new Array(Arrays.copyOf(h, m),
+          ArrayNode.concat(new ArrayLeaf(Arrays.copyOfRange(h, m, h.length)), tree), tail);
+    }
+    final int i = index - hs;
+    if(i < ts) return new Array(head, tree.insert(i, value), tail);
+
+    // append full tail to the tree
+    final int l = i - ts;
+    if(ls == max && l == ls) {
+      return new Array(head, ArrayNode.concat(tree, new ArrayLeaf(tail)), new Value[] { value });
+    }
+    final Value[] t = insert(tail, l, value);
+    if(ls < max) return new Array(head, tree, t);
+    // split full tail
+    final int m = t.length >>> 1;
+    return new Array(head, ArrayNode.concat(tree, new ArrayLeaf(Arrays.copyOf(t, m))),
+        Arrays.copyOfRange(t, m, t.length));
+  }
+
+  /**
+   * Returns an array with an appended member.
+   * @param value new member
+   * @return resulting array
+   */
+  public Array append(final Value value) {
+    return insertBefore(size, value);
+  }
+
+  /**
+   * Returns an array without the specified member.
+   * @param index index of the member (starting from 0)
+   * @return resulting array
+   */
+  public Array remove(final int index) {
+    if(size == 1) return EMPTY;
+    final int hs = head.length, ts = treeSize(), i = index - hs;
+    if(index < hs) return new Array(remove(head, index), tree, tail);
+    if(i < ts) return new Array(head, tree.remove(i), tail);
+    return new Array(head, tree, remove(tail, i - ts));
+  }
+
+  /**
+   * Returns the concatenation of this and the specified array.
+   * @param array array to be appended
+   * @return resulting array
+   */
+  public Array concat(final Array array) {
+    if(array.size == 0) return this;
+    if(size == 0) return array;
+    ArrayNode t = ArrayNode.concat(tree, leaf(tail));
+    t = ArrayNode.concat(t, leaf(array.head));
+    t = ArrayNode.concat(t, array.tree);
+    return new Array(head, t, array.tail);
   }
 
   @Override
@@ -133,8 +257,8 @@ public final class Array extends FItem {
    * Returns a member iterator.
    * @return iterator
    */
-  public ArrayIterator<Value> members() {
-    return new ArrayIterator<>(members, start, start + size);
+  public Iterable<Value> members() {
+    return new Members();
   }
 
   /**
@@ -143,7 +267,8 @@ public final class Array extends FItem {
    * @return value
    */
   public Value get(final int index) {
-    return members[start + index];
+    final int hs = head.length, ts = treeSize(), i = index - hs;
+    return index < hs ? head[index] : i < ts ? tree.get(i) : tail[i - ts];
   }
 
   /**
@@ -154,10 +279,18 @@ public final class Array extends FItem {
     return size;
   }
 
+  /**
+   * Returns the number of members in the tree.
+   * @return number of members
+   */
+  private int treeSize() {
+    return tree == null ? 0 : tree.size();
+  }
+
   @Override
   public Array materialize(final InputInfo ii) throws QueryException {
     final ValueList vl = new ValueList(size);
-    for(int a = 0; a < size; a++) vl.add(get(a).materialize(ii));
+    for(final Value v : members()) vl.add(v.materialize(ii));
     return vl.array();
   }
 
@@ -175,8 +308,7 @@ public final class Array extends FItem {
   @Override
   public long atomSize() {
     long s = 0;
-    for(int a = 0; a < size; a++) {
-      final Value v = get(a);
+    for(final Value v : members()) {
       final long vs = v.size();
       for(int i = 0; i < vs; i++) s += v.itemAt(i).atomSize();
     }
@@ -195,7 +327,7 @@ public final class Array extends FItem {
     if(single && s > 1) throw SEQFOUND_X.get(ii, this);
     if(size == 1) return get(0).atomValue(ii);
     final ValueBuilder vb = new ValueBuilder((int) s);
-    for(int a = 0; a < size; a++) vb.add(get(a).atomValue(ii));
+    for(final Value v : members()) vb.add(v.atomValue(ii));
     return vb.value();
   }
 
@@ -220,9 +352,8 @@ public final class Array extends FItem {
   public void string(final TokenBuilder tb, final InputInfo ii) throws QueryException {
     tb.add('[');
     int c = 0;
-    for(int a = 0; a < size; a++) {
+    for(final Value v : members()) {
       if(c++ > 0) tb.add(", ");
-      final Value v = get(a);
       final long vs = v.size();
       if(vs != 1) tb.add('(');
       int cc = 0;
@@ -245,7 +376,7 @@ public final class Array extends FItem {
    */
   public boolean hasType(final ArrayType t) {
     if(!t.retType.eq(SeqType.ITEM_ZM)) {
-      for(int a = 0; a < size; a++) if(!t.retType.instance(get(a))) return false;
+      for(final Value v : members()) if(!t.retType.instance(v)) return false;
     }
     return true;
   }
@@ -264,8 +395,9 @@ public final class Array extends FItem {
     if(item instanceof Array) {
       final Array o = (Array) item;
       if(size != o.size) return false;
-      for(int a = 0; a < size; a++) {
-        final Value v1 = get(a), v2 = o.get(a);
+      final Iterator<Value> iter = o.members().iterator();
+      for(final Value v1 : members()) {
+        final Value v2 = iter.next();
         if(v1.size() != v2.size() || !new Compare(ii).collation(coll).equal(v1, v2))
           return false;
       }
@@ -290,16 +422,17 @@ public final class Array extends FItem {
   @Override
   public Object toJava() throws QueryException {
     final Object[] tmp = new Object[size];
-    for(int a = 0; a < size; a++) tmp[a] = get(a).toJava();
+    int a = 0;
+    for(final Value v : members()) tmp[a++] = v.toJava();
     return tmp;
   }
 
   @Override
   public String toString() {
     final StringBuilder tb = new StringBuilder().append('[');
-    for(int a = 0; a < size; a++) {
-      if(a != 0) tb.append(", ");
-      final Value value = get(a);
+    int a = 0;
+    for(final Value value : members()) {
+      if(a++ != 0) tb.append(", ");
       final long vs = value.size();
       if(vs != 1) tb.append('(');
       for(int i = 0; i < vs; i++) {
@@ -310,4 +443,116 @@ public final class Array extends FItem {
     }
     return tb.append(']').toString();
   }
+
+  /**
+   * Returns a leaf with the specified members.
+   * @param members members
+   * @return leaf, or {@code null} if no members are specified
+   */
+  private static ArrayNode leaf(final Value[] members) {
+    return members.length == 0 ? null : new ArrayLeaf(members);
+  }
+
+  /**
+   * Returns the specified range of members.
+   * @param members members
+   * @param start index of the first member (inclusive, may be out of range)
+   * @param end index of the last member (exclusive, may be out of range)
+   * @return members
+   */
+  private static Value[] slice(final Value[] members, final int start, final int end) {
+    final int s = Math.max(0, start), e = Math.min(members.length, end);
+    return s >= e ? NONE : s == 0 && e == members.length ? members :
+      Arrays.copyOfRange(members, s, e);
+  }
+
+  /**
+   * Returns a copy of the specified members with an inserted member.
+   * @param members members
+   * @param index index of the new member
+   * @param value new member
+   * @return members
+   */
+  static Value[] insert(final Value[] members, final int index, final Value value) {
+    final int ms = members.length;
+    final Value[] m = new Value[ms + 1];
+    System.arraycopy(members, 0, m, 0, index);
+    m[index] = value;
+    System.arraycopy(members, index, m, index + 1, ms - index);
+    return m;
+  }
+
+  /**
+   * Returns a copy of the specified members without the specified member.
+   * @param members members
+   * @param index index of the member to be removed
+   * @return members
+   */
+  static Value[] remove(final Value[] members, final int index) {
+    final int ms = members.length - 1;
+    if(ms == 0) return NONE;
+    final Value[] m = new Value[ms];
+    System.arraycopy(members, 0, m, 0, index);
+    System.arraycopy(members, index + 1, m, index, ms - index);
+    return m;
+  }
+
+  /**
+   * Iterator over all members.
+   */
+  private final class Members implements Iterator<Value>, Iterable<Value> {
+    /** Stack with the nodes of the tree that have not been visited yet. */
+    private final ArrayList<ArrayNode> stack = new ArrayList<>();
+    /** Current members. */
+    private Value[] members = head;
+    /** Current position in the members. */
+    private int pos;
+    /** Indicates if the tail has been reached. */
+    private boolean last;
+
+    /**
+     * Constructor.
+     */
+    Members() {
+      if(tree != null) stack.add(tree);
+    }
+
+    @Override
+    public Iterator<Value> iterator() {
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while(pos == members.length) {
+        if(stack.isEmpty()) {
+          if(last) return false;
+          members = tail;
+          last = true;
+        } else {
+          // descend to the next leaf
+          ArrayNode node = stack.remove(stack.size() - 1);
+          while(node instanceof ArrayBranch) {
+            final ArrayBranch branch = (ArrayBranch) node;
+            stack.add(branch.right);
+            node = branch.left;
+          }
+          members = ((ArrayLeaf) node).members;
+        }
+        pos = 0;
+      }
+      return true;
+    }
+
+    @Override
+    public Value next() {
+      if(!hasNext()) throw new NoSuchElementException();
+      return members[pos++];
+    }
+
+    @Override
+    public void remove() {
+      throw Util.notExpected();
+    }
+  }
 }
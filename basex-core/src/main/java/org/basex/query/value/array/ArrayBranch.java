@@ -0,0 +1,82 @@
+package org.basex.query.value.array;
+
+import org.basex.query.value.*;
+
+/**
+ * Inner node of the tree that stores the members of an array.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class ArrayBranch extends ArrayNode {
+  /** Left subtree. */
+  final ArrayNode left;
+  /** Right subtree. */
+  final ArrayNode right;
+  /** Number of members. */
+  private final int size;
+  /** Height. */
+  private final int height;
+
+  /**
+   * Constructor.
+   * @param left left subtree
+   * @param right right subtree
+   */
+  ArrayBranch(final ArrayNode left, final ArrayNode right) {
+    this.left = left;
+    this.right = right;
+    size = left.size() + right.size();
+    height = Math.max(left.height(), right.height()) + 1;
+  }
+
+  @Override
+  int size() {
+    return size;
+  }
+
+  @Override
+  int height() {
+    return height;
+  }
+
+  @Override
+  Value get(final int index) {
+    final int ls = left.size();
+    return index < ls ? left.get(index) : right.get(index - ls);
+  }
+
+  @Override
+  ArrayNode put(final int index, final Value value) {
+    final int ls = left.size();
+    return index < ls ? new ArrayBranch(left.put(index, value), right) :
+      new ArrayBranch(left, right.put(index - ls, value));
+  }
+
+  @Override
+  ArrayNode insert(final int index, final Value value) {
+    final int ls = left.size();
+    return index < ls ? balance(left.insert(index, value), right) :
+      balance(left, right.insert(index - ls, value));
+  }
+
+  @Override
+  ArrayNode remove(final int index) {
+    final int ls = left.size();
+    if(index < ls) {
+      final ArrayNode l = left.remove(index);
+      return l == null ? right : balance(l, right);
+    }
+    final ArrayNode r = right.remove(index - ls);
+    return r == null ? left : balance(left, r);
+  }
+
+  @Override
+  ArrayNode slice(final int start, final int end) {
+    if(start == 0 && end == size) return this;
+    final int ls = left.size();
+    if(end <= ls) return left.slice(start, end);
+    if(start >= ls) return right.slice(start - ls, end - ls);
+    return concat(left.slice(start, ls), right.slice(0, end - ls));
+  }
+}
@@ -0,0 +1,69 @@
+package org.basex.query.value.array;
+
+import java.util.*;
+
+import org.basex.query.value.*;
+
+/**
+ * Leaf of the tree that stores the members of an array.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class ArrayLeaf extends ArrayNode {
+  /** Members (at least one, at most {@link #MAX}). */
+  final Value[] members;
+
+  /**
+   * Constructor.
+   * @param members members
+   */
+  ArrayLeaf(final Value[] members) {
+    this.members = members;
+  }
+
+  @Override
+  int size() {
+    return members.length;
+  }
+
+  @Override
+  int height() {
+    return 0;
+  }
+
+  @Override
+  Value get(final int index) {
+    return members[index];
+  }
+
+  @Override
+  ArrayNode put(final int index, final Value value) {
+    final Value[] m = members.clone();
+    m[index] = value;
+    return new ArrayLeaf(m);
+  }
+
+  @Override
+  ArrayNode insert(final int index, final Value value) {
+    final Value[] m = Array.insert(members, index, value);
+    if(m.length <= MAX) return new ArrayLeaf(m);
+    // split full leaf
+    final int mid = m.length >>> 1;
+    return new ArrayBranch(new ArrayLeaf(Arrays.copyOf(m, mid)),
+        new ArrayLeaf(Arrays.copyOfRange(m, mid, m.length)));
+  }
+
+  @Override
+  ArrayNode remove(final int index) {
+    final Value[] m = Array.remove(members, index);
+    return m.length == 0 ? null : new ArrayLeaf(m);
+  }
+
+  @Override
+  ArrayNode slice(final int start, final int end) {
+    if(start == end) return null;
+    return start == 0 && end == members.length ? this :
+      new ArrayLeaf(Arrays.copyOfRange(members, start, end));
+  }
+}
@@ -0,0 +1,147 @@
+package org.basex.query.value.array;
+
+import java.util.*;
+
+import org.basex.query.value.*;
+
+/**
+ * Node of the tree that stores the members of an {@link Array}. The tree is persistent:
+ * updates create new nodes on the path to the modified leaf, and all other nodes are shared.
+ * Branches are balanced according to the rules of AVL trees, so all operations that access
+ * or modify a single member take logarithmic time.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+abstract class ArrayNode {
+  /** Maximum number of members in a leaf. */
+  static final int MAX = 32;
+
+  /**
+   * Returns the number of members.
+   * @return number of members
+   */
+  abstract int size();
+
+  /**
+   * Returns the height of the node (leaves have the height {@code 0}).
+   * @return height
+   */
+  abstract int height();
+
+  /**
+   * Returns the member at the specified index.
+   * @param index index
+   * @return member
+   */
+  abstract Value get(final int index);
+
+  /**
+   * Replaces the member at the specified index.
+   * @param index index
+   * @param value new member
+   * @return new node
+   */
+  abstract ArrayNode put(final int index, final Value value);
+
+  /**
+   * Inserts a member before the specified index.
+   * @param index index
+   * @param value member to be inserted
+   * @return new node
+   */
+  abstract ArrayNode insert(final int index, final Value value);
+
+  /**
+   * Removes the member at the specified index.
+   * @param index index
+   * @return new node, or {@code null} if no members are left
+   */
+  abstract ArrayNode remove(final int index);
+
+  /**
+   * Returns a node with the specified range of members.
+   * @param start index of the first member (inclusive)
+   * @param end index of the last member (exclusive)
+   * @return new node, or {@code null} if the range is empty
+   */
+  abstract ArrayNode slice(final int start, final int end);
+
+  /**
+   * Creates a balanced tree with the specified members.
+   * @param members members
+   * @param start index of the first member (inclusive)
+   * @param end index of the last member (exclusive)
+   * @return root node, or {@code null} if the range is empty
+   */
+  static ArrayNode build(final Value[] members, final int start, final int end) {
+    final int size = end - start;
+    if(size == 0) return null;
+    if(size <= MAX) {
+      return new ArrayLeaf(start == 0 && end == members.length ? members :
+        Arrays.copyOfRange(members, start, end));
+    }
+    // split leaves into two halves: the heights of the subtrees differ by at most one
+    final int mid = start + ((size + MAX - 1) / MAX >>> 1) * MAX;
+    return new ArrayBranch(build(members, start, mid), build(members, mid, end));
+  }
+
+  /**
+   * Concatenates two trees. The runtime is proportional to the difference of their heights.
+   * @param left left tree (can be {@code null})
+   * @param right right tree (can be {@code null})
+   * @return new tree (can be {@code null})
+   */
+  static ArrayNode concat(final ArrayNode left, final ArrayNode right) {
+    if(left == null) return right;
+    if(right == null) return left;
+
+    final int hl = left.height(), hr = right.height();
+    if(hl > hr + 1) {
+      final ArrayBranch l = (ArrayBranch) left;
+      return balance(l.left, concat(l.right, right));
+    }
+    if(hr > hl + 1) {
+      final ArrayBranch r = (ArrayBranch) right;
+      return balance(concat(left, r.left), r.right);
+    }
+    // merge small leaves
+    if(left instanceof ArrayLeaf && right instanceof ArrayLeaf) {
+      final Value[] l = ((ArrayLeaf) left).members, r = ((ArrayLeaf) right).members;
+      final int ls = l.length, rs = r.length;
+      if(ls + rs <= MAX) {
+        final Value[] members = Arrays.copyOf(l, ls + rs);
+        System.arraycopy(r, 0, members, ls, rs);
+        return new ArrayLeaf(members);
+      }
+    }
+    return new ArrayBranch(left, right);
+  }
+
+  /**
+   * Creates a balanced branch from two subtrees whose heights differ by at most two.
+   * @param left left subtree
+   * @param right right subtree
+   * @return new node
+   */
+  static ArrayNode balance(final ArrayNode left, final ArrayNode right) {
+    final int hl = left.height(), hr = right.height();
+    if(hl > hr + 1) {
+      final ArrayBranch l = (ArrayBranch) left;
+      if(l.left.height() >= l.right.height()) {
+        return new ArrayBranch(l.left, new ArrayBranch(l.right, right));
+      }
+      final ArrayBranch lr = (ArrayBranch) l.right;
+      return new ArrayBranch(new ArrayBranch(l.left, lr.left), new ArrayBranch(lr.right, right));
+    }
+    if(hr > hl + 1) {
+      final ArrayBranch r = (ArrayBranch) right;
+      if(r.right.height() >= r.left.height()) {
+        return new ArrayBranch(new ArrayBranch(left, r.left), r.right);
+      }
+      final ArrayBranch rl = (ArrayBranch) r.left;
+      return new ArrayBranch(new ArrayBranch(left, rl.left), new ArrayBranch(rl.right, r.right));
+    }
+    return new ArrayBranch(left, right);
+  }
+}
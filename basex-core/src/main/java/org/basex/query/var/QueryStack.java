@@ -36,6 +36,18 @@ public final class QueryStack {
     return s;
   }
 
+  /**
+   * Enters a new stack frame, which contains the bindings of the current frame of the
+   * specified stack.
+   * @param qs query stack
+   */
+  public void enterFrame(final QueryStack qs) {
+    final int s = qs.end - qs.start;
+    enterFrame(s);
+    System.arraycopy(qs.stack, qs.start, stack, start, s);
+    System.arraycopy(qs.vars, qs.start, vars, start, s);
+  }
+
   /**
    * Prepares the current stack frame to be reused.
    * @param size new frame size
@@ -15,6 +15,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Static variable to which an expression can be assigned.
@@ -78,6 +79,28 @@ public final class StaticVar extends StaticDecl {
     }
   }
 
+  /**
+   * Creates a copy of this variable without the bound expression, which will be assigned
+   * by {@link #copyExpr(StaticVar, QueryContext, IntObjMap)}.
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   * @return copy
+   */
+  StaticVar copy(final QueryContext qc, final IntObjMap<Var> vs) {
+    return new StaticVar(sc, scope.copy(qc, vs), anns, name, declType, null, external, null,
+        info);
+  }
+
+  /**
+   * Assigns a copy of the expression that is bound to the specified variable.
+   * @param var original variable
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   */
+  void copyExpr(final StaticVar var, final QueryContext qc, final IntObjMap<Var> vs) {
+    if(var.expr != null) expr = var.expr.copy(qc, scope, vs);
+  }
+
   /**
    * Evaluates this variable lazily.
    * @param qc query context
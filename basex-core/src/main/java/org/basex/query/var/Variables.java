@@ -13,6 +13,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Container of global variables of a module.
@@ -23,6 +24,8 @@ import org.basex.util.*;
 public final class Variables extends ExprInfo implements Iterable<StaticVar> {
   /** The variables. */
   private final HashMap<QNm, VarEntry> vars = new HashMap<>();
+  /** Copied variables, mapped to their copies (assigned by {@link #copy}). */
+  private IdentityHashMap<StaticVar, StaticVar> copies;
 
   /**
    * Declares a new static variable.
@@ -101,6 +104,35 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     return ref;
   }
 
+  /**
+   * Copies the variables of a parsed query. Subsequently copied references to the original
+   * variables will point to the new variables.
+   * @param vrs variables to be copied
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   */
+  public void copy(final Variables vrs, final QueryContext qc, final IntObjMap<Var> vs) {
+    copies = new IdentityHashMap<>();
+    for(final Entry<QNm, VarEntry> e : vrs.vars.entrySet()) {
+      final StaticVar var = e.getValue().var, cp = var.copy(qc, vs);
+      vars.put(e.getKey(), new VarEntry(cp));
+      copies.put(var, cp);
+    }
+    for(final Entry<StaticVar, StaticVar> e : copies.entrySet()) {
+      e.getValue().copyExpr(e.getKey(), qc, vs);
+    }
+  }
+
+  /**
+   * Returns the copy of the specified variable.
+   * @param var variable
+   * @return copy, or the variable itself if it has not been copied
+   */
+  StaticVar copied(final StaticVar var) {
+    final StaticVar cp = copies != null ? copies.get(var) : null;
+    return cp != null ? cp : var;
+  }
+
   /**
    * Binds all external variables.
    * @param qc query context
@@ -194,7 +194,7 @@ public final class ServerQuery extends Proc {
    */
   private QueryProcessor init() {
     if(parsed || qp == null) {
-      qp = new QueryProcessor(query, ctx);
+      qp = new QueryProcessor(query, ctx).cache();
       parsed = false;
     }
     return qp;
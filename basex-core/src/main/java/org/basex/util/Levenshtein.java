@@ -18,8 +18,8 @@ public final class Levenshtein {
 
   /** Default number of allowed errors; dynamic calculation if value is 0. */
   private final int error;
-  /** Matrix for calculating Levenshtein distance. */
-  private int[][] matrix;
+  /** Rows for calculating Levenshtein distance. */
+  private int[][] rows;
 
   /**
    * Constructor.
@@ -64,47 +64,103 @@ public final class Levenshtein {
     if(err == 0 && slen < 4 || tlen > MAX || slen > MAX) return slen == tlen && same(token, sub);
 
     // skip different tokens with too different lengths
-    final int k = err == 0 ? Math.max(1, slen >> 2) : err;
-    return Math.abs(slen - tlen) <= k && ls(token, tlen, sub, slen, k);
+    final int k = errors(slen, err);
+    return Math.abs(slen - tlen) <= k && ls(chars(token), chars(sub), k);
+  }
+
+  /**
+   * Returns the number of accepted errors.
+   * @param length number of characters of the token to be found
+   * @param err number of allowed errors; dynamic calculation if value is 0
+   * @return number of errors
+   */
+  public static int errors(final int length, final int err) {
+    return err == 0 ? Math.max(1, length >> 2) : err;
+  }
+
+  /**
+   * Returns the normalized characters of a token, which are compared by this class.
+   * @param token token
+   * @return characters
+   */
+  public static int[] chars(final byte[] token) {
+    final int[] cps = cps(token);
+    final int cl = cps.length;
+    for(int c = 0; c < cl; c++) cps[c] = normalize(cps[c]);
+    return cps;
+  }
+
+  /**
+   * Returns the normalized version of a character, which is compared by this class.
+   * @param cp character
+   * @return normalized character
+   */
+  public static int normalize(final int cp) {
+    return noDiacritics(lc(cp));
+  }
+
+  /**
+   * Calculates the next row of the distance matrix. If the minimum distance of a row exceeds
+   * the number of accepted errors, no token with the same prefix will be similar.
+   * @param prev previous row
+   * @param next next row (will be assigned)
+   * @param e character of the token to be compared
+   * @param e2 previous character of the token ({@code -1} for the first character)
+   * @param sb characters of the sub token
+   * @return minimum distance of the row
+   */
+  public static int row(final int[] prev, final int[] next, final int e, final int e2,
+      final int[] sb) {
+
+    final int sl = sb.length;
+    int d = Integer.MAX_VALUE, f2 = e2 == -1 || sl == 0 ? -1 : sb[sl - 1];
+    next[0] = prev[0] + 1;
+    for(int s = 0; s < sl; s++) {
+      final int f = sb[s];
+      int c = m(prev[s + 1] + 1, next[s] + 1, prev[s] + (e == f ? 0 : 1));
+      if(e == f2 && f == e2) c = prev[s];
+      next[s + 1] = c;
+      d = Math.min(d, c);
+      f2 = f;
+    }
+    return d;
+  }
+
+  /**
+   * Returns the first row of the distance matrix.
+   * @param row row (will be assigned)
+   * @return row
+   */
+  public static int[] row(final int[] row) {
+    final int rl = row.length;
+    for(int r = 0; r < rl; r++) row[r] = r;
+    return row;
   }
 
   /**
    * Calculates a Levenshtein distance.
-   * @param tk token to be compared
-   * @param tl token length
-   * @param sb sub token to be compared
-   * @param sl string length
+   * @param tk characters of the token to be compared
+   * @param sb characters of the sub token to be compared
    * @param k maximum number of accepted errors
    * @return true if the arrays are similar
    */
-  private boolean ls(final byte[] tk, final int tl, final byte[] sb, final int sl, final int k) {
-    int[][] mx = matrix;
-    if(mx == null) {
-      mx = new int[MAX + 2][MAX + 2];
-      final int ml = mx.length;
-      for(int m = 0; m < ml; ++m) {
-        mx[0][m] = m;
-        mx[m][0] = m;
-      }
-      matrix = mx;
+  private boolean ls(final int[] tk, final int[] sb, final int k) {
+    int[][] rws = rows;
+    if(rws == null) {
+      rws = new int[2][MAX + 1];
+      rows = rws;
     }
-
-    int e2 = -1, f2 = -1;
-    for(int t = 0; t < tl; t += cl(tk, t)) {
-      final int e = noDiacritics(lc(cp(tk, t)));
-      int d = Integer.MAX_VALUE;
-      for(int s = 0; s < sl; s += cl(sb, s)) {
-        final int f = noDiacritics(lc(cp(sb, s)));
-        int c = m(mx[t][s + 1] + 1, mx[t + 1][s] + 1, mx[t][s] + (e == f ? 0 : 1));
-        if(e == f2 && f == e2) c = mx[t][s];
-        mx[t + 1][s + 1] = c;
-        d = Math.min(d, c);
-        f2 = f;
-      }
-      if(d > k) return false;
+    final int tl = tk.length, sl = sb.length;
+    int[] prev = row(rws[0]), next = rws[1];
+    for(int t = 0, e2 = -1; t < tl; t++) {
+      final int e = tk[t];
+      if(row(prev, next, e, e2, sb) > k) return false;
+      final int[] r = prev;
+      prev = next;
+      next = r;
       e2 = e;
     }
-    return mx[tl][sl] <= k;
+    return prev[sl] <= k;
   }
 
   /**
@@ -128,7 +184,7 @@ public final class Levenshtein {
   private static boolean same(final byte[] tk, final byte[] sb) {
     final int tl = tk.length, sl = sb.length;
     for(int s = 0, t = 0; t < tl && s < sl; t += cl(tk, t), s += cl(sb, s)) {
-      if(lc(noDiacritics(cp(tk, t))) != lc(noDiacritics(cp(sb, t)))) return false;
+      if(lc(noDiacritics(cp(tk, t))) != lc(noDiacritics(cp(sb, s)))) return false;
     }
     return true;
   }
@@ -61,7 +61,7 @@ public final class MinHeap<K, V> {
    * @return the removed entry's value
    */
   public V removeMin() {
-    final V val = minValue();
+    final V val = min();
     swap(0, --size);
     int pos = 0;
     while(pos < size / 2) {
@@ -75,11 +75,11 @@ public final class MinHeap<K, V> {
   }
 
   /**
-   * returns the value of the smallest key from this heap.
+   * Returns the value of the smallest key from this heap.
    * @return value of the smallest key
    */
   @SuppressWarnings("unchecked")
-  private V minValue() {
+  public V min() {
     return (V) vals[1];
   }
 
@@ -11,6 +11,12 @@ import static java.lang.StrictMath.*;
 public final class Scoring {
   /** Logarithmic base for calculating the score value. */
   private static final double LOG = Math.E - 1;
+  /** BM25: saturation of term frequencies. */
+  private static final double K1 = 1.2;
+  /** BM25: normalization of text lengths. */
+  private static final double B = 0.75;
+  /** Largest text length that is stored exactly. */
+  private static final int EXACT = 0xF0;
 
   /** Private constructor. */
   private Scoring() { }
@@ -74,4 +80,69 @@ public final class Scoring {
       final int length) {
     return max((double) number / size, log(token * number + 1) / log(length + 1));
   }
+
+  /**
+   * Calculates the BM25 score of a token in a text node.
+   * @param tf number of occurrences of the token in the text
+   * @param df number of texts containing the token
+   * @param texts total number of texts
+   * @param length number of tokens of the text
+   * @param avg average number of tokens per text
+   * @return score (unbounded)
+   */
+  public static double bm25(final int tf, final int df, final long texts, final int length,
+      final double avg) {
+    return idf(df, texts) * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avg));
+  }
+
+  /**
+   * Returns the maximum BM25 score of a token, which is reached for an infinite number
+   * of occurrences.
+   * @param df number of texts containing the token
+   * @param texts total number of texts
+   * @return score (unbounded)
+   */
+  public static double bm25(final int df, final long texts) {
+    return idf(df, texts) * (K1 + 1);
+  }
+
+  /**
+   * Converts an unbounded BM25 score to a score value between {@code 0} and {@code 1}.
+   * The order of the scores is preserved.
+   * @param score unbounded score, or {@code -1}
+   * @return score, or {@code -1}
+   */
+  public static double bm25(final double score) {
+    return score < 0 ? -1 : score / (1 + score);
+  }
+
+  /**
+   * Returns the inverse document frequency of a token.
+   * @param df number of texts containing the token
+   * @param texts total number of texts
+   * @return inverse document frequency
+   */
+  private static double idf(final int df, final long texts) {
+    return log(1 + (texts - df + 0.5) / (df + 0.5));
+  }
+
+  /**
+   * Encodes a text length as byte. Short lengths are stored exactly, longer ones are rounded
+   * down to powers of two.
+   * @param length number of tokens of a text
+   * @return encoded length
+   */
+  public static int norm(final int length) {
+    if(length < EXACT) return length;
+    return Math.min(0xFF, EXACT + 31 - Integer.numberOfLeadingZeros(length / EXACT));
+  }
+
+  /**
+   * Decodes a text length.
+   * @param norm encoded length
+   * @return number of tokens of a text
+   */
+  public static int length(final int norm) {
+    return norm < EXACT ? norm : EXACT << norm - EXACT;
+  }
 }
@@ -0,0 +1,91 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the incremental compaction of the database storage.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class CompactionTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Query for checking the database contents. */
+  private static final String CONTENTS = "string-join((//text(), //@*), ' ')";
+  /** Update that triggers a compaction step. */
+  private static final String STEP = "rename node /* as 'mondial'";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new CreateDB(NAME, DBFILE).execute(context);
+  }
+
+  /**
+   * Drops the test database and resets the options.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(MainOptions.COMPACTION, 0).execute(context);
+  }
+
+  /**
+   * Compacts the table after deletions.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void table() throws BaseXException {
+    new XQuery("delete node //country[position() mod 3 = 0]").execute(context);
+    final IOFile tbl = context.data().meta.dbfile(DataText.DATATBL);
+    final long size = tbl.length();
+    final String contents = new XQuery(CONTENTS).execute(context);
+
+    new Set(MainOptions.COMPACTION, 1 << 20).execute(context);
+    new XQuery(STEP).execute(context);
+    assertTrue(tbl.length() < size);
+    assertEquals(contents, new XQuery(CONTENTS).execute(context));
+    assertTrue(new InfoStorage().execute(context).contains("Table Compaction: idle"));
+
+    // contents are preserved after reopening the database
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(contents, new XQuery(CONTENTS).execute(context));
+  }
+
+  /**
+   * Compacts the attribute values after replacements, using small steps.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void values() throws BaseXException {
+    final IOFile atv = context.data().meta.dbfile(DataText.DATAATV);
+    final long size = atv.length();
+    // append long values, shrink them again
+    new XQuery("for $a in //@id[position() <= 100] " +
+      "return replace value of node $a with string-join(($a, (1 to 100) ! 'x'))").execute(context);
+    new XQuery("for $a in //@id[position() <= 100] " +
+      "return replace value of node $a with substring-before($a, 'x')").execute(context);
+    assertTrue(atv.length() > size);
+    final String contents = new XQuery(CONTENTS).execute(context);
+
+    new Set(MainOptions.COMPACTION, 64).execute(context);
+    for(int i = 0; i < 100; i++) new XQuery(STEP).execute(context);
+    new Close().execute(context);
+    assertTrue(atv.length() <= size);
+    new Open(NAME).execute(context);
+    assertEquals(contents, new XQuery(CONTENTS).execute(context));
+  }
+}
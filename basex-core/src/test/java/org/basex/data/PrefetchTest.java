@@ -0,0 +1,67 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the prefetching of table pages.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PrefetchTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Query for checking the database contents. */
+  private static final String CONTENTS = "string-join(//node() ! (name(), string()), ' ')";
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    context.soptions.set(StaticOptions.TABLEBUFFERS, StaticOptions.TABLEBUFFERS.value);
+    context.soptions.set(StaticOptions.TABLEPREFETCH, StaticOptions.TABLEPREFETCH.value);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of sequential scans with and without prefetching, using a small
+   * buffer pool and modified pages.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void scan() throws BaseXException {
+    context.soptions.set(StaticOptions.TABLEBUFFERS, 64);
+    context.soptions.set(StaticOptions.TABLEPREFETCH, 0);
+    new CreateDB(NAME, DBFILE).execute(context);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    final String contents = new XQuery(CONTENTS).execute(context);
+
+    context.soptions.set(StaticOptions.TABLEPREFETCH, 1 << 10);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(contents, new XQuery(CONTENTS).execute(context));
+
+    // scan pages that have been modified, but not written yet
+    new Set(MainOptions.AUTOFLUSH, false).execute(context);
+    try {
+      final String update = "delete node //city[position() mod 2 = 0]";
+      new XQuery(update).execute(context);
+      final String updated = new XQuery(CONTENTS).execute(context);
+      new Close().execute(context);
+      context.soptions.set(StaticOptions.TABLEPREFETCH, 0);
+      new Open(NAME).execute(context);
+      assertEquals(updated, new XQuery(CONTENTS).execute(context));
+    } finally {
+      new Set(MainOptions.AUTOFLUSH, true).execute(context);
+    }
+  }
+}
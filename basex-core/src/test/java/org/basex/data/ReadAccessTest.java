@@ -0,0 +1,86 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the alternative read paths of disk-based databases.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ReadAccessTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Query for checking the database contents. */
+  private static final String CONTENTS =
+    "string-join(//node() ! (name(), string(), @* ! string()), ' ')";
+  /** Update. */
+  private static final String UPDATE =
+    "for $c in //city[position() mod 3 = 0] return (" +
+    "replace value of node $c/name[1] with upper-case($c/name[1]), delete node $c/@id)";
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    context.soptions.set(StaticOptions.MMAP, false);
+    context.soptions.set(StaticOptions.LOCKFREE, false);
+    new Set(MainOptions.AUTOFLUSH, true).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares query results of memory-mapped and buffered read access, before and after updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void mapped() throws BaseXException {
+    final String[] expected = contents();
+    context.soptions.set(StaticOptions.MMAP, true);
+    assertArrayEquals(expected, contents());
+  }
+
+  /**
+   * Compares query results of lock-free and buffered read access, before and after updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void lockFree() throws BaseXException {
+    final String[] expected = contents();
+    context.soptions.set(StaticOptions.LOCKFREE, true);
+    assertArrayEquals(expected, contents());
+  }
+
+  /**
+   * Returns the contents of a database before and after updates.
+   * Updates are performed with and without automatic flushing.
+   * @return contents
+   * @throws BaseXException database exception
+   */
+  private static String[] contents() throws BaseXException {
+    final String[] contents = new String[3];
+    new CreateDB(NAME, DBFILE).execute(context);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    contents[0] = new XQuery(CONTENTS).execute(context);
+    new XQuery(UPDATE).execute(context);
+    contents[1] = new XQuery(CONTENTS).execute(context);
+
+    new Set(MainOptions.AUTOFLUSH, false).execute(context);
+    new XQuery("delete node //country[1]").execute(context);
+    new Flush().execute(context);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    contents[2] = new XQuery(CONTENTS).execute(context);
+    new Set(MainOptions.AUTOFLUSH, true).execute(context);
+    return contents;
+  }
+}
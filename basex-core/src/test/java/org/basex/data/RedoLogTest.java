@@ -0,0 +1,109 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.io.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the redo log of disk-based databases.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class RedoLogTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Name of the database copy. */
+  private static final String COPY = NAME + "Copy";
+  /** Query for checking the database contents. */
+  private static final String CONTENTS =
+      "string-join((//text(), //@*, //*/name()), ' ')";
+
+  /**
+   * Drops the test databases and resets the options.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(COPY).execute(context);
+    new Set(MainOptions.REDOLOG, false).execute(context);
+  }
+
+  /**
+   * Replays the log on a database whose files have not been written after the updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void replay() throws Exception {
+    new CreateDB(NAME, DBFILE).execute(context);
+    new Close().execute(context);
+    // simulate a crash: database files of the copy will not be changed by the updates
+    final IOFile dir = context.soptions.dbpath(NAME), copy = context.soptions.dbpath(COPY);
+    assertTrue(copy.md());
+    for(final IOFile file : dir.children()) file.copyTo(new IOFile(copy, file.name()));
+
+    new Set(MainOptions.REDOLOG, true).execute(context);
+    new Open(NAME).execute(context);
+    new XQuery("delete node //country[position() mod 3 = 0]").execute(context);
+    new XQuery("for $c in //city return rename node $c as 'town'").execute(context);
+    new XQuery("insert node <new a='b'>c</new> into /*").execute(context);
+    final String contents = new XQuery(CONTENTS).execute(context);
+
+    // copy log with committed records, append incomplete frame
+    final IOFile log = context.data().meta.dbfile(DataText.DATALOG);
+    assertTrue(log.length() > 0);
+    final IOFile clog = new IOFile(copy, log.name());
+    log.copyTo(clog);
+    try(final RandomAccessFile raf = new RandomAccessFile(clog.file(), "rw")) {
+      raf.seek(raf.length());
+      raf.write(new byte[] { 1, 0, 0, 1, 0, 0 });
+    }
+
+    // log is removed when database is closed
+    new Close().execute(context);
+    assertFalse(log.exists());
+    new Open(NAME).execute(context);
+    assertEquals(contents, new XQuery(CONTENTS).execute(context));
+
+    // log is replayed when database is opened
+    new Open(COPY).execute(context);
+    assertFalse(clog.exists());
+    assertEquals(contents, new XQuery(CONTENTS).execute(context));
+  }
+
+  /**
+   * Checks that the database files are written by checkpoints.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void checkpoint() throws BaseXException {
+    new Set(MainOptions.REDOLOG, true).execute(context);
+    new CreateDB(NAME, "<X/>").execute(context);
+    new XQuery("insert node <A/> into /X").execute(context);
+    final IOFile log = context.data().meta.dbfile(DataText.DATALOG);
+    assertTrue(log.length() > 0);
+
+    // index files are not recorded: creating an index enforces a checkpoint
+    new CreateIndex(CmdIndex.FULLTEXT).execute(context);
+    assertEquals(0, log.length());
+    new XQuery("insert node <A/> into /X").execute(context);
+    assertTrue(log.length() > 0);
+
+    // disabling the log writes all files
+    new Set(MainOptions.REDOLOG, false).execute(context);
+    new XQuery("insert node <A/> into /X").execute(context);
+    assertFalse(log.exists());
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals("3", new XQuery("count(/X/A)").execute(context));
+  }
+}
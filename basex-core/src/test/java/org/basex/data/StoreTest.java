@@ -5,6 +5,8 @@ import static org.junit.Assert.*;
 import org.basex.*;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
 import org.junit.*;
 import org.junit.Test;
 
@@ -107,6 +109,43 @@ public final class StoreTest extends SandboxTest {
     }
   }
 
+  /**
+   * Tests the {@link MainOptions#GROUPCOMMIT} option.
+   * @throws Exception exception
+   */
+  @Test
+  public void groupCommit() throws Exception {
+    try {
+      run(new Set(MainOptions.AUTOFLUSH, true));
+      run(new Set(MainOptions.GROUPCOMMIT, 100000));
+      run(new CreateDB(NAME, "<X/>"));
+      final IOFile upd = context.data().meta.updateFile();
+      for(int n = 0; n < NQUERIES; n++) run(new XQuery("insert node <A/> into /X"));
+      // updates have not been flushed yet
+      assertTrue(upd.exists());
+      run(new Flush());
+      assertFalse(upd.exists());
+
+      // flush updates after delay (wait for the timer, but give up after 10 seconds)
+      run(new Set(MainOptions.GROUPCOMMIT, 10));
+      run(new XQuery("insert node <A/> into /X"));
+      final long deadline = System.currentTimeMillis() + 10000;
+      while(upd.exists() && System.currentTimeMillis() < deadline) Performance.sleep(10);
+      assertFalse(upd.exists());
+
+      // flush updates when database is closed
+      run(new Set(MainOptions.GROUPCOMMIT, 100000));
+      run(new XQuery("delete node /X/A[1]"));
+      run(new Close());
+      assertFalse(upd.exists());
+      run(new Open(NAME));
+      assertEquals(String.valueOf(NQUERIES), run(new XQuery("count(/X/A)")));
+    } finally {
+      run(new Set(MainOptions.AUTOFLUSH, false));
+      run(new Set(MainOptions.GROUPCOMMIT, 0));
+    }
+  }
+
   /**
    * Tests if the size of the text store has not changed.
    * @param old old size
@@ -0,0 +1,94 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests composite keys (names and values) of the text and attribute index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class CompositeIndexTest extends SandboxTest {
+  /** Test document. */
+  private static final String DOC = "<orders>" +
+    "<order id='1' state='open'><status>open</status><note>open</note></order>" +
+    "<order id='2' state='closed'><status>closed</status><note>open</note></order>" +
+    "<order id='3' state='open'><status>open</status><note>closed</note></order>" +
+    "<order id='open'><status>new</status></order></orders>";
+  /** Queries (the database will be bound to {@code $db}). */
+  private static final String[] QUERIES = {
+    "$db//order[status = 'open']/@id/string()", "$db//order[note = 'open']/@id/string()",
+    "$db//status[text() = 'closed']/../@id/string()", "$db//order[@state = 'open']/@id/string()",
+    "$db//order[@id = 'open']/status/string()", "$db//*[text() = 'open']/name()",
+    "$db//order[status = ('new', 'closed')]/@id/string()", "$db//order[unknown = 'open']"
+  };
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Set(MainOptions.COMPOSITE, false).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of queries on databases with and without composite keys.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void query() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+    final String[] expected = new String[QUERIES.length];
+    for(int q = 0; q < QUERIES.length; q++) expected[q] = query(QUERIES[q]);
+    final String texts = query("index:texts('" + NAME + "') ! string()");
+
+    new Set(MainOptions.COMPOSITE, true).execute(context);
+    new CreateDB(NAME, DOC).execute(context);
+    assertTrue(context.data().meta.composite);
+    compare(expected, texts);
+    assertTrue(query("db:info('" + NAME + "')").contains("<composite>true</composite>"));
+
+    // composite keys are dropped if the index is recreated without the option
+    new Set(MainOptions.COMPOSITE, false).execute(context);
+    new CreateIndex("text").execute(context);
+    assertFalse(context.data().meta.composite);
+    compare(expected, texts);
+
+    // composite keys are added by optimizing the database
+    query("db:optimize('" + NAME + "', false(), map { 'composite': true() })");
+    assertTrue(context.data().meta.composite);
+    compare(expected, texts);
+  }
+
+  /**
+   * Compares the query results.
+   * @param expected expected results
+   * @param texts expected index entries
+   * @throws BaseXException database exception
+   */
+  private static void compare(final String[] expected, final String texts)
+      throws BaseXException {
+    for(int q = 0; q < QUERIES.length; q++) {
+      assertEquals(QUERIES[q], expected[q], query(QUERIES[q]));
+    }
+    assertEquals(texts, query("index:texts('" + NAME + "') ! string()"));
+  }
+
+  /**
+   * Evaluates a query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery("let $db := db:open('" + NAME + "') return " + query).execute(context);
+  }
+}
@@ -0,0 +1,83 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the term dictionary of the full-text index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class FTTrieTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Fuzzy search terms. */
+  private static final String[] FUZZY = {
+    "germany", "unitd", "republik", "islnd", "francce", "ab", "x", "wtaer", "kingdom"
+  };
+  /** Wildcard expressions. */
+  private static final String[] WILDCARDS = {
+    "isl.*", ".*land", "ge.?r.+", "c.{1,3}a", "n.*w", "uni.*d.*", ".", "z.{2,2}", "s.?.?.?"
+  };
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of fuzzy and wildcard queries with and without index.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void query() throws BaseXException {
+    new Set(MainOptions.FTINDEX, true).execute(context);
+    try {
+      new CreateDB(NAME, DBFILE).execute(context);
+    } finally {
+      new Set(MainOptions.FTINDEX, false).execute(context);
+    }
+    final String indexed = contents();
+    new DropIndex(CmdIndex.FULLTEXT).execute(context);
+    assertEquals(indexed, contents());
+  }
+
+  /**
+   * Returns the pre values of the results of all queries.
+   * @return results
+   * @throws BaseXException database exception
+   */
+  private static String contents() throws BaseXException {
+    final StringBuilder sb = new StringBuilder();
+    for(final String term : FUZZY) {
+      sb.append(query(term, "fuzzy")).append('\n');
+    }
+    for(final String term : WILDCARDS) {
+      sb.append(query(term, "wildcards")).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the pre values of all text nodes that contain the specified term.
+   * @param term term
+   * @param option match option
+   * @return results
+   * @throws BaseXException database exception
+   */
+  private static String query(final String term, final String option) throws BaseXException {
+    return new XQuery("string-join(//text()[. contains text '" + term + "' using " + option +
+        "] ! string(db:node-pre(.)), ' ')").execute(context);
+  }
+}
@@ -0,0 +1,103 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests incremental updates of the full-text index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class FTUpdateTest extends SandboxTest {
+  /** Name of the database without full-text index. */
+  private static final String PLAIN = NAME + "plain";
+  /** Initial document. */
+  private static final String DOC = "<r><a>a b</a><a>b c</a><a>c a a</a></r>";
+  /** Full-text expressions. */
+  private static final String[] QUERIES = {
+    "'a'", "'b'", "'c'", "'d'", "'a c' all words", "'w1'", "'w69999'", "'w12.*' using wildcards",
+    "'w1234x' using fuzzy", "'ab' using fuzzy"
+  };
+  /** Updates (the database will be bound to {@code $db}). */
+  private static final String[] UPDATES = {
+    "insert node <a>a d</a> into $db/r",
+    "delete node $db/r/a[1]",
+    "replace value of node $db/r/a[1]/text() with 'a c'",
+    // number of tokens exceeds the merge limit
+    "insert node <a>{ string-join((1 to 70000) ! ('w' || .), ' ') }</a> into $db/r",
+    "delete node $db/r/a[2]",
+    "insert node <a>w1 ab</a> as first into $db/r",
+    "replace value of node $db/r/a[last()]/text() with 'w1234 c'",
+  };
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new Set(MainOptions.UPDINDEX, true).execute(context);
+    new CreateDB(PLAIN, DOC).execute(context);
+    new Set(MainOptions.FTINDEX, true).execute(context);
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Set(MainOptions.UPDINDEX, false).execute(context);
+    new Set(MainOptions.FTINDEX, false).execute(context);
+    new DropDB(NAME).execute(context);
+    new DropDB(PLAIN).execute(context);
+  }
+
+  /**
+   * Compares the results of queries on the updated index with sequential scans.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    for(final String update : UPDATES) {
+      for(final String db : new String[] { NAME, PLAIN }) {
+        new XQuery("let $db := db:open('" + db + "') return " + update).execute(context);
+      }
+      compare();
+    }
+    // reopen database: pending updates must have been persisted
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertTrue(context.data().meta.ftxtindex);
+    compare();
+  }
+
+  /**
+   * Compares the results of the indexed and the sequential queries.
+   * @throws BaseXException database exception
+   */
+  private static void compare() throws BaseXException {
+    for(final String query : QUERIES) {
+      assertEquals(query, query(PLAIN, query), query(NAME, query));
+    }
+  }
+
+  /**
+   * Returns the pre values of all text nodes that match the specified expression.
+   * @param db database
+   * @param query full-text expression
+   * @return results
+   * @throws BaseXException database exception
+   */
+  private static String query(final String db, final String query) throws BaseXException {
+    return new XQuery("string-join(db:open('" + db + "')//text()[. contains text " + query +
+        "] ! string(db:node-pre(.)), ' ')").execute(context);
+  }
+}
@@ -74,6 +74,33 @@ public final class IndexCacheTest {
     assertNull(cache.get(key));
   }
 
+  /** Test for the maximum number of entries. */
+  @Test
+  public void testBounded() {
+    cache = new IndexCache(100);
+    final byte[] used = token("keyUsed");
+    cache.add(used, 1, 1L);
+    for(int i = 0; i < 4000; ++i) {
+      cache.add(token("keyBounded" + i), i, i);
+      // entries that are repeatedly requested are not evicted
+      assertNotNull(cache.get(used));
+    }
+    assertTrue(cache.size() <= 100);
+  }
+
+  /** Test for the hit and miss statistics. */
+  @Test
+  public void testStatistics() {
+    final byte[] key = token("keyStats");
+    assertNull(cache.get(key));
+    cache.add(key, 1, 1L);
+    assertNotNull(cache.get(key));
+    assertNotNull(cache.get(key));
+    assertEquals(2, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(1, cache.size());
+  }
+
   /**
    * Test that new records can be continuously added without hitting
    * {@link OutOfMemoryError}.
@@ -0,0 +1,73 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the parallel construction of index structures.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Query for checking the index contents. */
+  private static final String CONTENTS = "string-join(("
+      + "index:texts('" + NAME + "') ! (string(), @count),"
+      + "index:attributes('" + NAME + "') ! (string(), @count),"
+      + "db:text('" + NAME + "', ('Germany', '1000')) ! string(db:node-pre(.)),"
+      + "db:attribute('" + NAME + "', ('f0_1001', 'Europe')) ! string(db:node-pre(.)),"
+      + "ft:search('" + NAME + "', ('united', 'republic of', 'new')) ! string(db:node-pre(.))"
+      + "), ' ')";
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Set(MainOptions.INDEXTHREADS, MainOptions.INDEXTHREADS.value).execute(context);
+    new Set(MainOptions.INDEXSPLITSIZE, MainOptions.INDEXSPLITSIZE.value).execute(context);
+    new Set(MainOptions.FTINDEXSPLITSIZE, MainOptions.FTINDEXSPLITSIZE.value).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the contents of indexes that have been created by one and several threads.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void threads() throws BaseXException {
+    final String contents = contents(1);
+    assertEquals(contents, contents(4));
+
+    // write partial indexes
+    new Set(MainOptions.INDEXSPLITSIZE, 3000).execute(context);
+    new Set(MainOptions.FTINDEXSPLITSIZE, 2000).execute(context);
+    assertEquals(contents, contents(1));
+    assertEquals(contents, contents(3));
+  }
+
+  /**
+   * Creates a database with the specified number of threads and returns the index contents.
+   * @param threads number of threads
+   * @return contents
+   * @throws BaseXException database exception
+   */
+  private static String contents(final int threads) throws BaseXException {
+    new Set(MainOptions.INDEXTHREADS, threads).execute(context);
+    new Set(MainOptions.FTINDEX, true).execute(context);
+    try {
+      new CreateDB(NAME, DBFILE).execute(context);
+    } finally {
+      new Set(MainOptions.FTINDEX, false).execute(context);
+    }
+    return new XQuery(CONTENTS).execute(context);
+  }
+}
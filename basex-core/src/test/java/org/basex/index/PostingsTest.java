@@ -0,0 +1,116 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.Random;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the compressed posting lists of the index structures.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PostingsTest extends SandboxTest {
+  /** Database XML file. */
+  private static final String DBFILE = "src/test/resources/factbook.zip";
+  /** Query for checking the index contents. */
+  private static final String CONTENTS = "string-join(("
+      + "db:text('" + NAME + "', ('Germany', '1000')) ! string(db:node-pre(.)),"
+      + "db:attribute('" + NAME + "', ('f0_1001', 'Europe')) ! string(db:node-pre(.)),"
+      + "ft:search('" + NAME + "', ('united', 'republic of', 'isl.*'), "
+      + "map { 'wildcards': true() }) ! string(db:node-pre(.)),"
+      + "ft:search('" + NAME + "', ('new', 'island'), map { 'mode': 'all' })"
+      + " ! string(db:node-pre(.))"
+      + "), ' ')";
+  /** Block sizes. */
+  private static final int[] BLOCKS = { 0, 1, 3, 128 };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Set(MainOptions.INDEXBLOCKSIZE, MainOptions.INDEXBLOCKSIZE.value).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Writes and reads lists with and without attached values.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void lists() throws IOException {
+    final Random rnd = new Random(0);
+    final IOFile file = new IOFile(sandbox(), "postings");
+    for(final int block : BLOCKS) {
+      for(final int size : new int[] { 1, 2, 127, 128, 129, 1000 }) {
+        // ascending values with duplicates, large distances and large attached values
+        final IntList vals = new IntList(), atts = new IntList();
+        for(int i = 0, v = 0; i < size; i++) {
+          v += rnd.nextInt(10) == 0 ? rnd.nextInt(Integer.MAX_VALUE / 2000) : rnd.nextInt(3);
+          vals.add(v);
+          atts.add(rnd.nextInt(10) == 0 ? Integer.MAX_VALUE - rnd.nextInt(5) : rnd.nextInt(50));
+        }
+        for(final boolean attach : new boolean[] { false, true }) {
+          try(final DataOutput out = new DataOutput(file)) {
+            out.write1(0);
+            Postings.write(out, vals, attach ? atts : null, block);
+          }
+          try(final DataAccess da = new DataAccess(file)) {
+            Postings pl = new Postings(da, 1, size, block, attach);
+            for(int i = 0; i < size; i++) {
+              assertTrue(pl.more());
+              assertEquals(vals.get(i), pl.value());
+              if(attach) assertEquals(atts.get(i), pl.attached());
+            }
+            assertFalse(pl.more());
+
+            // skip entries
+            pl = new Postings(da, 1, size, block, attach);
+            for(int i = 0; i < size; i += 1 + rnd.nextInt(300)) {
+              final int v = vals.get(i);
+              assertTrue(pl.more(v));
+              assertEquals(v, pl.value());
+              // skip duplicates
+              while(i + 1 < size && vals.get(i + 1) == v) i++;
+            }
+            assertFalse(pl.more(vals.get(size - 1) + 1));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compares the contents of indexes with different block sizes.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void database() throws BaseXException {
+    String contents = null;
+    for(final int block : BLOCKS) {
+      new Set(MainOptions.INDEXBLOCKSIZE, block).execute(context);
+      new Set(MainOptions.FTINDEX, true).execute(context);
+      try {
+        new CreateDB(NAME, DBFILE).execute(context);
+      } finally {
+        new Set(MainOptions.FTINDEX, false).execute(context);
+      }
+      final String result = new XQuery(CONTENTS).execute(context);
+      if(contents == null) contents = result;
+      else assertEquals(contents, result);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests incremental updates of the text and attribute index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ValueUpdateTest extends SandboxTest {
+  /** Name of the database without indexes. */
+  private static final String PLAIN = NAME + "plain";
+  /** Initial document. */
+  private static final String DOC = "<r><a n='x'>a</a><a n='y'>b</a><a>c</a><b>1</b></r>";
+  /** Index queries (the database will be bound to {@code $db}). */
+  private static final String[] QUERIES = {
+    "$db//text()[. = 'a']", "$db//text()[. = ('b', 'c', 'd')]", "$db//text()[. = '999']",
+    "$db//text()[. >= '10' and . < '11']", "$db//b[text() > 99 and text() < 120]",
+    "$db//@n[. = 'x']", "$db//@n[. = 'y']"
+  };
+  /** Entry queries (index entries are compared with the grouped texts). */
+  private static final String[][] ENTRIES = {
+    { "", "" }, { "'99'", "starts-with($s, '99')" },
+    { "'5', false()", "$s < '5'" }, { "'70', true()", "$s >= '70'" }
+  };
+  /** Updates. */
+  private static final String[] UPDATES = {
+    "insert node <a>d</a> into $db/r",
+    "delete node $db/r/a[1]",
+    "replace value of node $db/r/a[1]/text() with 'c'",
+    "rename node $db/r/a[@n][1]/@n as 'm'",
+    "replace value of node $db/r/a/@m with 'x'",
+  };
+  /** Bulk insertion (exceeds the size of an in-memory segment). */
+  private static final String BULK =
+    "insert node <c>{ (1 to 70000) ! <b>{ . mod 1000 }</b> }</c> into $db/r";
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    new Set(MainOptions.UPDINDEX, true).execute(context);
+    new Set(MainOptions.TEXTINDEX, false).execute(context);
+    new Set(MainOptions.ATTRINDEX, false).execute(context);
+    new CreateDB(PLAIN, DOC).execute(context);
+    new Set(MainOptions.TEXTINDEX, true).execute(context);
+    new Set(MainOptions.ATTRINDEX, true).execute(context);
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Set(MainOptions.UPDINDEX, false).execute(context);
+    new DropDB(NAME).execute(context);
+    new DropDB(PLAIN).execute(context);
+  }
+
+  /**
+   * Compares the results of queries on the updated indexes with sequential scans.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    for(final String update : UPDATES) {
+      update(update);
+      compare();
+    }
+    // segments on disk will be merged with the index files
+    for(int b = 0; b < 9; b++) {
+      update(BULK);
+      if(b == 0) update("delete node $db//b[. = '1']");
+      if(b == 4) update("replace value of node $db//c[1]/b[2] with '5000'");
+      if(b == 6) update("delete node $db//c[3]");
+      if(b == 0) compare();
+    }
+    // reopen database: pending updates must have been persisted
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertTrue(context.data().meta.textindex);
+    assertTrue(context.data().meta.attrindex);
+    compare();
+  }
+
+  /**
+   * Performs an update on both databases.
+   * @param update update expression
+   * @throws BaseXException database exception
+   */
+  private static void update(final String update) throws BaseXException {
+    for(final String db : new String[] { NAME, PLAIN }) query(db, update);
+  }
+
+  /**
+   * Compares the results of the indexed and the sequential queries.
+   * @throws BaseXException database exception
+   */
+  private static void compare() throws BaseXException {
+    for(final String query : QUERIES) {
+      final String q = "string-join(" + query + " ! string(db:node-pre(.)), ' ')";
+      assertEquals(query, query(PLAIN, q), query(NAME, q));
+    }
+    for(final String[] entries : ENTRIES) {
+      final String args = entries[0].isEmpty() ? "" : ", " + entries[0];
+      final String filter = entries[1].isEmpty() ? "" : " where " + entries[1];
+      final boolean desc = entries[0].endsWith("false()");
+      final String expected = query(PLAIN, "string-join(for $t in $db//text() " +
+          "group by $s := string($t)" + filter + " order by $s " +
+          (desc ? "descending " : "") + "return $s || ':' || count($t), ' ')");
+      final String result = query(NAME, "string-join(index:texts('" + NAME + "'" + args +
+          ") ! (. || ':' || @count), ' ')");
+      assertEquals(entries[0], expected, result);
+    }
+  }
+
+  /**
+   * Evaluates a query.
+   * @param db database
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String db, final String query) throws BaseXException {
+    return new XQuery("let $db := db:open('" + db + "') return " + query).execute(context);
+  }
+}
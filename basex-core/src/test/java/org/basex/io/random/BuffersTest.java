@@ -0,0 +1,79 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+/**
+ * Tests for class {@link Buffers}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class BuffersTest {
+  /** Cached pages are found again. */
+  @Test
+  public void lookup() {
+    final Buffers bm = new Buffers(8);
+    for(int p = 0; p < 8; p++) assertTrue(load(bm, p));
+    for(int p = 0; p < 8; p++) assertFalse(bm.cursor(p));
+    assertEquals(8, bm.size());
+    assertEquals(8, bm.hits());
+    assertEquals(8, bm.misses());
+  }
+
+  /** Buffers are allocated on demand. */
+  @Test
+  public void lazy() {
+    final Buffers bm = new Buffers(1 << 16);
+    load(bm, 1);
+    load(bm, 2);
+    assertEquals(2, bm.size());
+    assertEquals(2, bm.all().length);
+  }
+
+  /** Dirty buffers are handed out for write-back before being reused. */
+  @Test
+  public void evict() {
+    final Buffers bm = new Buffers(2);
+    load(bm, 0);
+    bm.current().dirty = true;
+    load(bm, 1);
+    assertTrue(bm.cursor(2));
+    final Buffer bf = bm.current();
+    assertEquals(0, bf.pos);
+    assertTrue(bf.dirty);
+  }
+
+  /** A sequential scan does not displace frequently requested pages. */
+  @Test
+  public void scanResistance() {
+    final Buffers bm = new Buffers(16);
+    // promote working set to the main queue: load pages, evict them, request them again
+    for(int p = 0; p < 8; p++) load(bm, p);
+    for(int p = 100; p < 116; p++) load(bm, p);
+    for(int p = 0; p < 8; p++) load(bm, p);
+
+    // scan many pages once
+    for(int p = 1000; p < 2000; p++) load(bm, p);
+    final long misses = bm.misses();
+    for(int p = 0; p < 8; p++) assertFalse("Page evicted: " + p, bm.cursor(p));
+    assertEquals(misses, bm.misses());
+  }
+
+  /**
+   * Requests a page and assigns its position if it has not been cached yet.
+   * @param bm buffers
+   * @param p page
+   * @return result of {@link Buffers#cursor(long)}
+   */
+  private static boolean load(final Buffers bm, final long p) {
+    final boolean changed = bm.cursor(p);
+    if(changed) {
+      final Buffer bf = bm.current();
+      bf.dirty = false;
+      bf.pos = p;
+    }
+    return changed;
+  }
+}
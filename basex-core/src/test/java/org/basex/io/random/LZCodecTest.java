@@ -0,0 +1,59 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link LZCodec}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class LZCodecTest {
+  /** Empty and short inputs. */
+  @Test
+  public void small() {
+    roundTrip(new byte[0]);
+    roundTrip(Token.token("a"));
+    roundTrip(Token.token("abcabcabc"));
+  }
+
+  /** Random bytes. */
+  @Test
+  public void random() {
+    final Random rnd = new Random(0);
+    final byte[] input = new byte[CompressedFile.CHUNKSIZE];
+    rnd.nextBytes(input);
+    roundTrip(input);
+  }
+
+  /** Repetitive text and long runs. */
+  @Test
+  public void repetitive() {
+    final TokenBuilder tb = new TokenBuilder();
+    final Random rnd = new Random(0);
+    while(tb.size() < 60000) tb.add("<p>Lorem ipsum dolor sit amet ").addInt(rnd.nextInt(100));
+    final byte[] input = tb.finish();
+    assertTrue(LZCodec.encode(input, input.length).length < input.length / 4);
+    roundTrip(input);
+
+    final byte[] zeros = new byte[CompressedFile.CHUNKSIZE];
+    assertTrue(LZCodec.encode(zeros, zeros.length).length < 300);
+    roundTrip(zeros);
+  }
+
+  /**
+   * Compresses and decompresses the input and compares the result.
+   * @param input input
+   */
+  private static void roundTrip(final byte[] input) {
+    final byte[] encoded = LZCodec.encode(input, input.length);
+    final byte[] decoded = new byte[input.length];
+    assertEquals(input.length, LZCodec.decode(encoded, encoded.length, decoded));
+    assertArrayEquals(input, decoded);
+  }
+}
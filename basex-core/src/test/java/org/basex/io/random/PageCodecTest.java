@@ -0,0 +1,77 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link PageCodec}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCodecTest {
+  /** Empty pages. */
+  @Test
+  public void empty() {
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    assertTrue(PageCodec.encode(page).length < 32);
+    roundTrip(page);
+  }
+
+  /** Pages with random contents. */
+  @Test
+  public void random() {
+    final Random rnd = new Random(0);
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    for(int r = 0; r < 100; r++) {
+      rnd.nextBytes(page);
+      roundTrip(page);
+    }
+  }
+
+  /** Pages with ascending ids and repetitive values. */
+  @Test
+  public void table() {
+    final Random rnd = new Random(0);
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    for(int i = 0; i < IO.ENTRIES; i++) {
+      final int o = i << IO.NODEPOWER;
+      page[o] = (byte) (1 + rnd.nextInt(2));
+      page[o + 2] = (byte) rnd.nextInt(8);
+      write(page, o + 8, 1 + rnd.nextInt(3));
+      write(page, o + 12, 1000000 + i);
+    }
+    // extreme values
+    write(page, 4, Integer.MIN_VALUE);
+    write(page, 20, Integer.MAX_VALUE);
+    assertTrue(PageCodec.encode(page).length < IO.BLOCKSIZE / 2);
+    roundTrip(page);
+  }
+
+  /**
+   * Encodes and decodes a page and compares the result.
+   * @param page page
+   */
+  private static void roundTrip(final byte[] page) {
+    final byte[] decoded = new byte[IO.BLOCKSIZE];
+    PageCodec.decode(PageCodec.encode(page), decoded);
+    assertArrayEquals(page, decoded);
+  }
+
+  /**
+   * Writes an integer.
+   * @param page page
+   * @param o offset
+   * @param v value
+   */
+  private static void write(final byte[] page, final int o, final int v) {
+    page[o] = (byte) (v >>> 24);
+    page[o + 1] = (byte) (v >>> 16);
+    page[o + 2] = (byte) (v >>> 8);
+    page[o + 3] = (byte) v;
+  }
+}
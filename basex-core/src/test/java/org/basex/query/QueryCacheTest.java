@@ -0,0 +1,109 @@
+package org.basex.query;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the reuse of parsed queries.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest extends SandboxTest {
+  /**
+   * Enables the query cache.
+   */
+  @Before
+  public void setUp() {
+    context.soptions.set(StaticOptions.QUERYCACHE, 2);
+    context.queries.clear();
+  }
+
+  /**
+   * Disables the query cache and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    context.soptions.set(StaticOptions.QUERYCACHE, StaticOptions.QUERYCACHE.value);
+    context.queries.clear();
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Evaluates a cached query with different bindings.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void bindings() throws BaseXException {
+    final String query = "declare namespace p = 'p';" +
+        "declare variable $x as xs:integer external; declare variable $y := $x * 2;" +
+        "for $i in 1 to $y where $i > $x return <p:a>{ $i }</p:a>";
+    for(int i = 0; i < 3; i++) {
+      final StringBuilder sb = new StringBuilder();
+      for(int j = i + 1; j <= i * 2; j++) sb.append("<p:a xmlns:p=\"p\">" + j + "</p:a>");
+      assertEquals(sb.toString(), new XQuery(query).bind("x", Integer.toString(i)).
+          execute(context).replace(Prop.NL, ""));
+      assertEquals(1, context.queries.size());
+    }
+  }
+
+  /**
+   * Evaluates a cached query on an updated database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void database() throws BaseXException {
+    new CreateDB(NAME, "<a><b/></a>").execute(context);
+    final String query = "count(db:open('" + NAME + "')//b)";
+    assertEquals("1", new XQuery(query).execute(context));
+    new XQuery("insert node <b/> into db:open('" + NAME + "')/a").execute(context);
+    assertEquals("2", new XQuery(query).execute(context));
+    assertEquals(2, context.queries.size());
+  }
+
+  /**
+   * Evaluates a cached query after a change of the options of the static context.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void options() throws BaseXException {
+    final String query = "let $f := db:output#1 return ($f(1), 2)";
+    new Set(MainOptions.MIXUPDATES, true).execute(context);
+    try {
+      assertEquals("2\n1", new XQuery(query).execute(context).replace(Prop.NL, "\n"));
+      new Set(MainOptions.MIXUPDATES, false).execute(context);
+      try {
+        new XQuery(query).execute(context);
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage(), ex.getMessage().contains("XUDY0032"));
+      }
+    } finally {
+      new Set(MainOptions.MIXUPDATES, false).execute(context);
+    }
+  }
+
+  /**
+   * Checks that the number of cached queries is limited, and that queries with function
+   * declarations are not cached.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void limits() throws BaseXException {
+    for(int i = 0; i < 4; i++) {
+      assertEquals(Integer.toString(i), new XQuery(Integer.toString(i)).execute(context));
+    }
+    assertEquals(2, context.queries.size());
+
+    context.queries.clear();
+    new XQuery("declare function local:f() { 1 }; local:f()").execute(context);
+    assertEquals(0, context.queries.size());
+  }
+}
@@ -256,4 +256,24 @@ public final class GFLWOROptimizeTest extends QueryPlanTest {
         "exists(//Let)"
     );
   }
+
+  /** Tests if the number of sorted tuples is limited if only the first results are consumed. */
+  @Test public void orderByLimitTest() {
+    final String flwor = "for $i in 1 to 20 order by $i mod 5 descending, -$i return $i";
+    check("(" + flwor + ")[position() <= 6]", "19\n14\n9\n4\n18\n13",
+        "//OrderBy/@max = 6");
+    check("subsequence(" + flwor + ", 4, 2)", "4\n18", "//OrderBy/@max = 5");
+    check("head(" + flwor + ")", "19", "//OrderBy/@max = 1");
+    check("(for $i in 1 to 20 order by $i mod 3 let $j := $i return $j)[3]", "9",
+        "//OrderBy/@max = 3");
+
+    // ties are returned in their input order
+    check("(for $i in 1 to 100 order by $i mod 2 return $i)[position() <= 3]", "2\n4\n6",
+        "//OrderBy/@max = 3");
+    // results of tuples may be empty
+    check("(for $i in 1 to 20 order by -$i return $i[. mod 2 = 0])[1]", "20",
+        "empty(//OrderBy/@max)");
+    check("(for $i in 1 to 20 order by -$i count $c where $c mod 2 = 0 return $i)[1]", "19",
+        "empty(//OrderBy/@max)");
+  }
 }
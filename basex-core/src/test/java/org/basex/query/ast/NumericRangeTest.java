@@ -0,0 +1,104 @@
+package org.basex.query.ast;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.query.expr.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests if numeric range queries are correctly evaluated with(out) the index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class NumericRangeTest extends QueryPlanTest {
+  /**
+   * Initializes the tests.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void start() throws BaseXException {
+    // create document with negative, decimal and integer values of different lengths
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add("<xml>");
+    for(int i = -1000; i < 1000; i++) {
+      tb.add("<n>").addExt(i / 4d).add("</n>");
+      tb.add("<m v='").addInt(i).add("'/>");
+    }
+    // numerically equal values with different string representations
+    tb.add("<n>7.0</n><n>007</n>");
+    tb.add("</xml>");
+    new CreateDB(NAME, tb.toString()).execute(context);
+  }
+
+  /**
+   * Finishes the tests.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Tests ranges with inclusive and exclusive bounds.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void bounds() throws BaseXException {
+    final Class<? extends Expr> clz = RangeAccess.class;
+    test("count(//n[text() >= 7 and text() <= 8])", "7", clz);
+    test("count(//n[text() > 7 and text() < 8])", "3", clz);
+    test("count(//n[text() >= -0.5 and text() < 0.5])", "4", clz);
+    test("count(//n[text() > -250 and text() <= -249.75])", "1", clz);
+    test("count(//n[text() > 1000])", "0");
+    test("count(//n[text() > 7 and text() < 7])", "0");
+  }
+
+  /**
+   * Tests ranges with a single bound.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void oneSided() throws BaseXException {
+    final Class<? extends Expr> clz = RangeAccess.class;
+    test("count(//n[text() > 200])", "199", clz);
+    test("count(//n[text() <= -200])", "201", clz);
+    test("count(//m[@v > 990])", "9", clz);
+    test("count(//m[@v < -995])", "5", clz);
+  }
+
+  /**
+   * Tests a query with and without index.
+   * @param query query
+   * @param result expected result
+   * @param expr class expected in query plan
+   * @throws BaseXException database exception
+   */
+  private static void test(final String query, final String result,
+      final Class<? extends Expr> expr) throws BaseXException {
+
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    new CreateIndex(CmdIndex.ATTRIBUTE).execute(context);
+    check(query, result, "exists(//" + Util.className(expr) + ')');
+    new DropIndex(CmdIndex.TEXT).execute(context);
+    new DropIndex(CmdIndex.ATTRIBUTE).execute(context);
+    check(query, result, "not(//" + Util.className(expr) + ')');
+  }
+
+  /**
+   * Tests a query with and without index.
+   * @param query query
+   * @param result expected result
+   * @throws BaseXException database exception
+   */
+  private static void test(final String query, final String result) throws BaseXException {
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    check(query, result);
+    new DropIndex(CmdIndex.TEXT).execute(context);
+    check(query, result);
+  }
+}
@@ -112,6 +112,23 @@ public final class RewritingsTest extends QueryPlanTest {
     new DropDB(NAME).execute(context);
   }
 
+  /**
+   * Checks if index results are iteratively evaluated if the parents are found on the same level.
+   * @throws BaseXException if creating or dropping the database fails
+   */
+  @Test
+  public void indexIterPath() throws BaseXException {
+    new CreateDB(NAME, "<r><a id='1'>x</a><a id='2'>x<c/>x</a><b>x</b><a id='3' x='x' y='x'/>"
+        + "<a id='4'>y</a><a id='5'>x</a></r>").execute(context);
+    check("//a[text() = 'x'] ! string(@id)", "1\n2\n5", "exists(//IterPath)");
+    check("(//a[text() = 'x'])[2] ! string(@id)", "2", "exists(//IterPath)");
+    check("//a[@* = 'x'] ! string(@id)", "3", "exists(//IterPath)");
+
+    new CreateDB(NAME, "<r><b><a id='1'>x</a></b><a id='2'>x</a></r>").execute(context);
+    check("//a[text() = 'x'] ! string(@id)", "1\n2", "empty(//IterPath)");
+    new DropDB(NAME).execute(context);
+  }
+
   /**
    * Checks OR optimizations.
    */
@@ -28,6 +28,24 @@ public final class GFLWORTest extends AdvancedQueryTest {
     query("let $i := 1 group by $i, $i return $i", "1");
   }
 
+  /** Tests the parallel evaluation of for clauses. */
+  @Test
+  public void parallelTest() {
+    final String[] queries = {
+      "for $i in 1 to 100 return $i * 2",
+      "for $i at $p in reverse(1 to 100) let $j := $i + $p where $i mod 3 = 0 return <a>{ $j }</a>",
+      "for $i in 1 to 20 for $j in 1 to $i where $j > 18 return $i * $j",
+      "let $s := 5 for $i in 1 to 10 return string-join((1 to $i) ! string(. + $s))",
+      "for $i in () return $i", "for $i allowing empty in () return 1"
+    };
+    for(final String query : queries) {
+      final String result = query(query);
+      query("declare option db:forkjoin '4'; " + query, result);
+      query("(# db:forkjoin 3 #) { " + query + " }", result);
+    }
+    error("declare option db:forkjoin '4'; for $i in 1 to 100 return 1 idiv ($i - 70)", DIVZERO_X);
+  }
+
   /**
    * Runs an updating query and matches the result of the second query
    * against the expected output.
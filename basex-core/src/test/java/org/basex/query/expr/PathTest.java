@@ -198,4 +198,24 @@ public final class PathTest extends AdvancedQueryTest {
     query("for $i in (1,'a') return //ul/li[$i][2]");
     query("for $i in (1,'a') return //ul/li[$i][last()]", LI1 + '\n' + LI2);
   }
+
+  /**
+   * Descendant and ancestor steps on database nodes (staircase join).
+   */
+  @Test public void staircase() {
+    final String[][] paths = {
+      { "//*", "descendant::li" }, { "//*", "descendant::node()" },
+      { "//*", "descendant-or-self::*[text()]" }, { "(//li, //ul, /*)", "descendant::text()" },
+      { "//text()", "ancestor::*" }, { "//li", "ancestor-or-self::node()" },
+      { "//@*", "ancestor::*[@id]" }, { "//@*", "ancestor-or-self::*" },
+      { "//@*", "descendant-or-self::node()" }, { "//*/descendant::*", "ancestor::body" }
+    };
+    for(final String[] path : paths) {
+      // compare results with separately evaluated steps
+      final String result = " ! string(db:node-pre(.)), ' ')";
+      final String expected = query("string-join(((" + path[0] + " ! " + path[1] +
+          ") union ())" + result);
+      query("string-join(" + path[0] + '/' + path[1] + result, expected);
+    }
+  }
 }
@@ -67,6 +67,48 @@ public final class ArrayModuleTest extends AdvancedQueryTest {
     error(_ARRAY_REMOVE.args(" [1]", " 2"), ARRAYBOUNDS_X_X);
   }
 
+  /** Test method. */
+  @Test public void put() {
+    array(_ARRAY_PUT.args(" [1]", " 1", " 2"), "[2]");
+    array(_ARRAY_PUT.args(" [1, 2]", " 2", "()"), "[1, ()]");
+    array(_ARRAY_PUT.args(" array { 1 to 5 }", " 3", "(6, 7)"), "[1, 2, (6, 7), 4, 5]");
+
+    error(_ARRAY_PUT.args(" []", " 1", " 1"), ARRAYEMPTY);
+    error(_ARRAY_PUT.args(" [1]", " 0", " 1"), ARRAYBOUNDS_X_X);
+    error(_ARRAY_PUT.args(" [1]", " 2", " 1"), ARRAYBOUNDS_X_X);
+  }
+
+  /** Tests updates on large arrays (which are stored in trees). */
+  @Test public void persistent() {
+    final String fold = "fold-left(1 to 2000, ";
+    // append and prepend members
+    query(fold + "[], array:append#2) ! (deep-equal(array:flatten(.), 1 to 2000), " +
+        "every $i in 1 to 2000 satisfies .($i) = $i)", "true\ntrue");
+    query(fold + "[], function($a, $i) { " + _ARRAY_INSERT_BEFORE.args("$a", " 1", "$i") +
+        " }) ! deep-equal(array:flatten(.), reverse(1 to 2000))", "true");
+    // insert, replace and remove members at arbitrary positions
+    query("deep-equal(array:flatten(" + fold + "[], function($a, $i) { " +
+        _ARRAY_INSERT_BEFORE.args("$a", " $i idiv 2 + 1", "$i") + " })), " +
+        fold + "(), function($s, $i) { insert-before($s, $i idiv 2 + 1, $i) }))", "true");
+    query("deep-equal(array:flatten(" + fold + "array { 1 to 2000 }, function($a, $i) { " +
+        _ARRAY_PUT.args("$a", " $i * 7 mod 2000 + 1", " -$i") + " })), " +
+        fold + "1 to 2000, function($s, $i) { let $p := $i * 7 mod 2000 + 1 return " +
+        "(subsequence($s, 1, $p - 1), -$i, subsequence($s, $p + 1)) }))", "true");
+    query("deep-equal(array:flatten(fold-left(1 to 1500, array { 1 to 2000 }, " +
+        "function($a, $i) { " + _ARRAY_REMOVE.args("$a", " $i * 13 mod (2001 - $i) + 1") +
+        " })), fold-left(1 to 1500, 1 to 2000, function($s, $i) { " +
+        "remove($s, $i * 13 mod (2001 - $i) + 1) }))", "true");
+    // subarrays, tails and joined arrays
+    query(_ARRAY_SUBARRAY.args(" array { 1 to 2000 }", " 100", " 1500") +
+        " ! deep-equal(array:flatten(.), 100 to 1599)", "true");
+    array("fold-left(1 to 1999, array { 1 to 2000 }, function($a, $i) { " +
+        _ARRAY_TAIL.args("$a") + " })", "[2000]");
+    query(_ARRAY_JOIN.args("(1 to 100) ! array { 1 to . }") +
+        " ! deep-equal(array:flatten(.), (1 to 100) ! (1 to .))", "true");
+    query(_ARRAY_REVERSE.args(" array { 1 to 2000 }") +
+        " ! deep-equal(array:flatten(.), reverse(1 to 2000))", "true");
+  }
+
   /** Test method. */
   @Test public void insertBefore() {
     array(_ARRAY_INSERT_BEFORE.args(" []", " 1", " 1"), "[1]");
@@ -121,6 +121,34 @@ public final class FtModuleTest extends AdvancedQueryTest {
     error(_FT_SEARCH.args(NAME, "x", " 1"), ELMMAP_X_X_X);
   }
 
+  /**
+   * Test method.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void searchTop() throws BaseXException {
+    new CreateDB(NAME, "src/test/resources/factbook.zip").execute(context);
+    new CreateIndex(CmdIndex.FULLTEXT).execute(context);
+    new Set(MainOptions.BM25, true).execute(context);
+    try {
+      // compare results with early termination and with ranking of all results
+      for(final String terms : new String[] { "'united'", "('new york', 'of', 'zzz')",
+          "('republic', 'island', 'united', 'kingdom', 'new', 'south')" }) {
+        for(final String mode : new String[] { "any", "all", "any word" }) {
+          final String search = _FT_SEARCH.args(NAME, ' ' + terms, " map { 'mode': '" + mode +
+              "'" + "%s }");
+          final String full = "(for $n in " + String.format(search, "") + " order by " +
+              _FT_SCORE.args("$n") + " descending return $n)[position() <= 10]";
+          final String top = String.format(search, ", 'top': 10");
+          query("deep-equal(" + full + ", " + top + ')', "true");
+        }
+      }
+    } finally {
+      new Set(MainOptions.BM25, false).execute(context);
+    }
+    query(COUNT.args(_FT_SEARCH.args(NAME, "united", " map { 'top': 3 }")), "3");
+  }
+
   /** Test method. */
   @Test
   public void count() {
@@ -88,6 +88,26 @@ public final class XQueryModuleTest extends AdvancedQueryTest {
     error(_XQUERY_PARSE.args("1+"), CALCEXPR);
   }
 
+  /** Test method. */
+  @Test
+  public void forkJoin() {
+    query(_XQUERY_FORK_JOIN.args("()"), "");
+    query(_XQUERY_FORK_JOIN.args("function() { 1 }"), "1");
+    query(_XQUERY_FORK_JOIN.args("(1 to 100) ! (let $i := . return function() { $i * 2 })") +
+        " = (1 to 100) ! (. * 2)", "true");
+    query(_XQUERY_FORK_JOIN.args("(1 to 10) ! (let $i := . return function() { 1 to $i })") +
+        " => count()", "55");
+    query("declare function local:f($i) { $i + 1 }; " +
+        _XQUERY_FORK_JOIN.args("(local:f#1(1), 2) ! (let $i := . return function() { $i })"),
+        "2\n2");
+    query("declare option db:forkjoin '2'; sum(for $i in 1 to 100 return " +
+        _XQUERY_FORK_JOIN.args("(1, 2) ! (let $j := . return function() { $i * $j })") +
+        ")", "15150");
+    error(_XQUERY_FORK_JOIN.args("function() { 1 idiv 0 }"), DIVZERO_X);
+    error(_XQUERY_FORK_JOIN.args("function($a) { $a }"), INVCAST_X_X_X);
+    error(_XQUERY_FORK_JOIN.args(" %updating function() { delete node <a/> }"), BXXQ_UPDATING);
+  }
+
   /** Test method. */
   @Test
   public void type() {
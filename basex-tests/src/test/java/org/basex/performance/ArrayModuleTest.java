@@ -0,0 +1,169 @@
+package org.basex.performance;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class benchmarks operations of the array module on large arrays.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ArrayModuleTest extends SandboxTest {
+  /** Number of array members. */
+  private static final int MEMBERS = 100000;
+  /** Number of loops. */
+  private static final int LOOPS = 3;
+  /** Array with the specified number of members. */
+  private static final String ARRAY = "let $a := array { 1 to " + MEMBERS + " } return ";
+
+  /**
+   * Builds an array by appending members.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void append() throws BaseXException {
+    query("array:size(fold-left(1 to " + MEMBERS + ", [], array:append#2))");
+  }
+
+  /**
+   * Builds an array by inserting members at the start.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void prepend() throws BaseXException {
+    query("array:size(fold-left(1 to " + MEMBERS +
+        ", [], function($a, $i) { array:insert-before($a, 1, $i) }))");
+  }
+
+  /**
+   * Builds an array by inserting members in the middle.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void insertMiddle() throws BaseXException {
+    query("array:size(fold-left(1 to " + MEMBERS +
+        ", [], function($a, $i) { array:insert-before($a, array:size($a) idiv 2 + 1, $i) }))");
+  }
+
+  /**
+   * Replaces all members of an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void put() throws BaseXException {
+    query(ARRAY + "array:size(fold-left(1 to " + MEMBERS +
+        ", $a, function($a, $i) { array:put($a, $i, -$i) }))");
+  }
+
+  /**
+   * Removes all members of an array from the middle.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void remove() throws BaseXException {
+    query(ARRAY + "array:size(fold-left(1 to " + MEMBERS +
+        ", $a, function($a, $i) { array:remove($a, array:size($a) idiv 2 + 1) }))");
+  }
+
+  /**
+   * Removes the first member of an array until it is empty.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void tail() throws BaseXException {
+    query(ARRAY + "array:size(fold-left(1 to " + MEMBERS +
+        ", $a, function($a, $i) { array:tail($a) }))");
+  }
+
+  /**
+   * Creates sub arrays.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void subarray() throws BaseXException {
+    query(ARRAY + "sum((1 to 1000) ! array:size(array:subarray($a, ., " +
+        MEMBERS / 2 + ")))");
+  }
+
+  /**
+   * Joins arrays.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void join() throws BaseXException {
+    query("array:size(array:join((1 to " + MEMBERS / 100 + ") ! array { 1 to 100 }))");
+  }
+
+  /**
+   * Accesses all members of an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void get() throws BaseXException {
+    query(ARRAY + "sum((1 to " + MEMBERS + ") ! $a(.))");
+  }
+
+  /**
+   * Reverses an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void reverse() throws BaseXException {
+    query(ARRAY + "array:size(array:reverse($a))");
+  }
+
+  /**
+   * Applies a function to all members of an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void forEach() throws BaseXException {
+    query(ARRAY + "array:size(array:for-each($a, function($m) { $m + 1 }))");
+  }
+
+  /**
+   * Folds the members of an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void fold() throws BaseXException {
+    query(ARRAY + "array:fold-left($a, 0, function($s, $m) { $s + $m }) + " +
+        "array:fold-right($a, 0, function($m, $s) { $s + $m })");
+  }
+
+  /**
+   * Sorts an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void sort() throws BaseXException {
+    query(ARRAY + "array:size(array:sort(array:reverse($a)))");
+  }
+
+  /**
+   * Performs the specified query; some performance measurements are output and
+   * the result is ignored.
+   * @param query query to be evaluated
+   * @throws BaseXException database exception
+   */
+  private static void query(final String query) throws BaseXException {
+    Util.outln("Query: " + query);
+    // warm up
+    new XQuery(query).execute(context);
+    final Performance p = new Performance();
+    // run query and dump required time
+    final Performance pl = new Performance();
+    for(int l = 0; l < LOOPS; l++) {
+      new XQuery(query).execute(context);
+      Util.outln(pl);
+    }
+    // print average runtime
+    Util.outln(p.getTime(LOOPS));
+    Util.outln();
+  }
+}
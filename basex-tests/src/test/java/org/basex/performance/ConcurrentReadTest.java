@@ -0,0 +1,141 @@
+package org.basex.performance;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.io.out.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class measures the throughput of concurrent read queries on a single database
+ * for different read access modes and numbers of threads.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest extends SandboxTest {
+  /** Number of elements to be created. */
+  private static final int ELEMENTS = 200000;
+  /** Number of queries per thread. */
+  private static final int RUNS = 8;
+  /** Query to be run. */
+  private static final String QUERY =
+      "count(db:open('" + NAME + "')//SUB[contains(text(), 'abc')])";
+
+  /**
+   * Initializes the test database.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void initDB() throws IOException {
+    final IOFile dbfile = new IOFile(sandbox(), NAME);
+    try(final BufferOutput bo = new BufferOutput(dbfile.path())) {
+      final int max = 16;
+      final byte[] cache = new byte[max];
+      // use constant seed to create same test document every time
+      final Random rnd = new Random(0);
+      bo.write(Token.token("<XML>"));
+      final byte[] start = Token.token("<SUB>");
+      final byte[] end = Token.token("</SUB>");
+      for(int e = 0; e < ELEMENTS; e++) {
+        bo.write(start);
+        final int rl = rnd.nextInt(max) + 1;
+        for(int r = 0; r < rl; r++) cache[r] = (byte) ('a' + rnd.nextInt(max));
+        bo.write(cache, 0, rl);
+        bo.write(end);
+      }
+      bo.write(Token.token("</XML>"));
+    }
+    new CreateDB(NAME, dbfile.path()).execute(context);
+    new Close().execute(context);
+  }
+
+  /**
+   * Drops the test database and resets the options.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finishDB() throws BaseXException {
+    new Close().execute(context);
+    new DropDB(NAME).execute(context);
+    context.soptions.set(StaticOptions.MMAP, false);
+    context.soptions.set(StaticOptions.LOCKFREE, false);
+  }
+
+  /**
+   * Buffered, synchronized access.
+   * @throws Exception exception
+   */
+  @Test
+  public void buffered() throws Exception {
+    run(false, false);
+  }
+
+  /**
+   * Lock-free access with thread-local cursors.
+   * @throws Exception exception
+   */
+  @Test
+  public void lockFree() throws Exception {
+    run(true, false);
+  }
+
+  /**
+   * Lock-free access to memory-mapped files.
+   * @throws Exception exception
+   */
+  @Test
+  public void mapped() throws Exception {
+    run(false, true);
+  }
+
+  /**
+   * Opens the database with the specified access mode and runs the query with an increasing
+   * number of threads.
+   * @param lockfree lock-free access
+   * @param mmap memory mapping
+   * @throws Exception exception
+   */
+  private static void run(final boolean lockfree, final boolean mmap) throws Exception {
+    context.soptions.set(StaticOptions.LOCKFREE, lockfree);
+    context.soptions.set(StaticOptions.MMAP, mmap);
+    new Open(NAME).execute(context);
+    try {
+      Util.outln("LOCKFREE: %, MMAP: %", lockfree, mmap);
+      // warm up
+      new XQuery(QUERY).execute(context);
+
+      final int max = Runtime.getRuntime().availableProcessors();
+      for(int threads = 1; threads <= max; threads <<= 1) {
+        final Client[] clients = new Client[threads];
+        for(int c = 0; c < threads; c++) clients[c] = new Client();
+        final Performance perf = new Performance();
+        for(final Client c : clients) c.start();
+        for(final Client c : clients) c.join();
+        final double ms = perf.time() / 1000000d;
+        Util.outln("- % threads: % queries/sec", threads, (int) (threads * RUNS * 1000 / ms));
+      }
+      Util.outln();
+    } finally {
+      new Close().execute(context);
+    }
+  }
+
+  /** Single client. */
+  private static final class Client extends Thread {
+    @Override
+    public void run() {
+      try {
+        for(int r = 0; r < RUNS; r++) new XQuery(QUERY).execute(context);
+      } catch(final BaseXException ex) {
+        Util.stack(ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package org.basex.performance;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.index.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class compares the performance of the tree-based {@link IdPreMap} with the previous,
+ * array-based implementation, which shifted all subsequent records for each update.
+ * Nodes are inserted at random positions, and all inserted IDs are looked up after each round.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class IdPreMapTest {
+  /** Number of initial nodes. */
+  private static final int NODES = 1000000;
+  /** Number of inserts per round. */
+  private static final int UPDATES = 5000;
+  /** Number of rounds. */
+  private static final int ROUNDS = 4;
+
+  /** Runs the benchmark. */
+  @Test
+  public void compare() {
+    final long array = run(new ArrayIdPreMap(NODES - 1), "Array map: ");
+    final long tree = run(new IdPreMap(NODES - 1), "Tree map:  ");
+    Util.outln("Speedup: " + (double) array / tree);
+  }
+
+  /**
+   * Performs random inserts and lookups.
+   * @param map map to be tested
+   * @param name name of the map
+   * @return total time in nanoseconds
+   */
+  private static long run(final IdPreMap map, final String name) {
+    // use constant seed to perform the same updates every time
+    final Random rnd = new Random(0);
+    int size = NODES, id = NODES;
+    final int[] ids = new int[ROUNDS * UPDATES];
+    long total = 0;
+    for(int r = 1; r <= ROUNDS; r++) {
+      final Performance perf = new Performance();
+      // inserts at random positions
+      for(int u = 0; u < UPDATES; u++) {
+        ids[id - NODES] = id;
+        map.insert(rnd.nextInt(size + 1), id++, 1);
+        size++;
+      }
+      final long upd = perf.time();
+
+      // look up all inserted IDs
+      int found = 0;
+      for(int i = NODES; i < id; i++) {
+        if(map.pre(ids[i - NODES]) >= 0) found++;
+      }
+      final long lookup = perf.time();
+      assertEquals(id - NODES, found);
+      total += upd + lookup;
+      Util.outln(name + r * UPDATES + " inserts, " + map.size() + " records: " +
+          Performance.getTime(upd, 1) + " (inserts), " + Performance.getTime(lookup, 1) +
+          " (lookups)");
+    }
+    return total;
+  }
+
+  /**
+   * Previous, array-based implementation of the ID -> PRE mapping.
+   * Inserts and lookups of inserted IDs take linear time.
+   * Deletions are not supported by this copy.
+   */
+  private static final class ArrayIdPreMap extends IdPreMap {
+    /** Base ID value. */
+    private int baseid;
+    /** PRE values of the inserted/deleted IDs. */
+    private int[] pres = new int[1];
+    /** Inserted first ID values. */
+    private int[] fids = new int[1];
+    /** Inserted last ID values. */
+    private int[] nids = new int[1];
+    /** Increments showing how the PRE values have been modified. */
+    private int[] incs = new int[1];
+    /** ID values for the PRE, before inserting/deleting a record. */
+    private int[] oids = new int[1];
+    /** Number of records in the table. */
+    private int rows;
+
+    /**
+     * Constructor.
+     * @param id last inserted ID
+     */
+    ArrayIdPreMap(final int id) {
+      super(id);
+      baseid = id;
+    }
+
+    @Override
+    public int pre(final int id) {
+      if(rows == 0 || id < pres[0]) return id;
+      if(id > baseid) {
+        for(int i = 0; i < rows; ++i) {
+          if(fids[i] <= id && id <= nids[i]) return pres[i] + id - fids[i];
+        }
+      } else {
+        int i = Arrays.binarySearch(oids, 0, rows, id);
+        if(i >= 0) {
+          while(++i < rows && oids[i] == id);
+          i--;
+        } else {
+          i = -i - 2;
+        }
+        return id + incs[i];
+      }
+      return -1;
+    }
+
+    @Override
+    public void insert(final int pre, final int id, final int c) {
+      if(rows == 0 && pre == id && id == baseid + 1) {
+        baseid += c;
+        return;
+      }
+      int pos = 0, inc = c, oid = pre;
+      if(rows > 0) {
+        pos = Arrays.binarySearch(pres, 0, rows, pre);
+        if(pos < 0) {
+          pos = -pos - 1;
+          if(pos != 0) {
+            final int prev = pos - 1;
+            final int prevcnt = nids[prev] - fids[prev] + 1;
+            final int prevpre = pres[prev];
+            if(pre < prevpre + prevcnt) {
+              final int split = pre - prevpre;
+              final int fid = fids[prev] + split;
+              add(pos, pre, fid, nids[prev], incs[prev], oids[prev]);
+              nids[prev] = fid - 1;
+              incs[prev] -= prevcnt - split;
+              oid = oids[prev];
+              inc += incs[prev];
+            } else {
+              oid = pre - incs[prev];
+              inc += incs[prev];
+            }
+          }
+        } else if(pos > 0) {
+          oid = oids[pos];
+          inc += incs[pos - 1];
+        }
+        for(int i = pos; i < rows; ++i) {
+          pres[i] += c;
+          incs[i] += c;
+        }
+      }
+      add(pos, pre, id, id + c - 1, inc, oid);
+    }
+
+    @Override
+    public void delete(final int pre, final int id, final int c) {
+      throw Util.notExpected();
+    }
+
+    @Override
+    public int size() {
+      return rows;
+    }
+
+    /**
+     * Adds a record.
+     * @param i index
+     * @param pre pre value
+     * @param fid first ID value
+     * @param nid last ID value
+     * @param inc increment value
+     * @param oid original ID value
+     */
+    private void add(final int i, final int pre, final int fid, final int nid,
+        final int inc, final int oid) {
+      if(rows == pres.length) {
+        final int s = Array.newSize(rows);
+        pres = Arrays.copyOf(pres, s);
+        fids = Arrays.copyOf(fids, s);
+        nids = Arrays.copyOf(nids, s);
+        incs = Arrays.copyOf(incs, s);
+        oids = Arrays.copyOf(oids, s);
+      }
+      final int l = rows - i;
+      System.arraycopy(pres, i, pres, i + 1, l);
+      System.arraycopy(fids, i, fids, i + 1, l);
+      System.arraycopy(nids, i, nids, i + 1, l);
+      System.arraycopy(incs, i, incs, i + 1, l);
+      System.arraycopy(oids, i, oids, i + 1, l);
+      pres[i] = pre;
+      fids[i] = fid;
+      nids[i] = nid;
+      incs[i] = inc;
+      oids[i] = oid;
+      ++rows;
+    }
+  }
+}